@@ -0,0 +1,79 @@
+-- Summary latency at a given table size.
+--
+-- Start the application once against the docker-compose database so the tables and indexes exist, stop it, since it
+-- keeps the symbol ids in memory, then run for each size (1M, 10M and 50M rows):
+--
+--   psql -h localhost -U postgres -v rows=1000000 -f benchmarks/postgres/summary-latency.sql
+--
+-- Orders are spread over 200 tickers and 365 days, so one (ticker, side, day) holds about rows / 146000 orders.
+
+\timing on
+
+TRUNCATE "customer_order";
+TRUNCATE daily_order_summary;
+
+INSERT INTO symbol (id, name)
+SELECT coalesce((SELECT max(id) FROM symbol), 0) + row_number() OVER (ORDER BY name), name
+FROM (SELECT 'T' || i AS name FROM generate_series(0, 199) AS i UNION SELECT 'SEK') AS names
+WHERE name NOT IN (SELECT name FROM symbol);
+
+-- Ticker, side and day are taken from different parts of i, so every combination holds orders.
+INSERT INTO "customer_order" (id, ticker_id, order_side, volume, price, currency_id, date)
+SELECT gen_random_uuid(),
+       t.id,
+       (i / 200) % 2,
+       1 + (i % 1000),
+       1000 + floor(random() * 99000)::bigint,
+       c.id,
+       timestamp '2023-01-01' + ((i / 400) % 365) * interval '1 day' + random() * interval '1 day'
+FROM generate_series(1, :rows) AS i
+JOIN symbol t ON t.name = 'T' || (i % 200)
+JOIN symbol c ON c.name = 'SEK';
+
+INSERT INTO daily_order_summary (ticker, order_side, date, number_of_orders, total_price, min_price, max_price,
+                                 total_volume, total_notional, currency)
+SELECT t.name, CASE o.order_side WHEN 0 THEN 'BUY' ELSE 'SELL' END, CAST(o.date AS DATE), count(*), sum(o.price),
+       min(o.price), max(o.price), sum(CAST(o.volume AS bigint)), sum(CAST(o.price AS numeric) * o.volume), min(c.name)
+FROM "customer_order" o
+JOIN symbol t ON t.id = o.ticker_id
+JOIN symbol c ON c.id = o.currency_id
+GROUP BY t.name, o.order_side, CAST(o.date AS DATE);
+
+VACUUM ANALYZE "customer_order";
+VACUUM ANALYZE daily_order_summary;
+
+-- Previous query on the previous schema, which had no index on the ticker: a scan of the whole table. The indexes
+-- are dropped in a transaction that is rolled back.
+BEGIN;
+DROP INDEX idx_customer_order_ticker_side_date;
+DROP INDEX idx_customer_order_ticker_date_id;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT avg(price), max(price), min(price), count(*)
+FROM "customer_order"
+WHERE ticker_id = (SELECT id FROM symbol WHERE name = 'T42') AND order_side = 0
+  AND CAST(date AS DATE) = DATE '2023-06-13'
+GROUP BY ticker_id, order_side, date;
+ROLLBACK;
+
+-- Previous query with the index: the cast hides the date column from it, so every order of the ticker and side is
+-- read.
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT avg(price), max(price), min(price), count(*)
+FROM "customer_order"
+WHERE ticker_id = (SELECT id FROM symbol WHERE name = 'T42') AND order_side = 0
+  AND CAST(date AS DATE) = DATE '2023-06-13'
+GROUP BY ticker_id, order_side, date;
+
+-- Half-open range: an index range scan on (ticker, order_side, date).
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT avg(price), max(price), min(price), count(*)
+FROM "customer_order"
+WHERE ticker_id = (SELECT id FROM symbol WHERE name = 'T42') AND order_side = 0
+  AND date >= timestamp '2023-06-13' AND date < timestamp '2023-06-14'
+GROUP BY ticker_id, order_side;
+
+-- Rollup: a single primary key lookup, independent of the number of orders.
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT number_of_orders, total_price, min_price, max_price
+FROM daily_order_summary
+WHERE ticker = 'T42' AND order_side = 'BUY' AND date = DATE '2023-06-13';
@@ -0,0 +1,97 @@
+-- Size of the orders table and its summary index with ticker, order side and currency as strings and as ids.
+--
+-- Runs on scratch tables, so any database will do:
+--
+--   psql -h localhost -U postgres -v rows=10000000 -f benchmarks/postgres/symbol-ids-size.sql
+--
+-- Orders are spread over 200 tickers and 365 days, like in summary-latency.sql. The first two tables have the columns
+-- in the order Hibernate creates them, by name. The last one has the same columns as the second, ordered from widest to
+-- narrowest so that no padding is needed to align them.
+
+\timing on
+
+DROP TABLE IF EXISTS order_with_strings;
+DROP TABLE IF EXISTS order_with_ids;
+DROP TABLE IF EXISTS order_with_packed_ids;
+
+CREATE TABLE order_with_strings (
+    id         uuid PRIMARY KEY,
+    currency   varchar(10) NOT NULL,
+    date       timestamp(6) NOT NULL,
+    order_side varchar(255) NOT NULL,
+    price      bigint NOT NULL,
+    ticker     varchar(10) NOT NULL,
+    volume     integer NOT NULL
+);
+
+CREATE TABLE order_with_ids (
+    id          uuid PRIMARY KEY,
+    currency_id integer NOT NULL,
+    date        timestamp(6) NOT NULL,
+    order_side  smallint NOT NULL,
+    price       bigint NOT NULL,
+    ticker_id   integer NOT NULL,
+    volume      integer NOT NULL
+);
+
+CREATE TABLE order_with_packed_ids (
+    id          uuid PRIMARY KEY,
+    date        timestamp(6) NOT NULL,
+    price       bigint NOT NULL,
+    currency_id integer NOT NULL,
+    ticker_id   integer NOT NULL,
+    volume      integer NOT NULL,
+    order_side  smallint NOT NULL
+);
+
+INSERT INTO order_with_strings (id, date, order_side, price, ticker, volume, currency)
+SELECT gen_random_uuid(),
+       timestamp '2023-01-01' + (i % 365) * interval '1 day' + random() * interval '1 day',
+       CASE WHEN i % 2 = 0 THEN 'BUY' ELSE 'SELL' END,
+       1000 + floor(random() * 99000)::bigint,
+       'T' || (i % 200),
+       1 + (i % 1000),
+       'SEK'
+FROM generate_series(1, :rows) AS i;
+
+INSERT INTO order_with_ids (id, date, order_side, price, volume, ticker_id, currency_id)
+SELECT id, date, CASE order_side WHEN 'BUY' THEN 0 ELSE 1 END, price, volume,
+       1 + CAST(substr(ticker, 2) AS integer), 201
+FROM order_with_strings;
+
+INSERT INTO order_with_packed_ids (id, date, order_side, price, volume, ticker_id, currency_id)
+SELECT id, date, order_side, price, volume, ticker_id, currency_id
+FROM order_with_ids;
+
+CREATE INDEX order_with_strings_ticker_side_date ON order_with_strings (ticker, order_side, date);
+CREATE INDEX order_with_ids_ticker_side_date ON order_with_ids (ticker_id, order_side, date);
+CREATE INDEX order_with_packed_ids_ticker_side_date ON order_with_packed_ids (ticker_id, order_side, date);
+
+VACUUM ANALYZE order_with_strings;
+VACUUM ANALYZE order_with_ids;
+VACUUM ANALYZE order_with_packed_ids;
+
+SELECT relname,
+       pg_size_pretty(pg_table_size(oid)) AS table_size,
+       pg_size_pretty(pg_relation_size(relname || '_ticker_side_date')) AS summary_index_size,
+       pg_size_pretty(pg_indexes_size(oid)) AS all_indexes_size,
+       pg_size_pretty(pg_total_relation_size(oid)) AS total_size
+FROM pg_class
+WHERE relname IN ('order_with_strings', 'order_with_ids', 'order_with_packed_ids');
+
+-- The summary query on each layout, by the same index range scan.
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT avg(price), max(price), min(price), count(*)
+FROM order_with_strings
+WHERE ticker = 'T42' AND order_side = 'BUY'
+  AND date >= timestamp '2023-06-13' AND date < timestamp '2023-06-14';
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT avg(price), max(price), min(price), count(*)
+FROM order_with_ids
+WHERE ticker_id = 43 AND order_side = 0
+  AND date >= timestamp '2023-06-13' AND date < timestamp '2023-06-14';
+
+DROP TABLE order_with_strings;
+DROP TABLE order_with_ids;
+DROP TABLE order_with_packed_ids;
@@ -0,0 +1,10 @@
+-- Adds the ticker, date and id index that searches of orders page through.
+--
+-- The application creates it on startup too, but that locks the orders table against writes while the index is built.
+-- On a large table, build it first without blocking writes, then start the new version:
+--
+--   psql -h localhost -U postgres -f db/order-search-index.sql
+--
+-- CREATE INDEX CONCURRENTLY cannot run in a transaction. If it fails it leaves an invalid index; drop it and run again.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_customer_order_ticker_date_id ON "customer_order" (ticker_id, date, id);
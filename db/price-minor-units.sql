@@ -0,0 +1,34 @@
+-- Converts prices from numeric(15, 2) columns to bigint minor units of the currency.
+--
+-- Stop the application, run once against the database and start the new version:
+--
+--   psql -h localhost -U postgres -f db/price-minor-units.sql
+--
+-- Prices were stored with two decimals for every currency, so they are rounded half up to the minor unit of the
+-- currencies that use fewer or more. Currencies that are not listed use two decimals, like the application does.
+
+BEGIN;
+
+ALTER TABLE "customer_order" ALTER COLUMN price TYPE bigint USING round(price * CASE
+    WHEN currency IN ('BIF', 'CLP', 'DJF', 'GNF', 'ISK', 'JPY', 'KMF', 'KRW', 'PYG', 'RWF', 'UGX', 'UYI', 'VND', 'VUV',
+                      'XAF', 'XOF', 'XPF') THEN 1
+    WHEN currency IN ('BHD', 'IQD', 'JOD', 'KWD', 'LYD', 'OMR', 'TND') THEN 1000
+    WHEN currency IN ('CLF', 'UYW') THEN 10000
+    ELSE 100 END);
+
+ALTER TABLE trade ALTER COLUMN price TYPE bigint USING round(price * CASE
+    WHEN currency IN ('BIF', 'CLP', 'DJF', 'GNF', 'ISK', 'JPY', 'KMF', 'KRW', 'PYG', 'RWF', 'UGX', 'UYI', 'VND', 'VUV',
+                      'XAF', 'XOF', 'XPF') THEN 1
+    WHEN currency IN ('BHD', 'IQD', 'JOD', 'KWD', 'LYD', 'OMR', 'TND') THEN 1000
+    WHEN currency IN ('CLF', 'UYW') THEN 10000
+    ELSE 100 END);
+
+-- The rollup has no currency yet, so it is emptied and rebuilt from the orders by the application on startup.
+TRUNCATE daily_order_summary;
+ALTER TABLE daily_order_summary
+    ALTER COLUMN total_price TYPE bigint USING 0,
+    ALTER COLUMN min_price TYPE bigint USING NULL,
+    ALTER COLUMN max_price TYPE bigint USING NULL,
+    ADD COLUMN IF NOT EXISTS currency varchar(10);
+
+COMMIT;
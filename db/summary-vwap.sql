@@ -0,0 +1,26 @@
+-- Adds the total volume and the total of price times volume to the daily summaries, for the volume-weighted average
+-- price.
+--
+-- Stop the application, run once against the database and start the new version:
+--
+--   psql -h localhost -U postgres -f db/summary-vwap.sql
+--
+-- The totals of existing days are computed from the orders, like the application would when the rollup is empty.
+
+BEGIN;
+
+ALTER TABLE daily_order_summary
+    ADD COLUMN total_volume bigint NOT NULL DEFAULT 0,
+    ADD COLUMN total_notional numeric(38, 0) NOT NULL DEFAULT 0;
+
+UPDATE daily_order_summary s
+SET total_volume = o.total_volume,
+    total_notional = o.total_notional
+FROM (SELECT ticker, order_side, CAST(date AS DATE) AS date,
+             sum(CAST(volume AS bigint)) AS total_volume,
+             sum(CAST(price AS numeric) * volume) AS total_notional
+      FROM "customer_order"
+      GROUP BY ticker, order_side, CAST(date AS DATE)) o
+WHERE s.ticker = o.ticker AND s.order_side = o.order_side AND s.date = o.date;
+
+COMMIT;
@@ -0,0 +1,62 @@
+-- Replaces the ticker and currency strings of orders and trades with ids in the symbol table, and the order side string
+-- with its ordinal.
+--
+-- Stop the application, run once against the database and start the new version:
+--
+--   psql -h localhost -U postgres -f db/symbol-ids.sql
+--
+-- The summary and candle rollups keep their ticker names, they have one row per ticker and day or interval.
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS symbol (
+    id   integer PRIMARY KEY,
+    name varchar(10) NOT NULL UNIQUE
+);
+
+INSERT INTO symbol (id, name)
+SELECT coalesce((SELECT max(id) FROM symbol), 0) + row_number() OVER (ORDER BY name), name
+FROM (SELECT ticker AS name FROM "customer_order"
+      UNION SELECT currency FROM "customer_order"
+      UNION SELECT ticker FROM trade
+      UNION SELECT currency FROM trade) AS names
+WHERE name NOT IN (SELECT name FROM symbol);
+
+DROP INDEX IF EXISTS idx_customer_order_ticker_side_date;
+
+ALTER TABLE "customer_order"
+    DROP CONSTRAINT IF EXISTS customer_order_order_side_check,
+    ADD COLUMN ticker_id integer,
+    ADD COLUMN currency_id integer,
+    ALTER COLUMN order_side TYPE smallint USING CASE order_side WHEN 'BUY' THEN 0 WHEN 'SELL' THEN 1 END,
+    ADD CONSTRAINT customer_order_order_side_check CHECK (order_side BETWEEN 0 AND 1);
+UPDATE "customer_order" o
+SET ticker_id = t.id, currency_id = c.id
+FROM symbol t, symbol c
+WHERE t.name = o.ticker AND c.name = o.currency;
+ALTER TABLE "customer_order"
+    DROP COLUMN ticker,
+    DROP COLUMN currency,
+    ALTER COLUMN ticker_id SET NOT NULL,
+    ALTER COLUMN currency_id SET NOT NULL;
+
+ALTER TABLE trade
+    ADD COLUMN ticker_id integer,
+    ADD COLUMN currency_id integer;
+UPDATE trade o
+SET ticker_id = t.id, currency_id = c.id
+FROM symbol t, symbol c
+WHERE t.name = o.ticker AND c.name = o.currency;
+ALTER TABLE trade
+    DROP COLUMN ticker,
+    DROP COLUMN currency,
+    ALTER COLUMN ticker_id SET NOT NULL,
+    ALTER COLUMN currency_id SET NOT NULL;
+
+CREATE INDEX idx_customer_order_ticker_side_date ON "customer_order" (ticker_id, order_side, date);
+
+COMMIT;
+
+-- The updates rewrote every row, so the old versions are reclaimed here to get the space back.
+VACUUM FULL ANALYZE "customer_order";
+VACUUM FULL ANALYZE trade;
@@ -0,0 +1,33 @@
+package com.github.annsofip.orderbookservice.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchOrderResultDTO {
+    @Schema(description = "Position of the order in the request, starting at 0", example = "0")
+    @JsonProperty(value = "index")
+    private int index;
+    @Schema(description = "Outcome for the order", example = "CREATED")
+    @JsonProperty(value = "status")
+    private Status status;
+    @Schema(description = "The created order, if the status is CREATED")
+    @JsonProperty(value = "order")
+    private OrderResponseDTO order;
+    @Schema(description = "Why the order was not created", example = "price may not be null")
+    @JsonProperty(value = "error")
+    private String error;
+
+    public enum Status {
+        CREATED, REJECTED, FAILED
+    }
+}
@@ -0,0 +1,30 @@
+package com.github.annsofip.orderbookservice.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkSummaryRequestDTO {
+    @Schema(description = "Date of the orders", example = "2023-06-13", format = "yyyy-MM-dd")
+    @JsonProperty(value = "date")
+    @NotNull(message = "date may not be null")
+    private LocalDate date;
+    @Schema(description = "Ticker and order side of each summary, answered in the same order")
+    @JsonProperty(value = "summaries")
+    @NotNull(message = "summaries may not be null")
+    @Size(max = 10_000, message = "at most 10000 summaries can be requested at once")
+    private List<@Valid @NotNull SummaryKeyDTO> summaries;
+}
@@ -0,0 +1,38 @@
+package com.github.annsofip.orderbookservice.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.github.annsofip.orderbookservice.model.CandleInterval;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Getter
+@Builder
+@AllArgsConstructor
+public class CandleDTO {
+    @JsonProperty(value = "ticker")
+    private String ticker;
+    @JsonProperty(value = "orderSide")
+    private OrderSide orderSide;
+    @JsonProperty(value = "interval")
+    private CandleInterval interval;
+    @JsonProperty(value = "start")
+    private LocalDateTime start;
+    @JsonProperty(value = "open")
+    private BigDecimal open;
+    @JsonProperty(value = "high")
+    private BigDecimal high;
+    @JsonProperty(value = "low")
+    private BigDecimal low;
+    @JsonProperty(value = "close")
+    private BigDecimal close;
+    @JsonProperty(value = "volume")
+    private Long volume;
+    @JsonProperty(value = "numberOfOrders")
+    private Long numberOfOrders;
+
+}
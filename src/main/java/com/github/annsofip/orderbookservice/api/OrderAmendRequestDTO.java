@@ -0,0 +1,28 @@
+package com.github.annsofip.orderbookservice.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderAmendRequestDTO {
+    @Schema(description = "New volume, lower than the current volume and higher than the volume traded. The order "
+            + "keeps its place in the queue of its price. Kept if not given", example = "50")
+    @JsonProperty(value = "volume")
+    @Positive(message = "volume must be positive")
+    private Integer volume;
+    @Schema(description = "New price. The order loses its place in the queue and is matched again at the new price. "
+            + "Kept if not given", example = "12.95")
+    @JsonProperty(value = "price")
+    @Positive(message = "price must be positive")
+    private BigDecimal price;
+}
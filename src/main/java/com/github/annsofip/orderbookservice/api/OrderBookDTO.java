@@ -0,0 +1,21 @@
+package com.github.annsofip.orderbookservice.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@Builder
+@AllArgsConstructor
+public class OrderBookDTO {
+    @JsonProperty(value = "ticker")
+    private String ticker;
+    @JsonProperty(value = "bids")
+    private List<PriceLevelDTO> bids;
+    @JsonProperty(value = "asks")
+    private List<PriceLevelDTO> asks;
+
+}
@@ -0,0 +1,25 @@
+package com.github.annsofip.orderbookservice.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Getter
+public class OrderPageDTO {
+    @Schema(description = "Orders of the page, oldest first")
+    @JsonProperty(value = "orders")
+    private List<OrderResponseDTO> orders;
+    @Schema(description = "Cursor to pass as after to get the next page, missing on the last page", example = "AAYJ7RkUXoIBiKBN7nZ3cY2Xa3D2Mvb0")
+    @JsonProperty(value = "next")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String next;
+}
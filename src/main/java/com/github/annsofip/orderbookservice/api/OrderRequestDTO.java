@@ -39,4 +39,13 @@ public class OrderRequestDTO {
     @NotNull(message = "currency may not be null")
     @Size(min = 2, max = 10, message = "currency must be between 2 and 10 characters long")
     private String currency;
+    @Schema(description = "Id that makes retries of the order create it only once, answered with the order that was "
+            + "created the first time", example = "a1b2c3")
+    @JsonProperty(value = "clientOrderId")
+    @Size(min = 1, max = 64, message = "clientOrderId must be between 1 and 64 characters long")
+    private String clientOrderId;
+
+    public OrderRequestDTO(String ticker, OrderSide orderSide, Integer volume, BigDecimal price, String currency) {
+        this(ticker, orderSide, volume, price, currency, null);
+    }
 }
@@ -1,6 +1,8 @@
 package com.github.annsofip.orderbookservice.api;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.github.annsofip.orderbookservice.model.FillStatus;
 import com.github.annsofip.orderbookservice.model.OrderSide;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
@@ -19,6 +21,10 @@ import java.util.UUID;
 public class OrderResponseDTO {
     @JsonProperty(value = "id")
     private UUID id;
+    @Schema(description = "Id given by the client when the order was created", example = "a1b2c3")
+    @JsonProperty(value = "clientOrderId")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String clientOrderId;
     @Schema(description = "Ticker", example = "SAVE")
     @JsonProperty(value = "ticker")
     private String ticker;
@@ -37,4 +43,10 @@ public class OrderResponseDTO {
     @Schema(description = "Date of the order", example = "2023-06-14", format = "yyyy-MM-dd")
     @JsonProperty(value = "date")
     private LocalDate date;
+    @Schema(description = "How many stocks have been traded", example = "40")
+    @JsonProperty(value = "filledVolume")
+    private Integer filledVolume;
+    @Schema(description = "Whether the order is open, partially filled, filled or cancelled", example = "PARTIALLY_FILLED")
+    @JsonProperty(value = "fillStatus")
+    private FillStatus fillStatus;
 }
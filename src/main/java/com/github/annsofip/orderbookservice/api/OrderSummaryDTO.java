@@ -25,6 +25,10 @@ public class OrderSummaryDTO {
     private BigDecimal minPrice;
     @JsonProperty(value = "numberOfOrders")
     private Long numberOfOrders;
+    @JsonProperty(value = "vwap")
+    private BigDecimal vwap;
+    @JsonProperty(value = "totalVolume")
+    private Long totalVolume;
     @JsonProperty(value = "date")
     private LocalDate date;
 
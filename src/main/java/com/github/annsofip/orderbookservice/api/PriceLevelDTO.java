@@ -0,0 +1,21 @@
+package com.github.annsofip.orderbookservice.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+@Getter
+@Builder
+@AllArgsConstructor
+public class PriceLevelDTO {
+    @JsonProperty(value = "price")
+    private BigDecimal price;
+    @JsonProperty(value = "volume")
+    private Long volume;
+    @JsonProperty(value = "numberOfOrders")
+    private Integer numberOfOrders;
+
+}
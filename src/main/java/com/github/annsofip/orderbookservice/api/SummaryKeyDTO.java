@@ -0,0 +1,25 @@
+package com.github.annsofip.orderbookservice.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SummaryKeyDTO {
+    @Schema(description = "Ticker", example = "SAVE")
+    @JsonProperty(value = "ticker")
+    @NotNull(message = "Ticker may not be null")
+    private String ticker;
+    @Schema(description = "Side indicating if the orders are for buying or selling", example = "BUY")
+    @JsonProperty(value = "orderSide")
+    @NotNull(message = "OrderSide may not be null")
+    private OrderSide orderSide;
+}
@@ -0,0 +1,371 @@
+package com.github.annsofip.orderbookservice.archive;
+
+import com.github.annsofip.orderbookservice.model.DailySummary;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.model.OrderWithFills;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Read-only, memory-mapped file of the archived orders of one day, stored by column:
+ * <pre>
+ * header    magic, version, flags, epoch day, orders, symbols, groups, price base and the offset of every section
+ * symbols   tickers and currencies of the file, a byte length and UTF-8 each, referred to by their position
+ * groups    ticker, order side and the range of orders of every group, the orders of a group ordered by date and id
+ * ids       most and then least significant bits of every order id, and the orders ordered by id
+ * dates     microseconds since the start of the day: the first of every block of 128 orders, the offset of the rest of
+ *           the block in the deltas, and the deltas to the order before as zigzag varints
+ * prices    minor units, as unsigned int offsets from the price base if they all fit, else as longs
+ * volumes   volume and filled volume of every order
+ * currencies symbol of the currency of every order
+ * </pre>
+ * All numbers are little-endian. A summary of a ticker and order side reads the price and volume columns of one range
+ * and nothing else, so it runs at the speed of memory rather than of rows.
+ */
+final class ArchiveSegment {
+    static final int MAGIC = 0x4F424143;
+    static final short VERSION = 1;
+    static final int FLAG_INT_PRICES = 1;
+    static final int SYMBOLS = 0;
+    static final int GROUPS = 1;
+    static final int ID_HIGH = 2;
+    static final int ID_LOW = 3;
+    static final int ID_INDEX = 4;
+    static final int TIME_BASES = 5;
+    static final int TIME_OFFSETS = 6;
+    static final int TIME_DELTAS = 7;
+    static final int PRICES = 8;
+    static final int VOLUMES = 9;
+    static final int FILLED_VOLUMES = 10;
+    static final int CURRENCIES = 11;
+    static final int SECTIONS = 12;
+    static final int HEADER_SIZE = 32 + 8 * SECTIONS;
+    static final int GROUP_SIZE = 16;
+    static final int TIME_BLOCK_SIZE = 128;
+    static final int MAX_VARINT_SIZE = 10;
+    static final int MAX_SYMBOLS = 1 << 16;
+    static final long MAX_PRICE_OFFSET = 0xFFFFFFFFL;
+    private static final BigInteger LOW_BITS = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+    private static final OrderSide[] ORDER_SIDES = OrderSide.values();
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final LocalDate date;
+    private final int size;
+    private final boolean intPrices;
+    private final long priceBase;
+    private final int[] offsets = new int[SECTIONS];
+    private final String[] symbols;
+    private final Map<String, Integer> symbolCodes = new HashMap<>();
+    private final Group[] groups;
+
+    private ArchiveSegment(Path file, MappedByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException(file + ": not an archive segment");
+        }
+        if (buffer.getShort(4) != VERSION) {
+            throw new IOException(file + ": unsupported archive segment version " + buffer.getShort(4));
+        }
+        this.intPrices = (buffer.getShort(6) & FLAG_INT_PRICES) != 0;
+        this.date = LocalDate.ofEpochDay(buffer.getInt(8));
+        this.size = buffer.getInt(12);
+        this.symbols = new String[buffer.getInt(16)];
+        this.groups = new Group[buffer.getInt(20)];
+        this.priceBase = buffer.getLong(24);
+        for (int section = 0; section < SECTIONS; section++) {
+            long offset = buffer.getLong(32 + 8 * section);
+            if (offset < HEADER_SIZE || offset > buffer.capacity()) {
+                throw new IOException(file + ": section " + section + " is outside the file");
+            }
+            offsets[section] = (int) offset;
+        }
+
+        int offset = offsets[SYMBOLS];
+        for (int code = 0; code < symbols.length; code++) {
+            byte[] name = new byte[Byte.toUnsignedInt(buffer.get(offset))];
+            buffer.get(offset + 1, name);
+            symbols[code] = new String(name, StandardCharsets.UTF_8);
+            symbolCodes.put(symbols[code], code);
+            offset += 1 + name.length;
+        }
+        offset = offsets[GROUPS];
+        for (int i = 0; i < groups.length; i++) {
+            groups[i] = new Group(symbols[buffer.getInt(offset)], ORDER_SIDES[buffer.getInt(offset + 4)],
+                    buffer.getInt(offset + 8), buffer.getInt(offset + 12));
+            offset += GROUP_SIZE;
+        }
+    }
+
+    static ArchiveSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return new ArchiveSegment(file, buffer);
+        }
+    }
+
+    Path file() {
+        return file;
+    }
+
+    LocalDate date() {
+        return date;
+    }
+
+    int size() {
+        return size;
+    }
+
+    UUID id(int row) {
+        return new UUID(buffer.getLong(offsets[ID_HIGH] + 8 * row), buffer.getLong(offsets[ID_LOW] + 8 * row));
+    }
+
+    /**
+     * The order with the id, found by a binary search of the orders ordered by id.
+     */
+    Optional<OrderWithFills> find(UUID id) {
+        long high = id.getMostSignificantBits();
+        long low = id.getLeastSignificantBits();
+        int from = 0;
+        int to = size - 1;
+        while (from <= to) {
+            int middle = (from + to) >>> 1;
+            int row = buffer.getInt(offsets[ID_INDEX] + 4 * middle);
+            int comparison = compareIds(buffer.getLong(offsets[ID_HIGH] + 8 * row),
+                    buffer.getLong(offsets[ID_LOW] + 8 * row), high, low);
+            if (comparison < 0) {
+                from = middle + 1;
+            } else if (comparison > 0) {
+                to = middle - 1;
+            } else {
+                return Optional.of(order(groupOf(row), row, new DateCursor(row).micros));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * The orders of the ticker and order side, by date and id.
+     */
+    Iterator<OrderWithFills> orders(String ticker, OrderSide orderSide) {
+        return group(ticker, orderSide).<Iterator<OrderWithFills>>map(GroupIterator::new)
+                .orElse(Collections.emptyIterator());
+    }
+
+    /**
+     * Summary of the orders of the ticker and order side, if there are any.
+     */
+    Optional<DailySummary> summary(String ticker, OrderSide orderSide) {
+        return group(ticker, orderSide).map(this::summary);
+    }
+
+    List<DailySummary> summaries() {
+        List<DailySummary> summaries = new ArrayList<>(groups.length);
+        for (Group group : groups) {
+            summaries.add(summary(group));
+        }
+        return summaries;
+    }
+
+    // Orders are compared by the signed bits of their ids, the same order in which the writer sorts them.
+    static int compareIds(long high, long low, long otherHigh, long otherLow) {
+        int comparison = Long.compare(high, otherHigh);
+        return comparison != 0 ? comparison : Long.compare(low, otherLow);
+    }
+
+    private DailySummary summary(Group group) {
+        return intPrices ? intPriceSummary(group) : longPriceSummary(group);
+    }
+
+    // Prices are offsets of at most 32 bits from the price base, so the sum of the offsets of fewer than 2^31 orders
+    // fits in a long and the base is added once at the end. Offset times volume is below 2^63 and is summed as its high
+    // and low 32 bits, which cannot overflow either, so the loop has no carries, overflow checks or branches.
+    private DailySummary intPriceSummary(Group group) {
+        long offsetTotal = 0;
+        long minOffset = Long.MAX_VALUE;
+        long maxOffset = Long.MIN_VALUE;
+        long volume = 0;
+        long notionalHigh = 0;
+        long notionalLow = 0;
+        int prices = offsets[PRICES];
+        int volumes = offsets[VOLUMES];
+        for (int row = group.start; row < group.end; row++) {
+            long offset = Integer.toUnsignedLong(buffer.getInt(prices + 4 * row));
+            long orderVolume = buffer.getInt(volumes + 4 * row);
+            offsetTotal += offset;
+            minOffset = Math.min(minOffset, offset);
+            maxOffset = Math.max(maxOffset, offset);
+            volume += orderVolume;
+            long product = offset * orderVolume;
+            notionalHigh += product >>> 32;
+            notionalLow += product & 0xFFFFFFFFL;
+        }
+        long count = group.end - group.start;
+        BigInteger notional = BigInteger.valueOf(notionalHigh).shiftLeft(32).add(BigInteger.valueOf(notionalLow))
+                .add(BigInteger.valueOf(priceBase).multiply(BigInteger.valueOf(volume)));
+        return new DailySummary(group.ticker, group.orderSide, date,
+                Math.addExact(Math.multiplyExact(priceBase, count), offsetTotal), priceBase + maxOffset,
+                priceBase + minOffset, count, volume, new BigDecimal(notional), currency(group.start));
+    }
+
+    private DailySummary longPriceSummary(Group group) {
+        long total = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        long volume = 0;
+        long notionalHigh = 0;
+        long notionalLow = 0;
+        int prices = offsets[PRICES];
+        int volumes = offsets[VOLUMES];
+        for (int row = group.start; row < group.end; row++) {
+            long price = buffer.getLong(prices + 8 * row);
+            long orderVolume = buffer.getInt(volumes + 4 * row);
+            total = Math.addExact(total, price);
+            min = Math.min(min, price);
+            max = Math.max(max, price);
+            volume += orderVolume;
+            long product = price * orderVolume;
+            long low = notionalLow + product;
+            notionalHigh += Math.multiplyHigh(price, orderVolume) + (Long.compareUnsigned(low, notionalLow) < 0 ? 1 : 0);
+            notionalLow = low;
+        }
+        return new DailySummary(group.ticker, group.orderSide, date, total, max, min,
+                (long) (group.end - group.start), volume, new BigDecimal(toBigInteger(notionalHigh, notionalLow)),
+                currency(group.start));
+    }
+
+    private static BigInteger toBigInteger(long high, long low) {
+        return BigInteger.valueOf(high).shiftLeft(64).add(BigInteger.valueOf(low).and(LOW_BITS));
+    }
+
+    private Optional<Group> group(String ticker, OrderSide orderSide) {
+        if (!symbolCodes.containsKey(ticker)) {
+            return Optional.empty();
+        }
+        for (Group group : groups) {
+            if (group.orderSide == orderSide && group.ticker.equals(ticker)) {
+                return Optional.of(group);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private Group groupOf(int row) {
+        for (Group group : groups) {
+            if (row >= group.start && row < group.end) {
+                return group;
+            }
+        }
+        throw new IllegalStateException(file + ": order " + row + " is in no group");
+    }
+
+    private String currency(int row) {
+        return symbols[Short.toUnsignedInt(buffer.getShort(offsets[CURRENCIES] + 2 * row))];
+    }
+
+    private OrderWithFills order(Group group, int row, long micros) {
+        long price = intPrices
+                ? priceBase + Integer.toUnsignedLong(buffer.getInt(offsets[PRICES] + 4 * row))
+                : buffer.getLong(offsets[PRICES] + 8 * row);
+        Order order = Order.builder()
+                .id(id(row))
+                .ticker(group.ticker)
+                .orderSide(group.orderSide)
+                .volume(buffer.getInt(offsets[VOLUMES] + 4 * row))
+                .price(price)
+                .currency(currency(row))
+                .date(date.atStartOfDay().plusNanos(micros * 1000))
+                .build();
+        return new OrderWithFills(order, (long) buffer.getInt(offsets[FILLED_VOLUMES] + 4 * row));
+    }
+
+    private record Group(String ticker, OrderSide orderSide, int start, int end) {
+    }
+
+    // Position in the dates. Moving to the next order decodes one delta, moving to any order decodes the deltas from
+    // the start of its block.
+    private final class DateCursor {
+        private int row;
+        private long micros;
+        private int position;
+
+        DateCursor(int row) {
+            int block = row / TIME_BLOCK_SIZE;
+            this.row = block * TIME_BLOCK_SIZE;
+            this.micros = buffer.getLong(offsets[TIME_BASES] + 8 * block);
+            this.position = offsets[TIME_DELTAS] + buffer.getInt(offsets[TIME_OFFSETS] + 4 * block);
+            while (this.row < row) {
+                next();
+            }
+        }
+
+        void next() {
+            row++;
+            if (row % TIME_BLOCK_SIZE == 0) {
+                int block = row / TIME_BLOCK_SIZE;
+                micros = buffer.getLong(offsets[TIME_BASES] + 8 * block);
+                position = offsets[TIME_DELTAS] + buffer.getInt(offsets[TIME_OFFSETS] + 4 * block);
+                return;
+            }
+            long zigzag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(position++);
+                zigzag |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            micros += (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+    }
+
+    private final class GroupIterator implements Iterator<OrderWithFills> {
+        private final Group group;
+        private DateCursor dates;
+        private int row;
+
+        GroupIterator(Group group) {
+            this.group = group;
+            this.row = group.start;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return row < group.end;
+        }
+
+        @Override
+        public OrderWithFills next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (dates == null) {
+                dates = new DateCursor(row);
+            } else {
+                dates.next();
+            }
+            return order(group, row++, dates.micros);
+        }
+    }
+}
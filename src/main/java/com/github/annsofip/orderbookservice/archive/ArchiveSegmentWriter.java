@@ -0,0 +1,260 @@
+package com.github.annsofip.orderbookservice.archive;
+
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.github.annsofip.orderbookservice.archive.ArchiveSegment.CURRENCIES;
+import static com.github.annsofip.orderbookservice.archive.ArchiveSegment.FILLED_VOLUMES;
+import static com.github.annsofip.orderbookservice.archive.ArchiveSegment.FLAG_INT_PRICES;
+import static com.github.annsofip.orderbookservice.archive.ArchiveSegment.GROUPS;
+import static com.github.annsofip.orderbookservice.archive.ArchiveSegment.GROUP_SIZE;
+import static com.github.annsofip.orderbookservice.archive.ArchiveSegment.HEADER_SIZE;
+import static com.github.annsofip.orderbookservice.archive.ArchiveSegment.ID_HIGH;
+import static com.github.annsofip.orderbookservice.archive.ArchiveSegment.ID_INDEX;
+import static com.github.annsofip.orderbookservice.archive.ArchiveSegment.ID_LOW;
+import static com.github.annsofip.orderbookservice.archive.ArchiveSegment.MAGIC;
+import static com.github.annsofip.orderbookservice.archive.ArchiveSegment.MAX_PRICE_OFFSET;
+import static com.github.annsofip.orderbookservice.archive.ArchiveSegment.MAX_SYMBOLS;
+import static com.github.annsofip.orderbookservice.archive.ArchiveSegment.MAX_VARINT_SIZE;
+import static com.github.annsofip.orderbookservice.archive.ArchiveSegment.PRICES;
+import static com.github.annsofip.orderbookservice.archive.ArchiveSegment.SECTIONS;
+import static com.github.annsofip.orderbookservice.archive.ArchiveSegment.SYMBOLS;
+import static com.github.annsofip.orderbookservice.archive.ArchiveSegment.TIME_BASES;
+import static com.github.annsofip.orderbookservice.archive.ArchiveSegment.TIME_BLOCK_SIZE;
+import static com.github.annsofip.orderbookservice.archive.ArchiveSegment.TIME_DELTAS;
+import static com.github.annsofip.orderbookservice.archive.ArchiveSegment.TIME_OFFSETS;
+import static com.github.annsofip.orderbookservice.archive.ArchiveSegment.VERSION;
+import static com.github.annsofip.orderbookservice.archive.ArchiveSegment.VOLUMES;
+
+/**
+ * Collects the orders of one day in columns and writes them as an {@link ArchiveSegment}. Orders must be added grouped
+ * by ticker and order side, and by date and id within a group.
+ */
+class ArchiveSegmentWriter {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final LocalDate date;
+    private final Map<String, Integer> symbolCodes = new HashMap<>();
+    private final List<String> symbols = new ArrayList<>();
+    private final List<int[]> groups = new ArrayList<>();
+    private final Set<Long> groupKeys = new HashSet<>();
+    private long[] idHigh = new long[INITIAL_CAPACITY];
+    private long[] idLow = new long[INITIAL_CAPACITY];
+    private long[] micros = new long[INITIAL_CAPACITY];
+    private int[] currency = new int[INITIAL_CAPACITY];
+    private long[] price = new long[INITIAL_CAPACITY];
+    private int[] volume = new int[INITIAL_CAPACITY];
+    private int[] filledVolume = new int[INITIAL_CAPACITY];
+    private int size;
+
+    ArchiveSegmentWriter(LocalDate date) {
+        this.date = date;
+    }
+
+    LocalDate date() {
+        return date;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void add(Order order, int filled) {
+        LocalDateTime orderDate = order.getDate();
+        if (!orderDate.toLocalDate().equals(date)) {
+            throw new IllegalArgumentException("Order " + order.getId() + " is not of " + date);
+        }
+        int ticker = code(order.getTicker());
+        int side = order.getOrderSide().ordinal();
+        int[] group = groups.isEmpty() ? null : groups.get(groups.size() - 1);
+        if (group == null || group[0] != ticker || group[1] != side) {
+            if (!groupKeys.add(groupKey(ticker, side))) {
+                throw new IllegalArgumentException("Orders of " + order.getTicker() + " " + order.getOrderSide()
+                        + " are not grouped");
+            }
+            group = new int[]{ticker, side, size, size};
+            groups.add(group);
+        }
+        if (size == idHigh.length) {
+            grow();
+        }
+        idHigh[size] = order.getId().getMostSignificantBits();
+        idLow[size] = order.getId().getLeastSignificantBits();
+        micros[size] = ChronoUnit.MICROS.between(date.atStartOfDay(), orderDate);
+        currency[size] = code(order.getCurrency());
+        price[size] = order.getPrice();
+        volume[size] = order.getVolume();
+        filledVolume[size] = filled;
+        size++;
+        group[3] = size;
+    }
+
+    /**
+     * Writes the segment to the file, which must not exist, and forces it to disk.
+     */
+    void write(Path file) throws IOException {
+        byte[][] names = symbols.stream().map(name -> name.getBytes(StandardCharsets.UTF_8)).toArray(byte[][]::new);
+        int blocks = (size + TIME_BLOCK_SIZE - 1) / TIME_BLOCK_SIZE;
+        byte[] deltas = new byte[size * MAX_VARINT_SIZE];
+        int[] blockOffsets = new int[blocks];
+        int deltasLength = encodeTimes(deltas, blockOffsets);
+        long minPrice = size == 0 ? 0 : Arrays.stream(price, 0, size).min().orElseThrow();
+        long maxPrice = size == 0 ? 0 : Arrays.stream(price, 0, size).max().orElseThrow();
+        boolean intPrices = maxPrice - minPrice >= 0 && maxPrice - minPrice <= MAX_PRICE_OFFSET;
+
+        long[] offsets = new long[SECTIONS];
+        long position = HEADER_SIZE;
+        offsets[SYMBOLS] = position;
+        position = align(position + Arrays.stream(names).mapToLong(name -> 1 + name.length).sum());
+        offsets[GROUPS] = position;
+        position = align(position + (long) groups.size() * GROUP_SIZE);
+        offsets[ID_HIGH] = position;
+        position += 8L * size;
+        offsets[ID_LOW] = position;
+        position += 8L * size;
+        offsets[ID_INDEX] = position;
+        position = align(position + 4L * size);
+        offsets[TIME_BASES] = position;
+        position += 8L * blocks;
+        offsets[TIME_OFFSETS] = position;
+        position = align(position + 4L * blocks);
+        offsets[TIME_DELTAS] = position;
+        position = align(position + deltasLength);
+        offsets[PRICES] = position;
+        position = align(position + (intPrices ? 4L : 8L) * size);
+        offsets[VOLUMES] = position;
+        position = align(position + 4L * size);
+        offsets[FILLED_VOLUMES] = position;
+        position = align(position + 4L * size);
+        offsets[CURRENCIES] = position;
+        position = align(position + 2L * size);
+        if (position > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Archive segment of " + size + " orders is too large");
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, position);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(0, MAGIC);
+            buffer.putShort(4, VERSION);
+            buffer.putShort(6, (short) (intPrices ? FLAG_INT_PRICES : 0));
+            buffer.putInt(8, Math.toIntExact(date.toEpochDay()));
+            buffer.putInt(12, size);
+            buffer.putInt(16, names.length);
+            buffer.putInt(20, groups.size());
+            buffer.putLong(24, minPrice);
+            for (int section = 0; section < SECTIONS; section++) {
+                buffer.putLong(32 + 8 * section, offsets[section]);
+            }
+
+            int offset = (int) offsets[SYMBOLS];
+            for (byte[] name : names) {
+                buffer.put(offset, (byte) name.length);
+                buffer.put(offset + 1, name);
+                offset += 1 + name.length;
+            }
+            offset = (int) offsets[GROUPS];
+            for (int[] group : groups) {
+                for (int field : group) {
+                    buffer.putInt(offset, field);
+                    offset += 4;
+                }
+            }
+            Integer[] byId = new Integer[size];
+            for (int row = 0; row < size; row++) {
+                buffer.putLong((int) offsets[ID_HIGH] + 8 * row, idHigh[row]);
+                buffer.putLong((int) offsets[ID_LOW] + 8 * row, idLow[row]);
+                byId[row] = row;
+            }
+            Arrays.sort(byId, (a, b) -> ArchiveSegment.compareIds(idHigh[a], idLow[a], idHigh[b], idLow[b]));
+            for (int i = 0; i < size; i++) {
+                buffer.putInt((int) offsets[ID_INDEX] + 4 * i, byId[i]);
+            }
+            for (int block = 0; block < blocks; block++) {
+                buffer.putLong((int) offsets[TIME_BASES] + 8 * block, micros[block * TIME_BLOCK_SIZE]);
+                buffer.putInt((int) offsets[TIME_OFFSETS] + 4 * block, blockOffsets[block]);
+            }
+            buffer.put((int) offsets[TIME_DELTAS], deltas, 0, deltasLength);
+            for (int row = 0; row < size; row++) {
+                if (intPrices) {
+                    buffer.putInt((int) offsets[PRICES] + 4 * row, (int) (price[row] - minPrice));
+                } else {
+                    buffer.putLong((int) offsets[PRICES] + 8 * row, price[row]);
+                }
+                buffer.putInt((int) offsets[VOLUMES] + 4 * row, volume[row]);
+                buffer.putInt((int) offsets[FILLED_VOLUMES] + 4 * row, filledVolume[row]);
+                buffer.putShort((int) offsets[CURRENCIES] + 2 * row, (short) currency[row]);
+            }
+            buffer.force();
+        }
+    }
+
+    // The first time of a block is stored whole, the others as the zigzag varint of the difference to the time before.
+    private int encodeTimes(byte[] deltas, int[] blockOffsets) {
+        int length = 0;
+        for (int row = 0; row < size; row++) {
+            if (row % TIME_BLOCK_SIZE == 0) {
+                blockOffsets[row / TIME_BLOCK_SIZE] = length;
+                continue;
+            }
+            long delta = micros[row] - micros[row - 1];
+            long zigzag = (delta << 1) ^ (delta >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                deltas[length++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            deltas[length++] = (byte) zigzag;
+        }
+        return length;
+    }
+
+    private int code(String symbol) {
+        Integer code = symbolCodes.get(symbol);
+        if (code == null) {
+            if (symbols.size() == MAX_SYMBOLS) {
+                throw new IllegalStateException("Too many symbols in one archive segment");
+            }
+            code = symbols.size();
+            symbols.add(symbol);
+            symbolCodes.put(symbol, code);
+        }
+        return code;
+    }
+
+    private void grow() {
+        int capacity = idHigh.length * 2;
+        idHigh = Arrays.copyOf(idHigh, capacity);
+        idLow = Arrays.copyOf(idLow, capacity);
+        micros = Arrays.copyOf(micros, capacity);
+        currency = Arrays.copyOf(currency, capacity);
+        price = Arrays.copyOf(price, capacity);
+        volume = Arrays.copyOf(volume, capacity);
+        filledVolume = Arrays.copyOf(filledVolume, capacity);
+    }
+
+    private static long groupKey(int ticker, int side) {
+        return (long) ticker << 32 | side;
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+}
@@ -0,0 +1,309 @@
+package com.github.annsofip.orderbookservice.archive;
+
+import com.github.annsofip.orderbookservice.config.OrderBookProperties;
+import com.github.annsofip.orderbookservice.model.DailySummary;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.model.OrderWithFills;
+import com.github.annsofip.orderbookservice.model.SummaryKey;
+import com.github.annsofip.orderbookservice.repositories.OrderRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Orders of past days that have been moved out of the orders table into {@link ArchiveSegment} files, one or more per
+ * day, in {@code order-book.archive.directory}.
+ * <p>
+ * A segment is written to a temporary file, marked as pending and moved into place before its orders are deleted
+ * from the table, and the mark is removed once they are. A segment that is still pending on startup has its deletes
+ * finished, so an order is never lost, but it can be in both the table and a segment for a while. Readers that combine
+ * the two skip the orders of a segment that they have already read from the table.
+ */
+@Slf4j
+@Component
+public class OrderArchive implements MeterBinder {
+    static final String FILE_PREFIX = "orders-";
+    static final String FILE_SUFFIX = ".archive";
+    static final String PENDING_SUFFIX = ".pending";
+    static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final Pattern FILE_NAME = Pattern.compile(
+            Pattern.quote(FILE_PREFIX) + "(\\d{4}-\\d{2}-\\d{2})-(\\d+)" + Pattern.quote(FILE_SUFFIX));
+
+    private final Path directory;
+    private final int deleteBatchSize;
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate deleteTemplate;
+    private final ConcurrentSkipListMap<LocalDate, List<ArchiveSegment>> segments = new ConcurrentSkipListMap<>();
+
+    public OrderArchive(OrderBookProperties properties, OrderRepository orderRepository,
+                        TransactionTemplate transactionTemplate) {
+        OrderBookProperties.Archive config = properties.getArchive();
+        this.directory = config.getDirectory();
+        this.deleteBatchSize = config.getDeleteBatchSize();
+        this.orderRepository = orderRepository;
+        this.deleteTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.deleteTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("orderbook.archive.segments", this, archive -> archive.segmentStream().count())
+                .description("Archive files of orders of past days")
+                .register(registry);
+        Gauge.builder("orderbook.archive.orders", this, archive -> archive.segmentStream().mapToLong(ArchiveSegment::size).sum())
+                .description("Orders in the archive files")
+                .register(registry);
+    }
+
+    /**
+     * Opens the segments in the directory, removes segments that were not completely written and finishes deleting
+     * the orders of pending ones.
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        segments.clear();
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.sorted().toList();
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (name.endsWith(TEMPORARY_SUFFIX)) {
+                Files.delete(file);
+            } else if (name.endsWith(PENDING_SUFFIX)
+                    && !Files.exists(file.resolveSibling(name.substring(0, name.length() - PENDING_SUFFIX.length())))) {
+                // The segment was never moved into place, so none of its orders were deleted.
+                Files.delete(file);
+            } else if (FILE_NAME.matcher(name).matches()) {
+                ArchiveSegment segment = ArchiveSegment.open(file);
+                segments.computeIfAbsent(segment.date(), date -> new CopyOnWriteArrayList<>()).add(segment);
+            }
+        }
+        finishPendingDeletes();
+        log.info("operation=openArchive, action=success, directory={}, segments={}", directory,
+                segmentStream().count());
+    }
+
+    /**
+     * The archived order with the id, looked up in the newest segments first.
+     */
+    public Optional<OrderWithFills> find(UUID id) {
+        for (List<ArchiveSegment> daySegments : segments.descendingMap().values()) {
+            for (ArchiveSegment segment : daySegments) {
+                Optional<OrderWithFills> order = segment.find(id);
+                if (order.isPresent()) {
+                    return order;
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * The orders of the ticker, order side and day from the table, read by {@code table}, together with the archived
+     * ones, by date. The table must be queried before this is called, so that orders that are archived in between are
+     * read from the table and skipped in the archive rather than missed by both.
+     */
+    public Iterator<OrderWithFills> withArchived(Iterator<OrderWithFills> table, String ticker, OrderSide orderSide,
+                                                 LocalDate date) {
+        List<ArchiveSegment> daySegments = segments.get(date);
+        if (daySegments == null) {
+            return table;
+        }
+        List<Iterator<OrderWithFills>> sources = new ArrayList<>(daySegments.size() + 1);
+        sources.add(table);
+        for (ArchiveSegment segment : daySegments) {
+            sources.add(segment.orders(ticker, orderSide));
+        }
+        return new MergingIterator(sources);
+    }
+
+    /**
+     * Summaries of the archived orders per ticker, order side and day.
+     */
+    public List<DailySummary> dailySummaries() {
+        Map<SummaryKey, DailySummary> summaries = new LinkedHashMap<>();
+        segmentStream().forEach(segment -> {
+            for (DailySummary summary : segment.summaries()) {
+                summaries.merge(new SummaryKey(summary.getTicker(), summary.getOrderSide(), summary.getDate()),
+                        summary, DailySummary::combine);
+            }
+        });
+        return new ArrayList<>(summaries.values());
+    }
+
+    /**
+     * Summary of the archived orders of one ticker, order side and day, if any were archived.
+     */
+    public Optional<DailySummary> dailySummary(String ticker, OrderSide orderSide, LocalDate date) {
+        return segments.getOrDefault(date, List.of()).stream()
+                .flatMap(segment -> segment.summaries().stream())
+                .filter(summary -> summary.getTicker().equals(ticker) && summary.getOrderSide() == orderSide)
+                .reduce(DailySummary::combine);
+    }
+
+    /**
+     * Writes the segment, makes it readable and deletes its orders from the table.
+     */
+    void add(ArchiveSegmentWriter writer) throws IOException {
+        Files.createDirectories(directory);
+        LocalDate date = writer.date();
+        int sequence = segments.getOrDefault(date, List.of()).size();
+        Path file = directory.resolve(fileName(date, sequence));
+        while (Files.exists(file) || Files.exists(pending(file))) {
+            file = directory.resolve(fileName(date, ++sequence));
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + TEMPORARY_SUFFIX);
+        writer.write(temporary);
+        Files.createFile(pending(file));
+        syncDirectory();
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+        // The move must survive a crash before any order is deleted, or the orders would be in neither place.
+        syncDirectory();
+        ArchiveSegment segment = ArchiveSegment.open(file);
+        segments.computeIfAbsent(date, day -> new CopyOnWriteArrayList<>()).add(segment);
+        deleteOrders(segment);
+    }
+
+    /**
+     * Deletes the orders of segments whose deletes were interrupted.
+     */
+    void finishPendingDeletes() throws IOException {
+        for (ArchiveSegment segment : segmentStream().toList()) {
+            if (Files.exists(pending(segment.file()))) {
+                deleteOrders(segment);
+            }
+        }
+    }
+
+    private void deleteOrders(ArchiveSegment segment) throws IOException {
+        List<UUID> ids = new ArrayList<>(Math.min(deleteBatchSize, segment.size()));
+        for (int row = 0; row < segment.size(); row++) {
+            ids.add(segment.id(row));
+            if (ids.size() == deleteBatchSize || row == segment.size() - 1) {
+                deleteTemplate.executeWithoutResult(status -> orderRepository.deleteAllByIdInBatch(ids));
+                ids.clear();
+            }
+        }
+        Files.delete(pending(segment.file()));
+        log.info("operation=archiveOrders, action=success, file={}, orders={}", segment.file(), segment.size());
+    }
+
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("operation=syncArchiveDirectory, action=unsupported", e);
+        }
+    }
+
+    private Stream<ArchiveSegment> segmentStream() {
+        return segments.values().stream().flatMap(List::stream);
+    }
+
+    private static String fileName(LocalDate date, int sequence) {
+        return FILE_PREFIX + date + "-" + sequence + FILE_SUFFIX;
+    }
+
+    private static Path pending(Path file) {
+        return file.resolveSibling(file.getFileName() + PENDING_SUFFIX);
+    }
+
+    // Merges sources ordered by date. An order can only be in two sources with the same date, so the ids of the
+    // current date are enough to skip it the second time.
+    private static final class MergingIterator implements Iterator<OrderWithFills> {
+        private final PriorityQueue<Head> heads = new PriorityQueue<>(
+                Comparator.comparing((Head head) -> head.order.getOrder().getDate()).thenComparingInt(Head::source));
+        private final Set<UUID> currentIds = new HashSet<>();
+        private LocalDateTime currentDate;
+        private OrderWithFills next;
+
+        MergingIterator(List<Iterator<OrderWithFills>> sources) {
+            for (int source = 0; source < sources.size(); source++) {
+                advance(new Head(sources.get(source), source));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !heads.isEmpty()) {
+                Head head = heads.poll();
+                OrderWithFills order = head.order;
+                advance(head);
+                if (!order.getOrder().getDate().equals(currentDate)) {
+                    currentDate = order.getOrder().getDate();
+                    currentIds.clear();
+                }
+                if (currentIds.add(order.getOrder().getId())) {
+                    next = order;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public OrderWithFills next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            OrderWithFills order = next;
+            next = null;
+            return order;
+        }
+
+        private void advance(Head head) {
+            if (head.iterator.hasNext()) {
+                head.order = head.iterator.next();
+                heads.add(head);
+            }
+        }
+
+        private static final class Head {
+            private final Iterator<OrderWithFills> iterator;
+            private final int source;
+            private OrderWithFills order;
+
+            Head(Iterator<OrderWithFills> iterator, int source) {
+                this.iterator = iterator;
+                this.source = source;
+            }
+
+            int source() {
+                return source;
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.github.annsofip.orderbookservice.archive;
+
+import com.github.annsofip.orderbookservice.config.OrderBookProperties;
+import com.github.annsofip.orderbookservice.model.OrderWithFills;
+import com.github.annsofip.orderbookservice.repositories.OrderRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Moves the filled orders of past days from the orders table to the {@link OrderArchive}, on startup and then every
+ * {@code order-book.archive.interval} if the archive is enabled. A day is archived once {@code delay} has passed since
+ * it ended. Orders that are still open stay in the table, since the order books are rebuilt from it, and are archived
+ * in a later segment of their day once they are filled.
+ */
+@Slf4j
+@Component
+public class OrderCompactor implements SmartInitializingSingleton {
+    private final OrderArchive orderArchive;
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate readOnlyTemplate;
+    private final EntityManager entityManager;
+    private final boolean enabled;
+    private final Duration delay;
+    private final Duration interval;
+    private final int segmentOrders;
+    private final ScheduledExecutorService compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public OrderCompactor(OrderArchive orderArchive, OrderRepository orderRepository,
+                          TransactionTemplate transactionTemplate, EntityManager entityManager,
+                          OrderBookProperties properties) {
+        OrderBookProperties.Archive config = properties.getArchive();
+        this.orderArchive = orderArchive;
+        this.orderRepository = orderRepository;
+        this.readOnlyTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTemplate.setReadOnly(true);
+        this.entityManager = entityManager;
+        this.enabled = config.isEnabled();
+        this.delay = config.getDelay();
+        this.interval = config.getInterval();
+        this.segmentOrders = config.getSegmentOrders();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (enabled) {
+            compactor.scheduleWithFixedDelay(this::compactClosedDays, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        compactor.shutdown();
+        compactor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Archives the filled orders of the days before {@code before}.
+     *
+     * @return the number of orders archived
+     */
+    public long compact(LocalDate before) {
+        try {
+            orderArchive.finishPendingDeletes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long archived = readOnlyTemplate.execute(status -> {
+            try (Stream<OrderWithFills> orders = orderRepository.streamFilledBefore(before.atStartOfDay())) {
+                return archive(orders.iterator());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        log.info("operation=compactOrders, action=success, before={}, orders={}", before, archived);
+        return archived;
+    }
+
+    private long archive(Iterator<OrderWithFills> orders) throws IOException {
+        long archived = 0;
+        ArchiveSegmentWriter writer = null;
+        while (orders.hasNext()) {
+            OrderWithFills order = orders.next();
+            LocalDate date = order.getOrder().getDate().toLocalDate();
+            if (writer != null && (!writer.date().equals(date) || writer.size() == segmentOrders)) {
+                orderArchive.add(writer);
+                archived += writer.size();
+                writer = null;
+            }
+            if (writer == null) {
+                writer = new ArchiveSegmentWriter(date);
+            }
+            writer.add(order.getOrder(), order.getFilledVolume());
+            entityManager.detach(order.getOrder());
+        }
+        if (writer != null) {
+            orderArchive.add(writer);
+            archived += writer.size();
+        }
+        return archived;
+    }
+
+    private void compactClosedDays() {
+        try {
+            compact(LocalDateTime.now().minus(delay).toLocalDate());
+        } catch (RuntimeException e) {
+            log.error("operation=compactOrders, action=fail", e);
+        }
+    }
+}
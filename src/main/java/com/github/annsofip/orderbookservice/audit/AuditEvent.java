@@ -0,0 +1,117 @@
+package com.github.annsofip.orderbookservice.audit;
+
+import com.github.annsofip.orderbookservice.model.OrderSide;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * A slot of the audit ring buffer. Slots are allocated once and filled again for every event, so recording an event
+ * does not allocate. Fields are only set for what the event has, see {@link #fields}.
+ */
+final class AuditEvent {
+    static final int ID = 1;
+    static final int TICKER = 1 << 1;
+    static final int ORDER_SIDE = 1 << 2;
+    static final int VOLUME = 1 << 3;
+    static final int FILLED_VOLUME = 1 << 4;
+    static final int PRICE = 1 << 5;
+    static final int CURRENCY = 1 << 6;
+    static final int DATE = 1 << 7;
+    static final int COUNT = 1 << 8;
+
+    /**
+     * Sequence of the event once it is filled, read by the writer to know that the slot can be written.
+     */
+    volatile long published = -1;
+    long sequence;
+
+    AuditOperation operation;
+    AuditOutcome outcome;
+    long timestamp;
+    int fields;
+    long idMostSignificantBits;
+    long idLeastSignificantBits;
+    String ticker;
+    OrderSide orderSide;
+    int volume;
+    int filledVolume;
+    BigDecimal price;
+    String currency;
+    LocalDate date;
+    long count;
+
+    void start(AuditOperation operation, AuditOutcome outcome, long timestamp) {
+        this.operation = operation;
+        this.outcome = outcome;
+        this.timestamp = timestamp;
+        this.fields = 0;
+        this.ticker = null;
+        this.price = null;
+        this.currency = null;
+        this.date = null;
+    }
+
+    void id(UUID id) {
+        if (id != null) {
+            idMostSignificantBits = id.getMostSignificantBits();
+            idLeastSignificantBits = id.getLeastSignificantBits();
+            fields |= ID;
+        }
+    }
+
+    void ticker(String ticker) {
+        if (ticker != null) {
+            this.ticker = ticker;
+            fields |= TICKER;
+        }
+    }
+
+    void orderSide(OrderSide orderSide) {
+        if (orderSide != null) {
+            this.orderSide = orderSide;
+            fields |= ORDER_SIDE;
+        }
+    }
+
+    void volume(Integer volume) {
+        if (volume != null) {
+            this.volume = volume;
+            fields |= VOLUME;
+        }
+    }
+
+    void filledVolume(Integer filledVolume) {
+        if (filledVolume != null) {
+            this.filledVolume = filledVolume;
+            fields |= FILLED_VOLUME;
+        }
+    }
+
+    void price(BigDecimal price) {
+        if (price != null) {
+            this.price = price;
+            fields |= PRICE;
+        }
+    }
+
+    void currency(String currency) {
+        if (currency != null) {
+            this.currency = currency;
+            fields |= CURRENCY;
+        }
+    }
+
+    void date(LocalDate date) {
+        if (date != null) {
+            this.date = date;
+            fields |= DATE;
+        }
+    }
+
+    void count(long count) {
+        this.count = count;
+        fields |= COUNT;
+    }
+}
@@ -0,0 +1,260 @@
+package com.github.annsofip.orderbookservice.audit;
+
+import com.github.annsofip.orderbookservice.api.OrderResponseDTO;
+import com.github.annsofip.orderbookservice.config.OrderBookProperties;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Audit log of requests in the compact binary format of {@link AuditRecordCodec}, written in the background.
+ * <p>
+ * Events are filled into preallocated slots of a ring buffer on the request thread and encoded and written to disk by
+ * a single writer thread, so recording an event neither allocates nor formats nor waits for the disk. Writes are always
+ * recorded: if the ring is full, the request waits for the writer. Reads are sampled at {@code readSampleRate} and
+ * dropped if the ring is full, so reads never wait. Files are rolled once they reach {@code maxFileSize}, and can be
+ * read with {@link AuditLogDecoder}.
+ */
+@Slf4j
+@Component
+public class AuditLog implements MeterBinder {
+    static final String FILE_PREFIX = "audit-";
+    static final String FILE_SUFFIX = ".bin";
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final double readSampleRate;
+    private final long maxFileSize;
+    private final AuditEvent[] slots;
+    private final int mask;
+    private final AtomicLong next = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+    private volatile long consumed;
+    private volatile boolean running;
+
+    // Only used by the writer thread.
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+    private FileChannel file;
+    private long fileSize;
+
+    public AuditLog(OrderBookProperties properties) {
+        OrderBookProperties.Audit config = properties.getAudit();
+        int bufferSize = config.getBufferSize();
+        if (Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("Audit buffer size must be a power of two, was " + bufferSize);
+        }
+        this.enabled = config.isEnabled();
+        this.directory = config.getDirectory();
+        this.readSampleRate = config.getReadSampleRate();
+        this.maxFileSize = config.getMaxFileSize().toBytes();
+        this.mask = bufferSize - 1;
+        this.slots = new AuditEvent[enabled ? bufferSize : 0];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new AuditEvent();
+        }
+        this.writer = new Thread(this::writeLoop, "audit-log-writer");
+        writer.setDaemon(true);
+        if (enabled) {
+            running = true;
+            writer.start();
+        }
+    }
+
+    /**
+     * Records a request for one order, such as creating or getting it. The order is null if there was none.
+     */
+    public void recordOrder(AuditOperation operation, AuditOutcome outcome, UUID id, OrderResponseDTO order) {
+        AuditEvent event = claim(operation);
+        if (event == null) {
+            return;
+        }
+        try {
+            event.start(operation, outcome, System.currentTimeMillis());
+            event.id(id);
+            if (order != null) {
+                event.ticker(order.getTicker());
+                event.orderSide(order.getOrderSide());
+                event.volume(order.getVolume());
+                event.filledVolume(order.getFilledVolume());
+                event.price(order.getPrice());
+                event.currency(order.getCurrency());
+                event.date(order.getDate());
+            }
+        } finally {
+            publish(event);
+        }
+    }
+
+    /**
+     * Records a request for the orders of a ticker, order side and date, where any of them may be null, and the number
+     * of results it got.
+     */
+    public void recordQuery(AuditOperation operation, AuditOutcome outcome, String ticker, OrderSide orderSide,
+                            LocalDate date, long count) {
+        AuditEvent event = claim(operation);
+        if (event == null) {
+            return;
+        }
+        try {
+            event.start(operation, outcome, System.currentTimeMillis());
+            event.ticker(ticker);
+            event.orderSide(orderSide);
+            event.date(date);
+            event.count(count);
+        } finally {
+            publish(event);
+        }
+    }
+
+    /**
+     * Number of events that were sampled but dropped because the ring was full.
+     */
+    long droppedCount() {
+        return dropped.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("orderbook.audit.dropped", dropped, AtomicLong::get)
+                .description("Audit events dropped because the audit log was behind")
+                .register(registry);
+        Gauge.builder("orderbook.audit.queued", this, audit -> audit.next.get() - audit.consumed)
+                .description("Audit events waiting to be written")
+                .register(registry);
+    }
+
+    /**
+     * Writes the events that are waiting and closes the file.
+     */
+    @PreDestroy
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private AuditEvent claim(AuditOperation operation) {
+        if (!running) {
+            return null;
+        }
+        boolean write = operation.isWrite();
+        if (!write && (readSampleRate <= 0 || readSampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= readSampleRate)) {
+            return null;
+        }
+        while (true) {
+            long sequence = next.get();
+            if (sequence - consumed > mask) {
+                if (!write || !running) {
+                    dropped.incrementAndGet();
+                    return null;
+                }
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+            } else if (next.compareAndSet(sequence, sequence + 1)) {
+                AuditEvent event = slots[(int) (sequence & mask)];
+                event.sequence = sequence;
+                return event;
+            }
+        }
+    }
+
+    private static void publish(AuditEvent event) {
+        event.published = event.sequence;
+    }
+
+    private void writeLoop() {
+        long sequence = consumed;
+        while (running || sequence < next.get()) {
+            AuditEvent event = slots[(int) (sequence & mask)];
+            if (event.published != sequence) {
+                flush();
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            if (buffer.remaining() < AuditRecordCodec.MAX_RECORD_SIZE) {
+                flush();
+            }
+            AuditRecordCodec.encode(event, buffer);
+            sequence++;
+            consumed = sequence;
+        }
+        flush();
+        close();
+    }
+
+    private void flush() {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        try {
+            if (file == null || fileSize + buffer.remaining() > maxFileSize) {
+                roll();
+            }
+            while (buffer.hasRemaining()) {
+                fileSize += file.write(buffer);
+            }
+        } catch (IOException e) {
+            log.error("operation=writeAuditLog, action=fail, directory={}", directory, e);
+            close();
+        }
+        buffer.clear();
+    }
+
+    private void roll() throws IOException {
+        close();
+        Files.createDirectories(directory);
+        long timestamp = System.currentTimeMillis();
+        Path path = directory.resolve(FILE_PREFIX + timestamp + FILE_SUFFIX);
+        while (Files.exists(path)) {
+            path = directory.resolve(FILE_PREFIX + ++timestamp + FILE_SUFFIX);
+        }
+        file = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(AuditRecordCodec.FILE_HEADER_SIZE);
+        AuditRecordCodec.encodeFileHeader(header);
+        header.flip();
+        while (header.hasRemaining()) {
+            file.write(header);
+        }
+        fileSize = AuditRecordCodec.FILE_HEADER_SIZE;
+    }
+
+    private void close() {
+        if (file == null) {
+            return;
+        }
+        try {
+            file.close();
+        } catch (IOException e) {
+            log.warn("operation=closeAuditLog, action=fail, directory={}", directory, e);
+        }
+        file = null;
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.annsofip.orderbookservice.audit;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Prints audit log files as text, one line per event in the key-value format of the application log. Takes files or
+ * directories of files, which are read oldest first:
+ * <pre>
+ * java -cp target/classes com.github.annsofip.orderbookservice.audit.AuditLogDecoder audit
+ * </pre>
+ */
+public final class AuditLogDecoder {
+    private static final Pattern FILE_NAME = Pattern.compile(
+            Pattern.quote(AuditLog.FILE_PREFIX) + "\\d+" + Pattern.quote(AuditLog.FILE_SUFFIX));
+
+    private AuditLogDecoder() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: AuditLogDecoder <file or directory>...");
+            System.exit(2);
+        }
+        PrintStream out = System.out;
+        for (String arg : args) {
+            for (Path file : files(Path.of(arg))) {
+                decode(file, record -> out.println(record.format()));
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Audit log files of the path: the path itself if it is a file, or the audit log files in it, oldest first.
+     */
+    static List<Path> files(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return List.of(path);
+        }
+        try (Stream<Path> files = Files.list(path)) {
+            return files
+                    .filter(file -> FILE_NAME.matcher(file.getFileName().toString()).matches())
+                    .sorted(Comparator.comparingLong(AuditLogDecoder::timestamp))
+                    .toList();
+        }
+    }
+
+    /**
+     * Passes every complete record of the file to the consumer. A record that is still being written is left out.
+     *
+     * @return the number of records
+     */
+    static long decode(Path file, Consumer<AuditRecord> consumer) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        try {
+            AuditRecordCodec.decodeFileHeader(buffer);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(file + ": " + e.getMessage(), e);
+        }
+        long records = 0;
+        AuditRecord record;
+        while ((record = AuditRecordCodec.decode(buffer)) != null) {
+            consumer.accept(record);
+            records++;
+        }
+        return records;
+    }
+
+    private static long timestamp(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(AuditLog.FILE_PREFIX.length(), name.length() - AuditLog.FILE_SUFFIX.length()));
+    }
+}
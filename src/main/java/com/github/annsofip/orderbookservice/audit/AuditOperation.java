@@ -0,0 +1,59 @@
+package com.github.annsofip.orderbookservice.audit;
+
+import java.util.Optional;
+
+/**
+ * What an audit event records. The code is what is written to the audit log, so codes must never be reused.
+ */
+public enum AuditOperation {
+    CREATE_ORDER(1, "createOrder", true),
+    CREATE_ORDERS(2, "createOrders", true),
+    GET_ORDER(3, "getOrder", false),
+    GET_CANDLES(4, "getCandles", false),
+    GET_BOOK(5, "getBook", false),
+    GET_SUMMARY(6, "getSummary", false),
+    GET_SUMMARIES(7, "getSummaries", false),
+    GET_BULK_SUMMARIES(8, "getBulkSummaries", false),
+    STREAM_SUMMARIES(9, "streamSummaries", false),
+    EXPORT_ORDERS(10, "exportOrders", false),
+    SEARCH_ORDERS(11, "searchOrders", false),
+    CANCEL_ORDER(12, "cancelOrder", true),
+    AMEND_ORDER(13, "amendOrder", true);
+
+    private static final AuditOperation[] BY_CODE = new AuditOperation[14];
+
+    static {
+        for (AuditOperation operation : values()) {
+            BY_CODE[operation.code] = operation;
+        }
+    }
+
+    private final int code;
+    private final String name;
+    private final boolean write;
+
+    AuditOperation(int code, String name, boolean write) {
+        this.code = code;
+        this.name = name;
+        this.write = write;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Whether the operation changes orders. Writes are always audited, reads are sampled.
+     */
+    public boolean isWrite() {
+        return write;
+    }
+
+    public static Optional<AuditOperation> fromCode(int code) {
+        return code >= 0 && code < BY_CODE.length ? Optional.ofNullable(BY_CODE[code]) : Optional.empty();
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.annsofip.orderbookservice.audit;
+
+import java.util.Optional;
+
+/**
+ * How an audited request ended. The code is what is written to the audit log, so codes must never be reused.
+ */
+public enum AuditOutcome {
+    SUCCESS(0, "success"),
+    NOT_FOUND(1, "notFound"),
+    REJECTED(2, "rejected");
+
+    private final int code;
+    private final String name;
+
+    AuditOutcome(int code, String name) {
+        this.code = code;
+        this.name = name;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public static Optional<AuditOutcome> fromCode(int code) {
+        for (AuditOutcome outcome : values()) {
+            if (outcome.code == code) {
+                return Optional.of(outcome);
+            }
+        }
+        return Optional.empty();
+    }
+}
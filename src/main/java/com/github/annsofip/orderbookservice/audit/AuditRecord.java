@@ -0,0 +1,42 @@
+package com.github.annsofip.orderbookservice.audit;
+
+import com.github.annsofip.orderbookservice.model.OrderSide;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * An event read back from the audit log. Fields the event did not have are null.
+ */
+public record AuditRecord(Instant timestamp, AuditOperation operation, AuditOutcome outcome, UUID id, String ticker,
+                          OrderSide orderSide, Integer volume, Integer filledVolume, BigDecimal price, String currency,
+                          LocalDate date, Long count) {
+
+    /**
+     * The event in the key-value format of the application log.
+     */
+    public String format() {
+        StringBuilder line = new StringBuilder(160)
+                .append(timestamp)
+                .append(" operation=").append(operation.getName())
+                .append(", action=").append(outcome.getName());
+        append(line, "id", id);
+        append(line, "ticker", ticker);
+        append(line, "orderSide", orderSide);
+        append(line, "volume", volume);
+        append(line, "filledVolume", filledVolume);
+        append(line, "price", price == null ? null : price.toPlainString());
+        append(line, "currency", currency);
+        append(line, "date", date);
+        append(line, "count", count);
+        return line.toString();
+    }
+
+    private static void append(StringBuilder line, String key, Object value) {
+        if (value != null) {
+            line.append(", ").append(key).append('=').append(value);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.github.annsofip.orderbookservice.audit;
+
+import com.github.annsofip.orderbookservice.model.OrderSide;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Binary audit log. A file starts with the int {@link #MAGIC} and the byte {@link #VERSION}, followed by records:
+ * <pre>
+ * short  payload length, unsigned
+ * byte   operation code
+ * byte   outcome code
+ * long   timestamp, epoch milliseconds
+ * short  fields, one bit per field below that follows, in this order
+ * long   id, most significant bits          (bit 0)
+ * long   id, least significant bits
+ * byte   ticker length, followed by the ticker in UTF-8 (bit 1)
+ * byte   order side ordinal                 (bit 2)
+ * int    volume                             (bit 3)
+ * int    filled volume                      (bit 4)
+ * long   price, unscaled value              (bit 5)
+ * byte   price, scale
+ * byte   currency length, followed by the currency in UTF-8 (bit 6)
+ * int    date, epoch day                    (bit 7)
+ * long   count                              (bit 8)
+ * </pre>
+ * Strings are cut at 255 bytes and prices that do not fit in a long are left out. A record of a read of one order is
+ * around 60 bytes, where the same line in the application log is around 200.
+ */
+final class AuditRecordCodec {
+    static final int MAGIC = 0x4F424155;
+    static final byte VERSION = 1;
+    static final int FILE_HEADER_SIZE = 5;
+    static final int MAX_RECORD_SIZE = 2 + 1 + 1 + 8 + 2 + 16 + 256 + 1 + 4 + 4 + 9 + 256 + 4 + 8;
+    private static final int FIXED_PAYLOAD_SIZE = 1 + 1 + 8 + 2;
+    private static final int MAX_STRING_LENGTH = 255;
+    private static final OrderSide[] ORDER_SIDES = OrderSide.values();
+
+    private AuditRecordCodec() {
+    }
+
+    static void encodeFileHeader(ByteBuffer buffer) {
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+    }
+
+    /**
+     * Reads the file header at the position of the buffer.
+     *
+     * @throws IllegalArgumentException if the buffer does not start with an audit log header of a known version
+     */
+    static void decodeFileHeader(ByteBuffer buffer) {
+        if (buffer.remaining() < FILE_HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not an audit log");
+        }
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unknown audit log version " + version);
+        }
+    }
+
+    /**
+     * Writes the event at the position of the buffer, which must have at least {@link #MAX_RECORD_SIZE} bytes left.
+     */
+    static void encode(AuditEvent event, ByteBuffer buffer) {
+        int start = buffer.position();
+        buffer.position(start + 2);
+        buffer.put((byte) event.operation.getCode());
+        buffer.put((byte) event.outcome.getCode());
+        buffer.putLong(event.timestamp);
+        int fieldsPosition = buffer.position();
+        buffer.position(fieldsPosition + 2);
+
+        int fields = event.fields;
+        if ((fields & AuditEvent.ID) != 0) {
+            buffer.putLong(event.idMostSignificantBits);
+            buffer.putLong(event.idLeastSignificantBits);
+        }
+        if ((fields & AuditEvent.TICKER) != 0) {
+            putString(event.ticker, buffer);
+        }
+        if ((fields & AuditEvent.ORDER_SIDE) != 0) {
+            buffer.put((byte) event.orderSide.ordinal());
+        }
+        if ((fields & AuditEvent.VOLUME) != 0) {
+            buffer.putInt(event.volume);
+        }
+        if ((fields & AuditEvent.FILLED_VOLUME) != 0) {
+            buffer.putInt(event.filledVolume);
+        }
+        if ((fields & AuditEvent.PRICE) != 0) {
+            BigInteger unscaled = event.price.unscaledValue();
+            if (unscaled.bitLength() < Long.SIZE && event.price.scale() == (byte) event.price.scale()) {
+                buffer.putLong(unscaled.longValue());
+                buffer.put((byte) event.price.scale());
+            } else {
+                fields &= ~AuditEvent.PRICE;
+            }
+        }
+        if ((fields & AuditEvent.CURRENCY) != 0) {
+            putString(event.currency, buffer);
+        }
+        if ((fields & AuditEvent.DATE) != 0) {
+            buffer.putInt((int) event.date.toEpochDay());
+        }
+        if ((fields & AuditEvent.COUNT) != 0) {
+            buffer.putLong(event.count);
+        }
+        buffer.putShort(fieldsPosition, (short) fields);
+        buffer.putShort(start, (short) (buffer.position() - start - 2));
+    }
+
+    /**
+     * Reads the record at the position of the buffer. Returns {@code null}, leaving the position unchanged, if there is
+     * no complete record at the position, which is the case at the end of a file that is still being written.
+     *
+     * @throws IllegalArgumentException if the record is not valid
+     */
+    static AuditRecord decode(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < 2) {
+            return null;
+        }
+        int payloadLength = Short.toUnsignedInt(buffer.getShort(start));
+        if (payloadLength > buffer.remaining() - 2) {
+            return null;
+        }
+        if (payloadLength < FIXED_PAYLOAD_SIZE) {
+            throw new IllegalArgumentException("Invalid audit record at " + start);
+        }
+        buffer.position(start + 2);
+        AuditOperation operation = AuditOperation.fromCode(buffer.get())
+                .orElseThrow(() -> new IllegalArgumentException("Unknown audit operation at " + start));
+        AuditOutcome outcome = AuditOutcome.fromCode(buffer.get())
+                .orElseThrow(() -> new IllegalArgumentException("Unknown audit outcome at " + start));
+        Instant timestamp = Instant.ofEpochMilli(buffer.getLong());
+        int fields = Short.toUnsignedInt(buffer.getShort());
+
+        UUID id = (fields & AuditEvent.ID) != 0 ? new UUID(buffer.getLong(), buffer.getLong()) : null;
+        String ticker = (fields & AuditEvent.TICKER) != 0 ? getString(buffer) : null;
+        OrderSide orderSide = (fields & AuditEvent.ORDER_SIDE) != 0 ? ORDER_SIDES[buffer.get()] : null;
+        Integer volume = (fields & AuditEvent.VOLUME) != 0 ? buffer.getInt() : null;
+        Integer filledVolume = (fields & AuditEvent.FILLED_VOLUME) != 0 ? buffer.getInt() : null;
+        BigDecimal price = (fields & AuditEvent.PRICE) != 0 ? BigDecimal.valueOf(buffer.getLong(), buffer.get()) : null;
+        String currency = (fields & AuditEvent.CURRENCY) != 0 ? getString(buffer) : null;
+        LocalDate date = (fields & AuditEvent.DATE) != 0 ? LocalDate.ofEpochDay(buffer.getInt()) : null;
+        Long count = (fields & AuditEvent.COUNT) != 0 ? buffer.getLong() : null;
+        // Skips fields added by later versions.
+        buffer.position(start + 2 + payloadLength);
+        return new AuditRecord(timestamp, operation, outcome, id, ticker, orderSide, volume, filledVolume, price,
+                currency, date, count);
+    }
+
+    private static void putString(String value, ByteBuffer buffer) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_STRING_LENGTH);
+        buffer.put((byte) length);
+        buffer.put(bytes, 0, length);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[Byte.toUnsignedInt(buffer.get())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
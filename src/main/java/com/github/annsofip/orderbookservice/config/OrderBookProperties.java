@@ -0,0 +1,210 @@
+package com.github.annsofip.orderbookservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "order-book")
+public class OrderBookProperties {
+    private final Batch batch = new Batch();
+    private final Journal journal = new Journal();
+    private final Pipeline pipeline = new Pipeline();
+    private final Cache cache = new Cache();
+    private final SummaryStream summaryStream = new SummaryStream();
+    private final Candles candles = new Candles();
+    private final Metrics metrics = new Metrics();
+    private final Audit audit = new Audit();
+    private final Archive archive = new Archive();
+    private final ClientOrderIds clientOrderIds = new ClientOrderIds();
+
+    @Getter
+    @Setter
+    public static class Batch {
+        /**
+         * Number of orders persisted per transaction and JDBC batch.
+         */
+        private int chunkSize = 500;
+    }
+
+    @Getter
+    @Setter
+    public static class Journal {
+        /**
+         * Acknowledge new orders once they are in the local journal and write them to the database in the background.
+         */
+        private boolean enabled = false;
+        private Path directory = Path.of("journal");
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+        /**
+         * Maximum number of orders waiting to be written to the journal before new orders are refused.
+         */
+        private int queueCapacity = 65536;
+        /**
+         * Maximum number of orders written to the database per transaction.
+         */
+        private int drainBatchSize = 500;
+        /**
+         * How long to wait for new journal records when everything has been written to the database.
+         */
+        private Duration drainInterval = Duration.ofMillis(10);
+        /**
+         * Number of times an order is written to the database before it is moved to the quarantine file of the journal.
+         */
+        private int drainAttempts = 5;
+    }
+
+    @Getter
+    @Setter
+    public static class Pipeline {
+        /**
+         * Hand new orders to one writer thread per shard of tickers instead of writing them on the request thread.
+         */
+        private boolean enabled = false;
+        private int shards = Runtime.getRuntime().availableProcessors();
+        /**
+         * Maximum number of orders waiting per shard before new orders are refused.
+         */
+        private int queueCapacity = 4096;
+        /**
+         * Maximum number of orders a shard writes per transaction.
+         */
+        private int maxBatchSize = 256;
+        /**
+         * Sent in the Retry-After header when a shard refuses an order.
+         */
+        private Duration retryAfter = Duration.ofSeconds(1);
+    }
+
+    @Getter
+    @Setter
+    public static class Cache {
+        /**
+         * Maximum number of orders kept for GET /orders/{id}.
+         */
+        private long maximumSize = 100_000;
+        /**
+         * How long an id that was not found is answered with 404 without looking it up again.
+         */
+        private Duration notFoundTtl = Duration.ofSeconds(1);
+        private long notFoundMaximumSize = 10_000;
+    }
+
+    @Getter
+    @Setter
+    public static class SummaryStream {
+        /**
+         * Maximum number of open summary streams before new subscribers are refused.
+         */
+        private int maxSubscribers = 10_000;
+        /**
+         * Threads that send summary updates to all subscribers.
+         */
+        private int threads = 2;
+        /**
+         * How often a comment is sent on idle streams, so that proxies keep them open and closed ones are noticed.
+         */
+        private Duration heartbeatInterval = Duration.ofSeconds(15);
+        /**
+         * How long sending one event may take before the subscriber is dropped as too slow.
+         */
+        private Duration sendTimeout = Duration.ofSeconds(5);
+    }
+
+    @Getter
+    @Setter
+    public static class Candles {
+        /**
+         * How often closed candles are written to the database.
+         */
+        private Duration flushInterval = Duration.ofSeconds(1);
+        /**
+         * How long a candle stays in memory after its interval has ended, for orders that are added late.
+         */
+        private Duration closeDelay = Duration.ofSeconds(1);
+        /**
+         * Maximum number of candles written per transaction.
+         */
+        private int flushBatchSize = 500;
+    }
+
+    @Getter
+    @Setter
+    public static class Metrics {
+        /**
+         * Whether calls to the order service are timed.
+         */
+        private boolean enabled = true;
+        /**
+         * Maximum number of tickers with their own timers, other tickers share one.
+         */
+        private int maxTickers = 50;
+    }
+
+    @Getter
+    @Setter
+    public static class Audit {
+        /**
+         * Whether requests are written to the audit log.
+         */
+        private boolean enabled = true;
+        private Path directory = Path.of("audit");
+        /**
+         * Number of events waiting to be written before reads are dropped and writes wait, a power of two.
+         */
+        private int bufferSize = 8192;
+        /**
+         * Share of reads that are audited, from 0 to 1. Writes are always audited.
+         */
+        private double readSampleRate = 0.01;
+        private DataSize maxFileSize = DataSize.ofMegabytes(64);
+    }
+
+    @Getter
+    @Setter
+    public static class Archive {
+        /**
+         * Whether filled orders of past days are moved from the orders table to archive files.
+         */
+        private boolean enabled = false;
+        private Path directory = Path.of("archive");
+        /**
+         * How long after the end of a day its orders are archived, for orders that are written late.
+         */
+        private Duration delay = Duration.ofHours(1);
+        /**
+         * How often orders are archived.
+         */
+        private Duration interval = Duration.ofHours(1);
+        /**
+         * Maximum number of orders per archive file.
+         */
+        private int segmentOrders = 1_000_000;
+        /**
+         * Maximum number of archived orders deleted from the table per transaction.
+         */
+        private int deleteBatchSize = 1000;
+    }
+
+    @Getter
+    @Setter
+    public static class ClientOrderIds {
+        /**
+         * Number of client order ids the filter is sized for. Past it, more new ids are looked up in the database.
+         */
+        private long expectedIds = 10_000_000;
+        /**
+         * Share of new client order ids that are looked up in the database when the filter holds the expected ids.
+         */
+        private double falsePositiveRate = 0.01;
+        /**
+         * Number of recently created orders kept to answer retries without the database.
+         */
+        private long recentSize = 100_000;
+    }
+}
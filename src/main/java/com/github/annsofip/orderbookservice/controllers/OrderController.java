@@ -1,57 +1,177 @@
 package com.github.annsofip.orderbookservice.controllers;
 
+import com.github.annsofip.orderbookservice.api.BatchOrderResultDTO;
+import com.github.annsofip.orderbookservice.api.BulkSummaryRequestDTO;
+import com.github.annsofip.orderbookservice.api.CandleDTO;
+import com.github.annsofip.orderbookservice.api.OrderAmendRequestDTO;
+import com.github.annsofip.orderbookservice.api.OrderBookDTO;
+import com.github.annsofip.orderbookservice.api.OrderPageDTO;
 import com.github.annsofip.orderbookservice.api.OrderRequestDTO;
 import com.github.annsofip.orderbookservice.api.OrderResponseDTO;
 import com.github.annsofip.orderbookservice.api.OrderSummaryDTO;
+import com.github.annsofip.orderbookservice.audit.AuditLog;
+import com.github.annsofip.orderbookservice.audit.AuditOperation;
+import com.github.annsofip.orderbookservice.audit.AuditOutcome;
+import com.github.annsofip.orderbookservice.model.CandleInterval;
+import com.github.annsofip.orderbookservice.model.OrderCursor;
+import com.github.annsofip.orderbookservice.model.OrderSearch;
 import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.pipeline.OrderPipelineFullException;
+import com.github.annsofip.orderbookservice.pipeline.OrderPipelineStoppedException;
+import com.github.annsofip.orderbookservice.service.OrderAmendmentRejectedException;
+import com.github.annsofip.orderbookservice.service.OrderAmendmentService;
+import com.github.annsofip.orderbookservice.service.OrderBatchService;
+import com.github.annsofip.orderbookservice.service.OrderExportService;
 import com.github.annsofip.orderbookservice.service.OrderService;
+import com.github.annsofip.orderbookservice.service.OrderSummaryPublisher;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
 
 @Slf4j
 @RestController
 @RequestMapping("/orders")
 @RequiredArgsConstructor
 public class OrderController {
-    private final OrderService orderService;
+    private static final long MAX_SUMMARY_RANGE_DAYS = 3660;
+    private static final int MAX_BOOK_DEPTH = 1000;
+    private static final long MAX_CANDLES = 10_000;
+    private static final int MAX_SEARCH_LIMIT = 1000;
+    // Exports of a whole day are streamed for as long as they take within this, other async requests keep the
+    // default timeout.
+    private static final long EXPORT_TIMEOUT_MILLIS = Duration.ofHours(1).toMillis();
+    // Summary streams stay open until the client goes away, which the heartbeats notice.
+    private static final long NO_TIMEOUT = -1;
 
+    private final OrderService orderService;
+    private final OrderBatchService orderBatchService;
+    private final OrderAmendmentService orderAmendmentService;
+    private final OrderExportService orderExportService;
+    private final OrderSummaryPublisher orderSummaryPublisher;
+    private final AuditLog auditLog;
 
     @Operation(summary = "Create an order")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Order created"),
             @ApiResponse(responseCode = "400", description = "Invalid input"),
-            @ApiResponse(responseCode = "500", description = "Server error")
+            @ApiResponse(responseCode = "500", description = "Server error"),
+            @ApiResponse(responseCode = "503", description = "Too many orders waiting, retry after the Retry-After header")
     })
     @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<OrderResponseDTO> createOrder(@RequestBody OrderRequestDTO order) {
-        log.info("operation=createOrder, action=start, order={}", order);
-
+    public ResponseEntity<OrderResponseDTO> createOrder(@Valid @RequestBody OrderRequestDTO order) {
         OrderResponseDTO savedOrder = orderService.createOrder(order);
 
-        log.info("operation=createOrder, action=success, order={}", savedOrder);
+        auditLog.recordOrder(AuditOperation.CREATE_ORDER, AuditOutcome.SUCCESS, savedOrder.getId(), savedOrder);
 
         return new ResponseEntity<>(savedOrder, HttpStatus.CREATED);
     }
 
+    @Operation(summary = "Create many orders at once")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Orders processed, see the status of each order"),
+            @ApiResponse(responseCode = "400", description = "Invalid input"),
+            @ApiResponse(responseCode = "500", description = "Server error")
+    })
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BatchOrderResultDTO>> createOrders(@RequestBody List<OrderRequestDTO> orders) {
+        List<BatchOrderResultDTO> results = orderBatchService.createOrders(orders);
+
+        auditBatch(results);
+
+        return new ResponseEntity<>(results, HttpStatus.OK);
+    }
+
+    @Operation(summary = "Create many orders at once from newline delimited JSON, one order per line")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Orders processed, see the status of each order"),
+            @ApiResponse(responseCode = "500", description = "Server error")
+    })
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BatchOrderResultDTO>> createOrdersFromNdjson(Reader orders) throws IOException {
+        List<BatchOrderResultDTO> results = orderBatchService.createOrders(orders);
+
+        auditBatch(results);
+
+        return new ResponseEntity<>(results, HttpStatus.OK);
+    }
+
+    @Operation(summary = "Search orders of a ticker, oldest first, a page at a time")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successful operation"),
+            @ApiResponse(responseCode = "400", description = "Invalid input, a limit below 1 or above 1000, a reversed range, a price range without currency or an invalid cursor"),
+            @ApiResponse(responseCode = "500", description = "Server error")
+    })
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<OrderPageDTO> searchOrders(
+            @Parameter(description = "ticker", example = "SAVE") @RequestParam("ticker") String ticker,
+            @Parameter(description = "Buy or sell, both if not given", example = "BUY") @RequestParam(value = "orderSide", required = false) OrderSide orderSide,
+            @Parameter(description = "Currency of the orders, needed for a price range", example = "SEK") @RequestParam(value = "currency", required = false) String currency,
+            @Parameter(description = "Lowest price, inclusive", example = "12.50") @RequestParam(value = "minPrice", required = false) BigDecimal minPrice,
+            @Parameter(description = "Highest price, inclusive", example = "13.00") @RequestParam(value = "maxPrice", required = false) BigDecimal maxPrice,
+            @Parameter(description = "Earliest date of the orders, inclusive", example = "2023-06-13T09:00:00") @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Latest date of the orders, exclusive", example = "2023-06-13T10:00:00") @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Cursor of the previous page, first page if not given") @RequestParam(value = "after", required = false) String after,
+            @Parameter(description = "Most orders on the page", example = "100") @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        Optional<OrderCursor> cursor = decodeCursor(after);
+        if (limit < 1 || limit > MAX_SEARCH_LIMIT
+                || (from != null && to != null && !from.isBefore(to))
+                || (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0)
+                || ((minPrice != null || maxPrice != null) && currency == null)
+                || (after != null && cursor.isEmpty())) {
+            auditLog.recordQuery(AuditOperation.SEARCH_ORDERS, AuditOutcome.REJECTED, ticker, orderSide, from == null ? null : from.toLocalDate(), 0);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        OrderSearch search = OrderSearch.builder()
+                .ticker(ticker)
+                .orderSide(orderSide)
+                .currency(currency)
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .from(from)
+                .to(to)
+                .build();
+        OrderPageDTO page = orderService.searchOrders(search, cursor.orElse(null), limit);
+
+        auditLog.recordQuery(AuditOperation.SEARCH_ORDERS, AuditOutcome.SUCCESS, ticker, orderSide, from == null ? null : from.toLocalDate(), page.getOrders().size());
+
+        return new ResponseEntity<>(page, HttpStatus.OK);
+    }
+
     @Operation(summary = "Get an order by id")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successful operation"),
@@ -60,19 +180,94 @@ public class OrderController {
     })
     @GetMapping("/{id}")
     public ResponseEntity<OrderResponseDTO> getOrder(@PathVariable UUID id) {
-        log.info("operation=getOrder, action=start, id={}", id);
-
         Optional<OrderResponseDTO> order = orderService.getOrder(id);
 
         return order.map(value -> {
-            log.info("operation=getOrder, action=success, id={}, order={}", id, value);
+            auditLog.recordOrder(AuditOperation.GET_ORDER, AuditOutcome.SUCCESS, id, value);
             return new ResponseEntity<>(value, HttpStatus.OK);
         }).orElseGet(() -> {
-            log.info("operation=getOrder, action=fail, id={}", id);
+            auditLog.recordOrder(AuditOperation.GET_ORDER, AuditOutcome.NOT_FOUND, id, null);
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         });
     }
 
+    @Operation(summary = "Cancel an order, taking what is left of it out of the book")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Order cancelled"),
+            @ApiResponse(responseCode = "404", description = "Order not found"),
+            @ApiResponse(responseCode = "409", description = "Order does not rest in the book, it is filled, cancelled or not written to the database yet"),
+            @ApiResponse(responseCode = "500", description = "Server error")
+    })
+    @DeleteMapping("/{id}")
+    public ResponseEntity<OrderResponseDTO> cancelOrder(@PathVariable UUID id) {
+        return change(AuditOperation.CANCEL_ORDER, id, () -> orderAmendmentService.cancelOrder(id));
+    }
+
+    @Operation(summary = "Lower the volume of an order, change its price, or both. An order whose price changes loses its place in the queue")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Order amended"),
+            @ApiResponse(responseCode = "400", description = "Invalid input, neither volume nor price given"),
+            @ApiResponse(responseCode = "404", description = "Order not found"),
+            @ApiResponse(responseCode = "409", description = "Order does not rest in the book, or the volume is not lower than the current volume and higher than the volume traded"),
+            @ApiResponse(responseCode = "500", description = "Server error")
+    })
+    @PatchMapping(value = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<OrderResponseDTO> amendOrder(@PathVariable UUID id, @Valid @RequestBody OrderAmendRequestDTO amendment) {
+        if (amendment.getVolume() == null && amendment.getPrice() == null) {
+            auditLog.recordOrder(AuditOperation.AMEND_ORDER, AuditOutcome.REJECTED, id, null);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return change(AuditOperation.AMEND_ORDER, id,
+                () -> orderAmendmentService.amendOrder(id, amendment.getVolume(), amendment.getPrice()));
+    }
+
+    @Operation(summary = "Get open, high, low and close price and volume of orders per interval for a ticker and a range of times")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successful operation, one candle per interval with orders"),
+            @ApiResponse(responseCode = "400", description = "Invalid input, an unknown interval, or a range that is reversed or longer than 10000 intervals"),
+            @ApiResponse(responseCode = "500", description = "Server error")
+    })
+    @GetMapping("/candles")
+    public ResponseEntity<List<CandleDTO>> getCandles(
+            @Parameter(description = "ticker", example = "SAVE") @RequestParam("ticker") String ticker,
+            @Parameter(description = "Length of a candle: 1s, 1m, 5m or 1h", example = "1m") @RequestParam("interval") String interval,
+            @Parameter(description = "Start of the first candle, inclusive", example = "2023-06-13T09:00:00") @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "End of the last candle, exclusive", example = "2023-06-13T10:00:00") @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Buy or sell, both if not given", example = "BUY") @RequestParam(value = "orderSide", required = false) OrderSide orderSide) {
+        Optional<CandleInterval> candleInterval = CandleInterval.fromCode(interval);
+        if (candleInterval.isEmpty() || !from.isBefore(to)
+                || Duration.between(from, to).dividedBy(candleInterval.get().getLength()) > MAX_CANDLES) {
+            auditLog.recordQuery(AuditOperation.GET_CANDLES, AuditOutcome.REJECTED, ticker, orderSide, from.toLocalDate(), 0);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        List<CandleDTO> candles = orderService.getCandles(ticker, orderSide, candleInterval.get(), from, to);
+
+        auditLog.recordQuery(AuditOperation.GET_CANDLES, AuditOutcome.SUCCESS, ticker, orderSide, from.toLocalDate(), candles.size());
+
+        return new ResponseEntity<>(candles, HttpStatus.OK);
+    }
+
+    @Operation(summary = "Get the best price levels of the order book of a ticker, best price first")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successful operation"),
+            @ApiResponse(responseCode = "400", description = "Invalid input, or a depth below 1 or above 1000"),
+            @ApiResponse(responseCode = "500", description = "Server error")
+    })
+    @GetMapping("/book/{ticker}")
+    public ResponseEntity<OrderBookDTO> getBook(
+            @Parameter(description = "ticker", example = "SAVE") @PathVariable String ticker,
+            @Parameter(description = "Number of price levels per side", example = "10") @RequestParam(value = "depth", defaultValue = "10") int depth) {
+        if (depth < 1 || depth > MAX_BOOK_DEPTH) {
+            auditLog.recordQuery(AuditOperation.GET_BOOK, AuditOutcome.REJECTED, ticker, null, null, depth);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        OrderBookDTO book = orderService.getBook(ticker, depth);
+
+        auditLog.recordQuery(AuditOperation.GET_BOOK, AuditOutcome.SUCCESS, ticker, null, null, book.getBids().size() + book.getAsks().size());
+
+        return new ResponseEntity<>(book, HttpStatus.OK);
+    }
+
     @Operation(summary = "Get a summary of orders for ticker, order side, and date")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successful operation"),
@@ -84,13 +279,156 @@ public class OrderController {
             @Parameter(description = "ticker", example = "SAVE") @RequestParam("ticker") String ticker,
             @Parameter(description = "Buy or sell", example = "BUY") @RequestParam("orderSide") OrderSide orderSide,
             @Parameter(description = "Date of the order", example = "2023-06-13") @RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
-        log.info("operation=getSummary, action=start, ticker={}, orderSide={}, date={}", ticker, orderSide, date);
-
         OrderSummaryDTO summary = orderService.getSummary(ticker, orderSide, date);
 
-        log.info("operation=getSummary, action=success, ticker={}, orderSide={}, date={}, summary={}", ticker, orderSide, date, summary);
+        auditLog.recordQuery(AuditOperation.GET_SUMMARY, AuditOutcome.SUCCESS, ticker, orderSide, date, summary.getNumberOfOrders());
 
         return new ResponseEntity<>(summary, HttpStatus.OK);
     }
-}
 
+    @Operation(summary = "Get one summary of orders per day for ticker, order side, and a range of dates")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successful operation"),
+            @ApiResponse(responseCode = "400", description = "Invalid input, or a range that is reversed or longer than ten years"),
+            @ApiResponse(responseCode = "500", description = "Server error")
+    })
+    @GetMapping("/summary/range")
+    public ResponseEntity<List<OrderSummaryDTO>> getSummaries(
+            @Parameter(description = "ticker", example = "SAVE") @RequestParam("ticker") String ticker,
+            @Parameter(description = "Buy or sell", example = "BUY") @RequestParam("orderSide") OrderSide orderSide,
+            @Parameter(description = "First date, inclusive", example = "2023-06-01") @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Last date, inclusive", example = "2023-06-13") @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (from.isAfter(to) || ChronoUnit.DAYS.between(from, to) >= MAX_SUMMARY_RANGE_DAYS) {
+            auditLog.recordQuery(AuditOperation.GET_SUMMARIES, AuditOutcome.REJECTED, ticker, orderSide, from, 0);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        List<OrderSummaryDTO> summaries = orderService.getSummaries(ticker, orderSide, from, to);
+
+        auditLog.recordQuery(AuditOperation.GET_SUMMARIES, AuditOutcome.SUCCESS, ticker, orderSide, from, summaries.size());
+
+        return new ResponseEntity<>(summaries, HttpStatus.OK);
+    }
+
+    @Operation(summary = "Get summaries of orders for many tickers and order sides on one date")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successful operation, one summary per requested ticker and order side"),
+            @ApiResponse(responseCode = "400", description = "Invalid input"),
+            @ApiResponse(responseCode = "500", description = "Server error")
+    })
+    @PostMapping(value = "/summary/bulk", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<OrderSummaryDTO>> getSummaries(@Valid @RequestBody BulkSummaryRequestDTO request) {
+        List<OrderSummaryDTO> summaries = orderService.getSummaries(request.getSummaries(), request.getDate());
+
+        auditLog.recordQuery(AuditOperation.GET_BULK_SUMMARIES, AuditOutcome.SUCCESS, null, null, request.getDate(), summaries.size());
+
+        return new ResponseEntity<>(summaries, HttpStatus.OK);
+    }
+
+    @Operation(summary = "Stream summaries of orders for a ticker as server-sent events, starting with today's summaries and followed by every change")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream of summary events"),
+            @ApiResponse(responseCode = "400", description = "Invalid input"),
+            @ApiResponse(responseCode = "503", description = "Too many open streams"),
+            @ApiResponse(responseCode = "500", description = "Server error")
+    })
+    @GetMapping(value = "/summary/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamSummaries(
+            @Parameter(description = "ticker", example = "SAVE") @RequestParam("ticker") String ticker) {
+        SseEmitter emitter = new SseEmitter(NO_TIMEOUT);
+        if (!orderSummaryPublisher.subscribe(ticker, emitter)) {
+            log.warn("operation=streamSummaries, action=fail, ticker={}, reason=too many subscribers", ticker);
+            auditLog.recordQuery(AuditOperation.STREAM_SUMMARIES, AuditOutcome.REJECTED, ticker, null, null, 0);
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        auditLog.recordQuery(AuditOperation.STREAM_SUMMARIES, AuditOutcome.SUCCESS, ticker, null, null, 0);
+
+        return new ResponseEntity<>(emitter, HttpStatus.OK);
+    }
+
+    @Operation(summary = "Export all orders for ticker, order side, and date as newline delimited JSON, one order per line")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successful operation"),
+            @ApiResponse(responseCode = "400", description = "Invalid input"),
+            @ApiResponse(responseCode = "500", description = "Server error")
+    })
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public WebAsyncTask<Void> exportOrders(
+            @Parameter(description = "ticker", example = "SAVE") @RequestParam("ticker") String ticker,
+            @Parameter(description = "Buy or sell", example = "BUY") @RequestParam("orderSide") OrderSide orderSide,
+            @Parameter(description = "Date of the orders", example = "2023-06-13") @RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            HttpServletResponse response) {
+        Callable<Void> export = () -> {
+            response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+            long orders = orderExportService.exportOrders(ticker, orderSide, date, response.getOutputStream());
+            auditLog.recordQuery(AuditOperation.EXPORT_ORDERS, AuditOutcome.SUCCESS, ticker, orderSide, date, orders);
+            return null;
+        };
+
+        return new WebAsyncTask<>(EXPORT_TIMEOUT_MILLIS, export);
+    }
+
+    @ExceptionHandler({OrderPipelineFullException.class, OrderPipelineStoppedException.class})
+    public ResponseEntity<Void> handleOrderPipelineUnavailable(RuntimeException e) {
+        log.warn("operation=createOrder, action=fail, reason={}", e.getMessage());
+        auditLog.recordOrder(AuditOperation.CREATE_ORDER, AuditOutcome.REJECTED, null, null);
+
+        return pipelineUnavailable(e);
+    }
+
+    /**
+     * 503 for an order or change the pipeline refused, with the time to wait before retrying if it was full. The time
+     * is rounded up to whole seconds, since a Retry-After of 0 asks clients to retry right away.
+     */
+    private static <T> ResponseEntity<T> pipelineUnavailable(RuntimeException e) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE);
+        if (e instanceof OrderPipelineFullException full) {
+            long retryAfterSeconds = Math.max(1, (full.getRetryAfter().toMillis() + 999) / 1000);
+            response.header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        }
+        return response.build();
+    }
+
+    private ResponseEntity<OrderResponseDTO> change(AuditOperation operation, UUID id,
+                                                   Supplier<Optional<OrderResponseDTO>> change) {
+        Optional<OrderResponseDTO> order;
+        try {
+            order = change.get();
+        } catch (OrderAmendmentRejectedException e) {
+            log.warn("operation={}, action=fail, id={}, reason={}", operation.getName(), id, e.getMessage());
+            auditLog.recordOrder(operation, AuditOutcome.REJECTED, id, null);
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        } catch (OrderPipelineFullException | OrderPipelineStoppedException e) {
+            log.warn("operation={}, action=fail, id={}, reason={}", operation.getName(), id, e.getMessage());
+            auditLog.recordOrder(operation, AuditOutcome.REJECTED, id, null);
+            return pipelineUnavailable(e);
+        }
+        return order.map(value -> {
+            auditLog.recordOrder(operation, AuditOutcome.SUCCESS, id, value);
+            return new ResponseEntity<>(value, HttpStatus.OK);
+        }).orElseGet(() -> {
+            auditLog.recordOrder(operation, AuditOutcome.NOT_FOUND, id, null);
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        });
+    }
+
+    private static Optional<OrderCursor> decodeCursor(String cursor) {
+        if (cursor == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(OrderCursor.decode(cursor));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    private void auditBatch(List<BatchOrderResultDTO> results) {
+        for (BatchOrderResultDTO result : results) {
+            if (result.getStatus() == BatchOrderResultDTO.Status.CREATED) {
+                auditLog.recordOrder(AuditOperation.CREATE_ORDERS, AuditOutcome.SUCCESS, result.getOrder().getId(), result.getOrder());
+            } else {
+                auditLog.recordQuery(AuditOperation.CREATE_ORDERS, AuditOutcome.REJECTED, null, null, null, result.getIndex());
+            }
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.github.annsofip.orderbookservice.idempotency;
+
+import com.github.annsofip.orderbookservice.api.OrderResponseDTO;
+import com.github.annsofip.orderbookservice.config.OrderBookProperties;
+import com.github.annsofip.orderbookservice.matching.OrderMatcher;
+import com.github.annsofip.orderbookservice.model.OrderMapper;
+import com.github.annsofip.orderbookservice.repositories.OrderEventRepository;
+import com.github.annsofip.orderbookservice.repositories.OrderRepository;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import com.github.annsofip.orderbookservice.service.OrderWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Client order ids of the orders that have been created, so that a retried order is answered with the order that was
+ * created the first time instead of being created again.
+ * <p>
+ * Most orders are new, and looking every id up in the unique index of the orders table would cost a query per order.
+ * Ids are first checked in a Bloom filter of all ids, loaded on startup, which rules out almost every new id without
+ * the database. Retries usually come soon after the first attempt, so the responses of recently created orders are
+ * kept and answer those without the database as well. Only ids that the filter might have seen and that are not
+ * recent are looked up, first among the orders that are written but not in the database yet and then in the database,
+ * and most of those are retries of older orders.
+ * <p>
+ * Orders with the same id that are created at the same time are created once, and the others wait for it, whether
+ * they are created one by one or in batches. This assumes a single instance is creating orders; the unique index is
+ * the last line of defense otherwise, and an order it refuses is answered with the order that has the id. Orders
+ * moved to the archive keep no client order id.
+ */
+@Slf4j
+@Component
+public class ClientOrderIds implements SmartInitializingSingleton, MeterBinder {
+    private final OrderRepository orderRepository;
+    private final OrderEventRepository orderEventRepository;
+    private final OrderMapper orderMapper;
+    private final OrderMatcher orderMatcher;
+    private final OrderWriter orderWriter;
+    private final TransactionTemplate readOnlyTemplate;
+    private final BloomFilter filter;
+    private final Cache<String, OrderResponseDTO> recent;
+    private final ConcurrentHashMap<String, CompletableFuture<OrderResponseDTO>> creating = new ConcurrentHashMap<>();
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+
+    public ClientOrderIds(OrderRepository orderRepository, OrderEventRepository orderEventRepository,
+                          OrderMapper orderMapper, OrderMatcher orderMatcher, OrderWriter orderWriter,
+                          TransactionTemplate transactionTemplate, OrderBookProperties properties) {
+        OrderBookProperties.ClientOrderIds config = properties.getClientOrderIds();
+        this.orderRepository = orderRepository;
+        this.orderEventRepository = orderEventRepository;
+        this.orderMapper = orderMapper;
+        this.orderMatcher = orderMatcher;
+        this.orderWriter = orderWriter;
+        this.readOnlyTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTemplate.setReadOnly(true);
+        this.filter = new BloomFilter(config.getExpectedIds(), config.getFalsePositiveRate());
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(config.getRecentSize())
+                .build();
+    }
+
+    /**
+     * Loads the ids once the orders of the journal have been written to the database, before requests are served.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        long loaded = readOnlyTemplate.execute(status -> {
+            try (Stream<String> ids = orderRepository.streamClientOrderIds()) {
+                long count = 0;
+                Iterator<String> iterator = ids.iterator();
+                while (iterator.hasNext()) {
+                    filter.add(iterator.next());
+                    count++;
+                }
+                return count;
+            }
+        });
+        log.info("operation=loadClientOrderIds, action=success, ids={}, bits={}, hashes={}", loaded,
+                filter.bitSize(), filter.hashCount());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("orderbook.client_order_ids.lookups", lookups, AtomicLong::get)
+                .description("Client order ids looked up in the database because the filter might have seen them")
+                .register(registry);
+        FunctionCounter.builder("orderbook.client_order_ids.duplicates", duplicates, AtomicLong::get)
+                .description("Orders answered with the order that was created before with the same client order id")
+                .register(registry);
+        Gauge.builder("orderbook.client_order_ids.filter.fill", filter, BloomFilter::fillRatio)
+                .description("Share of the bits of the client order id filter that are set")
+                .register(registry);
+    }
+
+    /**
+     * Creates the order unless an order with the client order id was created before, in which case that order is
+     * returned. Orders without a client order id are always created.
+     *
+     * @param clientOrderId the id given by the client, or null
+     * @param create        creates the order and returns the response
+     */
+    public OrderResponseDTO createOnce(String clientOrderId, Supplier<OrderResponseDTO> create) {
+        if (clientOrderId == null) {
+            return create.get();
+        }
+        Optional<OrderResponseDTO> created = find(clientOrderId);
+        if (created.isPresent()) {
+            return duplicate(created.get());
+        }
+        CompletableFuture<OrderResponseDTO> mine = new CompletableFuture<>();
+        CompletableFuture<OrderResponseDTO> other = creating.putIfAbsent(clientOrderId, mine);
+        if (other != null) {
+            return duplicate(await(other));
+        }
+        try {
+            // Another request may have created it between the lookup and claiming the id.
+            OrderResponseDTO response = find(clientOrderId).map(this::duplicate).orElse(null);
+            if (response == null) {
+                response = createOrFind(clientOrderId, create);
+                added(clientOrderId, response);
+            }
+            mine.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            // The order may have been written before it failed, so that retries look the id up.
+            filter.add(clientOrderId);
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            creating.remove(clientOrderId, mine);
+        }
+    }
+
+    /**
+     * Claims the client order id for an order that the caller creates itself, such as an order of a batch. Returns the
+     * order created before with the id, or empty if the caller now holds the id and must call {@link #created} or
+     * {@link #failed} once the order is written or not.
+     * <p>
+     * If another request is creating an order with the id, {@code beforeWaiting} runs before waiting for it. The
+     * caller must release the ids it holds in it, or two batches could wait for each other.
+     */
+    public Optional<OrderResponseDTO> claim(String clientOrderId, Runnable beforeWaiting) {
+        while (true) {
+            Optional<OrderResponseDTO> created = find(clientOrderId);
+            if (created.isPresent()) {
+                return created.map(this::duplicate);
+            }
+            CompletableFuture<OrderResponseDTO> other = creating.putIfAbsent(clientOrderId, new CompletableFuture<>());
+            if (other == null) {
+                // Another request may have created it between the lookup and claiming the id.
+                created = find(clientOrderId);
+                created.ifPresent(response -> created(clientOrderId, response));
+                return created.map(this::duplicate);
+            }
+            beforeWaiting.run();
+            try {
+                return Optional.of(duplicate(other.join()));
+            } catch (CompletionException e) {
+                // The other request failed, and the id is free again.
+            }
+        }
+    }
+
+    /**
+     * Records an order that was created with a client order id claimed by {@link #claim}, and releases the id.
+     */
+    public void created(String clientOrderId, OrderResponseDTO response) {
+        added(clientOrderId, response);
+        CompletableFuture<OrderResponseDTO> claim = creating.remove(clientOrderId);
+        if (claim != null) {
+            claim.complete(response);
+        }
+    }
+
+    /**
+     * Releases a client order id claimed by {@link #claim} whose order could not be created.
+     */
+    public void failed(String clientOrderId, Exception e) {
+        // The order may have been written before it failed, so that retries look the id up.
+        filter.add(clientOrderId);
+        CompletableFuture<OrderResponseDTO> claim = creating.remove(clientOrderId);
+        if (claim != null) {
+            claim.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * The order created before with the client order id, if any: the response it was created with if it is recent,
+     * else the order as it is now.
+     */
+    public Optional<OrderResponseDTO> find(String clientOrderId) {
+        OrderResponseDTO response = recent.getIfPresent(clientOrderId);
+        if (response == null && filter.mightContain(clientOrderId)) {
+            response = stored(clientOrderId).orElse(null);
+        }
+        return Optional.ofNullable(response);
+    }
+
+    /**
+     * Records an order that was created with the client order id.
+     */
+    public void added(String clientOrderId, OrderResponseDTO response) {
+        filter.add(clientOrderId);
+        recent.put(clientOrderId, response);
+    }
+
+    // The unique index refuses an order whose id was written without being recorded here, by a request that failed
+    // after writing its order or by another instance. The order that was written answers it.
+    private OrderResponseDTO createOrFind(String clientOrderId, Supplier<OrderResponseDTO> create) {
+        try {
+            return create.get();
+        } catch (DataIntegrityViolationException e) {
+            OrderResponseDTO response = duplicate(stored(clientOrderId).orElseThrow(() -> e));
+            log.info("operation=createOrder, action=duplicate, clientOrderId={}", clientOrderId);
+            return response;
+        }
+    }
+
+    /**
+     * Counts a request that is answered with the order created before with its client order id.
+     */
+    private OrderResponseDTO duplicate(OrderResponseDTO response) {
+        duplicates.incrementAndGet();
+        return response;
+    }
+
+    private Optional<OrderResponseDTO> stored(String clientOrderId) {
+        Optional<Order> unpersisted = orderWriter.findUnpersistedByClientOrderId(clientOrderId);
+        if (unpersisted.isPresent()) {
+            return unpersisted.map(order -> orderMapper.orderToOrderDto(order, orderMatcher.filledVolume(order.getId())));
+        }
+        lookups.incrementAndGet();
+        return orderRepository.findByClientOrderId(clientOrderId)
+                .map(order -> orderMapper.orderToOrderDto(order, orderEventRepository.findChanges(order.getId()),
+                        orderMatcher.filledVolume(order.getId())));
+    }
+
+    long lookupCount() {
+        return lookups.get();
+    }
+
+    long duplicateCount() {
+        return duplicates.get();
+    }
+
+    private static OrderResponseDTO await(CompletableFuture<OrderResponseDTO> response) {
+        try {
+            return response.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
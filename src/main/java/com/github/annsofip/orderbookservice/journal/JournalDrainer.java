@@ -0,0 +1,222 @@
+package com.github.annsofip.orderbookservice.journal;
+
+import com.github.annsofip.orderbookservice.repositories.DailyOrderSummaryRepository;
+import com.github.annsofip.orderbookservice.repositories.OrderRepository;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Writes journaled orders to the database in batches and moves the checkpoint past them.
+ * <p>
+ * An order can be in the database while the checkpoint is still before it, if the process stopped between the commit
+ * and the checkpoint. Orders that already exist are therefore skipped, which makes draining the same records twice
+ * harmless.
+ * <p>
+ * If a batch fails, its orders are written one at a time to find the one that fails. An order that still fails after
+ * {@code maxAttempts} tries because of its data, such as a unique index it violates, is moved to the quarantine file of
+ * the journal and skipped, so that one order cannot stop all orders after it from being written. Failures of the
+ * database itself are retried until it is back. A record that cannot be read is quarantined with the rest of its
+ * segment, since it does not tell where the next record starts.
+ */
+@Slf4j
+class JournalDrainer {
+    private static final Consumer<Order> NOTHING = order -> {
+    };
+
+    private final OrderJournal journal;
+    private final OrderRepository orderRepository;
+    private final DailyOrderSummaryRepository dailyOrderSummaryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration interval;
+    private final Consumer<UUID> drained;
+    private final Thread thread;
+    private final AtomicLong quarantined = new AtomicLong();
+    private volatile boolean running;
+    private JournalPosition checkpoint;
+    private JournalPosition failedBatchEnd;
+    private int attempts;
+
+    JournalDrainer(OrderJournal journal, OrderRepository orderRepository,
+                   DailyOrderSummaryRepository dailyOrderSummaryRepository, TransactionTemplate transactionTemplate,
+                   EntityManager entityManager, int batchSize, int maxAttempts, Duration interval,
+                   Consumer<UUID> drained) throws IOException {
+        this.journal = journal;
+        this.orderRepository = orderRepository;
+        this.dailyOrderSummaryRepository = dailyOrderSummaryRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.interval = interval;
+        this.drained = drained;
+        this.thread = new Thread(this::drainLoop, "order-journal-drainer");
+        this.checkpoint = journal.readCheckpoint();
+    }
+
+    /**
+     * Writes every order that is in the journal but not in the database yet, before new orders are accepted.
+     *
+     * @param inserted receives the orders that were not in the database
+     */
+    void replay(Consumer<Order> inserted) throws IOException {
+        int replayed = 0;
+        int count;
+        while ((count = replayBatch(inserted)) > 0) {
+            replayed += count;
+        }
+        log.info("operation=replayJournal, action=success, orders={}, checkpoint={}", replayed, checkpoint);
+    }
+
+    /**
+     * Number of orders and unreadable segment ends moved to the quarantine file.
+     */
+    long quarantined() {
+        return quarantined.get();
+    }
+
+    /**
+     * Retries a failed batch while its orders are tried one at a time, and gives up once an order has failed
+     * {@code maxAttempts} times without being quarantined, since the database is then failing rather than the order.
+     */
+    private int replayBatch(Consumer<Order> inserted) throws IOException {
+        while (true) {
+            try {
+                return drain(inserted);
+            } catch (RuntimeException e) {
+                if (attempts >= maxAttempts) {
+                    throw e;
+                }
+                log.warn("operation=replayJournal, action=retry, checkpoint={}, attempts={}", checkpoint, attempts, e);
+                LockSupport.parkNanos(interval.toNanos());
+            }
+        }
+    }
+
+    void start() {
+        running = true;
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the background thread after it has drained what is in the journal.
+     */
+    void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainLoop() {
+        while (running) {
+            try {
+                if (drain(NOTHING) == 0) {
+                    LockSupport.parkNanos(interval.toNanos());
+                }
+            } catch (IOException | RuntimeException e) {
+                log.error("operation=drainJournal, action=fail, checkpoint={}", checkpoint, e);
+                LockSupport.parkNanos(interval.toNanos());
+            }
+        }
+        try {
+            while (drain(NOTHING) > 0) {
+                // Drain everything on shutdown so there is nothing to replay on the next start.
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("operation=drainJournal, action=fail, checkpoint={}", checkpoint, e);
+        }
+    }
+
+    private int drain(Consumer<Order> inserted) throws IOException {
+        List<Order> orders = new ArrayList<>(batchSize);
+        boolean isolating = failedBatchEnd != null && checkpoint.compareTo(failedBatchEnd) < 0;
+        JournalPosition next;
+        try {
+            next = journal.read(checkpoint, isolating ? 1 : batchSize, orders);
+        } catch (IllegalStateException e) {
+            return skipUnreadable(e);
+        }
+        if (orders.isEmpty()) {
+            return 0;
+        }
+        List<Order> newOrders;
+        try {
+            newOrders = transactionTemplate.execute(status -> {
+                Set<UUID> existing = orderRepository.findExistingIds(orders.stream().map(Order::getId).toList());
+                List<Order> missing = orders.stream().filter(order -> !existing.contains(order.getId())).toList();
+                orderRepository.saveAllAndFlush(missing);
+                // Otherwise Hibernate checks every order of the batch for changes before each statement of the rollup.
+                missing.forEach(entityManager::detach);
+                dailyOrderSummaryRepository.rollUpAll(missing);
+                return missing;
+            });
+        } catch (RuntimeException e) {
+            if (orders.size() > 1) {
+                failedBatchEnd = next;
+                throw e;
+            }
+            if (++attempts < maxAttempts || !isDataError(e)) {
+                throw e;
+            }
+            Order order = orders.get(0);
+            // Records do not span segments, so a record read from a later segment starts at its beginning.
+            journal.quarantine(next.segment() == checkpoint.segment() ? checkpoint : new JournalPosition(next.segment(), 0),
+                    next);
+            quarantined.incrementAndGet();
+            log.error("operation=drainJournal, action=quarantine, id={}, position={}, attempts={}", order.getId(),
+                    checkpoint, attempts, e);
+            newOrders = List.of();
+        }
+        attempts = 0;
+        journal.writeCheckpoint(next);
+        checkpoint = next;
+        orders.forEach(order -> drained.accept(order.getId()));
+        newOrders.forEach(inserted);
+        journal.deleteSegmentsBefore(checkpoint.segment());
+        return orders.size();
+    }
+
+    /**
+     * Quarantines the rest of the segment of an unreadable record once it has been tried {@code maxAttempts} times. The
+     * last segment is checked when the journal is opened, so only earlier segments can hold such records.
+     */
+    private int skipUnreadable(IllegalStateException e) throws IOException {
+        if (++attempts < maxAttempts || checkpoint.segment() >= journal.durablePosition().segment()) {
+            throw e;
+        }
+        JournalPosition next = new JournalPosition(checkpoint.segment() + 1, 0);
+        journal.quarantine(checkpoint, next);
+        quarantined.incrementAndGet();
+        log.error("operation=drainJournal, action=quarantine, position={}, attempts={}", checkpoint, attempts, e);
+        attempts = 0;
+        journal.writeCheckpoint(next);
+        checkpoint = next;
+        journal.deleteSegmentsBefore(checkpoint.segment());
+        return 1;
+    }
+
+    private static boolean isDataError(RuntimeException e) {
+        return e instanceof NonTransientDataAccessException && !(e instanceof NonTransientDataAccessResourceException);
+    }
+}
@@ -0,0 +1,135 @@
+package com.github.annsofip.orderbookservice.journal;
+
+import com.github.annsofip.orderbookservice.config.OrderBookProperties;
+import com.github.annsofip.orderbookservice.repositories.DailyOrderSummaryRepository;
+import com.github.annsofip.orderbookservice.repositories.OrderRepository;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import com.github.annsofip.orderbookservice.service.OrderSummaryAggregator;
+import com.github.annsofip.orderbookservice.service.OrderWriter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManager;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Acknowledges orders once they are synced to the local journal, and leaves writing them to the database to a
+ * background drainer. Until then the orders are served from memory.
+ * <p>
+ * On startup, orders that were journaled but never written to the database are written before new orders are
+ * accepted. Those orders are also added to the summaries, which were loaded from the database before.
+ */
+@Component
+@ConditionalOnProperty(name = "order-book.journal.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class JournalOrderWriter implements OrderWriter, MeterBinder {
+    private final OrderRepository orderRepository;
+    private final DailyOrderSummaryRepository dailyOrderSummaryRepository;
+    private final OrderSummaryAggregator orderSummaryAggregator;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderBookProperties properties;
+    private final EntityManager entityManager;
+    private final Map<UUID, Order> unpersisted = new ConcurrentHashMap<>();
+    private final Map<String, Order> unpersistedByClientOrderId = new ConcurrentHashMap<>();
+    private OrderJournal journal;
+    private JournalDrainer drainer;
+
+    @PostConstruct
+    public void start() throws IOException {
+        OrderBookProperties.Journal config = properties.getJournal();
+        journal = OrderJournal.open(config.getDirectory(), (int) config.getSegmentSize().toBytes(), config.getQueueCapacity());
+        drainer = new JournalDrainer(journal, orderRepository, dailyOrderSummaryRepository, transactionTemplate,
+                entityManager, config.getDrainBatchSize(), config.getDrainAttempts(), config.getDrainInterval(), this::forget);
+        drainer.replay(orderSummaryAggregator::add);
+        drainer.start();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("orderbook.journal.unpersisted", unpersisted, Map::size)
+                .description("Journaled orders that are not written to the database yet")
+                .register(registry);
+        FunctionCounter.builder("orderbook.journal.quarantined", drainer, JournalDrainer::quarantined)
+                .description("Journaled orders that kept failing to be written to the database and were quarantined")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        journal.close();
+        drainer.stop();
+    }
+
+    @Override
+    public Order write(Order order) {
+        order.assignIdAndDate();
+        remember(order);
+        try {
+            journal.append(order).join();
+        } catch (CompletionException e) {
+            forget(order.getId());
+            throw new IllegalStateException("Could not journal order", e.getCause());
+        }
+        return order;
+    }
+
+    @Override
+    public List<Order> writeAll(List<Order> orders) {
+        List<CompletableFuture<Void>> appends = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            order.assignIdAndDate();
+            remember(order);
+            appends.add(journal.append(order));
+        }
+        try {
+            CompletableFuture.allOf(appends.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            orders.forEach(order -> forget(order.getId()));
+            throw new IllegalStateException("Could not journal orders", e.getCause());
+        }
+        return orders;
+    }
+
+    @Override
+    public Optional<Order> findUnpersisted(UUID id) {
+        return Optional.ofNullable(unpersisted.get(id));
+    }
+
+    @Override
+    public Optional<Order> findUnpersistedByClientOrderId(String clientOrderId) {
+        return Optional.ofNullable(unpersistedByClientOrderId.get(clientOrderId));
+    }
+
+    private void remember(Order order) {
+        unpersisted.put(order.getId(), order);
+        if (order.getClientOrderId() != null) {
+            unpersistedByClientOrderId.put(order.getClientOrderId(), order);
+        }
+    }
+
+    /**
+     * Forgets an order once it is in the database, or once it could not be journaled.
+     */
+    private void forget(UUID id) {
+        Order order = unpersisted.remove(id);
+        if (order != null && order.getClientOrderId() != null) {
+            unpersistedByClientOrderId.remove(order.getClientOrderId(), order);
+        }
+    }
+}
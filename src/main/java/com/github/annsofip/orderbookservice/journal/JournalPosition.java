@@ -0,0 +1,15 @@
+package com.github.annsofip.orderbookservice.journal;
+
+/**
+ * Position in the journal: a segment and the byte offset in that segment.
+ */
+record JournalPosition(long segment, int offset) implements Comparable<JournalPosition> {
+
+    static final JournalPosition START = new JournalPosition(0, 0);
+
+    @Override
+    public int compareTo(JournalPosition other) {
+        int bySegment = Long.compare(segment, other.segment);
+        return bySegment != 0 ? bySegment : Integer.compare(offset, other.offset);
+    }
+}
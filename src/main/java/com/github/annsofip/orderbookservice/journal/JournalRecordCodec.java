@@ -0,0 +1,144 @@
+package com.github.annsofip.orderbookservice.journal;
+
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary journal record of an order:
+ * <pre>
+ * int    payload length
+ * int    CRC32C of the payload
+ * long   id, most significant bits
+ * long   id, least significant bits
+ * long   date, epoch seconds of the local date time
+ * int    date, nanoseconds
+ * byte   order side ordinal
+ * int    volume
+ * long   price, minor units of the currency
+ * byte   ticker length, followed by the ticker in UTF-8
+ * byte   currency length, followed by the currency in UTF-8
+ * byte   client order id length, zero if there is none, followed by the client order id in UTF-8
+ * </pre>
+ * A length of zero marks the unwritten end of a segment, since new segment files are zero filled, and a length of
+ * {@link #END_OF_SEGMENT} marks a segment that was closed because the next record did not fit. Records written before
+ * client order ids were added end after the currency.
+ */
+final class JournalRecordCodec {
+    static final int HEADER_SIZE = 8;
+    static final int END_OF_SEGMENT = -1;
+    private static final int FIXED_PAYLOAD_SIZE = 8 + 8 + 8 + 4 + 1 + 4 + 8 + 1 + 1;
+    private static final int CLIENT_ORDER_ID_SIZE = 1;
+    private static final int MAX_STRING_LENGTH = 255;
+    private static final OrderSide[] ORDER_SIDES = OrderSide.values();
+
+    private JournalRecordCodec() {
+    }
+
+    /**
+     * Returns why the order cannot be written as a record, or {@code null} if it can. Checked before the order is
+     * queued, so that an order that cannot be encoded fails on its own instead of failing the group it is written with.
+     */
+    static String invalidReason(Order order) {
+        if (order.getId() == null || order.getDate() == null || order.getOrderSide() == null
+                || order.getVolume() == null || order.getTicker() == null || order.getCurrency() == null) {
+            return "Order needs an id, date, order side, volume, ticker and currency to be journaled";
+        }
+        if (utf8Length(order.getTicker()) > MAX_STRING_LENGTH || utf8Length(order.getCurrency()) > MAX_STRING_LENGTH
+                || (order.getClientOrderId() != null && utf8Length(order.getClientOrderId()) > MAX_STRING_LENGTH)) {
+            return "Ticker, currency and client order id may be at most " + MAX_STRING_LENGTH + " bytes to be journaled";
+        }
+        return null;
+    }
+
+    static int recordSize(Order order) {
+        return HEADER_SIZE + FIXED_PAYLOAD_SIZE + utf8Length(order.getTicker()) + utf8Length(order.getCurrency())
+                + CLIENT_ORDER_ID_SIZE + (order.getClientOrderId() == null ? 0 : utf8Length(order.getClientOrderId()));
+    }
+
+    /**
+     * Writes the order at the position of the buffer, which must have at least {@link #recordSize(Order)} bytes left.
+     */
+    static void encode(Order order, ByteBuffer buffer) {
+        int start = buffer.position();
+        buffer.position(start + HEADER_SIZE);
+        buffer.putLong(order.getId().getMostSignificantBits());
+        buffer.putLong(order.getId().getLeastSignificantBits());
+        buffer.putLong(order.getDate().toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(order.getDate().getNano());
+        buffer.put((byte) order.getOrderSide().ordinal());
+        buffer.putInt(order.getVolume());
+        buffer.putLong(order.getPrice());
+        putString(order.getTicker(), buffer);
+        putString(order.getCurrency(), buffer);
+        putString(order.getClientOrderId() == null ? "" : order.getClientOrderId(), buffer);
+        int end = buffer.position();
+
+        int payloadLength = end - start - HEADER_SIZE;
+        buffer.putInt(start, payloadLength);
+        buffer.putInt(start + 4, checksum(buffer, start + HEADER_SIZE, payloadLength));
+    }
+
+    /**
+     * Reads the record at the position of the buffer. Returns {@code null}, leaving the position unchanged, if there is
+     * no complete and intact record at the position.
+     */
+    static Order decode(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < HEADER_SIZE) {
+            return null;
+        }
+        int payloadLength = buffer.getInt(start);
+        if (payloadLength < FIXED_PAYLOAD_SIZE || payloadLength > buffer.remaining() - HEADER_SIZE
+                || buffer.getInt(start + 4) != checksum(buffer, start + HEADER_SIZE, payloadLength)) {
+            return null;
+        }
+        buffer.position(start + HEADER_SIZE);
+        UUID id = new UUID(buffer.getLong(), buffer.getLong());
+        LocalDateTime date = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+        OrderSide orderSide = ORDER_SIDES[buffer.get()];
+        int volume = buffer.getInt();
+        long price = buffer.getLong();
+        String ticker = getString(buffer);
+        String currency = getString(buffer);
+        String clientOrderId = buffer.position() < start + HEADER_SIZE + payloadLength ? getString(buffer) : "";
+        return Order.builder()
+                .id(id)
+                .ticker(ticker)
+                .orderSide(orderSide)
+                .volume(volume)
+                .price(price)
+                .currency(currency)
+                .date(date)
+                .clientOrderId(clientOrderId.isEmpty() ? null : clientOrderId)
+                .build();
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(offset, length));
+        return (int) crc.getValue();
+    }
+
+    private static void putString(String value, ByteBuffer buffer) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.put((byte) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[Byte.toUnsignedInt(buffer.get())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int utf8Length(String value) {
+        return value.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
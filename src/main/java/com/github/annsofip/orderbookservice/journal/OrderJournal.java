@@ -0,0 +1,391 @@
+package com.github.annsofip.orderbookservice.journal;
+
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static com.github.annsofip.orderbookservice.journal.JournalRecordCodec.END_OF_SEGMENT;
+import static com.github.annsofip.orderbookservice.journal.JournalRecordCodec.HEADER_SIZE;
+
+/**
+ * Append-only journal of orders in memory-mapped segment files of a fixed size.
+ * <p>
+ * Appends are queued and written by a single writer thread. The thread writes every order that is waiting, forces the
+ * written range to disk once and then completes all of them, so the cost of the sync is shared by all concurrent
+ * appends (group commit). Records are only visible to {@link #read} once they have been synced.
+ */
+@Slf4j
+class OrderJournal implements Closeable {
+    private static final String SEGMENT_PREFIX = "orders-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT = "checkpoint";
+    private static final String QUARANTINE = "quarantine";
+    private static final int MAX_GROUP_SIZE = 4096;
+    private static final int PAGE_SIZE = 4096;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final BlockingQueue<PendingAppend> appends;
+    private final ConcurrentSkipListMap<Long, MappedByteBuffer> segments = new ConcurrentSkipListMap<>();
+    private final Thread writer;
+    private volatile boolean open = true;
+    private volatile JournalPosition durablePosition;
+
+    // Only used by the writer thread once the journal is open.
+    private long currentSegment;
+    private MappedByteBuffer current;
+    private int syncedUpTo;
+
+    private OrderJournal(Path directory, int segmentSize, int queueCapacity) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.appends = new ArrayBlockingQueue<>(queueCapacity);
+        this.writer = new Thread(this::writeLoop, "order-journal-writer");
+    }
+
+    /**
+     * Opens the journal in the directory, creating it if needed. A record that was only partly written before a crash
+     * is discarded, since it was never acknowledged.
+     */
+    static OrderJournal open(Path directory, int segmentSize, int queueCapacity) throws IOException {
+        Files.createDirectories(directory);
+        OrderJournal journal = new OrderJournal(directory, segmentSize, queueCapacity);
+        journal.recover();
+        journal.writer.setDaemon(true);
+        journal.writer.start();
+        return journal;
+    }
+
+    /**
+     * Queues the order for the journal. The returned future completes once the order is synced to disk, and fails
+     * right away if the order cannot be written.
+     */
+    CompletableFuture<Void> append(Order order) {
+        if (!open) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Journal is closed"));
+        }
+        String invalidReason = JournalRecordCodec.invalidReason(order);
+        if (invalidReason != null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException(invalidReason));
+        }
+        if (JournalRecordCodec.recordSize(order) > segmentSize) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Order does not fit in a journal segment"));
+        }
+        PendingAppend append = new PendingAppend(order, new CompletableFuture<>());
+        if (!appends.offer(append)) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Journal queue is full"));
+        }
+        return append.done();
+    }
+
+    JournalPosition durablePosition() {
+        return durablePosition;
+    }
+
+    /**
+     * Reads up to {@code maxRecords} synced orders starting at {@code from} and returns the position after the last
+     * order read.
+     */
+    JournalPosition read(JournalPosition from, int maxRecords, List<Order> orders) {
+        JournalPosition end = durablePosition;
+        long segment = from.segment();
+        int offset = from.offset();
+        while (orders.size() < maxRecords && new JournalPosition(segment, offset).compareTo(end) < 0) {
+            Map.Entry<Long, MappedByteBuffer> entry = segments.ceilingEntry(segment);
+            if (entry.getKey() != segment) {
+                segment = entry.getKey();
+                offset = 0;
+            }
+            ByteBuffer buffer = entry.getValue().duplicate();
+            if (segment < end.segment() && isEndOfSegment(buffer, offset)) {
+                segment++;
+                offset = 0;
+                continue;
+            }
+            buffer.position(offset);
+            Order order = JournalRecordCodec.decode(buffer);
+            if (order == null) {
+                throw new IllegalStateException("Corrupt journal record in segment " + segment + " at offset " + offset);
+            }
+            orders.add(order);
+            offset = buffer.position();
+        }
+        return new JournalPosition(segment, offset);
+    }
+
+    /**
+     * Position up to which all orders have been written to the database.
+     */
+    JournalPosition readCheckpoint() throws IOException {
+        Path checkpoint = directory.resolve(CHECKPOINT);
+        if (!Files.exists(checkpoint)) {
+            return new JournalPosition(segments.firstKey(), 0);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(checkpoint));
+        return new JournalPosition(buffer.getLong(), buffer.getInt());
+    }
+
+    void writeCheckpoint(JournalPosition position) throws IOException {
+        Path temporary = directory.resolve(CHECKPOINT + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.allocate(12).putLong(position.segment()).putInt(position.offset()).flip());
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(CHECKPOINT), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Appends the synced bytes from {@code from} up to {@code to} to the quarantine file and syncs it. If {@code to} is
+     * in a later segment, the rest of the segment of {@code from} is copied. Each entry is the segment and offset the
+     * bytes were copied from, their length and the bytes, which are whole records unless they could not be read.
+     */
+    void quarantine(JournalPosition from, JournalPosition to) throws IOException {
+        MappedByteBuffer segment = segments.get(from.segment());
+        int length = (to.segment() == from.segment() ? to.offset() : segment.capacity()) - from.offset();
+        ByteBuffer entry = ByteBuffer.allocate(8 + 4 + 4 + length)
+                .putLong(from.segment())
+                .putInt(from.offset())
+                .putInt(length)
+                .put(segment.slice(from.offset(), length))
+                .flip();
+        try (FileChannel channel = FileChannel.open(directory.resolve(QUARANTINE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (entry.hasRemaining()) {
+                channel.write(entry);
+            }
+            channel.force(true);
+        }
+        syncDirectory();
+    }
+
+    /**
+     * Deletes segments that only hold orders before the segment, once they have all been written to the database.
+     */
+    void deleteSegmentsBefore(long segment) throws IOException {
+        for (Long drained : List.copyOf(segments.headMap(segment).keySet())) {
+            segments.remove(drained);
+            Files.deleteIfExists(segmentPath(drained));
+        }
+    }
+
+    /**
+     * Stops accepting orders and waits until the queued ones are synced.
+     */
+    @Override
+    public void close() {
+        open = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        PendingAppend append;
+        while ((append = appends.poll()) != null) {
+            append.done().completeExceptionally(new IllegalStateException("Journal is closed"));
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Long> existing;
+        try (Stream<Path> files = Files.list(directory)) {
+            existing = files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+        for (Long segment : existing) {
+            try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                segments.put(segment, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+            }
+        }
+        if (segments.isEmpty()) {
+            createSegment(0);
+            durablePosition = JournalPosition.START;
+            return;
+        }
+
+        currentSegment = segments.lastKey();
+        current = segments.lastEntry().getValue();
+        int end = 0;
+        ByteBuffer buffer = current.duplicate();
+        while (!isEndOfSegment(buffer, end)) {
+            buffer.position(end);
+            if (JournalRecordCodec.decode(buffer) == null) {
+                break;
+            }
+            end = buffer.position();
+        }
+        if (end <= current.capacity() - HEADER_SIZE && current.getInt(end) == END_OF_SEGMENT) {
+            createSegment(currentSegment + 1);
+        } else {
+            zeroFrom(current, end);
+            current.position(end);
+            current.force();
+            syncedUpTo = end;
+        }
+        durablePosition = new JournalPosition(currentSegment, current.position());
+        log.info("operation=openJournal, action=success, segments={}, position={}", segments.size(), durablePosition);
+    }
+
+    // Pages after the last intact record may hold parts of a group that was only partly synced before a crash. They are
+    // cleared so that none of it can be mistaken for a record once new records are appended in front of it.
+    private static void zeroFrom(MappedByteBuffer buffer, int offset) {
+        byte[] zeros = new byte[PAGE_SIZE];
+        for (int page = offset; page < buffer.capacity(); page = (page / PAGE_SIZE + 1) * PAGE_SIZE) {
+            int length = Math.min((page / PAGE_SIZE + 1) * PAGE_SIZE, buffer.capacity()) - page;
+            if (!isZero(buffer, page, length)) {
+                buffer.put(page, zeros, 0, length);
+            }
+        }
+    }
+
+    private static boolean isZero(ByteBuffer buffer, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (buffer.get(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeLoop() {
+        List<PendingAppend> group = new ArrayList<>();
+        while (open || !appends.isEmpty()) {
+            try {
+                PendingAppend first = appends.poll(10, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                appends.drainTo(group, MAX_GROUP_SIZE - 1);
+                write(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            group.clear();
+        }
+    }
+
+    private void write(List<PendingAppend> group) {
+        long groupSegment = currentSegment;
+        int groupStart = current.position();
+        try {
+            for (PendingAppend append : group) {
+                write(append.order());
+            }
+            sync();
+        } catch (IOException | RuntimeException e) {
+            log.error("operation=appendJournal, action=fail, orders={}", group.size(), e);
+            rollBack(groupSegment, groupStart);
+            group.forEach(append -> append.done().completeExceptionally(e));
+            return;
+        }
+        durablePosition = new JournalPosition(currentSegment, current.position());
+        group.forEach(append -> append.done().complete(null));
+    }
+
+    /**
+     * Clears the records of a group that failed, so that they are neither synced with a later group nor recovered after
+     * a restart, since their appends were failed. Segments the group started are deleted. If the records cannot be
+     * cleared, the journal stops accepting orders rather than risk writing orders that were reported as failed.
+     */
+    private void rollBack(long groupSegment, int groupStart) {
+        try {
+            for (Long segment : List.copyOf(segments.tailMap(groupSegment, false).keySet())) {
+                segments.remove(segment);
+                Files.deleteIfExists(segmentPath(segment));
+            }
+            current = segments.get(groupSegment);
+            currentSegment = groupSegment;
+            zeroFrom(current, groupStart);
+            current.force(groupStart, current.capacity() - groupStart);
+            current.position(groupStart);
+            syncedUpTo = groupStart;
+        } catch (IOException | RuntimeException e) {
+            log.error("operation=appendJournal, action=fail, reason=failed records could not be cleared, journal stopped", e);
+            open = false;
+            PendingAppend append;
+            while ((append = appends.poll()) != null) {
+                append.done().completeExceptionally(new IllegalStateException("Journal is stopped"));
+            }
+        }
+    }
+
+    private void write(Order order) throws IOException {
+        int size = JournalRecordCodec.recordSize(order);
+        if (current.remaining() < size) {
+            if (current.remaining() >= HEADER_SIZE) {
+                current.putInt(END_OF_SEGMENT);
+            }
+            sync();
+            createSegment(currentSegment + 1);
+        }
+        JournalRecordCodec.encode(order, current);
+    }
+
+    private void sync() {
+        int position = current.position();
+        if (position > syncedUpTo) {
+            current.force(syncedUpTo, position - syncedUpTo);
+            syncedUpTo = position;
+        }
+    }
+
+    private void createSegment(long segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            channel.force(true);
+            segments.put(segment, buffer);
+            currentSegment = segment;
+            current = buffer;
+            syncedUpTo = 0;
+        }
+        syncDirectory();
+    }
+
+    // Makes the new segment file itself survive a crash, not only its content.
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("operation=syncJournalDirectory, action=unsupported", e);
+        }
+    }
+
+    private static boolean isEndOfSegment(ByteBuffer buffer, int offset) {
+        if (offset > buffer.capacity() - HEADER_SIZE) {
+            return true;
+        }
+        int length = buffer.getInt(offset);
+        return length == 0 || length == END_OF_SEGMENT;
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private record PendingAppend(Order order, CompletableFuture<Void> done) {
+    }
+}
@@ -0,0 +1,13 @@
+package com.github.annsofip.orderbookservice.matching;
+
+import java.util.List;
+
+/**
+ * Copy of the best price levels of a book, each side ordered from the best price. Prices are in minor units of the
+ * currency of the book.
+ */
+public record BookDepth(String currency, List<Level> bids, List<Level> asks) {
+
+    public record Level(long price, long volume, int orderCount) {
+    }
+}
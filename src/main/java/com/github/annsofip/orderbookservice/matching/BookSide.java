@@ -0,0 +1,137 @@
+package com.github.annsofip.orderbookservice.matching;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The price levels of one side of a book, sorted so that the best level is last. Matching takes from the best level
+ * and new orders mostly arrive close to it, so both only move the few levels at the end of the arrays.
+ * <p>
+ * Levels are searched by rank, which is the price for bids and the negated price for asks, so that a higher rank is
+ * always a better price.
+ */
+final class BookSide {
+    private final boolean bids;
+    private long[] ranks;
+    private PriceLevel[] levels;
+    private int size;
+    private PriceLevel freeLevels;
+
+    BookSide(boolean bids, int initialCapacity) {
+        this.bids = bids;
+        this.ranks = new long[initialCapacity];
+        this.levels = new PriceLevel[initialCapacity];
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    PriceLevel best() {
+        return levels[size - 1];
+    }
+
+    /**
+     * Level at the position from the best level, where 0 is the best level.
+     */
+    PriceLevel level(int fromBest) {
+        return levels[size - 1 - fromBest];
+    }
+
+    /**
+     * Copies of the best {@code maxLevels} levels, best first. Reads the arrays as they are, so that it can be called
+     * without holding the lock of the book as long as the result is validated afterwards.
+     */
+    List<BookDepth.Level> top(int maxLevels) {
+        PriceLevel[] current = levels;
+        int currentSize = size;
+        int count = Math.min(currentSize, maxLevels);
+        List<BookDepth.Level> top = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            PriceLevel level = current[currentSize - 1 - i];
+            top.add(new BookDepth.Level(level.price, level.volume, level.orderCount));
+        }
+        return top;
+    }
+
+    /**
+     * Whether an order on the other side at the price trades with the best level of this side.
+     */
+    boolean crosses(long price) {
+        return crosses(best(), price);
+    }
+
+    /**
+     * Whether an order on the other side at the price trades with the level.
+     */
+    boolean crosses(PriceLevel level, long price) {
+        return bids ? level.price >= price : level.price <= price;
+    }
+
+    void add(RestingOrder order, long price) {
+        long rank = rank(price);
+        int index = Arrays.binarySearch(ranks, 0, size, rank);
+        if (index < 0) {
+            index = -index - 1;
+            insertLevel(index, rank, price);
+        }
+        levels[index].append(order);
+    }
+
+    void removeBest() {
+        size--;
+        release(levels[size]);
+        levels[size] = null;
+    }
+
+    /**
+     * Removes a level that has become empty, moving the better levels after it down by one.
+     */
+    void remove(PriceLevel level) {
+        int index = Arrays.binarySearch(ranks, 0, size, rank(level.price));
+        System.arraycopy(ranks, index + 1, ranks, index, size - index - 1);
+        System.arraycopy(levels, index + 1, levels, index, size - index - 1);
+        size--;
+        levels[size] = null;
+        release(level);
+    }
+
+    private void insertLevel(int index, long rank, long price) {
+        if (size == levels.length) {
+            ranks = Arrays.copyOf(ranks, size * 2);
+            levels = Arrays.copyOf(levels, size * 2);
+        }
+        System.arraycopy(ranks, index, ranks, index + 1, size - index);
+        System.arraycopy(levels, index, levels, index + 1, size - index);
+        PriceLevel level = acquire();
+        level.price = price;
+        ranks[index] = rank;
+        levels[index] = level;
+        size++;
+    }
+
+    private long rank(long price) {
+        return bids ? price : -price;
+    }
+
+    private PriceLevel acquire() {
+        PriceLevel level = freeLevels;
+        if (level == null) {
+            return new PriceLevel(this);
+        }
+        freeLevels = level.nextFree;
+        level.nextFree = null;
+        return level;
+    }
+
+    private void release(PriceLevel level) {
+        level.clear();
+        level.nextFree = freeLevels;
+        freeLevels = level;
+    }
+}
@@ -0,0 +1,23 @@
+package com.github.annsofip.orderbookservice.matching;
+
+import java.util.UUID;
+
+/**
+ * Receives the fills of an incoming order, in the order they happen.
+ */
+@FunctionalInterface
+interface FillListener {
+
+    /**
+     * Ignores the fills, for when they have been collected before.
+     */
+    FillListener NONE = (makerId, price, volume) -> {
+    };
+
+    /**
+     * @param makerId id of the resting order that was filled
+     * @param price   price of the resting order in minor units, which is the price of the trade
+     * @param volume  volume traded
+     */
+    void onFill(UUID makerId, long price, int volume);
+}
@@ -0,0 +1,59 @@
+package com.github.annsofip.orderbookservice.matching;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * The fills of one incoming order, in the order they happen. Each book keeps one and reuses it for every order, so an
+ * order that does not cross allocates nothing. It may only be used while holding the write lock of its book.
+ */
+final class Fills implements FillListener {
+    private UUID[] makerIds;
+    private long[] prices;
+    private int[] volumes;
+    private int size;
+
+    Fills(int initialCapacity) {
+        makerIds = new UUID[initialCapacity];
+        prices = new long[initialCapacity];
+        volumes = new int[initialCapacity];
+    }
+
+    @Override
+    public void onFill(UUID makerId, long price, int volume) {
+        if (size == volumes.length) {
+            makerIds = Arrays.copyOf(makerIds, size * 2);
+            prices = Arrays.copyOf(prices, size * 2);
+            volumes = Arrays.copyOf(volumes, size * 2);
+        }
+        makerIds[size] = makerId;
+        prices[size] = price;
+        volumes[size] = volume;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    UUID makerId(int index) {
+        return makerIds[index];
+    }
+
+    long price(int index) {
+        return prices[index];
+    }
+
+    int volume(int index) {
+        return volumes[index];
+    }
+
+    void clear() {
+        Arrays.fill(makerIds, 0, size, null);
+        size = 0;
+    }
+}
@@ -0,0 +1,231 @@
+package com.github.annsofip.orderbookservice.matching;
+
+import com.github.annsofip.orderbookservice.model.OrderSide;
+
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Limit order book of one ticker that matches orders in price-time priority: an incoming order trades with the best
+ * priced resting orders on the other side first, and within a price with the one that arrived first. Trades happen at
+ * the price of the resting order, and whatever is left of the incoming order rests in the book.
+ * <p>
+ * Orders may only be submitted, cancelled or amended while holding the write lock of the book. Resting orders are
+ * found by id in an {@link OrderIndex}, so cancelling or amending one does not search the book. Resting orders and price
+ * levels are reused once they are empty, so a book that has warmed up does not allocate when orders are submitted.
+ */
+final class OrderBook {
+    private static final int INITIAL_LEVELS = 64;
+    private static final int INITIAL_ORDERS = 1024;
+    private static final int INITIAL_FILLS = 16;
+    private static final int OPTIMISTIC_READS = 3;
+
+    private final String currency;
+    private final StampedLock lock = new StampedLock();
+    private final BookSide bids = new BookSide(true, INITIAL_LEVELS);
+    private final BookSide asks = new BookSide(false, INITIAL_LEVELS);
+    private final OrderIndex resting = new OrderIndex(INITIAL_ORDERS);
+    private final Fills fills = new Fills(INITIAL_FILLS);
+    private RestingOrder freeOrders;
+
+    OrderBook(String currency) {
+        this.currency = currency;
+    }
+
+    StampedLock lock() {
+        return lock;
+    }
+
+    /**
+     * The fills buffer of the book, which is reused for every order, see {@link #preview}.
+     */
+    Fills fills() {
+        return fills;
+    }
+
+    /**
+     * Number of price levels on both sides, read without the lock, so it may be off while the book changes.
+     */
+    int priceLevels() {
+        return bids.size() + asks.size();
+    }
+
+    /**
+     * Reports the fills an order would get if it was submitted now, without changing the book, so that they can be
+     * made durable before the book takes them. Submitting the order next, under the same write lock, fills the same
+     * resting orders.
+     *
+     * @param price price in minor units of the currency
+     * @return the volume that would be filled
+     */
+    int preview(OrderSide orderSide, long price, int volume, FillListener listener) {
+        BookSide other = orderSide == OrderSide.BUY ? asks : bids;
+        int remaining = volume;
+        for (int fromBest = 0; remaining > 0 && fromBest < other.size(); fromBest++) {
+            PriceLevel level = other.level(fromBest);
+            if (!other.crosses(level, price)) {
+                break;
+            }
+            for (RestingOrder maker = level.first(); maker != null && remaining > 0; maker = maker.next) {
+                int fillVolume = Math.min(remaining, maker.remaining);
+                remaining -= fillVolume;
+                listener.onFill(maker.id, level.price, fillVolume);
+            }
+        }
+        return volume - remaining;
+    }
+
+    /**
+     * Matches the order against the other side of the book and rests the remaining volume.
+     *
+     * @param price price in minor units of the currency
+     * @return the volume that was not filled and now rests in the book
+     */
+    int submit(UUID id, OrderSide orderSide, long price, int volume, FillListener listener) {
+        BookSide other = orderSide == OrderSide.BUY ? asks : bids;
+        int remaining = volume;
+        while (remaining > 0 && !other.isEmpty() && other.crosses(price)) {
+            PriceLevel level = other.best();
+            RestingOrder maker = level.first();
+            int fillVolume = Math.min(remaining, maker.remaining);
+            UUID makerId = maker.id;
+            long tradePrice = level.price;
+            remaining -= fillVolume;
+            level.fill(maker, fillVolume);
+            if (maker.remaining == 0) {
+                resting.remove(makerId);
+                level.remove(maker);
+                release(maker);
+                if (level.isEmpty()) {
+                    other.removeBest();
+                }
+            }
+            listener.onFill(makerId, tradePrice, fillVolume);
+        }
+        if (remaining > 0) {
+            RestingOrder order = acquire();
+            order.id = id;
+            order.remaining = remaining;
+            (orderSide == OrderSide.BUY ? bids : asks).add(order, price);
+            resting.put(order);
+        }
+        return remaining;
+    }
+
+    /**
+     * The volume the order has left in the book, or 0 if it does not rest in the book.
+     */
+    int remaining(UUID id) {
+        RestingOrder order = resting.get(id);
+        return order == null ? 0 : order.remaining;
+    }
+
+    /**
+     * Takes the order out of the book.
+     *
+     * @return the volume it had left, or 0 if it does not rest in the book
+     */
+    int cancel(UUID id) {
+        RestingOrder order = resting.remove(id);
+        if (order == null) {
+            return 0;
+        }
+        int remaining = order.remaining;
+        unlink(order);
+        return remaining;
+    }
+
+    /**
+     * Takes {@code volume} off the order where it rests, so that it keeps its place in the queue of its price.
+     *
+     * @return whether the order was reduced, which it is not if it does not rest in the book or has no more than
+     * {@code volume} left
+     */
+    boolean reduce(UUID id, int volume) {
+        RestingOrder order = resting.get(id);
+        if (order == null || order.remaining <= volume) {
+            return false;
+        }
+        // Taken off the order and its level like a fill, only without a trade.
+        order.level.fill(order, volume);
+        return true;
+    }
+
+    /**
+     * Moves the order to another price. It loses its place in the queue: it is matched against the other side as if
+     * it had just arrived, and whatever is left rests at the back of the queue of the new price. An order that already
+     * rests at the price stays where it is.
+     *
+     * @param price price in minor units of the currency
+     * @return the volume that now rests in the book, or -1 if the order does not rest in the book
+     */
+    int reprice(UUID id, long price, FillListener listener) {
+        RestingOrder order = resting.get(id);
+        if (order == null) {
+            return -1;
+        }
+        if (order.level.price == price) {
+            return order.remaining;
+        }
+        OrderSide orderSide = order.level.side == bids ? OrderSide.BUY : OrderSide.SELL;
+        return submit(id, orderSide, price, cancel(id), listener);
+    }
+
+    /**
+     * Copies the best {@code maxLevels} levels of both sides without taking the lock, so writers are never blocked by
+     * readers. The copy is only returned if no writer held the lock while it was made. A copy that a writer interrupted
+     * may be inconsistent or fail, and is thrown away. Only if writers keep interrupting is the copy made under the
+     * read lock.
+     */
+    BookDepth depth(int maxLevels) {
+        for (int attempt = 0; attempt < OPTIMISTIC_READS; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                try {
+                    BookDepth depth = new BookDepth(currency, bids.top(maxLevels), asks.top(maxLevels));
+                    if (lock.validate(stamp)) {
+                        return depth;
+                    }
+                } catch (RuntimeException e) {
+                    // Read while the levels were moved, the copy is retried.
+                }
+            }
+            Thread.onSpinWait();
+        }
+        long stamp = lock.readLock();
+        try {
+            return new BookDepth(currency, bids.top(maxLevels), asks.top(maxLevels));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    BookSide side(OrderSide orderSide) {
+        return orderSide == OrderSide.BUY ? bids : asks;
+    }
+
+    private void unlink(RestingOrder order) {
+        PriceLevel level = order.level;
+        level.remove(order);
+        if (level.isEmpty()) {
+            level.side.remove(level);
+        }
+        release(order);
+    }
+
+    private RestingOrder acquire() {
+        RestingOrder order = freeOrders;
+        if (order == null) {
+            return new RestingOrder();
+        }
+        freeOrders = order.next;
+        order.next = null;
+        return order;
+    }
+
+    private void release(RestingOrder order) {
+        order.clear();
+        order.next = freeOrders;
+        freeOrders = order;
+    }
+}
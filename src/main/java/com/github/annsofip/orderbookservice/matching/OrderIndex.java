@@ -0,0 +1,100 @@
+package com.github.annsofip.orderbookservice.matching;
+
+import java.util.UUID;
+
+/**
+ * The resting orders of a book by id, so that an order can be cancelled or amended without searching the book for it.
+ * <p>
+ * The orders are kept in a single array with open addressing and linear probing, and removed by moving the orders
+ * after them back rather than leaving markers. Adding and removing orders does not allocate, apart from growing the
+ * array, which is kept at most half full so that lookups rarely probe more than a slot or two.
+ */
+final class OrderIndex {
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    private RestingOrder[] slots;
+    private int mask;
+    private int shift;
+    private int size;
+
+    OrderIndex(int initialCapacity) {
+        allocate(Math.max(2, Integer.highestOneBit(initialCapacity - 1) << 1));
+    }
+
+    int size() {
+        return size;
+    }
+
+    RestingOrder get(UUID id) {
+        for (int i = slot(id); ; i = (i + 1) & mask) {
+            RestingOrder order = slots[i];
+            if (order == null || order.id.equals(id)) {
+                return order;
+            }
+        }
+    }
+
+    /**
+     * Adds an order whose id is not in the index yet.
+     */
+    void put(RestingOrder order) {
+        if (2 * (size + 1) > slots.length) {
+            grow();
+        }
+        insert(order);
+        size++;
+    }
+
+    /**
+     * Removes the order with the id and returns it, or null if there is none.
+     */
+    RestingOrder remove(UUID id) {
+        int i = slot(id);
+        RestingOrder order;
+        while ((order = slots[i]) != null && !order.id.equals(id)) {
+            i = (i + 1) & mask;
+        }
+        if (order == null) {
+            return null;
+        }
+        // An order further along the run moves into the gap unless its own slot lies between the gap and it.
+        int gap = i;
+        for (int j = (i + 1) & mask; slots[j] != null; j = (j + 1) & mask) {
+            if (((j - slot(slots[j].id)) & mask) >= ((j - gap) & mask)) {
+                slots[gap] = slots[j];
+                gap = j;
+            }
+        }
+        slots[gap] = null;
+        size--;
+        return order;
+    }
+
+    private void insert(RestingOrder order) {
+        int i = slot(order.id);
+        while (slots[i] != null) {
+            i = (i + 1) & mask;
+        }
+        slots[i] = order;
+    }
+
+    private void grow() {
+        RestingOrder[] old = slots;
+        allocate(old.length * 2);
+        for (RestingOrder order : old) {
+            if (order != null) {
+                insert(order);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        slots = new RestingOrder[capacity];
+        mask = capacity - 1;
+        shift = Long.numberOfLeadingZeros(mask);
+    }
+
+    private int slot(UUID id) {
+        return (int) ((id.getMostSignificantBits() ^ id.getLeastSignificantBits()) * GOLDEN_RATIO >>> shift);
+    }
+}
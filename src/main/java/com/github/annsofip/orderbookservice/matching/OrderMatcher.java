@@ -0,0 +1,239 @@
+package com.github.annsofip.orderbookservice.matching;
+
+import com.github.annsofip.orderbookservice.model.OpenOrder;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.repositories.OrderRepository;
+import com.github.annsofip.orderbookservice.repositories.TradeRepository;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import com.github.annsofip.orderbookservice.repositories.entities.Trade;
+import com.github.annsofip.orderbookservice.service.OrderCache;
+import com.github.annsofip.orderbookservice.symbols.SymbolDictionary;
+import com.github.annsofip.orderbookservice.symbols.SymbolMap;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.UUID;
+
+/**
+ * Matches new orders in the order book of their ticker and saves the resulting trades, and cancels and amends the
+ * orders that rest in the books.
+ * <p>
+ * Books are found by the symbol id of their ticker. A book is only changed while holding its write lock, so there is a
+ * single writer per ticker while different tickers are matched in parallel. The trades of a new order are saved under
+ * the lock before the book takes them, so no other order sees fills that are not saved, and a failed save leaves the
+ * book as it was. Orders that do not cross only take the lock and look at the best price. Depth is read optimistically without the
+ * lock, and under the read lock after three reads that a writer got in the way of. The books only live in memory.
+ * They are rebuilt from the open orders once all beans are created, which is after the order writer has recovered
+ * and before requests are accepted.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderMatcher implements SmartInitializingSingleton, MeterBinder {
+    private final OrderRepository orderRepository;
+    private final TradeRepository tradeRepository;
+    private final OrderCache orderCache;
+    private final SymbolDictionary symbolDictionary;
+    private final SymbolMap<OrderBook> books = new SymbolMap<>();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("orderbook.books", books, tickerBooks -> tickerBooks.values().count())
+                .description("Order books, one per ticker")
+                .register(registry);
+        Gauge.builder("orderbook.book.levels", books, OrderMatcher::priceLevels)
+                .description("Price levels with resting orders over all order books")
+                .register(registry);
+    }
+
+    /**
+     * Puts the open orders back in the books at their current volume and price, in the order they took their place in
+     * the queue. Orders that were saved but never matched, for example because the service stopped in between, are
+     * matched now.
+     */
+    public void rebuild() {
+        books.clear();
+        orderCache.clear();
+        List<OpenOrder> openOrders = orderRepository.findOpenOrders();
+        for (OpenOrder openOrder : openOrders) {
+            match(openOrder.getOrder(), openOrder.getPrice(), openOrder.getRemainingVolume(), false);
+        }
+        log.info("operation=rebuildOrderBooks, action=success, books={}, orders={}", books.values().count(), openOrders.size());
+    }
+
+    /**
+     * Matches a saved order, puts it in the order cache and returns how much of its volume was filled. If its trades
+     * cannot be saved, the order is not put in the book, and is matched when the books are rebuilt.
+     */
+    public int match(Order order) {
+        return match(order, order.getPrice(), order.getVolume(), true);
+    }
+
+    /**
+     * The best {@code maxLevels} price levels of each side of the book of the ticker, if it has received orders.
+     */
+    public Optional<BookDepth> depth(String ticker, int maxLevels) {
+        OptionalInt tickerId = symbolDictionary.find(ticker);
+        return Optional.ofNullable(tickerId.isPresent() ? books.get(tickerId.getAsInt()) : null)
+                .map(book -> book.depth(maxLevels));
+    }
+
+    /**
+     * The volume the order has left in the book of its ticker, or 0 if it does not rest in it.
+     */
+    public int remaining(Order order) {
+        OrderBook book = book(order);
+        if (book == null) {
+            return 0;
+        }
+        long stamp = book.lock().readLock();
+        try {
+            return book.remaining(order.getId());
+        } finally {
+            book.lock().unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Takes what is left of the order out of the book of its ticker.
+     *
+     * @return the volume that was taken out, or 0 if the order did not rest in the book
+     */
+    public int cancel(Order order) {
+        OrderBook book = book(order);
+        if (book == null) {
+            return 0;
+        }
+        long stamp = book.lock().writeLock();
+        try {
+            return book.cancel(order.getId());
+        } finally {
+            book.lock().unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Takes {@code reduceBy} off the resting order, which keeps its place in the queue, and then moves it to
+     * {@code price} unless it already rests at that price. A moved order loses its place and is matched like a new
+     * order. The order is checked and changed under the lock of its book, so no fill can come in between.
+     *
+     * @param trades receives the trades of the move, which the caller saves with {@link #saveTrades} together with the
+     *               event of the amendment
+     * @return the volume that was filled when the order was moved, or empty if the order does not rest in the book or
+     * has no more than {@code reduceBy} left, in which case it is not changed
+     */
+    public OptionalInt amend(Order order, int reduceBy, long price, List<Trade> trades) {
+        OrderBook book = book(order);
+        if (book == null) {
+            return OptionalInt.empty();
+        }
+        int filledVolume;
+        long stamp = book.lock().writeLock();
+        try {
+            int remaining = book.remaining(order.getId());
+            if (remaining <= reduceBy) {
+                return OptionalInt.empty();
+            }
+            if (reduceBy > 0) {
+                book.reduce(order.getId(), reduceBy);
+            }
+            // An order that already rests at the price does not cross, so it has no fills.
+            Fills fills = preview(book, order, price, remaining - reduceBy);
+            if (!fills.isEmpty()) {
+                trades.addAll(toTrades(order, fills));
+            }
+            int resting = book.reprice(order.getId(), price, FillListener.NONE);
+            filledVolume = remaining - reduceBy - resting;
+        } finally {
+            book.lock().unlockWrite(stamp);
+        }
+        return OptionalInt.of(filledVolume);
+    }
+
+    public int filledVolume(UUID orderId) {
+        return (int) tradeRepository.sumVolumeByOrderId(orderId);
+    }
+
+    private int match(Order order, long price, int volume, boolean cache) {
+        OrderBook book = books.computeIfAbsent(symbolDictionary.intern(order.getTicker()), id -> new OrderBook(order.getCurrency()));
+        int filledVolume;
+        long stamp = book.lock().writeLock();
+        try {
+            Fills fills = preview(book, order, price, volume);
+            if (!fills.isEmpty()) {
+                saveTrades(order, toTrades(order, fills));
+            }
+            int remaining = book.submit(order.getId(), order.getOrderSide(), price, volume, FillListener.NONE);
+            filledVolume = order.getVolume() - remaining;
+            if (cache) {
+                orderCache.put(order, filledVolume);
+            }
+        } finally {
+            book.lock().unlockWrite(stamp);
+        }
+        return filledVolume;
+    }
+
+    /**
+     * The fills the order would get in the book, in the buffer of the book. The caller must hold the write lock.
+     */
+    private static Fills preview(OrderBook book, Order order, long price, int volume) {
+        Fills fills = book.fills();
+        fills.clear();
+        book.preview(order.getOrderSide(), price, volume, fills);
+        return fills;
+    }
+
+    private OrderBook book(Order order) {
+        OptionalInt tickerId = symbolDictionary.find(order.getTicker());
+        return tickerId.isPresent() ? books.get(tickerId.getAsInt()) : null;
+    }
+
+    /**
+     * Saves the trades of the taker and takes the makers they filled out of the order cache.
+     */
+    public void saveTrades(Order taker, List<Trade> trades) {
+        if (!trades.isEmpty()) {
+            tradeRepository.saveAll(trades);
+            boolean buy = taker.getOrderSide() == OrderSide.BUY;
+            orderCache.invalidateAll(trades.stream().map(trade -> buy ? trade.getSellOrderId() : trade.getBuyOrderId()).toList());
+        }
+    }
+
+    private static int priceLevels(SymbolMap<OrderBook> books) {
+        return books.values().mapToInt(OrderBook::priceLevels).sum();
+    }
+
+    private static List<Trade> toTrades(Order taker, Fills fills) {
+        boolean buy = taker.getOrderSide() == OrderSide.BUY;
+        LocalDateTime date = LocalDateTime.now();
+        List<Trade> trades = new ArrayList<>(fills.size());
+        for (int i = 0; i < fills.size(); i++) {
+            trades.add(Trade.builder()
+                    .ticker(taker.getTicker())
+                    .buyOrderId(buy ? taker.getId() : fills.makerId(i))
+                    .sellOrderId(buy ? fills.makerId(i) : taker.getId())
+                    .volume(fills.volume(i))
+                    .price(fills.price(i))
+                    .currency(taker.getCurrency())
+                    .date(date)
+                    .build());
+        }
+        return trades;
+    }
+}
@@ -0,0 +1,69 @@
+package com.github.annsofip.orderbookservice.matching;
+
+/**
+ * All resting orders of one side at one price, first in first out.
+ */
+final class PriceLevel {
+    final BookSide side;
+    long price;
+    long volume;
+    int orderCount;
+    private RestingOrder first;
+    private RestingOrder last;
+    // Links levels that are not in use.
+    PriceLevel nextFree;
+
+    PriceLevel(BookSide side) {
+        this.side = side;
+    }
+
+    RestingOrder first() {
+        return first;
+    }
+
+    boolean isEmpty() {
+        return first == null;
+    }
+
+    void append(RestingOrder order) {
+        order.level = this;
+        order.previous = last;
+        order.next = null;
+        if (last == null) {
+            first = order;
+        } else {
+            last.next = order;
+        }
+        last = order;
+        volume += order.remaining;
+        orderCount++;
+    }
+
+    void fill(RestingOrder order, int fillVolume) {
+        order.remaining -= fillVolume;
+        volume -= fillVolume;
+    }
+
+    void remove(RestingOrder order) {
+        if (order.previous == null) {
+            first = order.next;
+        } else {
+            order.previous.next = order.next;
+        }
+        if (order.next == null) {
+            last = order.previous;
+        } else {
+            order.next.previous = order.previous;
+        }
+        volume -= order.remaining;
+        orderCount--;
+    }
+
+    void clear() {
+        price = 0;
+        volume = 0;
+        orderCount = 0;
+        first = null;
+        last = null;
+    }
+}
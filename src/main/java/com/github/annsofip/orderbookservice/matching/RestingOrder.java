@@ -0,0 +1,23 @@
+package com.github.annsofip.orderbookservice.matching;
+
+import java.util.UUID;
+
+/**
+ * Order waiting in a price level. Resting orders are linked into the queue of their level and are reused once they
+ * have been filled.
+ */
+final class RestingOrder {
+    UUID id;
+    int remaining;
+    PriceLevel level;
+    RestingOrder previous;
+    RestingOrder next;
+
+    void clear() {
+        id = null;
+        remaining = 0;
+        level = null;
+        previous = null;
+        next = null;
+    }
+}
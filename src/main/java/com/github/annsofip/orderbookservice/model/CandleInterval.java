@@ -0,0 +1,49 @@
+package com.github.annsofip.orderbookservice.model;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Length of a candle. Candles start at whole multiples of their length, counted in the local time of the orders.
+ */
+public enum CandleInterval {
+    ONE_SECOND("1s", Duration.ofSeconds(1)),
+    ONE_MINUTE("1m", Duration.ofMinutes(1)),
+    FIVE_MINUTES("5m", Duration.ofMinutes(5)),
+    ONE_HOUR("1h", Duration.ofHours(1));
+
+    private final String code;
+    private final Duration length;
+
+    CandleInterval(String code, Duration length) {
+        this.code = code;
+        this.length = length;
+    }
+
+    @JsonValue
+    public String getCode() {
+        return code;
+    }
+
+    public Duration getLength() {
+        return length;
+    }
+
+    /**
+     * Start of the candle that the date falls in.
+     */
+    public LocalDateTime start(LocalDateTime date) {
+        long seconds = length.toSeconds();
+        long start = Math.floorDiv(date.toEpochSecond(ZoneOffset.UTC), seconds) * seconds;
+        return LocalDateTime.ofEpochSecond(start, 0, ZoneOffset.UTC);
+    }
+
+    public static Optional<CandleInterval> fromCode(String code) {
+        return Arrays.stream(values()).filter(interval -> interval.code.equals(code)).findFirst();
+    }
+}
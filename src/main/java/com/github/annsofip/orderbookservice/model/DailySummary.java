@@ -0,0 +1,49 @@
+package com.github.annsofip.orderbookservice.model;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Aggregated orders for one ticker, order side and day, with the price total instead of the average so that it can be
+ * combined with further orders.
+ */
+@Getter
+public class DailySummary {
+    private final String ticker;
+    private final OrderSide orderSide;
+    private final LocalDate date;
+    private final Long totalPrice;
+    private final Long maxPrice;
+    private final Long minPrice;
+    private final Long numberOfOrders;
+    private final Long totalVolume;
+    private final BigDecimal totalNotional;
+    private final String currency;
+
+    public DailySummary(String ticker, OrderSide orderSide, LocalDate date, Long totalPrice, Long maxPrice,
+                        Long minPrice, Long numberOfOrders, Long totalVolume, BigDecimal totalNotional,
+                        String currency) {
+        this.ticker = ticker;
+        this.orderSide = orderSide;
+        this.date = date;
+        this.totalPrice = totalPrice;
+        this.maxPrice = maxPrice;
+        this.minPrice = minPrice;
+        this.numberOfOrders = numberOfOrders;
+        this.totalVolume = totalVolume;
+        this.totalNotional = totalNotional;
+        this.currency = currency;
+    }
+
+    /**
+     * Summary of the orders of both summaries, which must be of the same ticker, order side and day.
+     */
+    public DailySummary combine(DailySummary other) {
+        return new DailySummary(ticker, orderSide, date, Math.addExact(totalPrice, other.totalPrice),
+                Math.max(maxPrice, other.maxPrice), Math.min(minPrice, other.minPrice),
+                numberOfOrders + other.numberOfOrders, Math.addExact(totalVolume, other.totalVolume),
+                totalNotional.add(other.totalNotional), currency);
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.annsofip.orderbookservice.model;
+
+public enum FillStatus {
+    OPEN, PARTIALLY_FILLED, FILLED, CANCELLED;
+
+    public static FillStatus of(int volume, int filledVolume) {
+        if (filledVolume == 0) {
+            return OPEN;
+        }
+        return filledVolume < volume ? PARTIALLY_FILLED : FILLED;
+    }
+
+    /**
+     * A cancelled order is only reported as cancelled if it was not filled before the cancel took effect.
+     */
+    public static FillStatus of(int volume, int filledVolume, boolean cancelled) {
+        return cancelled && filledVolume < volume ? CANCELLED : of(volume, filledVolume);
+    }
+}
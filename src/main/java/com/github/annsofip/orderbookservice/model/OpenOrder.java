@@ -0,0 +1,23 @@
+package com.github.annsofip.orderbookservice.model;
+
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import lombok.Getter;
+
+/**
+ * Order that still has volume left to trade, at its current price.
+ */
+@Getter
+public class OpenOrder {
+    private final Order order;
+    private final int remainingVolume;
+    /**
+     * Price in minor units of the currency, which differs from the price of the order if it was amended.
+     */
+    private final long price;
+
+    public OpenOrder(Order order, Long filledVolume, Long volumeChange, Long priceChange) {
+        this.order = order;
+        this.remainingVolume = order.getVolume() + volumeChange.intValue() - filledVolume.intValue();
+        this.price = order.getPrice() + priceChange;
+    }
+}
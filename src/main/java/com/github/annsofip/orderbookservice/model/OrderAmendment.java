@@ -0,0 +1,29 @@
+package com.github.annsofip.orderbookservice.model;
+
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+
+import java.math.BigDecimal;
+
+/**
+ * An order moving from one volume and price to another, with prices in minor units of the currency. Summaries of the
+ * day of the order change by the difference.
+ */
+public record OrderAmendment(Order order, int oldVolume, long oldPrice, int newVolume, long newPrice) {
+
+    public SummaryKey key() {
+        return new SummaryKey(order.getTicker(), order.getOrderSide(), order.getDate().toLocalDate());
+    }
+
+    public long priceChange() {
+        return newPrice - oldPrice;
+    }
+
+    public long volumeChange() {
+        return (long) newVolume - oldVolume;
+    }
+
+    public BigDecimal notionalChange() {
+        return BigDecimal.valueOf(newPrice).multiply(BigDecimal.valueOf(newVolume))
+                .subtract(BigDecimal.valueOf(oldPrice).multiply(BigDecimal.valueOf(oldVolume)));
+    }
+}
@@ -0,0 +1,46 @@
+package com.github.annsofip.orderbookservice.model;
+
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import com.github.annsofip.orderbookservice.repositories.entities.OrderEvent;
+import lombok.Getter;
+
+/**
+ * What the events of an order changed since it was created, see
+ * {@link com.github.annsofip.orderbookservice.repositories.entities.OrderEvent}. Events hold the change rather than
+ * the new value, so the current volume and price are the ones the order was created with plus the sums of the changes.
+ * A cancelled order keeps its volume: the volume a cancel took out of the book only counts in the summaries.
+ */
+@Getter
+public class OrderChanges {
+    public static final OrderChanges NONE = new OrderChanges(0L, 0L, 0L);
+
+    private final int volumeChange;
+    private final long priceChange;
+    private final boolean cancelled;
+
+    public OrderChanges(Long volumeChange, Long priceChange, Long cancellations) {
+        this.volumeChange = volumeChange.intValue();
+        this.priceChange = priceChange;
+        this.cancelled = cancellations > 0;
+    }
+
+    /**
+     * The changes once the event is added to them.
+     */
+    public OrderChanges plus(OrderEvent event) {
+        boolean cancel = event.getType() == OrderEventType.CANCELLED;
+        return new OrderChanges((long) volumeChange + (cancel ? 0 : event.getVolumeChange()),
+                priceChange + event.getPriceChange(), cancelled || cancel ? 1L : 0L);
+    }
+
+    public int volume(Order order) {
+        return order.getVolume() + volumeChange;
+    }
+
+    /**
+     * Current price in minor units of the currency.
+     */
+    public long price(Order order) {
+        return order.getPrice() + priceChange;
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.annsofip.orderbookservice.model;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Where a page of a search of orders ended: the date and id of its last order. The next page starts after it, seeking
+ * in the index instead of skipping over the orders of the pages before.
+ * <p>
+ * Clients get it as an opaque string, URL-safe Base64 of the date in microseconds since 1970 and the id, so that the
+ * format can change without changing the API.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+@RequiredArgsConstructor
+public class OrderCursor {
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final int SIZE = 3 * Long.BYTES;
+
+    private final LocalDateTime date;
+    private final UUID id;
+
+    public String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE)
+                .putLong(ChronoUnit.MICROS.between(EPOCH, date))
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the string is not an encoded cursor
+     */
+    public static OrderCursor decode(String cursor) {
+        byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+        if (bytes.length != SIZE) {
+            throw new IllegalArgumentException("Not a cursor: " + cursor);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        LocalDateTime date = EPOCH.plus(buffer.getLong(), ChronoUnit.MICROS);
+        return new OrderCursor(date, new UUID(buffer.getLong(), buffer.getLong()));
+    }
+}
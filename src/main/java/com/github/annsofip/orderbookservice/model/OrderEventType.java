@@ -0,0 +1,8 @@
+package com.github.annsofip.orderbookservice.model;
+
+/**
+ * Order events store the ordinal, so new types must be added last.
+ */
+public enum OrderEventType {
+    CANCELLED, AMENDED
+}
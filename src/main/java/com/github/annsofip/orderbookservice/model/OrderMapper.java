@@ -4,11 +4,32 @@ import com.github.annsofip.orderbookservice.api.OrderRequestDTO;
 import com.github.annsofip.orderbookservice.api.OrderResponseDTO;
 import com.github.annsofip.orderbookservice.repositories.entities.Order;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.ReportingPolicy;
 
-@Mapper(componentModel = "spring", unmappedSourcePolicy = ReportingPolicy.WARN, unmappedTargetPolicy = ReportingPolicy.WARN)
+@Mapper(componentModel = "spring", imports = {FillStatus.class, Prices.class}, unmappedSourcePolicy = ReportingPolicy.WARN, unmappedTargetPolicy = ReportingPolicy.WARN)
 public interface OrderMapper {
-    OrderResponseDTO orderToOrderDto(Order order);
+    @Mapping(target = "price", expression = "java(Prices.toPrice(order.getPrice(), order.getCurrency()))")
+    @Mapping(target = "filledVolume", source = "filledVolume")
+    @Mapping(target = "fillStatus", expression = "java(FillStatus.of(order.getVolume(), filledVolume))")
+    OrderResponseDTO orderToOrderDto(Order order, int filledVolume);
 
+    /**
+     * The order with the volume and price it has after the changes of its events.
+     */
+    @Mapping(target = "volume", expression = "java(changes.volume(order))")
+    @Mapping(target = "price", expression = "java(Prices.toPrice(changes.price(order), order.getCurrency()))")
+    @Mapping(target = "filledVolume", source = "filledVolume")
+    @Mapping(target = "fillStatus", expression = "java(FillStatus.of(changes.volume(order), filledVolume, changes.isCancelled()))")
+    OrderResponseDTO orderToOrderDto(Order order, OrderChanges changes, int filledVolume);
+
+    @Mapping(target = "price", expression = "java(Prices.toPrice(row.getPrice(), row.getCurrency()))")
+    @Mapping(target = "fillStatus", expression = "java(FillStatus.of(row.getVolume(), row.getFilledVolume(), row.isCancelled()))")
+    OrderResponseDTO orderSearchRowToOrderDto(OrderSearchRow row);
+
+    /**
+     * The price is converted to minor units of the currency, rounding half up when it has more decimals.
+     */
+    @Mapping(target = "price", expression = "java(Prices.toMinorUnits(orderDTO.getPrice(), orderDTO.getCurrency()))")
     Order createOrderDtoToOrder(OrderRequestDTO orderDTO);
 }
@@ -0,0 +1,39 @@
+package com.github.annsofip.orderbookservice.model;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+
+/**
+ * What to search orders by. Everything but the ticker is optional. The price range is in the currency, which must be
+ * given with it, and both bounds are inclusive. The dates are from (inclusive) until (exclusive).
+ */
+@Getter
+@Builder
+public class OrderSearch {
+    private final String ticker;
+    private final OrderSide orderSide;
+    private final String currency;
+    private final BigDecimal minPrice;
+    private final BigDecimal maxPrice;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+
+    /**
+     * The lowest price in minor units of the currency, or null. A price between two minor units is rounded up, so
+     * that no price below it is found.
+     */
+    public Long minPriceInMinorUnits() {
+        return minPrice == null ? null : Prices.toMinorUnits(minPrice, currency, RoundingMode.CEILING);
+    }
+
+    /**
+     * The highest price in minor units of the currency, or null, rounded down.
+     */
+    public Long maxPriceInMinorUnits() {
+        return maxPrice == null ? null : Prices.toMinorUnits(maxPrice, currency, RoundingMode.FLOOR);
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.annsofip.orderbookservice.model;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Columns of an order found by a search, with the volume and price changed by its events, together with the volume
+ * that has been traded of it. Searches select these instead of orders, so that the rows are not loaded as entities
+ * into the persistence context.
+ */
+@Getter
+public class OrderSearchRow {
+    private final UUID id;
+    private final String clientOrderId;
+    private final String ticker;
+    private final OrderSide orderSide;
+    private final int volume;
+    private final long price;
+    private final String currency;
+    private final LocalDateTime date;
+    private final int filledVolume;
+    private final boolean cancelled;
+
+    public OrderSearchRow(UUID id, String clientOrderId, String ticker, OrderSide orderSide, Integer volume, long price,
+                          String currency, LocalDateTime date, Long filledVolume, Long volumeChange, Long priceChange,
+                          Long cancellations) {
+        this.id = id;
+        this.clientOrderId = clientOrderId;
+        this.ticker = ticker;
+        this.orderSide = orderSide;
+        this.volume = volume + volumeChange.intValue();
+        this.price = price + priceChange;
+        this.currency = currency;
+        this.date = date;
+        this.filledVolume = filledVolume.intValue();
+        this.cancelled = cancellations > 0;
+    }
+}
@@ -1,5 +1,8 @@
 package com.github.annsofip.orderbookservice.model;
 
+/**
+ * Orders store the ordinal, so new sides must be added last.
+ */
 public enum OrderSide {
     BUY, SELL
 }
\ No newline at end of file
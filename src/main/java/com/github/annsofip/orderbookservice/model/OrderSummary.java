@@ -2,25 +2,49 @@ package com.github.annsofip.orderbookservice.model;
 
 import lombok.Builder;
 import lombok.Getter;
-import lombok.Setter;
 
 import java.math.BigDecimal;
 
-
-@Setter
+/**
+ * Summary of orders with prices in minor units of the currency. The price total and the total of price times volume
+ * are kept rather than the averages, so that the averages are exact up to their rounding to a minor unit.
+ */
 @Getter
 @Builder
 public class OrderSummary {
-    private Double averagePrice;
-    private BigDecimal maxPrice;
-    private BigDecimal minPrice;
-    private Long numberOfOrders;
-
+    private final long totalPrice;
+    private final long maxPrice;
+    private final long minPrice;
+    private final long numberOfOrders;
+    private final long totalVolume;
+    /**
+     * Sum of price times volume in minor units, a whole number that may not fit in a long.
+     */
+    private final BigDecimal totalNotional;
+    private final String currency;
 
-    public OrderSummary(Double averagePrice, BigDecimal maxPrice, BigDecimal minPrice, Long numberOfOrders) {
-        this.averagePrice = averagePrice;
+    public OrderSummary(Long totalPrice, Long maxPrice, Long minPrice, Long numberOfOrders, Long totalVolume,
+                        BigDecimal totalNotional, String currency) {
+        this.totalPrice = totalPrice;
         this.maxPrice = maxPrice;
         this.minPrice = minPrice;
         this.numberOfOrders = numberOfOrders;
+        this.totalVolume = totalVolume;
+        this.totalNotional = totalNotional;
+        this.currency = currency;
+    }
+
+    /**
+     * Average price in minor units, rounded half up.
+     */
+    public long getAveragePrice() {
+        return Prices.average(totalPrice, numberOfOrders);
+    }
+
+    /**
+     * Volume-weighted average price in minor units, rounded half up.
+     */
+    public long getVwap() {
+        return Prices.weightedAverage(totalNotional, totalVolume);
     }
 }
@@ -0,0 +1,28 @@
+package com.github.annsofip.orderbookservice.model;
+
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import lombok.Getter;
+
+/**
+ * Order together with the volume that has been traded of it and what its events changed.
+ */
+@Getter
+public class OrderWithFills {
+    private final Order order;
+    private final int filledVolume;
+    private final OrderChanges changes;
+
+    public OrderWithFills(Order order, Long filledVolume) {
+        this(order, filledVolume, OrderChanges.NONE);
+    }
+
+    public OrderWithFills(Order order, Long filledVolume, Long volumeChange, Long priceChange, Long cancellations) {
+        this(order, filledVolume, new OrderChanges(volumeChange, priceChange, cancellations));
+    }
+
+    private OrderWithFills(Order order, Long filledVolume, OrderChanges changes) {
+        this.order = order;
+        this.filledVolume = filledVolume.intValue();
+        this.changes = changes;
+    }
+}
@@ -0,0 +1,7 @@
+package com.github.annsofip.orderbookservice.model;
+
+/**
+ * Lowest and highest price in minor units of the currency.
+ */
+public record PriceRange(long min, long max) {
+}
@@ -0,0 +1,83 @@
+package com.github.annsofip.orderbookservice.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Prices are kept as a whole number of minor units of their currency, such as cents for USD and yen for JPY, so that
+ * comparing, adding and averaging them does not allocate. They are only converted from and to {@link BigDecimal} where
+ * they enter and leave the API.
+ * <p>
+ * The scale of a currency is its number of minor units according to ISO 4217. Currencies that are not known there,
+ * or that have no minor unit defined, use two decimals.
+ */
+public final class Prices {
+    public static final int DEFAULT_SCALE = 2;
+
+    private static final Map<String, Integer> SCALES = new ConcurrentHashMap<>();
+
+    private Prices() {
+    }
+
+    public static int scale(String currency) {
+        return SCALES.computeIfAbsent(currency, Prices::lookUpScale);
+    }
+
+    /**
+     * Rounds the price half up to the minor unit of the currency.
+     *
+     * @throws ArithmeticException if the price does not fit in a long
+     */
+    public static long toMinorUnits(BigDecimal price, String currency) {
+        return toMinorUnits(price, currency, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Rounds the price to the minor unit of the currency with {@code roundingMode}, such as up for the lower bound of
+     * a range of prices.
+     *
+     * @throws ArithmeticException if the price does not fit in a long
+     */
+    public static long toMinorUnits(BigDecimal price, String currency, RoundingMode roundingMode) {
+        return price.setScale(scale(currency), roundingMode).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toPrice(long minorUnits, String currency) {
+        return BigDecimal.valueOf(minorUnits, scale(currency));
+    }
+
+    /**
+     * Average of {@code count} prices that add up to {@code total}, rounded half up to the minor unit.
+     */
+    public static long average(long total, long count) {
+        long quotient = total / count;
+        long remainder = total % count;
+        if (Math.abs(remainder) >= count - Math.abs(remainder)) {
+            quotient += Long.signum(total);
+        }
+        return quotient;
+    }
+
+    /**
+     * Average of prices weighted by volume, where {@code totalNotional} is the sum of price times volume in minor
+     * units, rounded half up to the minor unit. Zero if there is no volume.
+     */
+    public static long weightedAverage(BigDecimal totalNotional, long totalVolume) {
+        if (totalVolume == 0) {
+            return 0;
+        }
+        return totalNotional.divide(BigDecimal.valueOf(totalVolume), 0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private static int lookUpScale(String currency) {
+        try {
+            int digits = Currency.getInstance(currency).getDefaultFractionDigits();
+            return digits < 0 ? DEFAULT_SCALE : digits;
+        } catch (IllegalArgumentException e) {
+            return DEFAULT_SCALE;
+        }
+    }
+}
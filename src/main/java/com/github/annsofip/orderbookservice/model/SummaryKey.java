@@ -0,0 +1,12 @@
+package com.github.annsofip.orderbookservice.model;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+
+@Value
+public class SummaryKey {
+    String ticker;
+    OrderSide orderSide;
+    LocalDate date;
+}
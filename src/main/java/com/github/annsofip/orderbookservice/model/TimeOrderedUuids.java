@@ -0,0 +1,83 @@
+package com.github.annsofip.orderbookservice.model;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Version 7 UUIDs (RFC 9562): the first 48 bits are the Unix time in milliseconds, so ids made later sort after ids
+ * made earlier, both as {@link UUID#compareTo} and as the bytes the database compares. New rows therefore go to the
+ * end of the primary key index instead of to random pages of it, and ids can be scanned by time.
+ * <p>
+ * The 12 bits after the version count the ids made in the same millisecond, so the ids of this process are strictly
+ * increasing. When a millisecond runs out of ids, or the clock goes back, the ids continue from the last one as if
+ * the clock was ahead. The last 62 bits are random, which keeps ids of different processes apart, but they are not
+ * meant to be unguessable.
+ */
+public final class TimeOrderedUuids {
+    private static final int VERSION = 7;
+    private static final int COUNTER_BITS = 12;
+    private static final long VARIANT = 0x8000000000000000L;
+    private static final long RANDOM_MASK = 0x3FFFFFFFFFFFFFFFL;
+    private static final TimeOrderedUuids SYSTEM = new TimeOrderedUuids(System::currentTimeMillis);
+
+    private final LongSupplier clock;
+    /**
+     * Milliseconds and counter of the last id, as the 60 bits of the id that are not the version.
+     */
+    private final AtomicLong last = new AtomicLong();
+
+    TimeOrderedUuids(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    public static UUID next() {
+        return SYSTEM.generate();
+    }
+
+    /**
+     * The lowest id of the millisecond of {@code instant}, so that the ids made from one instant until another are
+     * the ones from {@code lowest(from)} (inclusive) until {@code lowest(to)} (exclusive).
+     */
+    public static UUID lowest(Instant instant) {
+        return new UUID(instant.toEpochMilli() << 16 | VERSION << COUNTER_BITS, VARIANT);
+    }
+
+    /**
+     * Whether the id is a version 7 UUID. Rows created before ids were ordered by time have random ids, which carry no
+     * time.
+     */
+    public static boolean isTimeOrdered(UUID id) {
+        return id.version() == VERSION;
+    }
+
+    /**
+     * The millisecond the id was made in, or empty if the id is a random id of a row created before ids were ordered
+     * by time.
+     */
+    public static Optional<Instant> instant(UUID id) {
+        if (!isTimeOrdered(id)) {
+            return Optional.empty();
+        }
+        return Optional.of(Instant.ofEpochMilli(id.getMostSignificantBits() >>> 16));
+    }
+
+    UUID generate() {
+        long now = clock.getAsLong() << COUNTER_BITS;
+        long previous;
+        long current;
+        do {
+            previous = last.get();
+            // A full counter carries over into the milliseconds.
+            current = now > previous ? now : previous + 1;
+        } while (!last.compareAndSet(previous, current));
+        long mostSignificantBits = (current >>> COUNTER_BITS) << 16
+                | VERSION << COUNTER_BITS
+                | current & ((1 << COUNTER_BITS) - 1);
+        long leastSignificantBits = VARIANT | ThreadLocalRandom.current().nextLong() & RANDOM_MASK;
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+}
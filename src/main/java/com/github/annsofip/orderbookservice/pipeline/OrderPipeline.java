@@ -0,0 +1,268 @@
+package com.github.annsofip.orderbookservice.pipeline;
+
+import com.github.annsofip.orderbookservice.config.OrderBookProperties;
+import com.github.annsofip.orderbookservice.matching.OrderMatcher;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import com.github.annsofip.orderbookservice.service.CandleAggregator;
+import com.github.annsofip.orderbookservice.service.OrderSummaryAggregator;
+import com.github.annsofip.orderbookservice.service.OrderWriter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Creates orders on one thread per shard instead of on the request threads. Tickers are hashed onto the shards, so all
+ * orders of a ticker are written, added to the summaries and candles and matched by the same thread in the order they were
+ * submitted, and shards never wait for each other. Batches of orders, cancels and amendments are run on the shard of
+ * their ticker too, so they take their turn with the new orders of the ticker.
+ * <p>
+ * Each thread takes everything waiting in its queue, up to the maximum batch size, and writes it with one call to the
+ * order writer, which is one transaction and one rollup update per ticker, side and day. If that fails, the orders are
+ * written one at a time, so that one order that cannot be written does not fail the others. The queues are bounded,
+ * and an order is refused right away when the queue of its shard is full.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "order-book.pipeline.enabled", havingValue = "true")
+public class OrderPipeline implements MeterBinder {
+    private final OrderWriter orderWriter;
+    private final OrderSummaryAggregator orderSummaryAggregator;
+    private final CandleAggregator candleAggregator;
+    private final OrderMatcher orderMatcher;
+    private final int maxBatchSize;
+    private final Duration retryAfter;
+    private final List<BlockingQueue<Pending>> queues = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running = true;
+
+    public OrderPipeline(OrderWriter orderWriter, OrderSummaryAggregator orderSummaryAggregator,
+                         CandleAggregator candleAggregator, OrderMatcher orderMatcher, OrderBookProperties properties) {
+        OrderBookProperties.Pipeline config = properties.getPipeline();
+        this.orderWriter = orderWriter;
+        this.orderSummaryAggregator = orderSummaryAggregator;
+        this.candleAggregator = candleAggregator;
+        this.orderMatcher = orderMatcher;
+        this.maxBatchSize = config.getMaxBatchSize();
+        this.retryAfter = config.getRetryAfter();
+        for (int shard = 0; shard < config.getShards(); shard++) {
+            BlockingQueue<Pending> queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+            Thread thread = new Thread(() -> process(queue), "order-pipeline-" + shard);
+            thread.setDaemon(true);
+            queues.add(queue);
+            threads.add(thread);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("orderbook.pipeline.queued", queues, OrderPipeline::queued)
+                .description("Orders waiting in the pipeline to be written")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        threads.forEach(Thread::start);
+        log.info("operation=startOrderPipeline, action=success, shards={}", threads.size());
+    }
+
+    /**
+     * Stops accepting orders and waits until the queued ones are created.
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (BlockingQueue<Pending> queue : queues) {
+            Pending pending;
+            while ((pending = queue.poll()) != null) {
+                pending.done().completeExceptionally(new OrderPipelineStoppedException("Order pipeline is stopped"));
+            }
+        }
+    }
+
+    /**
+     * Queues the order on the shard of its ticker. The returned future completes with the filled volume of the order
+     * once it has been written and matched.
+     *
+     * @throws OrderPipelineFullException    if the shard has no room for the order
+     * @throws OrderPipelineStoppedException if the pipeline is stopped
+     */
+    public CompletableFuture<Integer> submit(Order order) {
+        PendingOrder pending = new PendingOrder(order, new CompletableFuture<>());
+        queue(order.getTicker(), pending);
+        return pending.done();
+    }
+
+    /**
+     * Runs the task on the shard of the ticker, after the orders and tasks that were queued there before it, and waits
+     * for its result. An exception thrown by the task is thrown as is.
+     *
+     * @throws OrderPipelineFullException    if the shard has no room for the task
+     * @throws OrderPipelineStoppedException if the pipeline is stopped
+     */
+    public <T> T execute(String ticker, Supplier<T> task) {
+        CompletableFuture<T> done = new CompletableFuture<>();
+        queue(ticker, new PendingTask(() -> {
+            try {
+                done.complete(task.get());
+            } catch (RuntimeException e) {
+                done.completeExceptionally(e);
+            }
+        }, done));
+        try {
+            return done.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void queue(String ticker, Pending pending) {
+        int shard = Math.floorMod(ticker.hashCode(), queues.size());
+        BlockingQueue<Pending> queue = queues.get(shard);
+        if (!running) {
+            throw new OrderPipelineStoppedException("Order pipeline is stopped");
+        }
+        if (!queue.offer(pending)) {
+            throw new OrderPipelineFullException("Order pipeline shard " + shard + " is full", retryAfter);
+        }
+        // The pipeline stopped while this was queued, and the queue may already have been cleared.
+        if (!running && queue.remove(pending)) {
+            throw new OrderPipelineStoppedException("Order pipeline is stopped");
+        }
+    }
+
+    private static int queued(List<BlockingQueue<Pending>> queues) {
+        int queued = 0;
+        for (BlockingQueue<Pending> queue : queues) {
+            queued += queue.size();
+        }
+        return queued;
+    }
+
+    private void process(BlockingQueue<Pending> queue) {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        List<PendingOrder> orders = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(10, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                for (Pending pending : batch) {
+                    if (pending instanceof PendingOrder order) {
+                        orders.add(order);
+                    } else if (pending instanceof PendingTask task) {
+                        // The orders queued before the task are created before it runs.
+                        create(orders);
+                        orders.clear();
+                        task.task().run();
+                    }
+                }
+                create(orders);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("operation=processOrders, action=fail, orders={}", batch.size(), e);
+                batch.forEach(pending -> pending.done().completeExceptionally(e));
+            }
+            batch.clear();
+            orders.clear();
+        }
+    }
+
+    private void create(List<PendingOrder> pendingOrders) {
+        if (pendingOrders.isEmpty()) {
+            return;
+        }
+        List<Order> savedOrders;
+        try {
+            savedOrders = orderWriter.writeAll(pendingOrders.stream().map(PendingOrder::order).toList());
+        } catch (RuntimeException e) {
+            if (pendingOrders.size() == 1) {
+                log.error("operation=processOrders, action=fail, orders=1", e);
+                pendingOrders.get(0).done().completeExceptionally(e);
+                return;
+            }
+            log.warn("operation=processOrders, action=retry, orders={}, reason=batch not written", pendingOrders.size(), e);
+            pendingOrders.forEach(this::createOne);
+            return;
+        }
+        // The orders are saved now, so each is answered as created whatever happens to the others.
+        for (int i = 0; i < savedOrders.size(); i++) {
+            pendingOrders.get(i).done().complete(addAndMatch(savedOrders.get(i)));
+        }
+    }
+
+    private void createOne(PendingOrder pending) {
+        Order savedOrder;
+        try {
+            savedOrder = orderWriter.write(pending.order());
+        } catch (RuntimeException e) {
+            log.error("operation=processOrders, action=fail, orders=1", e);
+            pending.done().completeExceptionally(e);
+            return;
+        }
+        pending.done().complete(addAndMatch(savedOrder));
+    }
+
+    /**
+     * Adds a saved order to the summaries and candles and matches it. A failure is logged rather than thrown, since the
+     * order is saved and must not be reported as failed: an order that could not be matched reports no fills, and is
+     * matched when the books are rebuilt.
+     */
+    private int addAndMatch(Order savedOrder) {
+        try {
+            orderSummaryAggregator.add(savedOrder);
+            candleAggregator.add(savedOrder);
+        } catch (RuntimeException e) {
+            log.error("operation=processOrders, action=fail, id={}, reason=summaries not updated", savedOrder.getId(), e);
+        }
+        try {
+            return orderMatcher.match(savedOrder);
+        } catch (RuntimeException e) {
+            log.error("operation=processOrders, action=fail, id={}, reason=order not matched", savedOrder.getId(), e);
+            return 0;
+        }
+    }
+
+    private sealed interface Pending permits PendingOrder, PendingTask {
+        CompletableFuture<?> done();
+    }
+
+    private record PendingOrder(Order order, CompletableFuture<Integer> done) implements Pending {
+    }
+
+    /**
+     * A task that completes its future itself, and never throws.
+     */
+    private record PendingTask(Runnable task, CompletableFuture<?> done) implements Pending {
+    }
+}
@@ -0,0 +1,18 @@
+package com.github.annsofip.orderbookservice.pipeline;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Thrown when an order cannot be queued because its shard is full.
+ */
+@Getter
+public class OrderPipelineFullException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public OrderPipelineFullException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,11 @@
+package com.github.annsofip.orderbookservice.pipeline;
+
+/**
+ * Thrown when an order or change is handed to the pipeline after it has stopped, as while the service shuts down.
+ */
+public class OrderPipelineStoppedException extends RuntimeException {
+
+    public OrderPipelineStoppedException(String message) {
+        super(message);
+    }
+}
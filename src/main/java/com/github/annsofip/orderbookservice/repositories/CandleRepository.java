@@ -0,0 +1,41 @@
+package com.github.annsofip.orderbookservice.repositories;
+
+import com.github.annsofip.orderbookservice.model.CandleInterval;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.repositories.entities.Candle;
+import com.github.annsofip.orderbookservice.repositories.entities.CandleId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface CandleRepository extends JpaRepository<Candle, CandleId> {
+
+    /**
+     * Stored candles starting from {@code from} (inclusive) until {@code to} (exclusive).
+     */
+    @Query("SELECT c FROM Candle c " +
+            "WHERE c.id.ticker = :ticker " +
+            "AND c.id.orderSide IN :orderSides " +
+            "AND c.id.interval = :interval " +
+            "AND c.id.start >= :from " +
+            "AND c.id.start < :to")
+    List<Candle> findByTickerAndOrderSidesAndIntervalAndStartBetween(
+            @Param("ticker") String ticker,
+            @Param("orderSides") Collection<OrderSide> orderSides,
+            @Param("interval") CandleInterval interval,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    @Query("SELECT max(c.id.start) FROM Candle c")
+    Optional<LocalDateTime> findLatestStart();
+
+    @Modifying
+    @Query("DELETE FROM Candle c WHERE c.id.start >= :from")
+    int deleteByStartFrom(@Param("from") LocalDateTime from);
+}
@@ -0,0 +1,17 @@
+package com.github.annsofip.orderbookservice.repositories;
+
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+
+import java.util.List;
+
+/**
+ * Rollup updates of many orders at once, see {@link DailyOrderSummaryBatchRepositoryImpl}.
+ */
+public interface DailyOrderSummaryBatchRepository {
+
+    /**
+     * Adds the orders to the rollup with one update per ticker, order side and day instead of one per order. The
+     * orders must have been flushed, since the updates are sent past Hibernate.
+     */
+    void rollUpAll(List<Order> orders);
+}
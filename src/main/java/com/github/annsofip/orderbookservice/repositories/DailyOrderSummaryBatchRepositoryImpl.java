@@ -0,0 +1,58 @@
+package com.github.annsofip.orderbookservice.repositories;
+
+import com.github.annsofip.orderbookservice.model.SummaryKey;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Sends the rollup updates of all tickers, order sides and days of the orders as two JDBC batches, the empty rows and
+ * then the additions, so that a batch of orders costs two round trips to the database however many days it touches.
+ * The statements are the ones of {@link DailyOrderSummaryRepository#rollUp}, and run in the current transaction.
+ */
+@RequiredArgsConstructor
+class DailyOrderSummaryBatchRepositoryImpl implements DailyOrderSummaryBatchRepository {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    public void rollUpAll(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        Map<SummaryKey, List<Order>> ordersByDay = orders.stream()
+                .collect(Collectors.groupingBy(
+                        order -> new SummaryKey(order.getTicker(), order.getOrderSide(), order.getDate().toLocalDate()),
+                        LinkedHashMap::new, Collectors.toList()));
+        SqlParameterSource[] days = ordersByDay.entrySet().stream()
+                .map(day -> parameters(day.getKey(), day.getValue()))
+                .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(DailyOrderSummaryRepository.INSERT_EMPTY_IF_ABSENT, days);
+        jdbcTemplate.batchUpdate(DailyOrderSummaryRepository.ADD, days);
+    }
+
+    private static SqlParameterSource parameters(SummaryKey key, List<Order> dayOrders) {
+        LongSummaryStatistics prices = dayOrders.stream().mapToLong(Order::getPrice).summaryStatistics();
+        return new MapSqlParameterSource()
+                .addValue("ticker", key.getTicker())
+                .addValue("orderSide", key.getOrderSide().name())
+                .addValue("date", key.getDate())
+                .addValue("currency", dayOrders.get(0).getCurrency())
+                .addValue("numberOfOrders", prices.getCount())
+                .addValue("totalPrice", prices.getSum())
+                .addValue("minPrice", prices.getMin())
+                .addValue("maxPrice", prices.getMax())
+                .addValue("totalVolume", dayOrders.stream().mapToLong(Order::getVolume).sum())
+                .addValue("totalNotional", dayOrders.stream()
+                        .map(order -> BigDecimal.valueOf(order.getPrice()).multiply(BigDecimal.valueOf(order.getVolume())))
+                        .reduce(BigDecimal.ZERO, BigDecimal::add));
+    }
+}
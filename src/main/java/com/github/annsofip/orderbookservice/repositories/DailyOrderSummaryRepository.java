@@ -0,0 +1,121 @@
+package com.github.annsofip.orderbookservice.repositories;
+
+import com.github.annsofip.orderbookservice.model.OrderAmendment;
+import com.github.annsofip.orderbookservice.model.PriceRange;
+import com.github.annsofip.orderbookservice.model.SummaryKey;
+import com.github.annsofip.orderbookservice.repositories.entities.DailyOrderSummary;
+import com.github.annsofip.orderbookservice.repositories.entities.DailyOrderSummaryId;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Optional;
+
+public interface DailyOrderSummaryRepository extends JpaRepository<DailyOrderSummary, DailyOrderSummaryId>,
+        DailyOrderSummaryBatchRepository {
+    String INSERT_EMPTY_IF_ABSENT = "INSERT INTO daily_order_summary (ticker, order_side, date, number_of_orders, " +
+            "total_price, total_volume, total_notional, currency) " +
+            "VALUES (:ticker, :orderSide, :date, 0, 0, 0, 0, :currency) " +
+            "ON CONFLICT DO NOTHING";
+    String ADD = "UPDATE daily_order_summary SET " +
+            "number_of_orders = number_of_orders + :numberOfOrders, " +
+            "total_price = total_price + :totalPrice, " +
+            "total_volume = total_volume + :totalVolume, " +
+            "total_notional = total_notional + :totalNotional, " +
+            "min_price = CASE WHEN min_price IS NULL OR min_price > :minPrice THEN :minPrice ELSE min_price END, " +
+            "max_price = CASE WHEN max_price IS NULL OR max_price < :maxPrice THEN :maxPrice ELSE max_price END " +
+            "WHERE ticker = :ticker AND order_side = :orderSide AND date = :date";
+
+    /**
+     * Adds the order to the rollup of its day. The empty row is created first so that concurrent writers of a new day
+     * both end up incrementing the same row instead of racing on the insert.
+     */
+    default void rollUp(Order order) {
+        rollUp(order.getTicker(), order.getOrderSide().name(), order.getDate().toLocalDate(), order.getCurrency(), 1L,
+                order.getPrice(), order.getPrice(), order.getPrice(), order.getVolume(), notional(order));
+    }
+
+    default void rollUp(String ticker, String orderSide, LocalDate date, String currency, long numberOfOrders,
+                        long totalPrice, long minPrice, long maxPrice, long totalVolume, BigDecimal totalNotional) {
+        insertEmptyIfAbsent(ticker, orderSide, date, currency);
+        add(ticker, orderSide, date, numberOfOrders, totalPrice, minPrice, maxPrice, totalVolume, totalNotional);
+    }
+
+    /**
+     * Moves an amended order from its old volume and price to its new ones in the rollup of its day. The number of
+     * orders stays the same and the totals change by the difference. The lowest and highest price are widened to the
+     * new price, or replaced by {@code range} when they had to be looked up again because the old price was one of
+     * them.
+     */
+    default void rollUp(OrderAmendment amendment, Optional<PriceRange> range) {
+        SummaryKey key = amendment.key();
+        amend(key.getTicker(), key.getOrderSide().name(), key.getDate(), amendment.priceChange(),
+                amendment.volumeChange(), amendment.notionalChange(),
+                range.map(PriceRange::min).orElse(amendment.newPrice()),
+                range.map(PriceRange::max).orElse(amendment.newPrice()), range.isPresent());
+    }
+
+    /**
+     * Locks the rollup of the day of the amended order until the transaction ends, so that orders of the day that are
+     * saved meanwhile either are seen when its price range is looked up again or are added after it is replaced.
+     */
+    default void lockRollUp(SummaryKey key) {
+        lock(key.getTicker(), key.getOrderSide().name(), key.getDate());
+    }
+
+    private static BigDecimal notional(Order order) {
+        return BigDecimal.valueOf(order.getPrice()).multiply(BigDecimal.valueOf(order.getVolume()));
+    }
+
+    @Modifying
+    @Query(value = INSERT_EMPTY_IF_ABSENT, nativeQuery = true)
+    void insertEmptyIfAbsent(
+            @Param("ticker") String ticker,
+            @Param("orderSide") String orderSide,
+            @Param("date") LocalDate date,
+            @Param("currency") String currency);
+
+    @Modifying
+    @Query(value = ADD, nativeQuery = true)
+    void add(
+            @Param("ticker") String ticker,
+            @Param("orderSide") String orderSide,
+            @Param("date") LocalDate date,
+            @Param("numberOfOrders") long numberOfOrders,
+            @Param("totalPrice") long totalPrice,
+            @Param("minPrice") long minPrice,
+            @Param("maxPrice") long maxPrice,
+            @Param("totalVolume") long totalVolume,
+            @Param("totalNotional") BigDecimal totalNotional);
+
+    @Query(value = "SELECT number_of_orders FROM daily_order_summary " +
+            "WHERE ticker = :ticker AND order_side = :orderSide AND date = :date FOR UPDATE", nativeQuery = true)
+    Optional<Long> lock(
+            @Param("ticker") String ticker,
+            @Param("orderSide") String orderSide,
+            @Param("date") LocalDate date);
+
+    @Modifying
+    @Query(value = "UPDATE daily_order_summary SET " +
+            "total_price = total_price + :totalPrice, " +
+            "total_volume = total_volume + :totalVolume, " +
+            "total_notional = total_notional + :totalNotional, " +
+            "min_price = CASE WHEN :replaceRange OR min_price > :minPrice THEN :minPrice ELSE min_price END, " +
+            "max_price = CASE WHEN :replaceRange OR max_price < :maxPrice THEN :maxPrice ELSE max_price END " +
+            "WHERE ticker = :ticker AND order_side = :orderSide AND date = :date", nativeQuery = true)
+    void amend(
+            @Param("ticker") String ticker,
+            @Param("orderSide") String orderSide,
+            @Param("date") LocalDate date,
+            @Param("totalPrice") long totalPrice,
+            @Param("totalVolume") long totalVolume,
+            @Param("totalNotional") BigDecimal totalNotional,
+            @Param("minPrice") long minPrice,
+            @Param("maxPrice") long maxPrice,
+            @Param("replaceRange") boolean replaceRange);
+
+}
@@ -0,0 +1,25 @@
+package com.github.annsofip.orderbookservice.repositories;
+
+import com.github.annsofip.orderbookservice.model.OrderChanges;
+import com.github.annsofip.orderbookservice.repositories.entities.OrderEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.UUID;
+
+public interface OrderEventRepository extends JpaRepository<OrderEvent, UUID> {
+
+    /**
+     * The sums of the changes of the events of the order, which are none if it has no events. The volume of a cancel
+     * is left out, see {@link OrderChanges}.
+     */
+    @Query("SELECT new com.github.annsofip.orderbookservice.model.OrderChanges(" +
+            "COALESCE(SUM(CASE WHEN e.type = com.github.annsofip.orderbookservice.model.OrderEventType.AMENDED " +
+            "THEN e.volumeChange ELSE 0 END), 0), " +
+            "COALESCE(SUM(e.priceChange), 0), " +
+            "COUNT(CASE WHEN e.type = com.github.annsofip.orderbookservice.model.OrderEventType.CANCELLED THEN 1 END)) " +
+            "FROM OrderEvent e " +
+            "WHERE e.orderId = :orderId")
+    OrderChanges findChanges(@Param("orderId") UUID orderId);
+}
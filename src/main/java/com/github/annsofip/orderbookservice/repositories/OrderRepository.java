@@ -1,31 +1,210 @@
 package com.github.annsofip.orderbookservice.repositories;
 
+import com.github.annsofip.orderbookservice.model.DailySummary;
+import com.github.annsofip.orderbookservice.model.OpenOrder;
+import com.github.annsofip.orderbookservice.model.OrderChanges;
 import com.github.annsofip.orderbookservice.model.OrderSide;
 import com.github.annsofip.orderbookservice.model.OrderSummary;
+import com.github.annsofip.orderbookservice.model.OrderWithFills;
+import com.github.annsofip.orderbookservice.model.TimeOrderedUuids;
 import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
-public interface OrderRepository extends JpaRepository<Order, UUID> {
+public interface OrderRepository extends JpaRepository<Order, UUID>, OrderSearchRepository {
+    /**
+     * JPQL of the volume traded of order {@code o}.
+     */
+    String FILLED_VOLUME = "(SELECT COALESCE(SUM(t.volume), 0) FROM Trade t WHERE t.buyOrderId = o.id OR t.sellOrderId = o.id)";
+    /**
+     * JPQL of the sums of the changes of the events of order {@code o}, see {@link OrderChanges}. They are looked up in
+     * the order id index of the events, which only has rows for the few orders that were cancelled or amended.
+     */
+    String VOLUME_CHANGE = "(SELECT COALESCE(SUM(e.volumeChange), 0) FROM OrderEvent e WHERE e.orderId = o.id " +
+            "AND e.type = com.github.annsofip.orderbookservice.model.OrderEventType.AMENDED)";
+    /**
+     * JPQL of the change of the volume of order {@code o} in the summaries, which also leave out the volume that was
+     * cancelled.
+     */
+    String SUMMARY_VOLUME_CHANGE = "(SELECT COALESCE(SUM(e.volumeChange), 0) FROM OrderEvent e WHERE e.orderId = o.id)";
+    String PRICE_CHANGE = "(SELECT COALESCE(SUM(e.priceChange), 0) FROM OrderEvent e WHERE e.orderId = o.id)";
+    String CANCELLATIONS = "(SELECT COUNT(e) FROM OrderEvent e WHERE e.orderId = o.id " +
+            "AND e.type = com.github.annsofip.orderbookservice.model.OrderEventType.CANCELLED)";
 
+    default Optional<OrderSummary> findSummaryByTickerAndOrderSideAndDate(String ticker, OrderSide orderSide, LocalDate date) {
+        return findSummaryByTickerAndOrderSideAndDateBetween(ticker, orderSide, date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+    }
+
+    /**
+     * Summary of the orders placed from {@code from} (inclusive) until {@code to} (exclusive), at their current volume
+     * and price, without the volume that was cancelled. Comparing the timestamp itself, rather than casting it to a
+     * date, lets the database use the ticker, order side and date index. The sums are returned instead of averages,
+     * which the database would round to a double. Price times volume is summed as a numeric, so it cannot overflow and matches the running totals of the
+     * summaries exactly.
+     */
     @Query("SELECT new com.github.annsofip.orderbookservice.model.OrderSummary(" +
-            "avg(o.price), " +
-            "max(o.price), " +
-            "min(o.price), " +
-            "count(o)) " +
+            "sum(o.price + " + PRICE_CHANGE + "), " +
+            "max(o.price + " + PRICE_CHANGE + "), " +
+            "min(o.price + " + PRICE_CHANGE + "), " +
+            "count(o), " +
+            "sum(CAST(o.volume AS Long) + " + SUMMARY_VOLUME_CHANGE + "), " +
+            "sum(CAST(o.price + " + PRICE_CHANGE + " AS BigDecimal) * (o.volume + " + SUMMARY_VOLUME_CHANGE + ")), " +
+            "min(o.currency)) " +
             "FROM Order o " +
             "WHERE o.ticker = :ticker " +
             "AND o.orderSide = :orderSide " +
-            "AND CAST(o.date AS DATE) = :date " +
-            "GROUP BY o.ticker, o.orderSide, o.date")
-    Optional<OrderSummary> findSummaryByTickerAndOrderSideAndDate(
+            "AND o.date >= :from " +
+            "AND o.date < :to " +
+            "GROUP BY o.ticker, o.orderSide")
+    Optional<OrderSummary> findSummaryByTickerAndOrderSideAndDateBetween(
             @Param("ticker") String ticker,
             @Param("orderSide") OrderSide orderSide,
-            @Param("date") LocalDate date);
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    default Stream<OrderWithFills> streamByTickerAndOrderSideAndDate(String ticker, OrderSide orderSide, LocalDate date) {
+        return streamByTickerAndOrderSideAndDateBetween(ticker, orderSide, date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+    }
+
+    /**
+     * Orders placed from {@code from} (inclusive) until {@code to} (exclusive), oldest first. The rows are read from a
+     * database cursor in chunks of the fetch size as the stream is consumed, which needs an open transaction. The
+     * orders are read only and stay in the persistence context until they are detached.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.github.annsofip.orderbookservice.model.OrderWithFills(o, " +
+            FILLED_VOLUME + ", " + VOLUME_CHANGE + ", " + PRICE_CHANGE + ", " + CANCELLATIONS + ") " +
+            "FROM Order o " +
+            "WHERE o.ticker = :ticker " +
+            "AND o.orderSide = :orderSide " +
+            "AND o.date >= :from " +
+            "AND o.date < :to " +
+            "ORDER BY o.date, o.id")
+    Stream<OrderWithFills> streamByTickerAndOrderSideAndDateBetween(
+            @Param("ticker") String ticker,
+            @Param("orderSide") OrderSide orderSide,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    /**
+     * All orders placed from {@code from} on, oldest first, read from a database cursor like
+     * {@link #streamByTickerAndOrderSideAndDateBetween}.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o FROM Order o WHERE o.date >= :from ORDER BY o.date, o.id")
+    Stream<Order> streamByDateFrom(@Param("from") LocalDateTime from);
+
+    /**
+     * Orders placed before {@code to} that have been completely filled by trades and never cancelled or amended, read
+     * from a database cursor like {@link #streamByTickerAndOrderSideAndDateBetween}. They are ordered by day, then
+     * ticker and order side, and then date and id.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.github.annsofip.orderbookservice.model.OrderWithFills(o, " + FILLED_VOLUME + ") " +
+            "FROM Order o " +
+            "WHERE o.date < :to " +
+            "AND o.volume <= " + FILLED_VOLUME + " " +
+            "AND NOT EXISTS (SELECT e FROM OrderEvent e WHERE e.orderId = o.id) " +
+            "ORDER BY CAST(o.date AS LocalDate), o.ticker, o.orderSide, o.date, o.id")
+    Stream<OrderWithFills> streamFilledBefore(@Param("to") LocalDateTime to);
+
+    /**
+     * Orders created from {@code from} (inclusive) until {@code to} (exclusive) by the time in their ids, in id order.
+     * The range is scanned on the primary key rather than on the date. Orders created before ids were ordered by time
+     * have random ids, so the ones that happen to fall in the range are skipped.
+     */
+    default Stream<Order> streamCreatedBetween(Instant from, Instant to) {
+        return streamByIdBetween(TimeOrderedUuids.lowest(from), TimeOrderedUuids.lowest(to))
+                .filter(order -> TimeOrderedUuids.isTimeOrdered(order.getId()));
+    }
+
+    /**
+     * Orders with ids from {@code from} (inclusive) until {@code to} (exclusive), in id order, read from a database
+     * cursor like {@link #streamByTickerAndOrderSideAndDateBetween}.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o FROM Order o WHERE o.id >= :from AND o.id < :to ORDER BY o.id")
+    Stream<Order> streamByIdBetween(@Param("from") UUID from, @Param("to") UUID to);
+
+    /**
+     * The first orders after the order with id {@code after}, in id order, which is the order they were created in.
+     * Paging on the last id seen reads only the rows of the page from the primary key, however deep the page is,
+     * where an offset would skip over all rows before it. The first page is after {@code new UUID(0, 0)}.
+     */
+    @Query("SELECT o FROM Order o WHERE o.id > :after ORDER BY o.id")
+    List<Order> findPageAfter(@Param("after") UUID after, Pageable pageable);
+
+    /**
+     * Summaries of the orders of every ticker, order side and day, at their current volume and price like
+     * {@link #findSummaryByTickerAndOrderSideAndDateBetween}.
+     */
+    @Query("SELECT new com.github.annsofip.orderbookservice.model.DailySummary(" +
+            "o.ticker, " +
+            "o.orderSide, " +
+            "CAST(o.date AS LocalDate), " +
+            "sum(o.price + " + PRICE_CHANGE + "), " +
+            "max(o.price + " + PRICE_CHANGE + "), " +
+            "min(o.price + " + PRICE_CHANGE + "), " +
+            "count(o), " +
+            "sum(CAST(o.volume AS Long) + " + SUMMARY_VOLUME_CHANGE + "), " +
+            "sum(CAST(o.price + " + PRICE_CHANGE + " AS BigDecimal) * (o.volume + " + SUMMARY_VOLUME_CHANGE + ")), " +
+            "min(o.currency)) " +
+            "FROM Order o " +
+            "GROUP BY o.ticker, o.orderSide, CAST(o.date AS LocalDate)")
+    List<DailySummary> findDailySummaries();
+
+    Optional<Order> findByClientOrderId(String clientOrderId);
+
+    /**
+     * Client order ids of all orders that have one, read from a database cursor like
+     * {@link #streamByTickerAndOrderSideAndDateBetween}.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"))
+    @Query("SELECT o.clientOrderId FROM Order o WHERE o.clientOrderId IS NOT NULL")
+    Stream<String> streamClientOrderIds();
+
+    @Query("SELECT o.id FROM Order o WHERE o.id IN :ids")
+    Set<UUID> findExistingIds(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Orders that have not been completely filled by trades nor cancelled, at their current volume and price, in the
+     * order they took their place in the queue of their price: orders whose price was amended queue from the date of
+     * the last amendment of the price.
+     */
+    @Query("SELECT new com.github.annsofip.orderbookservice.model.OpenOrder(o, " +
+            FILLED_VOLUME + ", " + VOLUME_CHANGE + ", " + PRICE_CHANGE + ") " +
+            "FROM Order o " +
+            "WHERE o.volume + " + VOLUME_CHANGE + " > " + FILLED_VOLUME + " " +
+            "AND NOT EXISTS (SELECT e FROM OrderEvent e WHERE e.orderId = o.id " +
+            "AND e.type = com.github.annsofip.orderbookservice.model.OrderEventType.CANCELLED) " +
+            "ORDER BY COALESCE((SELECT MAX(e.date) FROM OrderEvent e WHERE e.orderId = o.id AND e.priceChange <> 0), o.date), o.id")
+    List<OpenOrder> findOpenOrders();
 
 }
@@ -0,0 +1,19 @@
+package com.github.annsofip.orderbookservice.repositories;
+
+import com.github.annsofip.orderbookservice.model.OrderCursor;
+import com.github.annsofip.orderbookservice.model.OrderSearch;
+import com.github.annsofip.orderbookservice.model.OrderSearchRow;
+
+import java.util.List;
+
+/**
+ * Searches of orders by the filters that are given, see {@link OrderSearchRepositoryImpl}.
+ */
+public interface OrderSearchRepository {
+
+    /**
+     * The first {@code limit} orders that match the search, after the cursor if it is not null, ordered by date and
+     * id. Orders moved to the archive are not searched.
+     */
+    List<OrderSearchRow> search(OrderSearch search, OrderCursor after, int limit);
+}
@@ -0,0 +1,74 @@
+package com.github.annsofip.orderbookservice.repositories;
+
+import com.github.annsofip.orderbookservice.model.OrderCursor;
+import com.github.annsofip.orderbookservice.model.OrderSearch;
+import com.github.annsofip.orderbookservice.model.OrderSearchRow;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import lombok.RequiredArgsConstructor;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Only the filters that are given are added to the query, so that the database plans each combination on its own
+ * rather than one plan for {@code :param IS NULL OR ...} conditions.
+ * <p>
+ * The orders of the ticker are read in date and id order from the ticker, date and id index, starting at the cursor,
+ * and the other filters are checked on the rows as they are read. A page therefore costs the same however deep it
+ * is, but filters that match few orders read more rows per page. Prices are filtered on the current price of the
+ * orders, after the changes of their events.
+ */
+@RequiredArgsConstructor
+class OrderSearchRepositoryImpl implements OrderSearchRepository {
+    private final EntityManager entityManager;
+
+    @Override
+    public List<OrderSearchRow> search(OrderSearch search, OrderCursor after, int limit) {
+        StringBuilder jpql = new StringBuilder("SELECT new com.github.annsofip.orderbookservice.model.OrderSearchRow(" +
+                "o.id, o.clientOrderId, o.ticker, o.orderSide, o.volume, o.price, o.currency, o.date, " +
+                OrderRepository.FILLED_VOLUME + ", " + OrderRepository.VOLUME_CHANGE + ", " +
+                OrderRepository.PRICE_CHANGE + ", " + OrderRepository.CANCELLATIONS + ") " +
+                "FROM Order o " +
+                "WHERE o.ticker = :ticker");
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("ticker", search.getTicker());
+        if (search.getOrderSide() != null) {
+            jpql.append(" AND o.orderSide = :orderSide");
+            parameters.put("orderSide", search.getOrderSide());
+        }
+        if (search.getCurrency() != null) {
+            jpql.append(" AND o.currency = :currency");
+            parameters.put("currency", search.getCurrency());
+        }
+        if (search.getMinPrice() != null) {
+            jpql.append(" AND o.price + ").append(OrderRepository.PRICE_CHANGE).append(" >= :minPrice");
+            parameters.put("minPrice", search.minPriceInMinorUnits());
+        }
+        if (search.getMaxPrice() != null) {
+            jpql.append(" AND o.price + ").append(OrderRepository.PRICE_CHANGE).append(" <= :maxPrice");
+            parameters.put("maxPrice", search.maxPriceInMinorUnits());
+        }
+        if (search.getFrom() != null) {
+            jpql.append(" AND o.date >= :from");
+            parameters.put("from", search.getFrom());
+        }
+        if (search.getTo() != null) {
+            jpql.append(" AND o.date < :to");
+            parameters.put("to", search.getTo());
+        }
+        if (after != null) {
+            // The first condition alone is a range of the index to start from, the second skips the orders of the
+            // cursor's date up to and including the cursor.
+            jpql.append(" AND o.date >= :afterDate AND (o.date > :afterDate OR o.id > :afterId)");
+            parameters.put("afterDate", after.getDate());
+            parameters.put("afterId", after.getId());
+        }
+        jpql.append(" ORDER BY o.date, o.id");
+
+        TypedQuery<OrderSearchRow> query = entityManager.createQuery(jpql.toString(), OrderSearchRow.class);
+        parameters.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+}
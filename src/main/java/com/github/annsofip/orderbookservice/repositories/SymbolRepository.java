@@ -0,0 +1,17 @@
+package com.github.annsofip.orderbookservice.repositories;
+
+import com.github.annsofip.orderbookservice.repositories.entities.Symbol;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface SymbolRepository extends JpaRepository<Symbol, Integer> {
+
+    /**
+     * Saves the symbol in a transaction of its own, so it is committed even if the transaction of the order that
+     * added it rolls back, since the symbol is already in use in memory by then.
+     */
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    <S extends Symbol> S save(S symbol);
+}
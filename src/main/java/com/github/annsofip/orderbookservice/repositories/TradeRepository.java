@@ -0,0 +1,14 @@
+package com.github.annsofip.orderbookservice.repositories;
+
+import com.github.annsofip.orderbookservice.repositories.entities.Trade;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.UUID;
+
+public interface TradeRepository extends JpaRepository<Trade, UUID> {
+
+    @Query("SELECT COALESCE(SUM(t.volume), 0) FROM Trade t WHERE t.buyOrderId = :orderId OR t.sellOrderId = :orderId")
+    long sumVolumeByOrderId(@Param("orderId") UUID orderId);
+}
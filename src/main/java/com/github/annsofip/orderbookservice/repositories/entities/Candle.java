@@ -0,0 +1,97 @@
+package com.github.annsofip.orderbookservice.repositories.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Open, high, low and close price and volume of the orders of one ticker and order side within one interval. Only
+ * closed candles are stored, the current ones are kept in memory by the {@code CandleAggregator}.
+ * <p>
+ * The first and last order are the ones with the lowest and highest date and id, not the ones that arrived first and
+ * last, so a candle is the same however its orders are replayed.
+ */
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "candle")
+public class Candle implements Persistable<CandleId> {
+    @EmbeddedId
+    private CandleId id;
+
+    /**
+     * Prices in minor units of the currency, see {@link com.github.annsofip.orderbookservice.model.Prices}.
+     */
+    @Column(nullable = false)
+    private Long openPrice;
+
+    @Column(nullable = false)
+    private Long highPrice;
+
+    @Column(nullable = false)
+    private Long lowPrice;
+
+    @Column(nullable = false)
+    private Long closePrice;
+
+    /**
+     * Sum of the volumes of the orders.
+     */
+    @Column(nullable = false)
+    private Long volume;
+
+    @Column(nullable = false)
+    private Long numberOfOrders;
+
+    @Column(nullable = false, length = 10)
+    private String currency;
+
+    @Column(nullable = false)
+    private LocalDateTime openDate;
+
+    @Column(nullable = false)
+    private UUID openOrderId;
+
+    @Column(nullable = false)
+    private LocalDateTime closeDate;
+
+    @Column(nullable = false)
+    private UUID closeOrderId;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean persisted;
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+}
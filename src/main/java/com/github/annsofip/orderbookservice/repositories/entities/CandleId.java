@@ -0,0 +1,34 @@
+package com.github.annsofip.orderbookservice.repositories.entities;
+
+import com.github.annsofip.orderbookservice.model.CandleInterval;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Embeddable
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CandleId implements Serializable {
+    @Column(nullable = false, length = 10)
+    private String ticker;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private OrderSide orderSide;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "candle_interval", nullable = false, length = 20)
+    private CandleInterval interval;
+
+    @Column(name = "start_date", nullable = false)
+    private LocalDateTime start;
+}
@@ -0,0 +1,58 @@
+package com.github.annsofip.orderbookservice.repositories.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Rollup of all orders for one ticker, order side and day. It is updated in the same transaction as the order insert,
+ * so summaries of past days can be read without touching the orders table.
+ */
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "daily_order_summary")
+public class DailyOrderSummary {
+    @EmbeddedId
+    private DailyOrderSummaryId id;
+
+    @Column(nullable = false)
+    private Long numberOfOrders;
+
+    /**
+     * Sum of the prices in minor units of the currency, from which the average is calculated exactly.
+     */
+    @Column(nullable = false)
+    private Long totalPrice;
+
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long totalVolume;
+
+    /**
+     * Sum of price times volume in minor units of the currency, from which the volume-weighted average is calculated
+     * exactly. It is a numeric rather than a bigint, since it can grow beyond a long.
+     */
+    @Column(nullable = false, precision = 38, scale = 0, columnDefinition = "numeric(38, 0) default 0")
+    private BigDecimal totalNotional;
+
+    @Column
+    private Long minPrice;
+
+    @Column
+    private Long maxPrice;
+
+    /**
+     * Currency of the prices. Orders of one ticker are assumed to share a currency.
+     */
+    @Column(length = 10)
+    private String currency;
+}
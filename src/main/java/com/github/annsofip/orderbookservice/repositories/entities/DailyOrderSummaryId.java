@@ -0,0 +1,29 @@
+package com.github.annsofip.orderbookservice.repositories.entities;
+
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Embeddable
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DailyOrderSummaryId implements Serializable {
+    @Column(nullable = false, length = 10)
+    private String ticker;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private OrderSide orderSide;
+
+    @Column(nullable = false)
+    private LocalDate date;
+}
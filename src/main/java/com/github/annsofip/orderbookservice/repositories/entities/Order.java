@@ -1,22 +1,33 @@
 package com.github.annsofip.orderbookservice.repositories.entities;
 
 import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.model.TimeOrderedUuids;
+import com.github.annsofip.orderbookservice.symbols.SymbolConverter;
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
-import org.hibernate.annotations.CreationTimestamp;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.data.domain.Persistable;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.UUID;
 
 @Entity
@@ -24,33 +35,81 @@ import java.util.UUID;
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "\"customer_order\"")
-public class Order {
+@Table(name = "\"customer_order\"", indexes = {
+        @Index(name = "idx_customer_order_ticker_side_date", columnList = "ticker_id, orderSide, date"),
+        @Index(name = "idx_customer_order_ticker_date_id", columnList = "ticker_id, date, id"),
+        @Index(name = "idx_customer_order_client_order_id", columnList = "clientOrderId", unique = true)
+})
+public class Order implements Persistable<UUID> {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
 
-    @Column(nullable = false, length = 10)
+    /**
+     * Stored as the id of the ticker in the symbol table, see {@link SymbolConverter}.
+     */
+    @Convert(converter = SymbolConverter.class)
+    @Column(name = "ticker_id", nullable = false)
     private String ticker;
 
-    @Enumerated(EnumType.STRING)
-    @Column(nullable = false, length = 10)
+    @Enumerated(EnumType.ORDINAL)
+    @Column(nullable = false)
     private OrderSide orderSide;
 
     @Column(nullable = false, columnDefinition = "integer default 0")
     private Integer volume;
 
-    @Column(nullable = false, precision = 15, scale = 2)
-    private BigDecimal price;
+    /**
+     * Price in minor units of the currency, see {@link com.github.annsofip.orderbookservice.model.Prices}.
+     */
+    @Column(nullable = false)
+    private long price;
 
-    @Column(nullable = false, length = 10)
+    @Convert(converter = SymbolConverter.class)
+    @Column(name = "currency_id", nullable = false)
     private String currency;
 
-    @CreationTimestamp
+    @Column(nullable = false)
     private LocalDateTime date;
 
-}
+    /**
+     * Id given by the client to create the order only once, see
+     * {@link com.github.annsofip.orderbookservice.idempotency.ClientOrderIds}.
+     */
+    @Column(length = 64)
+    private String clientOrderId;
 
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean persisted;
 
+    /**
+     * Assigns the id and date unless they are already set. This happens when the order is persisted rather than
+     * flushed, so both are known while the rest of the transaction runs, and orders that already have an id, such as
+     * the ones replayed from the journal, are inserted without a lookup. Ids are ordered by time, see
+     * {@link TimeOrderedUuids}. The date is truncated to the microseconds the database stores, so an order read back
+     * has the same date as the one that was created.
+     */
+    @PrePersist
+    public void assignIdAndDate() {
+        if (id == null) {
+            id = TimeOrderedUuids.next();
+        }
+        if (date == null) {
+            date = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        }
+    }
 
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
 
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.annsofip.orderbookservice.repositories.entities;
+
+import com.github.annsofip.orderbookservice.model.OrderEventType;
+import com.github.annsofip.orderbookservice.model.TimeOrderedUuids;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A cancel or amendment of an order. Orders are never updated once they are created: the events are appended instead,
+ * and the current volume and price of an order are the ones it was created with plus the changes of its events, see
+ * {@link com.github.annsofip.orderbookservice.model.OrderChanges}.
+ */
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "order_event", indexes = @Index(name = "idx_order_event_order_id", columnList = "orderId"))
+public class OrderEvent {
+    @Id
+    private UUID id;
+
+    @Column(nullable = false)
+    private UUID orderId;
+
+    @Enumerated(EnumType.ORDINAL)
+    @Column(nullable = false)
+    private OrderEventType type;
+
+    /**
+     * How much the volume of the order was lowered, as a negative number, or 0. For a cancel, the volume that was
+     * taken out of the book, which the summaries leave out while the order keeps its volume, see
+     * {@link com.github.annsofip.orderbookservice.model.OrderChanges}.
+     */
+    @Column(nullable = false)
+    private int volumeChange;
+
+    /**
+     * How much the price of the order moved in minor units of the currency, or 0. An order whose price moved has lost
+     * its place in the queue, and queues again from the date of the event.
+     */
+    @Column(nullable = false)
+    private long priceChange;
+
+    @Column(nullable = false)
+    private LocalDateTime date;
+
+    /**
+     * Assigns an id ordered by time, see {@link TimeOrderedUuids}.
+     */
+    @PrePersist
+    public void assignId() {
+        if (id == null) {
+            id = TimeOrderedUuids.next();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.annsofip.orderbookservice.repositories.entities;
+
+import com.github.annsofip.orderbookservice.model.TimeOrderedUuids;
+import com.github.annsofip.orderbookservice.symbols.SymbolConverter;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A match between a buy and a sell order, at the price of the order that was resting in the book.
+ */
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "trade", indexes = {
+        @Index(name = "idx_trade_buy_order_id", columnList = "buyOrderId"),
+        @Index(name = "idx_trade_sell_order_id", columnList = "sellOrderId")
+})
+public class Trade {
+    @Id
+    private UUID id;
+
+    @Convert(converter = SymbolConverter.class)
+    @Column(name = "ticker_id", nullable = false)
+    private String ticker;
+
+    @Column(nullable = false)
+    private UUID buyOrderId;
+
+    @Column(nullable = false)
+    private UUID sellOrderId;
+
+    @Column(nullable = false)
+    private Integer volume;
+
+    /**
+     * Price in minor units of the currency, see {@link com.github.annsofip.orderbookservice.model.Prices}.
+     */
+    @Column(nullable = false)
+    private long price;
+
+    @Convert(converter = SymbolConverter.class)
+    @Column(name = "currency_id", nullable = false)
+    private String currency;
+
+    @Column(nullable = false)
+    private LocalDateTime date;
+
+    /**
+     * Assigns an id ordered by time, see {@link TimeOrderedUuids}.
+     */
+    @PrePersist
+    public void assignId() {
+        if (id == null) {
+            id = TimeOrderedUuids.next();
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.github.annsofip.orderbookservice.service;
+
+import com.github.annsofip.orderbookservice.config.OrderBookProperties;
+import com.github.annsofip.orderbookservice.model.CandleInterval;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.repositories.CandleRepository;
+import com.github.annsofip.orderbookservice.repositories.OrderRepository;
+import com.github.annsofip.orderbookservice.repositories.entities.Candle;
+import com.github.annsofip.orderbookservice.repositories.entities.CandleId;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import com.github.annsofip.orderbookservice.symbols.SymbolDictionary;
+import com.github.annsofip.orderbookservice.symbols.SymbolMap;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Open, high, low and close price and volume of orders per ticker, order side and interval, built as orders are
+ * created instead of aggregating the orders table.
+ * <p>
+ * Candles are kept in memory until their interval has ended and the close delay has passed, and are then written to
+ * the candle table in batches by a background thread. An order that is added after its candle was written is merged
+ * into the stored candle by the next flush. A merge takes the first and last order by date and id rather than by
+ * arrival, so a candle does not depend on the order in which its orders were added and is the same when it is rebuilt
+ * from the orders table.
+ * <p>
+ * Candles are written in the order their intervals end. On startup, the candles from an hour before the hour of the
+ * latest stored candle on are deleted and rebuilt from the orders, which covers the candles that were in memory or
+ * waiting to be written when the service stopped.
+ */
+@Slf4j
+@Component
+public class CandleAggregator implements SmartInitializingSingleton, MeterBinder {
+    private static final int OPTIMISTIC_READS = 3;
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final OrderRepository orderRepository;
+    private final CandleRepository candleRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate flushTemplate;
+    private final EntityManager entityManager;
+    private final Duration flushInterval;
+    private final Duration closeDelay;
+    private final int flushBatchSize;
+    private final SymbolDictionary symbolDictionary;
+    // Per symbol id of the ticker.
+    private final SymbolMap<Map<CandleId, Bar>> bars = new SymbolMap<>();
+    // Held while candles move from memory to the table, so that a read never sees a candle in both or in neither.
+    private final StampedLock flushLock = new StampedLock();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "candle-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CandleAggregator(OrderRepository orderRepository, CandleRepository candleRepository,
+                            TransactionTemplate transactionTemplate, EntityManager entityManager,
+                            SymbolDictionary symbolDictionary, OrderBookProperties properties) {
+        OrderBookProperties.Candles config = properties.getCandles();
+        this.orderRepository = orderRepository;
+        this.candleRepository = candleRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.flushTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.flushTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.entityManager = entityManager;
+        this.symbolDictionary = symbolDictionary;
+        this.flushInterval = config.getFlushInterval();
+        this.closeDelay = config.getCloseDelay();
+        this.flushBatchSize = config.getFlushBatchSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("orderbook.candles", this, CandleAggregator::count)
+                .description("Candles kept in memory until they are written to the database")
+                .register(registry);
+    }
+
+    /**
+     * Rebuilds the candles once the order writer has recovered, and starts writing closed candles.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+        long interval = flushInterval.toMillis();
+        flusher.scheduleWithFixedDelay(this::flushClosed, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background thread and writes all candles, including the current ones. Those are rebuilt from the
+     * orders on the next start.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flush(LocalDateTime.MAX);
+    }
+
+    void rebuild() {
+        LocalDateTime from = candleRepository.findLatestStart()
+                .map(latest -> CandleInterval.ONE_HOUR.start(latest).minus(CandleInterval.ONE_HOUR.getLength()))
+                .orElse(EPOCH);
+        flushTemplate.executeWithoutResult(status -> candleRepository.deleteByStartFrom(from));
+        bars.clear();
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        long orders = readOnly.execute(status -> {
+            long count = 0;
+            try (Stream<Order> stream = orderRepository.streamByDateFrom(from)) {
+                Iterator<Order> iterator = stream.iterator();
+                while (iterator.hasNext()) {
+                    Order order = iterator.next();
+                    add(order);
+                    entityManager.detach(order);
+                    // Orders come oldest first, so candles that ended before this order are complete.
+                    if (++count % flushBatchSize == 0) {
+                        flush(order.getDate());
+                    }
+                }
+            }
+            return count;
+        });
+        log.info("operation=rebuildCandles, action=success, from={}, orders={}", from, orders);
+    }
+
+    public void add(Order order) {
+        Map<CandleId, Bar> tickerBars = tickerBars(order.getTicker());
+        Bar bar = Bar.of(order);
+        for (CandleInterval interval : CandleInterval.values()) {
+            CandleId id = new CandleId(order.getTicker(), order.getOrderSide(), interval, interval.start(order.getDate()));
+            tickerBars.merge(id, bar, Bar::combine);
+        }
+    }
+
+    /**
+     * Candles of the ticker starting from {@code from} (inclusive) until {@code to} (exclusive), ordered by order side
+     * and start. Stored candles are combined with the ones in memory, without blocking orders from being added.
+     */
+    public List<Candle> getCandles(String ticker, Collection<OrderSide> orderSides, CandleInterval interval,
+                                   LocalDateTime from, LocalDateTime to) {
+        for (int attempt = 0; attempt < OPTIMISTIC_READS; attempt++) {
+            long stamp = flushLock.tryOptimisticRead();
+            if (stamp != 0) {
+                List<Candle> candles = readCandles(ticker, orderSides, interval, from, to);
+                if (flushLock.validate(stamp)) {
+                    return candles;
+                }
+            }
+            Thread.onSpinWait();
+        }
+        long stamp = flushLock.readLock();
+        try {
+            return readCandles(ticker, orderSides, interval, from, to);
+        } finally {
+            flushLock.unlockRead(stamp);
+        }
+    }
+
+    private List<Candle> readCandles(String ticker, Collection<OrderSide> orderSides, CandleInterval interval,
+                                     LocalDateTime from, LocalDateTime to) {
+        Map<CandleId, Bar> candles = new HashMap<>();
+        for (Candle candle : candleRepository.findByTickerAndOrderSidesAndIntervalAndStartBetween(ticker, orderSides,
+                interval, from, to)) {
+            candles.put(candle.getId(), Bar.of(candle));
+        }
+        OptionalInt tickerId = symbolDictionary.find(ticker);
+        Map<CandleId, Bar> tickerBars = tickerId.isPresent() ? bars.get(tickerId.getAsInt()) : null;
+        (tickerBars == null ? Map.<CandleId, Bar>of() : tickerBars).forEach((id, bar) -> {
+            if (id.getInterval() == interval && orderSides.contains(id.getOrderSide())
+                    && !id.getStart().isBefore(from) && id.getStart().isBefore(to)) {
+                candles.merge(id, bar, Bar::combine);
+            }
+        });
+        return candles.entrySet().stream()
+                .map(entry -> entry.getValue().toCandle(entry.getKey()))
+                .sorted(Comparator.comparing((Candle candle) -> candle.getId().getOrderSide())
+                        .thenComparing(candle -> candle.getId().getStart()))
+                .toList();
+    }
+
+    private Map<CandleId, Bar> tickerBars(String ticker) {
+        return bars.computeIfAbsent(symbolDictionary.intern(ticker), id -> new ConcurrentHashMap<>());
+    }
+
+    private int count() {
+        return bars.values().mapToInt(Map::size).sum();
+    }
+
+    private void flushClosed() {
+        try {
+            flush(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            log.error("operation=flushCandles, action=fail", e);
+        }
+    }
+
+    /**
+     * Writes the candles whose interval ended at least the close delay before {@code now}, oldest end first.
+     */
+    void flush(LocalDateTime now) {
+        List<CandleId> closed = new ArrayList<>();
+        for (Map<CandleId, Bar> tickerBars : bars.values().toList()) {
+            for (CandleId id : tickerBars.keySet()) {
+                LocalDateTime end = id.getStart().plus(id.getInterval().getLength());
+                if (!end.plus(closeDelay).isAfter(now)) {
+                    closed.add(id);
+                }
+            }
+        }
+        closed.sort(Comparator.comparing((CandleId id) -> id.getStart().plus(id.getInterval().getLength())));
+        for (int i = 0; i < closed.size(); i += flushBatchSize) {
+            write(closed.subList(i, Math.min(i + flushBatchSize, closed.size())));
+        }
+        if (!closed.isEmpty()) {
+            log.debug("operation=flushCandles, action=success, candles={}", closed.size());
+        }
+    }
+
+    private void write(List<CandleId> ids) {
+        long stamp = flushLock.writeLock();
+        try {
+            Map<CandleId, Bar> batch = new LinkedHashMap<>();
+            for (CandleId id : ids) {
+                // Orders added from here on start a new candle in memory, which is merged by a later flush.
+                Bar bar = tickerBars(id.getTicker()).remove(id);
+                if (bar != null) {
+                    batch.put(id, bar);
+                }
+            }
+            try {
+                flushTemplate.executeWithoutResult(status -> {
+                    Map<CandleId, Candle> stored = candleRepository.findAllById(batch.keySet()).stream()
+                            .collect(Collectors.toMap(Candle::getId, Function.identity()));
+                    List<Candle> candles = new ArrayList<>(batch.size());
+                    batch.forEach((id, bar) -> {
+                        Candle candle = stored.get(id);
+                        if (candle == null) {
+                            candles.add(bar.toCandle(id));
+                        } else {
+                            Bar.of(candle).combine(bar).copyTo(candle);
+                            candles.add(candle);
+                        }
+                    });
+                    candleRepository.saveAll(candles);
+                });
+            } catch (RuntimeException e) {
+                batch.forEach((id, bar) -> tickerBars(id.getTicker()).merge(id, bar, Bar::combine));
+                throw e;
+            }
+        } finally {
+            flushLock.unlockWrite(stamp);
+        }
+    }
+
+    private record Bar(long open, long high, long low, long close, long volume, long count, String currency,
+                       LocalDateTime openDate, UUID openOrderId, LocalDateTime closeDate, UUID closeOrderId) {
+
+        static Bar of(Order order) {
+            return new Bar(order.getPrice(), order.getPrice(), order.getPrice(), order.getPrice(), order.getVolume(),
+                    1, order.getCurrency(), order.getDate(), order.getId(), order.getDate(), order.getId());
+        }
+
+        static Bar of(Candle candle) {
+            return new Bar(candle.getOpenPrice(), candle.getHighPrice(), candle.getLowPrice(), candle.getClosePrice(),
+                    candle.getVolume(), candle.getNumberOfOrders(), candle.getCurrency(), candle.getOpenDate(),
+                    candle.getOpenOrderId(), candle.getCloseDate(), candle.getCloseOrderId());
+        }
+
+        Bar combine(Bar other) {
+            Bar first = isBefore(openDate, openOrderId, other.openDate, other.openOrderId) ? this : other;
+            Bar last = isBefore(closeDate, closeOrderId, other.closeDate, other.closeOrderId) ? other : this;
+            return new Bar(first.open, Math.max(high, other.high), Math.min(low, other.low), last.close,
+                    Math.addExact(volume, other.volume), count + other.count, currency, first.openDate,
+                    first.openOrderId, last.closeDate, last.closeOrderId);
+        }
+
+        private static boolean isBefore(LocalDateTime date, UUID id, LocalDateTime otherDate, UUID otherId) {
+            int byDate = date.compareTo(otherDate);
+            return byDate < 0 || byDate == 0 && id.compareTo(otherId) < 0;
+        }
+
+        Candle toCandle(CandleId id) {
+            Candle candle = Candle.builder().id(id).build();
+            copyTo(candle);
+            return candle;
+        }
+
+        void copyTo(Candle candle) {
+            candle.setOpenPrice(open);
+            candle.setHighPrice(high);
+            candle.setLowPrice(low);
+            candle.setClosePrice(close);
+            candle.setVolume(volume);
+            candle.setNumberOfOrders(count);
+            candle.setCurrency(currency);
+            candle.setOpenDate(openDate);
+            candle.setOpenOrderId(openOrderId);
+            candle.setCloseDate(closeDate);
+            candle.setCloseOrderId(closeOrderId);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.annsofip.orderbookservice.service;
+
+import com.github.annsofip.orderbookservice.repositories.DailyOrderSummaryRepository;
+import com.github.annsofip.orderbookservice.repositories.OrderRepository;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Writes the orders and their daily rollup in one database transaction before the orders are acknowledged.
+ */
+@Component
+@ConditionalOnProperty(name = "order-book.journal.enabled", havingValue = "false", matchIfMissing = true)
+@RequiredArgsConstructor
+public class DatabaseOrderWriter implements OrderWriter {
+    private final OrderRepository orderRepository;
+    private final DailyOrderSummaryRepository dailyOrderSummaryRepository;
+    private final EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public Order write(Order order) {
+        Order savedOrder = orderRepository.save(order);
+        dailyOrderSummaryRepository.rollUp(savedOrder);
+        return savedOrder;
+    }
+
+    @Override
+    @Transactional
+    public List<Order> writeAll(List<Order> orders) {
+        List<Order> savedOrders = orderRepository.saveAllAndFlush(orders);
+        // Otherwise Hibernate checks every order of the batch for changes before each statement of the rollup.
+        savedOrders.forEach(entityManager::detach);
+        dailyOrderSummaryRepository.rollUpAll(savedOrders);
+        return savedOrders;
+    }
+}
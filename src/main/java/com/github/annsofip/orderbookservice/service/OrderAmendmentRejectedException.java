@@ -0,0 +1,12 @@
+package com.github.annsofip.orderbookservice.service;
+
+/**
+ * Thrown when an order cannot be cancelled or amended in the state it is in, for example because it no longer rests in
+ * the book.
+ */
+public class OrderAmendmentRejectedException extends RuntimeException {
+
+    public OrderAmendmentRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,233 @@
+package com.github.annsofip.orderbookservice.service;
+
+import com.github.annsofip.orderbookservice.api.OrderResponseDTO;
+import com.github.annsofip.orderbookservice.archive.OrderArchive;
+import com.github.annsofip.orderbookservice.matching.OrderMatcher;
+import com.github.annsofip.orderbookservice.model.OrderAmendment;
+import com.github.annsofip.orderbookservice.model.OrderChanges;
+import com.github.annsofip.orderbookservice.model.OrderEventType;
+import com.github.annsofip.orderbookservice.model.OrderMapper;
+import com.github.annsofip.orderbookservice.model.PriceRange;
+import com.github.annsofip.orderbookservice.model.Prices;
+import com.github.annsofip.orderbookservice.model.SummaryKey;
+import com.github.annsofip.orderbookservice.pipeline.OrderPipeline;
+import com.github.annsofip.orderbookservice.repositories.DailyOrderSummaryRepository;
+import com.github.annsofip.orderbookservice.repositories.OrderEventRepository;
+import com.github.annsofip.orderbookservice.repositories.OrderRepository;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import com.github.annsofip.orderbookservice.repositories.entities.OrderEvent;
+import com.github.annsofip.orderbookservice.repositories.entities.Trade;
+import jakarta.validation.constraints.NotNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Cancels and amends orders that rest in the book.
+ * <p>
+ * Orders are not updated in place: each cancel or amendment is saved as an {@link OrderEvent}, together with the change
+ * it makes to the daily rollup. The order is checked and changed in the book in one step under the lock of the book, so
+ * that no fill can come in between, and the event is only saved once the book has taken the change. The resting order
+ * is found by id in its book, so neither the book nor the orders of the day are searched, apart from looking up the
+ * price range of the day again when an amendment moves the lowest or highest price, see {@link OrderSummaryAggregator}.
+ * <p>
+ * Changes to the same order are made one at a time, so that each is based on the one before, and so are changes to the
+ * summary of the same day. Orders that are still
+ * waiting in the journal to be written to the database cannot be changed until they are written. With the pipeline
+ * enabled, the change is made on the shard of the ticker of the order, after the orders of the ticker that were queued
+ * before it, see {@link OrderPipeline}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderAmendmentService {
+    private static final int LOCK_STRIPES = 64;
+
+    private final OrderRepository orderRepository;
+    private final OrderEventRepository orderEventRepository;
+    private final DailyOrderSummaryRepository dailyOrderSummaryRepository;
+    private final OrderWriter orderWriter;
+    private final OrderArchive orderArchive;
+    private final OrderMatcher orderMatcher;
+    private final OrderSummaryAggregator orderSummaryAggregator;
+    private final OrderCache orderCache;
+    private final OrderMapper orderMapper;
+    private final OrderMetrics orderMetrics;
+    private final TransactionTemplate transactionTemplate;
+    private final Optional<OrderPipeline> orderPipeline;
+    private final Object[] locks = newLocks();
+    private final Object[] summaryLocks = newLocks();
+
+    /**
+     * Takes what is left of the order out of the book. The order keeps the volume it was placed with, and the volume
+     * that was traded of it. The summaries only keep the volume that was traded: the volume that was taken out of the
+     * book is taken out of them like an amendment that lowers the volume.
+     *
+     * @return the cancelled order, or empty if there is no order with the id
+     * @throws OrderAmendmentRejectedException if the order does not rest in the book
+     */
+    public Optional<OrderResponseDTO> cancelOrder(@NotNull UUID id) {
+        return orderMetrics.record("cancelOrder", null, () -> {
+            synchronized (lock(id)) {
+                return find(id).map(order -> onShard(order, () -> cancel(order)));
+            }
+        });
+    }
+
+    /**
+     * Lowers the volume of the order, changes its price, or both. An order whose volume is lowered keeps its place in
+     * the queue of its price. An order whose price changes loses it: it is matched like a new order at the new price,
+     * and rests at the back of the queue of that price.
+     *
+     * @param volume new volume, lower than the current one and higher than the volume traded, or null to keep it
+     * @param price  new price, rounded to minor units of the currency of the order, or null to keep it
+     * @return the amended order, or empty if there is no order with the id
+     * @throws OrderAmendmentRejectedException if the order does not rest in the book or the volume is not lower
+     */
+    public Optional<OrderResponseDTO> amendOrder(@NotNull UUID id, Integer volume, BigDecimal price) {
+        return orderMetrics.record("amendOrder", null, () -> {
+            synchronized (lock(id)) {
+                return find(id).map(order -> onShard(order, () -> amend(order, volume, price)));
+            }
+        });
+    }
+
+    private Optional<Order> find(UUID id) {
+        if (orderWriter.findUnpersisted(id).isPresent()) {
+            throw new OrderAmendmentRejectedException("Order is not written to the database yet");
+        }
+        Optional<Order> order = orderRepository.findById(id);
+        if (order.isEmpty() && orderArchive.find(id).isPresent()) {
+            throw new OrderAmendmentRejectedException("Order is filled and archived");
+        }
+        return order;
+    }
+
+    private OrderResponseDTO onShard(Order order, Supplier<OrderResponseDTO> change) {
+        if (orderPipeline.isPresent()) {
+            return orderPipeline.get().execute(order.getTicker(), change);
+        }
+        return change.get();
+    }
+
+    private OrderResponseDTO cancel(Order order) {
+        OrderChanges changes = orderEventRepository.findChanges(order.getId());
+        int cancelledVolume = changes.isCancelled() ? 0 : orderMatcher.cancel(order);
+        if (cancelledVolume == 0) {
+            throw new OrderAmendmentRejectedException("Order does not rest in the book");
+        }
+        OrderEvent event = OrderEvent.builder()
+                .orderId(order.getId())
+                .type(OrderEventType.CANCELLED)
+                .volumeChange(-cancelledVolume)
+                .date(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS))
+                .build();
+        int volume = changes.volume(order);
+        long price = changes.price(order);
+        save(order, event, new OrderAmendment(order, volume, price, volume - cancelledVolume, price), List.of());
+        orderCache.invalidateAll(List.of(order.getId()));
+        log.info("operation=cancelOrder, action=success, id={}, cancelledVolume={}", order.getId(), cancelledVolume);
+        return orderMapper.orderToOrderDto(order, changes.plus(event), orderMatcher.filledVolume(order.getId()));
+    }
+
+    private OrderResponseDTO amend(Order order, Integer volume, BigDecimal price) {
+        OrderChanges changes = orderEventRepository.findChanges(order.getId());
+        int oldVolume = changes.volume(order);
+        long oldPrice = changes.price(order);
+        int newVolume = volume == null ? oldVolume : volume;
+        long newPrice = price == null ? oldPrice : Prices.toMinorUnits(price, order.getCurrency());
+        if (changes.isCancelled()) {
+            throw new OrderAmendmentRejectedException("Order does not rest in the book");
+        }
+        if (newPrice <= 0) {
+            throw new OrderAmendmentRejectedException("Price must be at least one minor unit of the currency");
+        }
+        if (newVolume > oldVolume) {
+            throw new OrderAmendmentRejectedException("Volume can only be lowered");
+        }
+        if (newVolume == oldVolume && newPrice == oldPrice) {
+            // Nothing changes, as when an amendment is retried.
+            if (orderMatcher.remaining(order) == 0) {
+                throw new OrderAmendmentRejectedException("Order does not rest in the book");
+            }
+            return orderMapper.orderToOrderDto(order, changes, orderMatcher.filledVolume(order.getId()));
+        }
+        List<Trade> trades = new ArrayList<>();
+        OptionalInt filledVolume = orderMatcher.amend(order, oldVolume - newVolume, newPrice, trades);
+        if (filledVolume.isEmpty()) {
+            throw new OrderAmendmentRejectedException("Order does not rest in the book, or the volume is not higher than "
+                    + "the volume traded, cancel the order instead");
+        }
+        OrderEvent event = OrderEvent.builder()
+                .orderId(order.getId())
+                .type(OrderEventType.AMENDED)
+                .volumeChange(newVolume - oldVolume)
+                .priceChange(newPrice - oldPrice)
+                .date(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS))
+                .build();
+        save(order, event, new OrderAmendment(order, oldVolume, oldPrice, newVolume, newPrice), trades);
+        orderCache.invalidateAll(List.of(order.getId()));
+        log.info("operation=amendOrder, action=success, id={}, volumeChange={}, priceChange={}, filledVolume={}",
+                order.getId(), event.getVolumeChange(), event.getPriceChange(), filledVolume.getAsInt());
+        return orderMapper.orderToOrderDto(order, changes.plus(event), orderMatcher.filledVolume(order.getId()));
+    }
+
+    /**
+     * Saves the event of a change, the trades it made and its change to the rollup in one transaction, and then
+     * changes the summary.
+     */
+    private void save(Order order, OrderEvent event, OrderAmendment amendment, List<Trade> trades) {
+        // The price range of the day is looked up and written back whole, so changes of the same day take turns.
+        synchronized (lock(amendment.key())) {
+            Optional<PriceRange> range = saveChanged(order, () -> transactionTemplate.execute(status -> {
+                dailyOrderSummaryRepository.lockRollUp(amendment.key());
+                orderEventRepository.save(event);
+                orderMatcher.saveTrades(order, trades);
+                Optional<PriceRange> dayRange = orderSummaryAggregator.priceRange(amendment);
+                dailyOrderSummaryRepository.rollUp(amendment, dayRange);
+                return dayRange;
+            }));
+            orderSummaryAggregator.amend(amendment, range);
+        }
+    }
+
+    /**
+     * Saves the event of a change that the book has already made. If that fails, the book is ahead of the database
+     * until the books are rebuilt from it, which puts the order back as it was saved.
+     */
+    private <T> T saveChanged(Order order, Supplier<T> save) {
+        try {
+            return save.get();
+        } catch (RuntimeException e) {
+            log.error("operation=saveOrderEvent, action=fail, id={}, reason=book changed but event not saved", order.getId(), e);
+            throw e;
+        }
+    }
+
+    private Object lock(UUID id) {
+        return locks[Math.floorMod(id.hashCode(), LOCK_STRIPES)];
+    }
+
+    private Object lock(SummaryKey key) {
+        return summaryLocks[Math.floorMod(key.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static Object[] newLocks() {
+        Object[] locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+}
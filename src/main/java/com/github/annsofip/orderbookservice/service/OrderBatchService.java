@@ -0,0 +1,250 @@
+package com.github.annsofip.orderbookservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.annsofip.orderbookservice.api.BatchOrderResultDTO;
+import com.github.annsofip.orderbookservice.api.OrderRequestDTO;
+import com.github.annsofip.orderbookservice.api.OrderResponseDTO;
+import com.github.annsofip.orderbookservice.config.OrderBookProperties;
+import com.github.annsofip.orderbookservice.idempotency.ClientOrderIds;
+import com.github.annsofip.orderbookservice.matching.OrderMatcher;
+import com.github.annsofip.orderbookservice.model.OrderMapper;
+import com.github.annsofip.orderbookservice.pipeline.OrderPipeline;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import com.github.annsofip.orderbookservice.symbols.SymbolDictionary;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+import static com.github.annsofip.orderbookservice.api.BatchOrderResultDTO.Status.CREATED;
+import static com.github.annsofip.orderbookservice.api.BatchOrderResultDTO.Status.FAILED;
+import static com.github.annsofip.orderbookservice.api.BatchOrderResultDTO.Status.REJECTED;
+
+/**
+ * Creates many orders per request. Orders are written in chunks with {@link OrderWriter#writeAll(List)}, which the
+ * database writer does in one transaction and one JDBC batch per chunk, updating the daily rollup once per ticker,
+ * order side and day of the chunk.
+ * <p>
+ * Invalid orders are rejected one by one. If a chunk fails to persist, all orders of that chunk are reported as failed
+ * while the other chunks are still created. With the pipeline enabled, the orders of a chunk are handed to the shards
+ * of their tickers instead and each is created or fails on its own, see {@link OrderPipeline}. Orders with the client order id of an order that was created before, or
+ * that is being created, are answered with that order, see {@link ClientOrderIds}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderBatchService {
+    private final OrderWriter orderWriter;
+    private final OrderMapper orderMapper;
+    private final OrderSummaryAggregator orderSummaryAggregator;
+    private final CandleAggregator candleAggregator;
+    private final OrderMatcher orderMatcher;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final OrderBookProperties properties;
+    private final SymbolDictionary symbolDictionary;
+    private final ClientOrderIds clientOrderIds;
+    private final Optional<OrderPipeline> orderPipeline;
+
+    public List<BatchOrderResultDTO> createOrders(List<OrderRequestDTO> orders) {
+        Batch batch = new Batch();
+        try {
+            for (int i = 0; i < orders.size(); i++) {
+                batch.add(i, orders.get(i));
+            }
+            return batch.complete();
+        } catch (RuntimeException e) {
+            batch.abandon(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Creates orders from newline delimited JSON, one order per line. The input is read as it arrives, so only the
+     * current chunk is held in memory.
+     */
+    public List<BatchOrderResultDTO> createOrders(Reader ndjson) throws IOException {
+        ObjectReader reader = objectMapper.readerFor(OrderRequestDTO.class);
+        BufferedReader lines = new BufferedReader(ndjson);
+        Batch batch = new Batch();
+        int index = 0;
+        String line;
+        try {
+            while ((line = lines.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    batch.add(index, reader.readValue(line));
+                } catch (JsonProcessingException e) {
+                    batch.reject(index, "Malformed order: " + e.getOriginalMessage());
+                }
+                index++;
+            }
+            return batch.complete();
+        } catch (IOException | RuntimeException e) {
+            batch.abandon(e);
+            throw e;
+        }
+    }
+
+    private final class Batch {
+        private final int chunkSize = properties.getBatch().getChunkSize();
+        private final List<BatchOrderResultDTO> results = new ArrayList<>();
+        private final List<Order> chunk = new ArrayList<>(chunkSize);
+        private final List<Integer> chunkIndexes = new ArrayList<>(chunkSize);
+
+        void add(int index, OrderRequestDTO orderDTO) {
+            String error = validate(orderDTO);
+            if (error != null) {
+                reject(index, error);
+                return;
+            }
+            String clientOrderId = orderDTO.getClientOrderId();
+            if (clientOrderId != null) {
+                // A retry of an order that is being created, within the batch or by another request, is answered
+                // with it once it is written. The chunk is written first so that no ids are held while waiting.
+                Optional<OrderResponseDTO> created = clientOrderIds.claim(clientOrderId, this::flush);
+                if (created.isPresent()) {
+                    results.add(BatchOrderResultDTO.builder().index(index).status(CREATED).order(created.get()).build());
+                    return;
+                }
+            }
+            // New symbols are added before the chunk's transaction, see OrderService.
+            symbolDictionary.intern(orderDTO.getTicker());
+            symbolDictionary.intern(orderDTO.getCurrency());
+            chunk.add(orderMapper.createOrderDtoToOrder(orderDTO));
+            chunkIndexes.add(index);
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void reject(int index, String error) {
+            results.add(BatchOrderResultDTO.builder().index(index).status(REJECTED).error(error).build());
+        }
+
+        List<BatchOrderResultDTO> complete() {
+            flush();
+            results.sort(Comparator.comparingInt(BatchOrderResultDTO::getIndex));
+            return results;
+        }
+
+        /**
+         * Releases the client order ids held by the orders of the chunk that was not written.
+         */
+        void abandon(Exception e) {
+            for (Order order : chunk) {
+                if (order.getClientOrderId() != null) {
+                    clientOrderIds.failed(order.getClientOrderId(), e);
+                }
+            }
+            chunk.clear();
+            chunkIndexes.clear();
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            if (orderPipeline.isPresent()) {
+                createOnShards(orderPipeline.get());
+                return;
+            }
+            List<Order> savedOrders;
+            try {
+                savedOrders = orderWriter.writeAll(chunk);
+            } catch (RuntimeException e) {
+                log.warn("operation=createOrders, action=fail, orders={}", chunk.size(), e);
+                for (Integer index : chunkIndexes) {
+                    results.add(BatchOrderResultDTO.builder().index(index).status(FAILED).error("Could not persist order").build());
+                }
+                abandon(e);
+                return;
+            }
+            for (int i = 0; i < savedOrders.size(); i++) {
+                Order savedOrder = savedOrders.get(i);
+                OrderResponseDTO order;
+                try {
+                    orderSummaryAggregator.add(savedOrder);
+                    candleAggregator.add(savedOrder);
+                    int filledVolume = orderMatcher.match(savedOrder);
+                    order = orderMapper.orderToOrderDto(savedOrder, filledVolume);
+                } catch (RuntimeException e) {
+                    // The ids of the orders before it have been released already.
+                    chunk.subList(0, i).clear();
+                    abandon(e);
+                    throw e;
+                }
+                created(chunkIndexes.get(i), savedOrder, order);
+            }
+            chunk.clear();
+            chunkIndexes.clear();
+        }
+
+        private void createOnShards(OrderPipeline pipeline) {
+            List<CompletableFuture<Integer>> filledVolumes = new ArrayList<>(chunk.size());
+            for (Order order : chunk) {
+                try {
+                    filledVolumes.add(pipeline.submit(order));
+                } catch (RuntimeException e) {
+                    filledVolumes.add(CompletableFuture.failedFuture(e));
+                }
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                Order order = chunk.get(i);
+                int filledVolume;
+                try {
+                    filledVolume = filledVolumes.get(i).join();
+                } catch (CompletionException e) {
+                    log.warn("operation=createOrders, action=fail, orders=1", e.getCause());
+                    results.add(BatchOrderResultDTO.builder().index(chunkIndexes.get(i)).status(FAILED).error("Could not persist order").build());
+                    if (order.getClientOrderId() != null) {
+                        clientOrderIds.failed(order.getClientOrderId(), e);
+                    }
+                    continue;
+                }
+                created(chunkIndexes.get(i), order, orderMapper.orderToOrderDto(order, filledVolume));
+            }
+            chunk.clear();
+            chunkIndexes.clear();
+        }
+
+        private void created(int index, Order savedOrder, OrderResponseDTO order) {
+            if (savedOrder.getClientOrderId() != null) {
+                clientOrderIds.created(savedOrder.getClientOrderId(), order);
+            }
+            results.add(BatchOrderResultDTO.builder()
+                    .index(index)
+                    .status(CREATED)
+                    .order(order)
+                    .build());
+        }
+
+        private String validate(OrderRequestDTO orderDTO) {
+            if (orderDTO == null) {
+                return "Order may not be null";
+            }
+            Set<ConstraintViolation<OrderRequestDTO>> violations = validator.validate(orderDTO);
+            if (violations.isEmpty()) {
+                return null;
+            }
+            return violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(", "));
+        }
+    }
+}
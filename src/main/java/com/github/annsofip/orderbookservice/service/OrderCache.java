@@ -0,0 +1,78 @@
+package com.github.annsofip.orderbookservice.service;
+
+import com.github.annsofip.orderbookservice.api.OrderResponseDTO;
+import com.github.annsofip.orderbookservice.config.OrderBookProperties;
+import com.github.annsofip.orderbookservice.model.OrderMapper;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Orders by id for GET /orders/{id}, bounded in size. Caffeine evicts by how often and how recently an order was read,
+ * so orders that are read many times stay while orders that are read once do not push them out. Ids that were not
+ * found are remembered for a short while as well.
+ * <p>
+ * Orders change only by their fills and by being cancelled or amended. Fills are only made by the
+ * {@code OrderMatcher}. It puts new orders while it holds the lock of their book, before any later order can fill
+ * them, and invalidates the orders it filled once their trades are saved. Cancelled and amended orders are
+ * invalidated once the change is saved. Loading a missing order blocks invalidation of the same id until the load is
+ * done, so an order loaded before its trades or changes were saved cannot stay in the cache.
+ */
+@Component
+public class OrderCache {
+    private final OrderMapper orderMapper;
+    private final Cache<UUID, OrderResponseDTO> orders;
+    private final Cache<UUID, Boolean> notFound;
+
+    public OrderCache(OrderMapper orderMapper, OrderBookProperties properties, MeterRegistry meterRegistry) {
+        OrderBookProperties.Cache config = properties.getCache();
+        this.orderMapper = orderMapper;
+        this.orders = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .recordStats()
+                .build();
+        this.notFound = Caffeine.newBuilder()
+                .maximumSize(config.getNotFoundMaximumSize())
+                .expireAfterWrite(config.getNotFoundTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, orders, "orders");
+        CaffeineCacheMetrics.monitor(meterRegistry, notFound, "orders.notFound");
+    }
+
+    /**
+     * Returns the cached order, or loads and caches it.
+     */
+    public Optional<OrderResponseDTO> get(UUID id, Function<UUID, Optional<OrderResponseDTO>> loader) {
+        if (notFound.getIfPresent(id) != null) {
+            return Optional.empty();
+        }
+        OrderResponseDTO order = orders.get(id, key -> loader.apply(key).orElse(null));
+        if (order == null) {
+            notFound.put(id, Boolean.TRUE);
+        }
+        return Optional.ofNullable(order);
+    }
+
+    public void put(Order order, int filledVolume) {
+        notFound.invalidate(order.getId());
+        orders.put(order.getId(), orderMapper.orderToOrderDto(order, filledVolume));
+    }
+
+    public void invalidateAll(Collection<UUID> ids) {
+        orders.invalidateAll(ids);
+    }
+
+    public void clear() {
+        orders.invalidateAll();
+        notFound.invalidateAll();
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.annsofip.orderbookservice.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.annsofip.orderbookservice.api.OrderResponseDTO;
+import com.github.annsofip.orderbookservice.archive.OrderArchive;
+import com.github.annsofip.orderbookservice.model.OrderMapper;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.model.OrderWithFills;
+import com.github.annsofip.orderbookservice.repositories.OrderRepository;
+import com.github.annsofip.orderbookservice.symbols.SymbolDictionary;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes all orders of a ticker, order side and day as newline delimited JSON, one order per line.
+ * <p>
+ * Orders are read from a database cursor and written as they are read, and every order is detached once it is
+ * written, so memory use does not grow with the number of orders. Orders of the day that have been archived are merged
+ * in by date. Orders that are still only in the journal are not exported until they have been written to the database.
+ */
+@Service
+@RequiredArgsConstructor
+public class OrderExportService {
+    private final OrderRepository orderRepository;
+    private final OrderMapper orderMapper;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final SymbolDictionary symbolDictionary;
+    private final OrderArchive orderArchive;
+
+    /**
+     * @return the number of orders written
+     */
+    @Transactional(readOnly = true)
+    public long exportOrders(String ticker, OrderSide orderSide, LocalDate date, OutputStream out) throws IOException {
+        if (symbolDictionary.find(ticker).isEmpty()) {
+            // No orders have been created for the ticker, and querying by it would add it to the dictionary.
+            return 0;
+        }
+        // The response is flushed when the generator buffer is full rather than after every order.
+        ObjectWriter writer = objectMapper.writerFor(OrderResponseDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .setRootValueSeparator(null);
+             Stream<OrderWithFills> orders = orderRepository.streamByTickerAndOrderSideAndDate(ticker, orderSide, date)) {
+            long count = 0;
+            Iterator<OrderWithFills> iterator = orderArchive.withArchived(orders.iterator(), ticker, orderSide, date);
+            while (iterator.hasNext()) {
+                OrderWithFills order = iterator.next();
+                writer.writeValue(generator, orderMapper.orderToOrderDto(order.getOrder(), order.getChanges(), order.getFilledVolume()));
+                generator.writeRaw('\n');
+                entityManager.detach(order.getOrder());
+                count++;
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.annsofip.orderbookservice.service;
+
+import com.github.annsofip.orderbookservice.config.OrderBookProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Times calls to the order service as {@code orderbook.service}, tagged by operation and ticker, with a percentile
+ * histogram per timer. Requests and repository calls are timed by Spring Boot as {@code http.server.requests} and
+ * {@code spring.data.repository.invocations}, so a slow request can be split into the database, the service and what
+ * remains for the controller and serialization.
+ * <p>
+ * Each ticker gets its own timers, so the number of tickers is capped: only the first {@code maxTickers} tickers that
+ * orders are created for get their own tag, all other tickers are tagged {@value #OTHER_TICKERS}. Reads never add a
+ * ticker, so looking up made-up tickers cannot use up the tags. Timers are created once and looked up by ticker after
+ * that, so timing a call costs two map lookups and the recording itself.
+ */
+@Component
+public class OrderMetrics {
+    static final String OTHER_TICKERS = "other";
+    static final String NO_TICKER = "none";
+    private static final String TIMER = "orderbook.service";
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int maxTickers;
+    private final Set<String> tickers = ConcurrentHashMap.newKeySet();
+    private final Map<String, Map<String, Timer>> timers = new ConcurrentHashMap<>();
+
+    public OrderMetrics(MeterRegistry meterRegistry, OrderBookProperties properties) {
+        OrderBookProperties.Metrics config = properties.getMetrics();
+        this.meterRegistry = meterRegistry;
+        this.enabled = config.isEnabled();
+        this.maxTickers = config.getMaxTickers();
+    }
+
+    /**
+     * Runs and times a call for a ticker, which is given its own tag if there is room for one more.
+     */
+    public <T> T recordAndAddTicker(String operation, String ticker, Supplier<T> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        return record(operation, addTicker(ticker), call);
+    }
+
+    /**
+     * Runs and times a call for a ticker, tagged {@value #OTHER_TICKERS} unless the ticker already has its own tag.
+     * Pass a null ticker for calls that are not for one ticker.
+     */
+    public <T> T record(String operation, String ticker, Supplier<T> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        Timer timer = timer(operation, ticker == null ? NO_TICKER : tickers.contains(ticker) ? ticker : OTHER_TICKERS);
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private String addTicker(String ticker) {
+        if (tickers.contains(ticker)) {
+            return ticker;
+        }
+        if (tickers.size() >= maxTickers) {
+            return OTHER_TICKERS;
+        }
+        synchronized (tickers) {
+            if (tickers.size() < maxTickers) {
+                tickers.add(ticker);
+                return ticker;
+            }
+        }
+        return OTHER_TICKERS;
+    }
+
+    private Timer timer(String operation, String tickerTag) {
+        Map<String, Timer> operationTimers = timers.get(operation);
+        if (operationTimers == null) {
+            operationTimers = timers.computeIfAbsent(operation, key -> new ConcurrentHashMap<>());
+        }
+        Timer timer = operationTimers.get(tickerTag);
+        if (timer != null) {
+            return timer;
+        }
+        return operationTimers.computeIfAbsent(tickerTag, key -> Timer.builder(TIMER)
+                .description("Calls to the order service")
+                .tag("operation", operation)
+                .tag("ticker", tickerTag)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(100))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(meterRegistry));
+    }
+}
@@ -1,49 +1,244 @@
 package com.github.annsofip.orderbookservice.service;
 
+import com.github.annsofip.orderbookservice.archive.OrderArchive;
+import com.github.annsofip.orderbookservice.idempotency.ClientOrderIds;
+import com.github.annsofip.orderbookservice.matching.BookDepth;
+import com.github.annsofip.orderbookservice.matching.OrderMatcher;
+import com.github.annsofip.orderbookservice.model.CandleInterval;
+import com.github.annsofip.orderbookservice.model.OrderCursor;
+import com.github.annsofip.orderbookservice.model.OrderSearch;
+import com.github.annsofip.orderbookservice.model.OrderSearchRow;
 import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.model.OrderSummary;
+import com.github.annsofip.orderbookservice.model.Prices;
+import com.github.annsofip.orderbookservice.pipeline.OrderPipeline;
 import com.github.annsofip.orderbookservice.model.OrderMapper;
+import com.github.annsofip.orderbookservice.api.CandleDTO;
+import com.github.annsofip.orderbookservice.api.OrderBookDTO;
+import com.github.annsofip.orderbookservice.api.OrderPageDTO;
 import com.github.annsofip.orderbookservice.api.OrderRequestDTO;
 import com.github.annsofip.orderbookservice.api.OrderResponseDTO;
 import com.github.annsofip.orderbookservice.api.OrderSummaryDTO;
+import com.github.annsofip.orderbookservice.api.PriceLevelDTO;
+import com.github.annsofip.orderbookservice.api.SummaryKeyDTO;
+import com.github.annsofip.orderbookservice.repositories.OrderEventRepository;
 import com.github.annsofip.orderbookservice.repositories.OrderRepository;
 import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import com.github.annsofip.orderbookservice.symbols.SymbolDictionary;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
-
-import static java.math.RoundingMode.HALF_UP;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 @RequiredArgsConstructor
 public class OrderService {
     private final OrderRepository orderRepository;
+    private final OrderEventRepository orderEventRepository;
+    private final OrderWriter orderWriter;
     private final OrderMapper orderMapper;
+    private final OrderSummaryAggregator orderSummaryAggregator;
+    private final CandleAggregator candleAggregator;
+    private final OrderMatcher orderMatcher;
+    private final Optional<OrderPipeline> orderPipeline;
+    private final OrderCache orderCache;
+    private final OrderMetrics orderMetrics;
+    private final SymbolDictionary symbolDictionary;
+    private final OrderArchive orderArchive;
+    private final ClientOrderIds clientOrderIds;
 
     public OrderResponseDTO createOrder(@NotNull OrderRequestDTO orderDTO) {
+        return orderMetrics.recordAndAddTicker("createOrder", orderDTO.getTicker(), () -> create(orderDTO));
+    }
+
+    private OrderResponseDTO create(OrderRequestDTO orderDTO) {
+        return clientOrderIds.createOnce(orderDTO.getClientOrderId(), () -> createNew(orderDTO));
+    }
+
+    private OrderResponseDTO createNew(OrderRequestDTO orderDTO) {
         Order order = orderMapper.createOrderDtoToOrder(orderDTO);
-        Order savedOrder = orderRepository.save(order);
-        return orderMapper.orderToOrderDto(savedOrder);
+        internSymbols(order);
+        if (orderPipeline.isPresent()) {
+            int filledVolume = await(orderPipeline.get().submit(order));
+            return orderMapper.orderToOrderDto(order, filledVolume);
+        }
+        Order savedOrder = orderWriter.write(order);
+        orderSummaryAggregator.add(savedOrder);
+        candleAggregator.add(savedOrder);
+        int filledVolume = orderMatcher.match(savedOrder);
+        return orderMapper.orderToOrderDto(savedOrder, filledVolume);
+    }
+
+    /**
+     * Adds new tickers and currencies to the dictionary before the order is written, so they are not added while the
+     * transaction of the order holds a connection.
+     */
+    private void internSymbols(Order order) {
+        if (order.getTicker() != null) {
+            symbolDictionary.intern(order.getTicker());
+        }
+        if (order.getCurrency() != null) {
+            symbolDictionary.intern(order.getCurrency());
+        }
     }
 
     public Optional<OrderResponseDTO> getOrder(@NotNull UUID id) {
-        Optional<Order> order = orderRepository.findById(id);
-        return order.map(orderMapper::orderToOrderDto);
+        return orderMetrics.record("getOrder", null, () -> order(id));
+    }
+
+    private Optional<OrderResponseDTO> order(UUID id) {
+        return orderCache.get(id, key -> orderWriter.findUnpersisted(key)
+                .map(order -> orderMapper.orderToOrderDto(order, orderMatcher.filledVolume(key)))
+                .or(() -> orderRepository.findById(key)
+                        .map(order -> orderMapper.orderToOrderDto(order, orderEventRepository.findChanges(key),
+                                orderMatcher.filledVolume(key))))
+                .or(() -> orderArchive.find(key)
+                        .map(order -> orderMapper.orderToOrderDto(order.getOrder(), order.getFilledVolume()))));
+    }
+
+    /**
+     * A page of at most {@code limit} orders that match the search, after the cursor of the previous page if any. The
+     * page has a cursor for the next one unless it is the last.
+     */
+    public OrderPageDTO searchOrders(@NotNull OrderSearch search, OrderCursor after, int limit) {
+        return orderMetrics.record("searchOrders", search.getTicker(), () -> {
+            if (symbolDictionary.find(search.getTicker()).isEmpty()
+                    || search.getCurrency() != null && symbolDictionary.find(search.getCurrency()).isEmpty()) {
+                // No orders have been created with the symbol, and querying by it would add it to the dictionary.
+                return OrderPageDTO.builder().orders(List.of()).build();
+            }
+            // One order more than the page tells whether there is a next page.
+            List<OrderSearchRow> rows = orderRepository.search(search, after, limit + 1);
+            List<OrderSearchRow> page = rows.size() > limit ? rows.subList(0, limit) : rows;
+            OrderSearchRow last = page.isEmpty() ? null : page.get(page.size() - 1);
+            return OrderPageDTO.builder()
+                    .orders(page.stream().map(orderMapper::orderSearchRowToOrderDto).toList())
+                    .next(rows.size() > limit ? new OrderCursor(last.getDate(), last.getId()).encode() : null)
+                    .build();
+        });
     }
 
     public OrderSummaryDTO getSummary(@NotNull String ticker, @NotNull OrderSide orderSide, @NotNull LocalDate date) {
-        return orderRepository.findSummaryByTickerAndOrderSideAndDate(ticker, orderSide, date)
+        return orderMetrics.record("getSummary", ticker, () -> summary(ticker, orderSide, date));
+    }
+
+    /**
+     * One summary per day from {@code from} until {@code to}, both inclusive, with empty summaries for days without
+     * orders.
+     */
+    public List<OrderSummaryDTO> getSummaries(@NotNull String ticker, @NotNull OrderSide orderSide,
+                                              @NotNull LocalDate from, @NotNull LocalDate to) {
+        return orderMetrics.record("getSummaries", ticker, () -> {
+            List<OrderSummaryDTO> summaries = new ArrayList<>((int) ChronoUnit.DAYS.between(from, to) + 1);
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                summaries.add(summary(ticker, orderSide, date));
+            }
+            return summaries;
+        });
+    }
+
+    /**
+     * Summaries of many tickers and order sides for one day, in the order they are requested. Every summary is a
+     * lookup in the in-memory summaries, so the time grows with the number of summaries and not with the orders.
+     */
+    public List<OrderSummaryDTO> getSummaries(@NotNull List<SummaryKeyDTO> keys, @NotNull LocalDate date) {
+        return orderMetrics.record("getBulkSummaries", null, () -> {
+            List<OrderSummaryDTO> summaries = new ArrayList<>(keys.size());
+            for (SummaryKeyDTO key : keys) {
+                summaries.add(summary(key.getTicker(), key.getOrderSide(), date));
+            }
+            return summaries;
+        });
+    }
+
+    /**
+     * Candles of the ticker starting from {@code from} (inclusive) until {@code to} (exclusive), of both order sides if
+     * {@code orderSide} is null. Intervals without orders have no candle.
+     */
+    public List<CandleDTO> getCandles(@NotNull String ticker, OrderSide orderSide, @NotNull CandleInterval interval,
+                                      @NotNull LocalDateTime from, @NotNull LocalDateTime to) {
+        List<OrderSide> orderSides = orderSide == null ? List.of(OrderSide.values()) : List.of(orderSide);
+        return orderMetrics.record("getCandles", ticker, () -> candles(ticker, orderSides, interval, from, to));
+    }
+
+    private List<CandleDTO> candles(String ticker, List<OrderSide> orderSides, CandleInterval interval,
+                                    LocalDateTime from, LocalDateTime to) {
+        return candleAggregator.getCandles(ticker, orderSides, interval, from, to).stream()
+                .map(candle -> CandleDTO.builder()
+                        .ticker(ticker)
+                        .orderSide(candle.getId().getOrderSide())
+                        .interval(interval)
+                        .start(candle.getId().getStart())
+                        .open(Prices.toPrice(candle.getOpenPrice(), candle.getCurrency()))
+                        .high(Prices.toPrice(candle.getHighPrice(), candle.getCurrency()))
+                        .low(Prices.toPrice(candle.getLowPrice(), candle.getCurrency()))
+                        .close(Prices.toPrice(candle.getClosePrice(), candle.getCurrency()))
+                        .volume(candle.getVolume())
+                        .numberOfOrders(candle.getNumberOfOrders())
+                        .build())
+                .toList();
+    }
+
+    /**
+     * The best {@code depth} price levels of each side of the book of the ticker, best price first. A ticker without
+     * resting orders has empty sides.
+     */
+    public OrderBookDTO getBook(@NotNull String ticker, int depth) {
+        return orderMetrics.record("getBook", ticker, () -> book(ticker, depth));
+    }
+
+    private OrderBookDTO book(String ticker, int depth) {
+        return orderMatcher.depth(ticker, depth)
+                .map(book -> OrderBookDTO.builder()
+                        .ticker(ticker)
+                        .bids(toPriceLevelDTOs(book.bids(), book.currency()))
+                        .asks(toPriceLevelDTOs(book.asks(), book.currency()))
+                        .build())
+                .orElse(OrderBookDTO.builder()
+                        .ticker(ticker)
+                        .bids(List.of())
+                        .asks(List.of())
+                        .build());
+    }
+
+    private static List<PriceLevelDTO> toPriceLevelDTOs(List<BookDepth.Level> levels, String currency) {
+        List<PriceLevelDTO> dtos = new ArrayList<>(levels.size());
+        for (BookDepth.Level level : levels) {
+            dtos.add(PriceLevelDTO.builder()
+                    .price(Prices.toPrice(level.price(), currency))
+                    .volume(level.volume())
+                    .numberOfOrders(level.orderCount())
+                    .build());
+        }
+        return dtos;
+    }
+
+    private OrderSummaryDTO summary(String ticker, OrderSide orderSide, LocalDate date) {
+        return toSummaryDTO(ticker, orderSide, date, orderSummaryAggregator.getSummary(ticker, orderSide, date));
+    }
+
+    private static OrderSummaryDTO toSummaryDTO(String ticker, OrderSide orderSide, LocalDate date,
+                                                Optional<OrderSummary> summary) {
+        return summary
                 .map(order -> OrderSummaryDTO.builder()
                         .ticker(ticker)
                         .orderSide(orderSide)
-                        .averagePrice(BigDecimal.valueOf(order.getAveragePrice()).setScale(2, HALF_UP))
-                        .minPrice(order.getMinPrice().setScale(2, HALF_UP))
-                        .maxPrice(order.getMaxPrice().setScale(2, HALF_UP))
+                        .averagePrice(Prices.toPrice(order.getAveragePrice(), order.getCurrency()))
+                        .minPrice(Prices.toPrice(order.getMinPrice(), order.getCurrency()))
+                        .maxPrice(Prices.toPrice(order.getMaxPrice(), order.getCurrency()))
                         .numberOfOrders(order.getNumberOfOrders())
+                        .vwap(Prices.toPrice(order.getVwap(), order.getCurrency()))
+                        .totalVolume(order.getTotalVolume())
                         .date(date)
                         .build())
                 .orElse(OrderSummaryDTO.builder()
@@ -53,9 +248,20 @@ public class OrderService {
                         .maxPrice(BigDecimal.ZERO)
                         .minPrice(BigDecimal.ZERO)
                         .numberOfOrders(0L)
+                        .vwap(BigDecimal.ZERO)
+                        .totalVolume(0L)
                         .date(date)
                         .build());
+    }
 
+    private static int await(CompletableFuture<Integer> filledVolume) {
+        try {
+            return filledVolume.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
     }
 }
-
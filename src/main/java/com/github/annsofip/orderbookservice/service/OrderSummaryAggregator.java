@@ -0,0 +1,255 @@
+package com.github.annsofip.orderbookservice.service;
+
+import com.github.annsofip.orderbookservice.archive.OrderArchive;
+import com.github.annsofip.orderbookservice.model.DailySummary;
+import com.github.annsofip.orderbookservice.model.OrderAmendment;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.model.OrderSummary;
+import com.github.annsofip.orderbookservice.model.PriceRange;
+import com.github.annsofip.orderbookservice.model.SummaryKey;
+import com.github.annsofip.orderbookservice.repositories.DailyOrderSummaryRepository;
+import com.github.annsofip.orderbookservice.repositories.OrderRepository;
+import com.github.annsofip.orderbookservice.repositories.entities.DailyOrderSummary;
+import com.github.annsofip.orderbookservice.repositories.entities.DailyOrderSummaryId;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import com.github.annsofip.orderbookservice.symbols.SymbolDictionary;
+import com.github.annsofip.orderbookservice.symbols.SymbolMap;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Running order summaries per ticker, order side and day, so that summaries can be read without aggregating the
+ * orders table. It is loaded from the daily rollup on startup.
+ * <p>
+ * Summaries are found by the symbol id of the ticker, then the order side and then the day. Every day holds an
+ * immutable accumulator that is replaced on each order. Writers only contend when they hit the same bin of the map of
+ * a ticker and side, and readers always see a consistent count, total, min and max without locking. The total of price
+ * times volume is kept as a 128-bit integer in two longs, which is exact and does not allocate per order.
+ * <p>
+ * Amended orders change the totals of their day by the difference between their old and new volume and price. The
+ * lowest and highest price cannot be taken back that way, so they are looked up again in the orders of the day when
+ * an amended order moves away from one of them. A cancel is applied like an amendment that lowers the volume of the
+ * order by what it had left in the book, so cancelled orders stay in the summary with the volume that was traded.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderSummaryAggregator implements MeterBinder {
+    private final OrderRepository orderRepository;
+    private final DailyOrderSummaryRepository dailyOrderSummaryRepository;
+    private final SymbolDictionary symbolDictionary;
+    private final OrderArchive orderArchive;
+    private final SymbolMap<TickerSummaries> accumulators = new SymbolMap<>();
+    private final List<Consumer<SummaryKey>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("orderbook.summaries", this, OrderSummaryAggregator::size)
+                .description("Summaries per ticker, order side and day kept in memory")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        if (dailyOrderSummaryRepository.count() == 0) {
+            backfillRollup();
+        }
+        accumulators.clear();
+        for (DailyOrderSummary summary : dailyOrderSummaryRepository.findAll()) {
+            if (summary.getNumberOfOrders() == 0) {
+                continue;
+            }
+            DailyOrderSummaryId id = summary.getId();
+            tickerSummaries(symbolDictionary.intern(id.getTicker())).side(id.getOrderSide())
+                    .put(id.getDate(), Accumulator.of(summary));
+        }
+        log.info("operation=rebuildSummaries, action=success, keys={}", size());
+    }
+
+    // Orders written before the rollup table existed are rolled up once from the orders table and the archive.
+    private void backfillRollup() {
+        Map<SummaryKey, DailySummary> summaries = new LinkedHashMap<>();
+        Stream.concat(orderRepository.findDailySummaries().stream(), orderArchive.dailySummaries().stream())
+                .forEach(summary -> summaries.merge(
+                        new SummaryKey(summary.getTicker(), summary.getOrderSide(), summary.getDate()),
+                        summary, DailySummary::combine));
+        List<DailyOrderSummary> rollup = summaries.values().stream()
+                .map(summary -> DailyOrderSummary.builder()
+                        .id(new DailyOrderSummaryId(summary.getTicker(), summary.getOrderSide(), summary.getDate()))
+                        .numberOfOrders(summary.getNumberOfOrders())
+                        .totalPrice(summary.getTotalPrice())
+                        .minPrice(summary.getMinPrice())
+                        .maxPrice(summary.getMaxPrice())
+                        .totalVolume(summary.getTotalVolume())
+                        .totalNotional(summary.getTotalNotional())
+                        .currency(summary.getCurrency())
+                        .build())
+                .toList();
+        dailyOrderSummaryRepository.saveAll(rollup);
+        log.info("operation=backfillRollup, action=success, rows={}", rollup.size());
+    }
+
+    public void add(Order order) {
+        LocalDate date = order.getDate().toLocalDate();
+        tickerSummaries(symbolDictionary.intern(order.getTicker())).side(order.getOrderSide())
+                .merge(date, Accumulator.of(order), Accumulator::combine);
+        if (!listeners.isEmpty()) {
+            SummaryKey key = new SummaryKey(order.getTicker(), order.getOrderSide(), date);
+            for (Consumer<SummaryKey> listener : listeners) {
+                listener.accept(key);
+            }
+        }
+    }
+
+    /**
+     * The lowest and highest price of the day of the amended order once it is amended, when they cannot be derived
+     * from the summary because the old price of the order was one of them. It is looked up in the orders table and the
+     * archive, so it must be called after the amendment is saved, in the same transaction.
+     */
+    public Optional<PriceRange> priceRange(OrderAmendment amendment) {
+        SummaryKey key = amendment.key();
+        Optional<OrderSummary> summary = getSummary(key.getTicker(), key.getOrderSide(), key.getDate());
+        if (amendment.priceChange() == 0 || summary.isEmpty()
+                || (amendment.oldPrice() > summary.get().getMinPrice() && amendment.oldPrice() < summary.get().getMaxPrice())) {
+            return Optional.empty();
+        }
+        long min = amendment.newPrice();
+        long max = amendment.newPrice();
+        Optional<OrderSummary> table = orderRepository.findSummaryByTickerAndOrderSideAndDate(key.getTicker(),
+                key.getOrderSide(), key.getDate());
+        if (table.isPresent()) {
+            min = Math.min(min, table.get().getMinPrice());
+            max = Math.max(max, table.get().getMaxPrice());
+        }
+        Optional<DailySummary> archived = orderArchive.dailySummary(key.getTicker(), key.getOrderSide(), key.getDate());
+        if (archived.isPresent()) {
+            min = Math.min(min, archived.get().getMinPrice());
+            max = Math.max(max, archived.get().getMaxPrice());
+        }
+        return Optional.of(new PriceRange(min, max));
+    }
+
+    /**
+     * Moves the amended order from its old volume and price to its new ones in the summary of its day, with the price
+     * range from {@link #priceRange} if there is one. Amendments of the same day must be applied one at a time and in
+     * the order their ranges were looked up.
+     */
+    public void amend(OrderAmendment amendment, Optional<PriceRange> range) {
+        SummaryKey key = amendment.key();
+        tickerSummaries(symbolDictionary.intern(key.getTicker())).side(key.getOrderSide())
+                .computeIfPresent(key.getDate(), (date, accumulator) -> accumulator.amend(amendment, range));
+        for (Consumer<SummaryKey> listener : listeners) {
+            listener.accept(key);
+        }
+    }
+
+    /**
+     * Calls the listener with the key of every summary that changed, on the thread that added the order. The listener
+     * must return quickly, since the order is not acknowledged before it does.
+     */
+    public void addListener(Consumer<SummaryKey> listener) {
+        listeners.add(listener);
+    }
+
+    public Optional<OrderSummary> getSummary(String ticker, OrderSide orderSide, LocalDate date) {
+        OptionalInt id = symbolDictionary.find(ticker);
+        TickerSummaries summaries = id.isPresent() ? accumulators.get(id.getAsInt()) : null;
+        if (summaries == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(summaries.side(orderSide).get(date))
+                .map(Accumulator::toOrderSummary);
+    }
+
+    private TickerSummaries tickerSummaries(int tickerId) {
+        return accumulators.computeIfAbsent(tickerId, id -> new TickerSummaries());
+    }
+
+    private int size() {
+        return accumulators.values().mapToInt(summaries -> summaries.buys.size() + summaries.sells.size()).sum();
+    }
+
+    private record TickerSummaries(ConcurrentHashMap<LocalDate, Accumulator> buys,
+                                   ConcurrentHashMap<LocalDate, Accumulator> sells) {
+        TickerSummaries() {
+            this(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        }
+
+        ConcurrentHashMap<LocalDate, Accumulator> side(OrderSide orderSide) {
+            return orderSide == OrderSide.BUY ? buys : sells;
+        }
+    }
+
+    private record Accumulator(long count, long total, long min, long max, long volume, long notionalHigh,
+                               long notionalLow, String currency) {
+        private static final BigInteger LOW_BITS = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+
+        static Accumulator of(Order order) {
+            long price = order.getPrice();
+            long volume = order.getVolume();
+            return new Accumulator(1, price, price, price, volume, Math.multiplyHigh(price, volume), price * volume,
+                    order.getCurrency());
+        }
+
+        static Accumulator of(DailyOrderSummary summary) {
+            BigInteger notional = summary.getTotalNotional().toBigIntegerExact();
+            return new Accumulator(summary.getNumberOfOrders(), summary.getTotalPrice(), summary.getMinPrice(),
+                    summary.getMaxPrice(), summary.getTotalVolume(), notional.shiftRight(64).longValueExact(),
+                    notional.longValue(), summary.getCurrency());
+        }
+
+        Accumulator combine(Accumulator other) {
+            long notionalLowSum = notionalLow + other.notionalLow;
+            long carry = Long.compareUnsigned(notionalLowSum, notionalLow) < 0 ? 1 : 0;
+            return new Accumulator(count + other.count, Math.addExact(total, other.total), Math.min(min, other.min),
+                    Math.max(max, other.max), Math.addExact(volume, other.volume),
+                    Math.addExact(Math.addExact(notionalHigh, other.notionalHigh), carry), notionalLowSum, currency);
+        }
+
+        Accumulator amend(OrderAmendment amendment, Optional<PriceRange> range) {
+            long oldNotionalLow = amendment.oldPrice() * amendment.oldVolume();
+            long newNotionalLow = amendment.newPrice() * amendment.newVolume();
+            // Adds the new price times volume and subtracts the old one, borrowing from the high bits.
+            long notionalLowSum = notionalLow + newNotionalLow;
+            long carry = Long.compareUnsigned(notionalLowSum, notionalLow) < 0 ? 1 : 0;
+            long notionalLowDifference = notionalLowSum - oldNotionalLow;
+            long borrow = Long.compareUnsigned(notionalLowSum, oldNotionalLow) < 0 ? 1 : 0;
+            long notionalHighDifference = Math.subtractExact(Math.addExact(Math.addExact(notionalHigh,
+                            Math.multiplyHigh(amendment.newPrice(), amendment.newVolume())), carry),
+                    Math.addExact(Math.multiplyHigh(amendment.oldPrice(), amendment.oldVolume()), borrow));
+            // An order added since the range was looked up may already be beyond the old price, which then no longer
+            // bounds the day and the range does not apply.
+            long newMin = range.isPresent() && min >= amendment.oldPrice()
+                    ? range.get().min() : Math.min(min, amendment.newPrice());
+            long newMax = range.isPresent() && max <= amendment.oldPrice()
+                    ? range.get().max() : Math.max(max, amendment.newPrice());
+            return new Accumulator(count, Math.addExact(total, amendment.priceChange()), newMin, newMax,
+                    Math.addExact(volume, amendment.volumeChange()), notionalHighDifference, notionalLowDifference,
+                    currency);
+        }
+
+        OrderSummary toOrderSummary() {
+            BigInteger notional = BigInteger.valueOf(notionalHigh).shiftLeft(64)
+                    .add(BigInteger.valueOf(notionalLow).and(LOW_BITS));
+            return new OrderSummary(total, max, min, count, volume, new BigDecimal(notional), currency);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.github.annsofip.orderbookservice.service;
+
+import com.github.annsofip.orderbookservice.config.OrderBookProperties;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.model.SummaryKey;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes order summaries of a ticker to its subscribers as server-sent events whenever an order changes them.
+ * <p>
+ * Updates are conflated per subscriber: a change only marks the summary as changed, and the summary is read when it
+ * is sent. A subscriber that is still being sent to when more orders arrive gets the latest summary once, instead of
+ * one event per order, so nothing queues up behind a slow subscriber. Connections do not hold a thread; a small pool
+ * of threads sends to whichever subscribers have changes or a heartbeat due, at most one thread per subscriber at a
+ * time.
+ * <p>
+ * Sending blocks while the client does not read, so a subscriber whose send takes longer than the send timeout is
+ * dropped and its sending thread interrupted, which bounds how long a slow client holds one of the threads. A timer
+ * thread that never sends checks the sends and schedules the heartbeats, which are sent by the pool like changes.
+ */
+@Slf4j
+@Component
+public class OrderSummaryPublisher implements MeterBinder {
+    private final OrderService orderService;
+    private final int maxSubscribers;
+    private final long sendTimeoutNanos;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService timer;
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    public OrderSummaryPublisher(OrderService orderService, OrderSummaryAggregator orderSummaryAggregator,
+                                 OrderBookProperties properties) {
+        OrderBookProperties.SummaryStream config = properties.getSummaryStream();
+        this.orderService = orderService;
+        this.maxSubscribers = config.getMaxSubscribers();
+        this.sendTimeoutNanos = config.getSendTimeout().toNanos();
+        this.executor = Executors.newFixedThreadPool(config.getThreads(), threads("summary-stream-"));
+        this.timer = new ScheduledThreadPoolExecutor(1, threads("summary-stream-timer-"));
+        long heartbeat = config.getHeartbeatInterval().toMillis();
+        timer.scheduleWithFixedDelay(this::heartbeat, heartbeat, heartbeat, TimeUnit.MILLISECONDS);
+        // A send that is too slow is noticed between one and two timeouts after it started.
+        long sendTimeout = config.getSendTimeout().toMillis();
+        timer.scheduleWithFixedDelay(this::dropSlowSubscribers, sendTimeout, sendTimeout, TimeUnit.MILLISECONDS);
+        orderSummaryAggregator.addListener(this::changed);
+    }
+
+    /**
+     * Sends today's buy and sell summaries of the ticker to the emitter, and then every change to a summary of the
+     * ticker until the emitter completes.
+     *
+     * @return false if there are too many subscribers already
+     */
+    public boolean subscribe(String ticker, SseEmitter emitter) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return false;
+        }
+        Subscriber subscriber = new Subscriber(ticker, emitter);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        subscribers.computeIfAbsent(ticker, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+
+        LocalDate today = LocalDate.now();
+        subscriber.changed(new SummaryKey(ticker, OrderSide.BUY, today));
+        subscriber.changed(new SummaryKey(ticker, OrderSide.SELL, today));
+        return true;
+    }
+
+    int subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("orderbook.summary.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open summary streams")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        timer.shutdownNow();
+        executor.shutdownNow();
+        subscribers.values().forEach(tickerSubscribers -> tickerSubscribers.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+
+    private void changed(SummaryKey key) {
+        Set<Subscriber> tickerSubscribers = subscribers.get(key.getTicker());
+        if (tickerSubscribers == null) {
+            return;
+        }
+        for (Subscriber subscriber : tickerSubscribers) {
+            subscriber.changed(key);
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.removed.compareAndSet(false, true)) {
+            return;
+        }
+        subscriberCount.decrementAndGet();
+        subscribers.computeIfPresent(subscriber.ticker, (ticker, tickerSubscribers) -> {
+            tickerSubscribers.remove(subscriber);
+            return tickerSubscribers.isEmpty() ? null : tickerSubscribers;
+        });
+    }
+
+    private void heartbeat() {
+        for (Set<Subscriber> tickerSubscribers : subscribers.values()) {
+            for (Subscriber subscriber : tickerSubscribers) {
+                subscriber.heartbeat();
+            }
+        }
+    }
+
+    private void dropSlowSubscribers() {
+        long now = System.nanoTime();
+        for (Set<Subscriber> tickerSubscribers : subscribers.values()) {
+            for (Subscriber subscriber : tickerSubscribers) {
+                subscriber.dropIfSlow(now);
+            }
+        }
+    }
+
+    private static ThreadFactory threads(String prefix) {
+        AtomicInteger threads = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threads.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private final class Subscriber {
+        private final String ticker;
+        private final SseEmitter emitter;
+        private final Set<SummaryKey> changed = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean heartbeatDue = new AtomicBoolean();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean removed = new AtomicBoolean();
+        // The thread that is sending and since when, guarded by this.
+        private Thread sender;
+        private long sendingSince;
+
+        Subscriber(String ticker, SseEmitter emitter) {
+            this.ticker = ticker;
+            this.emitter = emitter;
+        }
+
+        void changed(SummaryKey key) {
+            changed.add(key);
+            schedule();
+        }
+
+        void heartbeat() {
+            heartbeatDue.set(true);
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this::send);
+                } catch (RejectedExecutionException e) {
+                    // Shutting down, the stream is completed by stop().
+                }
+            }
+        }
+
+        // Runs on one thread at a time per subscriber. Changes that arrive after the summary was read are sent again
+        // in the next round, and changes that arrive after the last round schedule a new one.
+        private void send() {
+            do {
+                Iterator<SummaryKey> keys = changed.iterator();
+                while (keys.hasNext()) {
+                    SummaryKey key = keys.next();
+                    keys.remove();
+                    if (!send(SseEmitter.event()
+                            .name("summary")
+                            .data(orderService.getSummary(key.getTicker(), key.getOrderSide(), key.getDate())))) {
+                        return;
+                    }
+                }
+                if (heartbeatDue.getAndSet(false) && !send(SseEmitter.event().comment("heartbeat"))) {
+                    return;
+                }
+                scheduled.set(false);
+            } while ((!changed.isEmpty() || heartbeatDue.get()) && scheduled.compareAndSet(false, true));
+        }
+
+        // False if the subscriber is gone, which ends the round.
+        private boolean send(SseEmitter.SseEventBuilder event) {
+            if (removed.get()) {
+                return false;
+            }
+            synchronized (this) {
+                sender = Thread.currentThread();
+                sendingSince = System.nanoTime();
+            }
+            try {
+                emitter.send(event);
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                fail(e);
+                return false;
+            } finally {
+                synchronized (this) {
+                    sender = null;
+                    // An interrupt for a send that was too slow must not reach the next subscriber's send.
+                    Thread.interrupted();
+                }
+            }
+        }
+
+        // The emitter is locked while it sends, so the sending thread completes it once the interrupted send fails. A
+        // container that does not give up a write when interrupted ends it at its own write timeout instead.
+        synchronized void dropIfSlow(long now) {
+            if (sender != null && now - sendingSince > sendTimeoutNanos) {
+                log.debug("operation=streamSummaries, action=drop, ticker={}", ticker);
+                unsubscribe(this);
+                sender.interrupt();
+            }
+        }
+
+        void fail(Exception e) {
+            log.debug("operation=streamSummaries, action=fail, ticker={}", ticker, e);
+            unsubscribe(this);
+            emitter.completeWithError(e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.annsofip.orderbookservice.service;
+
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Durably records a new order. Once {@link #write(Order)} returns, the order has an id and a date and must survive a
+ * restart.
+ */
+public interface OrderWriter {
+
+    Order write(Order order);
+
+    /**
+     * Writes several orders at once, which writers can do cheaper than one by one.
+     */
+    default List<Order> writeAll(List<Order> orders) {
+        return orders.stream().map(this::write).toList();
+    }
+
+    /**
+     * Orders that have been written but cannot be read from the database yet.
+     */
+    default Optional<Order> findUnpersisted(UUID id) {
+        return Optional.empty();
+    }
+
+    /**
+     * The order with the client order id among the orders that cannot be read from the database yet.
+     */
+    default Optional<Order> findUnpersistedByClientOrderId(String clientOrderId) {
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,32 @@
+package com.github.annsofip.orderbookservice.symbols;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Stores a ticker or currency as its id in the {@link SymbolDictionary}. Queries that compare the attribute with a
+ * parameter convert the parameter as well, so a name that is not in the dictionary yet is added. Check that the name
+ * exists with {@link SymbolDictionary#find} before querying by a name from a request.
+ * <p>
+ * Hibernate creates the converter through Spring. The dictionary is looked up on first use, since it needs the
+ * repositories, which are not ready while Hibernate starts.
+ */
+@Converter
+public class SymbolConverter implements AttributeConverter<String, Integer> {
+    private final ObjectProvider<SymbolDictionary> symbolDictionary;
+
+    public SymbolConverter(ObjectProvider<SymbolDictionary> symbolDictionary) {
+        this.symbolDictionary = symbolDictionary;
+    }
+
+    @Override
+    public Integer convertToDatabaseColumn(String name) {
+        return name == null ? null : symbolDictionary.getObject().intern(name);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer id) {
+        return id == null ? null : symbolDictionary.getObject().name(id);
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.annsofip.orderbookservice.symbols;
+
+import com.github.annsofip.orderbookservice.repositories.SymbolRepository;
+import com.github.annsofip.orderbookservice.repositories.entities.Symbol;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Small integer ids for tickers and currencies. Orders and trades store the id instead of the name, and structures
+ * kept per ticker in memory are indexed by it, see {@link SymbolMap}.
+ * <p>
+ * All symbols are kept in memory and loaded from the symbol table on startup. A new symbol is given the next free id
+ * and saved before it is used, which assumes that a single instance of the service is adding orders. Ids start at 1
+ * and are never reused, so they stay dense and can index arrays.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SymbolDictionary {
+    private final SymbolRepository symbolRepository;
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[64];
+    // Guarded by this.
+    private int nextId = 1;
+
+    @PostConstruct
+    public synchronized void load() {
+        for (Symbol symbol : symbolRepository.findAll()) {
+            put(symbol.getId(), symbol.getName());
+            nextId = Math.max(nextId, symbol.getId() + 1);
+        }
+        log.info("operation=loadSymbols, action=success, symbols={}", ids.size());
+    }
+
+    /**
+     * The id of the name, which is added to the dictionary if it is not in it yet. Only pass names that orders are
+     * created with, use {@link #find} for names from requests that only read.
+     */
+    public int intern(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : add(name);
+    }
+
+    /**
+     * The id of the name, if it has been added.
+     */
+    public OptionalInt find(String name) {
+        Integer id = ids.get(name);
+        return id != null ? OptionalInt.of(id) : OptionalInt.empty();
+    }
+
+    /**
+     * The name of an id returned by the dictionary.
+     *
+     * @throws IllegalArgumentException if the id is unknown
+     */
+    public String name(int id) {
+        String[] current = names;
+        String name = id > 0 && id < current.length ? current[id] : null;
+        if (name == null) {
+            throw new IllegalArgumentException("Unknown symbol " + id);
+        }
+        return name;
+    }
+
+    private synchronized int add(String name) {
+        Integer existing = ids.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        int id = nextId;
+        symbolRepository.save(Symbol.builder().id(id).name(name).build());
+        put(id, name);
+        nextId++;
+        log.info("operation=addSymbol, action=success, id={}, name={}", id, name);
+        return id;
+    }
+
+    // The name is stored before the id is published in the map, so whoever finds the id can read the name.
+    private void put(int id, String name) {
+        String[] current = names;
+        if (id >= current.length) {
+            current = Arrays.copyOf(current, Math.max(id + 1, current.length * 2));
+        }
+        current[id] = name;
+        names = current;
+        ids.put(name, id);
+    }
+}
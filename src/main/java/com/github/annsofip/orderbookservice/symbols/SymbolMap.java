@@ -0,0 +1,65 @@
+package com.github.annsofip.orderbookservice.symbols;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Values per symbol id, in an array indexed by the id rather than a hash map, since ids are small and dense. Reads
+ * take no lock; adding a value locks the map, and grows the array when the id is beyond its end.
+ */
+public class SymbolMap<V> {
+    private volatile AtomicReferenceArray<V> values = new AtomicReferenceArray<>(64);
+
+    public V get(int id) {
+        AtomicReferenceArray<V> current = values;
+        return id < current.length() ? current.get(id) : null;
+    }
+
+    /**
+     * The value of the id, created by the function if there is none yet. The function is called at most once per id.
+     */
+    public V computeIfAbsent(int id, IntFunction<V> function) {
+        V value = get(id);
+        return value != null ? value : add(id, function);
+    }
+
+    /**
+     * The values in the order of their ids.
+     */
+    public Stream<V> values() {
+        AtomicReferenceArray<V> current = values;
+        return IntStream.range(0, current.length()).mapToObj(current::get).filter(Objects::nonNull);
+    }
+
+    public synchronized void clear() {
+        values = new AtomicReferenceArray<>(values.length());
+    }
+
+    private synchronized V add(int id, IntFunction<V> function) {
+        AtomicReferenceArray<V> current = values;
+        if (id >= current.length()) {
+            V[] grown = Arrays.copyOf(toArray(current), Math.max(id + 1, current.length() * 2));
+            current = new AtomicReferenceArray<>(grown);
+            values = current;
+        }
+        V value = current.get(id);
+        if (value == null) {
+            value = Objects.requireNonNull(function.apply(id));
+            current.set(id, value);
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V[] toArray(AtomicReferenceArray<V> values) {
+        Object[] array = new Object[values.length()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return (V[]) array;
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.annsofip.orderbookservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.annsofip.orderbookservice.api.OrderRequestDTO;
+import com.github.annsofip.orderbookservice.api.OrderResponseDTO;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.repositories.DailyOrderSummaryRepository;
+import com.github.annsofip.orderbookservice.repositories.OrderRepository;
+import com.github.annsofip.orderbookservice.repositories.entities.DailyOrderSummaryId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class JournalIntegrationTest {
+
+    @TempDir
+    static Path journalDirectory;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private DailyOrderSummaryRepository dailyOrderSummaryRepository;
+
+    @DynamicPropertySource
+    static void journalProperties(DynamicPropertyRegistry registry) {
+        registry.add("order-book.journal.enabled", () -> "true");
+        registry.add("order-book.journal.directory", () -> journalDirectory.toString());
+        registry.add("order-book.journal.segment-size", () -> "64KB");
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:journal;MODE=PostgreSQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE");
+    }
+
+    @Test
+    public void shouldServeJournaledOrderAndWriteItToDatabase() throws Exception {
+        OrderRequestDTO orderDTO = new OrderRequestDTO("AMC", OrderSide.BUY, 100, BigDecimal.valueOf(4.5), "USD");
+
+        String responseBody = mockMvc.perform(post("/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(orderDTO)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        OrderResponseDTO createdOrder = objectMapper.readValue(responseBody, OrderResponseDTO.class);
+
+        mockMvc.perform(get("/orders/" + createdOrder.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ticker", is("AMC")));
+        mockMvc.perform(get("/orders/summary")
+                        .param("ticker", "AMC")
+                        .param("orderSide", OrderSide.BUY.toString())
+                        .param("date", LocalDate.now().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.numberOfOrders", is(1)));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!orderRepository.existsById(createdOrder.getId()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(450L, orderRepository.findById(createdOrder.getId()).orElseThrow().getPrice());
+        assertEquals(1L, dailyOrderSummaryRepository.findById(new DailyOrderSummaryId("AMC", OrderSide.BUY, LocalDate.now()))
+                .orElseThrow().getNumberOfOrders());
+    }
+}
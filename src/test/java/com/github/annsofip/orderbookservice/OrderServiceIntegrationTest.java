@@ -1,28 +1,71 @@
 package com.github.annsofip.orderbookservice;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.annsofip.orderbookservice.archive.OrderCompactor;
+import com.github.annsofip.orderbookservice.matching.OrderMatcher;
+import com.github.annsofip.orderbookservice.model.FillStatus;
 import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.api.BulkSummaryRequestDTO;
+import com.github.annsofip.orderbookservice.api.OrderAmendRequestDTO;
+import com.github.annsofip.orderbookservice.api.OrderPageDTO;
 import com.github.annsofip.orderbookservice.api.OrderRequestDTO;
 import com.github.annsofip.orderbookservice.api.OrderResponseDTO;
+import com.github.annsofip.orderbookservice.api.SummaryKeyDTO;
+import com.github.annsofip.orderbookservice.model.OrderSummary;
+import com.github.annsofip.orderbookservice.repositories.DailyOrderSummaryRepository;
+import com.github.annsofip.orderbookservice.repositories.OrderEventRepository;
 import com.github.annsofip.orderbookservice.repositories.OrderRepository;
+import com.github.annsofip.orderbookservice.repositories.SymbolRepository;
+import com.github.annsofip.orderbookservice.repositories.TradeRepository;
+import com.github.annsofip.orderbookservice.repositories.entities.DailyOrderSummary;
+import com.github.annsofip.orderbookservice.repositories.entities.DailyOrderSummaryId;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import com.github.annsofip.orderbookservice.repositories.entities.Trade;
+import com.github.annsofip.orderbookservice.service.OrderAmendmentService;
+import com.github.annsofip.orderbookservice.service.OrderCache;
+import com.github.annsofip.orderbookservice.service.OrderSummaryAggregator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -38,9 +81,47 @@ public class OrderServiceIntegrationTest {
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private DailyOrderSummaryRepository dailyOrderSummaryRepository;
+
+    @Autowired
+    private OrderEventRepository orderEventRepository;
+
+    @Autowired
+    private OrderAmendmentService orderAmendmentService;
+
+    @Autowired
+    private OrderSummaryAggregator orderSummaryAggregator;
+
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    @Autowired
+    private OrderMatcher orderMatcher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private OrderCompactor orderCompactor;
+
+    @Autowired
+    private OrderCache orderCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private SymbolRepository symbolRepository;
+
     @BeforeEach
     public void setUp() {
         orderRepository.deleteAll();
+        orderEventRepository.deleteAll();
+        dailyOrderSummaryRepository.deleteAll();
+        tradeRepository.deleteAll();
+        orderSummaryAggregator.rebuild();
+        orderMatcher.rebuild();
     }
 
 
@@ -51,6 +132,15 @@ public class OrderServiceIntegrationTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    public void shouldReturn400WhenOrderIsInvalid() throws Exception {
+        mockMvc.perform(post("/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new OrderRequestDTO("SAVE", null, null, BigDecimal.TEN, "SEK"))))
+                .andExpect(status().isBadRequest());
+        assertEquals(0, orderRepository.count());
+    }
+
     @Test
     public void shouldReturn404WhenOrderDoesNotExist() throws Exception {
         UUID nonExistingOrderId = UUID.randomUUID();
@@ -83,6 +173,52 @@ public class OrderServiceIntegrationTest {
 
     }
 
+    @Test
+    public void shouldCreateOrderOnceForRetriesWithSameClientOrderId() throws Exception {
+        String clientOrderId = "retry-" + UUID.randomUUID();
+        OrderRequestDTO orderDTO = new OrderRequestDTO("GME", OrderSide.BUY, 100, BigDecimal.valueOf(300), "USD", clientOrderId);
+
+        String first = mockMvc.perform(post("/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(orderDTO)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.clientOrderId", is(clientOrderId)))
+                .andReturn().getResponse().getContentAsString();
+        String retry = mockMvc.perform(post("/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(orderDTO)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(objectMapper.readValue(first, OrderResponseDTO.class).getId(),
+                objectMapper.readValue(retry, OrderResponseDTO.class).getId());
+        assertEquals(1L, orderRepository.count());
+    }
+
+    @Test
+    public void shouldAnswerWithStoredOrderWhenClientOrderIdWasWrittenWithoutBeingRecorded() throws Exception {
+        String clientOrderId = "written-" + UUID.randomUUID();
+        // As if a request wrote its order and failed before the id was recorded.
+        Order stored = orderRepository.save(Order.builder()
+                .id(UUID.randomUUID())
+                .ticker("GME")
+                .orderSide(OrderSide.BUY)
+                .volume(100)
+                .price(30000)
+                .currency("USD")
+                .date(LocalDateTime.now())
+                .clientOrderId(clientOrderId)
+                .build());
+        OrderRequestDTO orderDTO = new OrderRequestDTO("GME", OrderSide.BUY, 100, BigDecimal.valueOf(300), "USD", clientOrderId);
+
+        mockMvc.perform(post("/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(orderDTO)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id", is(stored.getId().toString())));
+        assertEquals(1L, orderRepository.count());
+    }
+
     @Test
     public void shouldGetOrder() throws Exception {
         OrderRequestDTO orderDTO = new OrderRequestDTO("GME", OrderSide.BUY, 100, BigDecimal.valueOf(300), "USD");
@@ -108,6 +244,322 @@ public class OrderServiceIntegrationTest {
                 .andExpect(jsonPath("$.currency", is(createdOrder.getCurrency())));
     }
 
+    @Test
+    public void shouldMatchCrossingOrdersAndReportFills() throws Exception {
+        OrderResponseDTO sellOrder = createOrder(new OrderRequestDTO("GME", OrderSide.SELL, 100, BigDecimal.valueOf(300), "USD"));
+        assertEquals(FillStatus.OPEN, sellOrder.getFillStatus());
+
+        orderMatcher.rebuild();
+        mockMvc.perform(get("/orders/" + sellOrder.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fillStatus", is("OPEN")));
+
+        OrderResponseDTO buyOrder = createOrder(new OrderRequestDTO("GME", OrderSide.BUY, 60, BigDecimal.valueOf(301), "USD"));
+        assertEquals(60, buyOrder.getFilledVolume());
+        assertEquals(FillStatus.FILLED, buyOrder.getFillStatus());
+
+        mockMvc.perform(get("/orders/" + sellOrder.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.filledVolume", is(60)))
+                .andExpect(jsonPath("$.fillStatus", is("PARTIALLY_FILLED")));
+
+        List<Trade> trades = tradeRepository.findAll();
+        assertEquals(1, trades.size());
+        assertEquals(buyOrder.getId(), trades.get(0).getBuyOrderId());
+        assertEquals(sellOrder.getId(), trades.get(0).getSellOrderId());
+        assertEquals(30000L, trades.get(0).getPrice());
+        assertEquals(60, trades.get(0).getVolume());
+    }
+
+    @Test
+    public void shouldCancelRestingOrder() throws Exception {
+        OrderResponseDTO sellOrder = createOrder(new OrderRequestDTO("GME", OrderSide.SELL, 100, BigDecimal.valueOf(300), "USD"));
+        createOrder(new OrderRequestDTO("GME", OrderSide.BUY, 40, BigDecimal.valueOf(300), "USD"));
+
+        mockMvc.perform(delete("/orders/" + sellOrder.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.volume", is(100)))
+                .andExpect(jsonPath("$.filledVolume", is(40)))
+                .andExpect(jsonPath("$.fillStatus", is("CANCELLED")));
+        mockMvc.perform(get("/orders/" + sellOrder.getId()))
+                .andExpect(jsonPath("$.fillStatus", is("CANCELLED")));
+        mockMvc.perform(get("/orders/book/GME"))
+                .andExpect(jsonPath("$.asks.length()", is(0)));
+        mockMvc.perform(delete("/orders/" + sellOrder.getId()))
+                .andExpect(status().isConflict());
+
+        orderMatcher.rebuild();
+        OrderResponseDTO buyOrder = createOrder(new OrderRequestDTO("GME", OrderSide.BUY, 10, BigDecimal.valueOf(300), "USD"));
+
+        assertEquals(0, buyOrder.getFilledVolume());
+        mockMvc.perform(delete("/orders/" + UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void shouldLosePlaceInQueueWhenPriceIsAmended() throws Exception {
+        OrderResponseDTO first = createOrder(new OrderRequestDTO("GME", OrderSide.SELL, 10, new BigDecimal("300.00"), "USD"));
+        OrderResponseDTO second = createOrder(new OrderRequestDTO("GME", OrderSide.SELL, 10, new BigDecimal("301.00"), "USD"));
+        OrderResponseDTO third = createOrder(new OrderRequestDTO("GME", OrderSide.SELL, 10, new BigDecimal("301.00"), "USD"));
+
+        amendOrder(first.getId(), new OrderAmendRequestDTO(null, new BigDecimal("301.00")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.price", is(301.0)))
+                .andExpect(jsonPath("$.volume", is(10)));
+        amendOrder(second.getId(), new OrderAmendRequestDTO(6, null))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.volume", is(6)));
+        // The book is rebuilt from the orders and their events in the same order of priority.
+        orderMatcher.rebuild();
+        OrderResponseDTO buyOrder = createOrder(new OrderRequestDTO("GME", OrderSide.BUY, 20, new BigDecimal("301.00"), "USD"));
+
+        assertEquals(20, buyOrder.getFilledVolume());
+        List<UUID> makers = tradeRepository.findAll().stream().map(Trade::getSellOrderId).toList();
+        assertEquals(List.of(second.getId(), third.getId(), first.getId()), makers);
+        mockMvc.perform(get("/orders/" + first.getId()))
+                .andExpect(jsonPath("$.filledVolume", is(4)))
+                .andExpect(jsonPath("$.fillStatus", is("PARTIALLY_FILLED")));
+    }
+
+    @Test
+    public void shouldTradeWhenAmendedPriceCrosses() throws Exception {
+        OrderResponseDTO sellOrder = createOrder(new OrderRequestDTO("GME", OrderSide.SELL, 10, new BigDecimal("300.00"), "USD"));
+        OrderResponseDTO buyOrder = createOrder(new OrderRequestDTO("GME", OrderSide.BUY, 30, new BigDecimal("299.00"), "USD"));
+
+        amendOrder(buyOrder.getId(), new OrderAmendRequestDTO(20, new BigDecimal("300.50")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.volume", is(20)))
+                .andExpect(jsonPath("$.filledVolume", is(10)))
+                .andExpect(jsonPath("$.fillStatus", is("PARTIALLY_FILLED")));
+
+        List<Trade> trades = tradeRepository.findAll();
+        assertEquals(1, trades.size());
+        assertEquals(30000L, trades.get(0).getPrice());
+        assertEquals(sellOrder.getId(), trades.get(0).getSellOrderId());
+        mockMvc.perform(get("/orders/" + sellOrder.getId()))
+                .andExpect(jsonPath("$.fillStatus", is("FILLED")));
+    }
+
+    @Test
+    public void shouldKeepSummariesInStepWithAmendedOrders() throws Exception {
+        String ticker = "VOLV";
+        LocalDate date = LocalDate.now();
+        createOrder(new OrderRequestDTO(ticker, OrderSide.BUY, 100, new BigDecimal("250.10"), "SEK"));
+        OrderResponseDTO highest = createOrder(new OrderRequestDTO(ticker, OrderSide.BUY, 250, new BigDecimal("250.55"), "SEK"));
+        OrderResponseDTO lowest = createOrder(new OrderRequestDTO(ticker, OrderSide.BUY, 7, new BigDecimal("249.99"), "SEK"));
+
+        amendOrder(highest.getId(), new OrderAmendRequestDTO(200, new BigDecimal("250.20"))).andExpect(status().isOk());
+        amendOrder(lowest.getId(), new OrderAmendRequestDTO(5, null)).andExpect(status().isOk());
+        mockMvc.perform(delete("/orders/" + lowest.getId())).andExpect(status().isOk());
+
+        OrderSummary running = orderSummaryAggregator.getSummary(ticker, OrderSide.BUY, date).orElseThrow();
+        OrderSummary sqlSummary = orderRepository.findSummaryByTickerAndOrderSideAndDate(ticker, OrderSide.BUY, date).orElseThrow();
+        DailyOrderSummary rollup = dailyOrderSummaryRepository.findById(new DailyOrderSummaryId(ticker, OrderSide.BUY, date)).orElseThrow();
+
+        assertEquals(0, new BigDecimal(25_010 * 100 + 25_020 * 200).compareTo(running.getTotalNotional()));
+        assertEquals(0, running.getTotalNotional().compareTo(sqlSummary.getTotalNotional()));
+        assertEquals(0, running.getTotalNotional().compareTo(rollup.getTotalNotional()));
+        assertEquals(300L, running.getTotalVolume());
+        assertEquals(300L, sqlSummary.getTotalVolume());
+        assertEquals(300L, rollup.getTotalVolume());
+        assertEquals(25_020L, running.getMaxPrice());
+        assertEquals(25_020L, sqlSummary.getMaxPrice());
+        assertEquals(25_020L, rollup.getMaxPrice());
+        assertEquals(running.getTotalPrice(), sqlSummary.getTotalPrice());
+        assertEquals(running.getTotalPrice(), rollup.getTotalPrice());
+        assertEquals(3L, rollup.getNumberOfOrders());
+    }
+
+    @Test
+    public void shouldTakeCancelledVolumeOutOfSummaries() throws Exception {
+        String ticker = "ABB";
+        LocalDate date = LocalDate.now();
+        OrderResponseDTO cancelled = createOrder(new OrderRequestDTO(ticker, OrderSide.SELL, 100, new BigDecimal("300.00"), "SEK"));
+        createOrder(new OrderRequestDTO(ticker, OrderSide.SELL, 50, new BigDecimal("310.00"), "SEK"));
+        createOrder(new OrderRequestDTO(ticker, OrderSide.BUY, 40, new BigDecimal("300.00"), "SEK"));
+
+        mockMvc.perform(delete("/orders/" + cancelled.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.volume", is(100)))
+                .andExpect(jsonPath("$.filledVolume", is(40)));
+
+        OrderSummary running = orderSummaryAggregator.getSummary(ticker, OrderSide.SELL, date).orElseThrow();
+        OrderSummary sqlSummary = orderRepository.findSummaryByTickerAndOrderSideAndDate(ticker, OrderSide.SELL, date).orElseThrow();
+        DailyOrderSummary rollup = dailyOrderSummaryRepository.findById(new DailyOrderSummaryId(ticker, OrderSide.SELL, date)).orElseThrow();
+        assertEquals(0, new BigDecimal(30_000 * 40 + 31_000 * 50).compareTo(running.getTotalNotional()));
+        assertEquals(0, running.getTotalNotional().compareTo(sqlSummary.getTotalNotional()));
+        assertEquals(0, running.getTotalNotional().compareTo(rollup.getTotalNotional()));
+        assertEquals(90L, running.getTotalVolume());
+        assertEquals(90L, sqlSummary.getTotalVolume());
+        assertEquals(90L, rollup.getTotalVolume());
+        assertEquals(2L, running.getNumberOfOrders());
+        assertEquals(2L, sqlSummary.getNumberOfOrders());
+        assertEquals(2L, rollup.getNumberOfOrders());
+        assertEquals(30_000L, sqlSummary.getMinPrice());
+        assertEquals(sqlSummary.getMinPrice(), running.getMinPrice());
+        assertEquals(sqlSummary.getMinPrice(), rollup.getMinPrice());
+        assertEquals(sqlSummary.getMaxPrice(), running.getMaxPrice());
+        assertEquals(sqlSummary.getMaxPrice(), rollup.getMaxPrice());
+        mockMvc.perform(get("/orders/" + cancelled.getId()))
+                .andExpect(jsonPath("$.volume", is(100)))
+                .andExpect(jsonPath("$.fillStatus", is("CANCELLED")));
+    }
+
+    @Test
+    public void shouldKeepPriceRangeWhenOrdersOfSameDayAreAmendedConcurrently() throws Exception {
+        String ticker = "ERIC";
+        LocalDate date = LocalDate.now();
+        List<OrderResponseDTO> orders = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            orders.add(createOrder(new OrderRequestDTO(ticker, OrderSide.SELL, 100, new BigDecimal(100 + i), "SEK")));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(orders.size());
+        List<Future<?>> amendments = new ArrayList<>();
+        for (int i = 0; i < orders.size(); i++) {
+            UUID id = orders.get(i).getId();
+            BigDecimal price = new BigDecimal(120 + i);
+            amendments.add(executor.submit(() -> orderAmendmentService.amendOrder(id, null, price)));
+        }
+        for (Future<?> amendment : amendments) {
+            amendment.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        OrderSummary running = orderSummaryAggregator.getSummary(ticker, OrderSide.SELL, date).orElseThrow();
+        OrderSummary sqlSummary = orderRepository.findSummaryByTickerAndOrderSideAndDate(ticker, OrderSide.SELL, date).orElseThrow();
+        DailyOrderSummary rollup = dailyOrderSummaryRepository.findById(new DailyOrderSummaryId(ticker, OrderSide.SELL, date)).orElseThrow();
+        assertEquals(12_000L, sqlSummary.getMinPrice());
+        assertEquals(12_700L, sqlSummary.getMaxPrice());
+        assertEquals(sqlSummary.getMinPrice(), running.getMinPrice());
+        assertEquals(sqlSummary.getMaxPrice(), running.getMaxPrice());
+        assertEquals(sqlSummary.getMinPrice(), rollup.getMinPrice());
+        assertEquals(sqlSummary.getMaxPrice(), rollup.getMaxPrice());
+    }
+
+    @Test
+    public void shouldRejectAmendmentsThatCannotBeMade() throws Exception {
+        OrderResponseDTO sellOrder = createOrder(new OrderRequestDTO("GME", OrderSide.SELL, 100, BigDecimal.valueOf(300), "USD"));
+        createOrder(new OrderRequestDTO("GME", OrderSide.BUY, 40, BigDecimal.valueOf(300), "USD"));
+
+        amendOrder(sellOrder.getId(), new OrderAmendRequestDTO(150, null))
+                .andExpect(status().isConflict());
+        amendOrder(sellOrder.getId(), new OrderAmendRequestDTO(40, null))
+                .andExpect(status().isConflict());
+        amendOrder(sellOrder.getId(), new OrderAmendRequestDTO(null, null))
+                .andExpect(status().isBadRequest());
+        amendOrder(sellOrder.getId(), new OrderAmendRequestDTO(null, new BigDecimal("-1")))
+                .andExpect(status().isBadRequest());
+        amendOrder(UUID.randomUUID(), new OrderAmendRequestDTO(50, null))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/orders/" + sellOrder.getId()))
+                .andExpect(jsonPath("$.volume", is(100)));
+    }
+
+    private ResultActions amendOrder(UUID id, OrderAmendRequestDTO amendment) throws Exception {
+        return mockMvc.perform(patch("/orders/" + id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(amendment)));
+    }
+
+    private OrderResponseDTO createOrder(OrderRequestDTO orderDTO) throws Exception {
+        String responseBody = mockMvc.perform(post("/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(orderDTO)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(responseBody, OrderResponseDTO.class);
+    }
+
+    @Test
+    public void shouldRoundPricesToMinorUnitOfCurrency() throws Exception {
+        OrderResponseDTO order = createOrder(new OrderRequestDTO("SONY", OrderSide.BUY, 100, new BigDecimal("1500.5"), "JPY"));
+
+        assertEquals(new BigDecimal("1501"), order.getPrice());
+        assertEquals(1501L, orderRepository.findById(order.getId()).orElseThrow().getPrice());
+
+        mockMvc.perform(get("/orders/summary")
+                        .param("ticker", "SONY")
+                        .param("orderSide", OrderSide.BUY.toString())
+                        .param("date", LocalDate.now().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.averagePrice", is(1501)))
+                .andExpect(jsonPath("$.maxPrice", is(1501)));
+    }
+
+    @Test
+    public void shouldExportOrdersOfDayAsNdjson() throws Exception {
+        OrderResponseDTO first = createOrder(new OrderRequestDTO("GME", OrderSide.BUY, 100, BigDecimal.valueOf(300), "USD"));
+        OrderResponseDTO second = createOrder(new OrderRequestDTO("GME", OrderSide.BUY, 50, BigDecimal.valueOf(301), "USD"));
+        createOrder(new OrderRequestDTO("GME", OrderSide.SELL, 40, BigDecimal.valueOf(310), "USD"));
+        createOrder(new OrderRequestDTO("AMC", OrderSide.BUY, 10, BigDecimal.valueOf(5), "USD"));
+
+        MvcResult result = mockMvc.perform(get("/orders/export")
+                        .param("ticker", "GME")
+                        .param("orderSide", OrderSide.BUY.toString())
+                        .param("date", LocalDate.now().toString()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // Only the export has a long timeout, other async requests keep the default.
+        assertEquals(Duration.ofHours(1).toMillis(), result.getRequest().getAsyncContext().getTimeout());
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        List<OrderResponseDTO> exported = body.lines()
+                .map(line -> {
+                    try {
+                        return objectMapper.readValue(line, OrderResponseDTO.class);
+                    } catch (JsonProcessingException e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .toList();
+        assertEquals(List.of(first.getId(), second.getId()), exported.stream().map(OrderResponseDTO::getId).toList());
+        assertEquals(new BigDecimal("301.00"), exported.get(1).getPrice());
+    }
+
+    @Test
+    public void shouldGetAndExportOrdersAfterTheyAreArchived() throws Exception {
+        OrderResponseDTO sell = createOrder(new OrderRequestDTO("ARCH", OrderSide.SELL, 100, BigDecimal.valueOf(300), "USD"));
+        OrderResponseDTO buy = createOrder(new OrderRequestDTO("ARCH", OrderSide.BUY, 60, BigDecimal.valueOf(301), "USD"));
+        OrderResponseDTO open = createOrder(new OrderRequestDTO("ARCH", OrderSide.BUY, 10, BigDecimal.valueOf(200), "USD"));
+
+        assertEquals(1, orderCompactor.compact(LocalDate.now().plusDays(1)));
+
+        assertTrue(orderRepository.findById(buy.getId()).isEmpty());
+        assertTrue(orderRepository.findById(open.getId()).isPresent());
+        assertTrue(orderRepository.findById(sell.getId()).isPresent());
+        orderCache.clear();
+        mockMvc.perform(get("/orders/" + buy.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ticker", is("ARCH")))
+                .andExpect(jsonPath("$.price", is(301.0)))
+                .andExpect(jsonPath("$.filledVolume", is(60)))
+                .andExpect(jsonPath("$.fillStatus", is("FILLED")));
+
+        MvcResult result = mockMvc.perform(get("/orders/export")
+                        .param("ticker", "ARCH")
+                        .param("orderSide", OrderSide.BUY.toString())
+                        .param("date", LocalDate.now().toString()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<UUID> exported = body.lines()
+                .map(line -> {
+                    try {
+                        return objectMapper.readValue(line, OrderResponseDTO.class).getId();
+                    } catch (JsonProcessingException e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .toList();
+        assertEquals(List.of(buy.getId(), open.getId()), exported);
+    }
+
     @Test
     public void shouldGetOrderSummary() throws Exception {
         String ticker = "GME";
@@ -138,6 +590,388 @@ public class OrderServiceIntegrationTest {
                 .andExpect(jsonPath("$.date", is(date.toString())));
     }
 
+    @Test
+    public void shouldGetSameOrderSummaryFromRollupAndAfterBackfill() throws Exception {
+        String ticker = "GME";
+        OrderSide orderSide = OrderSide.SELL;
+        LocalDate date = LocalDate.now();
+
+        for (String price : new String[]{"300.10", "300.15", "299.99"}) {
+            OrderRequestDTO orderDTO = new OrderRequestDTO(ticker, orderSide, 100, new BigDecimal(price), "USD");
+            mockMvc.perform(post("/orders")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(orderDTO)))
+                    .andExpect(status().isCreated());
+        }
+
+        DailyOrderSummary rollup = dailyOrderSummaryRepository.findById(new DailyOrderSummaryId(ticker, orderSide, date)).orElseThrow();
+        assertEquals(3L, rollup.getNumberOfOrders());
+        assertEquals(90024L, rollup.getTotalPrice());
+
+        OrderSummary sqlSummary = orderRepository.findSummaryByTickerAndOrderSideAndDate(ticker, orderSide, date).orElseThrow();
+        assertEquals(3L, sqlSummary.getNumberOfOrders());
+
+        dailyOrderSummaryRepository.deleteAll();
+        orderSummaryAggregator.rebuild();
+
+        mockMvc.perform(get("/orders/summary")
+                        .param("ticker", ticker)
+                        .param("orderSide", orderSide.toString())
+                        .param("date", date.toString())
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.averagePrice", is(300.08)))
+                .andExpect(jsonPath("$.maxPrice", is(300.15)))
+                .andExpect(jsonPath("$.minPrice", is(299.99)))
+                .andExpect(jsonPath("$.numberOfOrders", is(3)));
+    }
+
+    @Test
+    public void shouldGetSameVwapFromRunningTotalsRollupAndSql() throws Exception {
+        String ticker = "VOLV";
+        LocalDate date = LocalDate.now();
+        createOrder(new OrderRequestDTO(ticker, OrderSide.BUY, 100, new BigDecimal("250.10"), "SEK"));
+        createOrder(new OrderRequestDTO(ticker, OrderSide.BUY, 250, new BigDecimal("250.55"), "SEK"));
+        createOrder(new OrderRequestDTO(ticker, OrderSide.BUY, 7, new BigDecimal("249.99"), "SEK"));
+
+        OrderSummary running = orderSummaryAggregator.getSummary(ticker, OrderSide.BUY, date).orElseThrow();
+        OrderSummary sqlSummary = orderRepository.findSummaryByTickerAndOrderSideAndDate(ticker, OrderSide.BUY, date).orElseThrow();
+        DailyOrderSummary rollup = dailyOrderSummaryRepository.findById(new DailyOrderSummaryId(ticker, OrderSide.BUY, date)).orElseThrow();
+
+        assertEquals(0, new BigDecimal(8_939_743).compareTo(running.getTotalNotional()));
+        assertEquals(0, running.getTotalNotional().compareTo(sqlSummary.getTotalNotional()));
+        assertEquals(0, running.getTotalNotional().compareTo(rollup.getTotalNotional()));
+        assertEquals(357L, sqlSummary.getTotalVolume());
+        assertEquals(357L, rollup.getTotalVolume());
+        assertEquals(25041L, running.getVwap());
+        assertEquals(running.getVwap(), sqlSummary.getVwap());
+
+        mockMvc.perform(get("/orders/summary")
+                        .param("ticker", ticker)
+                        .param("orderSide", OrderSide.BUY.toString())
+                        .param("date", date.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.vwap", is(250.41)))
+                .andExpect(jsonPath("$.totalVolume", is(357)));
+    }
+
+    @Test
+    public void shouldTimeServiceAndRepositoryCallsAndGaugeBooks() throws Exception {
+        createOrder(new OrderRequestDTO("HMB", OrderSide.SELL, 10, new BigDecimal("150.00"), "SEK"));
+        mockMvc.perform(get("/orders/summary")
+                        .param("ticker", "HMB")
+                        .param("orderSide", OrderSide.SELL.toString())
+                        .param("date", LocalDate.now().toString()))
+                .andExpect(status().isOk());
+
+        Timer summaries = meterRegistry.get("orderbook.service")
+                .tag("operation", "getSummary")
+                .tag("ticker", "HMB")
+                .timer();
+        assertEquals(1, summaries.count());
+        assertTrue(meterRegistry.get("spring.data.repository.invocations")
+                .tag("repository", "OrderRepository")
+                .timer().count() > 0);
+        assertTrue(meterRegistry.get("orderbook.summaries").gauge().value() > 0);
+        assertTrue(meterRegistry.get("orderbook.books").gauge().value() > 0);
+        meterRegistry.get("hikaricp.connections.active").gauge();
+    }
+
+    @Test
+    public void shouldGetOrderSummaryPerDayOfRange() throws Exception {
+        LocalDate today = LocalDate.now();
+        createOrder(new OrderRequestDTO("GME", OrderSide.BUY, 100, BigDecimal.valueOf(300), "USD"));
+        createOrder(new OrderRequestDTO("GME", OrderSide.BUY, 100, BigDecimal.valueOf(310), "USD"));
+
+        mockMvc.perform(get("/orders/summary/range")
+                        .param("ticker", "GME")
+                        .param("orderSide", OrderSide.BUY.toString())
+                        .param("from", today.minusDays(2).toString())
+                        .param("to", today.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(3)))
+                .andExpect(jsonPath("$[0].date", is(today.minusDays(2).toString())))
+                .andExpect(jsonPath("$[0].numberOfOrders", is(0)))
+                .andExpect(jsonPath("$[0].averagePrice", is(0)))
+                .andExpect(jsonPath("$[1].numberOfOrders", is(0)))
+                .andExpect(jsonPath("$[2].date", is(today.toString())))
+                .andExpect(jsonPath("$[2].numberOfOrders", is(2)))
+                .andExpect(jsonPath("$[2].averagePrice", is(305.0)));
+    }
+
+    @Test
+    public void shouldGetCandlesOfOrders() throws Exception {
+        createOrder(new OrderRequestDTO("ERIC", OrderSide.SELL, 100, new BigDecimal("60.10"), "SEK"));
+        createOrder(new OrderRequestDTO("ERIC", OrderSide.SELL, 50, new BigDecimal("60.50"), "SEK"));
+        LocalDateTime now = LocalDateTime.now();
+
+        mockMvc.perform(get("/orders/candles")
+                        .param("ticker", "ERIC")
+                        .param("interval", "1h")
+                        .param("from", now.minusHours(2).toString())
+                        .param("to", now.plusHours(2).toString())
+                        .param("orderSide", OrderSide.SELL.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(1)))
+                .andExpect(jsonPath("$[0].interval", is("1h")))
+                .andExpect(jsonPath("$[0].open", is(60.1)))
+                .andExpect(jsonPath("$[0].high", is(60.5)))
+                .andExpect(jsonPath("$[0].close", is(60.5)))
+                .andExpect(jsonPath("$[0].volume", is(150)));
+    }
+
+    @Test
+    public void shouldReturn400ForUnknownCandleInterval() throws Exception {
+        mockMvc.perform(get("/orders/candles")
+                        .param("ticker", "ERIC")
+                        .param("interval", "2m")
+                        .param("from", "2023-06-13T09:00:00")
+                        .param("to", "2023-06-13T10:00:00"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void shouldGetBestPriceLevelsOfOrderBook() throws Exception {
+        createOrder(new OrderRequestDTO("NOKIA", OrderSide.BUY, 100, new BigDecimal("3.50"), "EUR"));
+        createOrder(new OrderRequestDTO("NOKIA", OrderSide.BUY, 50, new BigDecimal("3.50"), "EUR"));
+        createOrder(new OrderRequestDTO("NOKIA", OrderSide.BUY, 10, new BigDecimal("3.40"), "EUR"));
+        createOrder(new OrderRequestDTO("NOKIA", OrderSide.SELL, 20, new BigDecimal("3.60"), "EUR"));
+
+        mockMvc.perform(get("/orders/book/NOKIA").param("depth", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ticker", is("NOKIA")))
+                .andExpect(jsonPath("$.bids.length()", is(1)))
+                .andExpect(jsonPath("$.bids[0].price", is(3.5)))
+                .andExpect(jsonPath("$.bids[0].volume", is(150)))
+                .andExpect(jsonPath("$.bids[0].numberOfOrders", is(2)))
+                .andExpect(jsonPath("$.asks[0].price", is(3.6)));
+    }
+
+    @Test
+    public void shouldReturn400ForBookDepthBelowOne() throws Exception {
+        mockMvc.perform(get("/orders/book/NOKIA").param("depth", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void shouldReturn400ForReversedSummaryRange() throws Exception {
+        mockMvc.perform(get("/orders/summary/range")
+                        .param("ticker", "GME")
+                        .param("orderSide", OrderSide.BUY.toString())
+                        .param("from", LocalDate.now().toString())
+                        .param("to", LocalDate.now().minusDays(1).toString()))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void shouldGetOrderSummariesOfManyTickersAtOnce() throws Exception {
+        createOrder(new OrderRequestDTO("GME", OrderSide.BUY, 100, BigDecimal.valueOf(300), "USD"));
+        createOrder(new OrderRequestDTO("AMC", OrderSide.SELL, 100, BigDecimal.valueOf(5), "USD"));
+        BulkSummaryRequestDTO request = new BulkSummaryRequestDTO(LocalDate.now(), List.of(
+                new SummaryKeyDTO("AMC", OrderSide.SELL),
+                new SummaryKeyDTO("GME", OrderSide.SELL),
+                new SummaryKeyDTO("GME", OrderSide.BUY)));
+
+        mockMvc.perform(post("/orders/summary/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(3)))
+                .andExpect(jsonPath("$[0].ticker", is("AMC")))
+                .andExpect(jsonPath("$[0].averagePrice", is(5.0)))
+                .andExpect(jsonPath("$[1].ticker", is("GME")))
+                .andExpect(jsonPath("$[1].numberOfOrders", is(0)))
+                .andExpect(jsonPath("$[2].orderSide", is("BUY")))
+                .andExpect(jsonPath("$[2].averagePrice", is(300.0)));
+    }
+
+    @Test
+    public void shouldReturn400ForBulkSummaryWithoutOrderSide() throws Exception {
+        BulkSummaryRequestDTO request = new BulkSummaryRequestDTO(LocalDate.now(), List.of(new SummaryKeyDTO("GME", null)));
+
+        mockMvc.perform(post("/orders/summary/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void shouldStreamSummaryWhenOrderIsCreated() throws Exception {
+        MvcResult result = mockMvc.perform(get("/orders/summary/stream").param("ticker", "GME"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertEquals(-1, result.getRequest().getAsyncContext().getTimeout());
+
+        createOrder(new OrderRequestDTO("GME", OrderSide.BUY, 100, BigDecimal.valueOf(300), "USD"));
+
+        String events = "";
+        for (int i = 0; i < 500 && !events.contains("\"numberOfOrders\":1"); i++) {
+            Thread.sleep(10);
+            events = result.getResponse().getContentAsString();
+        }
+        assertTrue(events.contains("event:summary"), events);
+        assertTrue(events.contains("\"ticker\":\"GME\",\"orderSide\":\"BUY\",\"averagePrice\":300.00"), events);
+        assertEquals(MediaType.TEXT_EVENT_STREAM_VALUE, result.getResponse().getContentType());
+    }
+
+    @Test
+    public void shouldCreateOrdersInBatchAndReportEachOrder() throws Exception {
+        List<OrderRequestDTO> orders = List.of(
+                new OrderRequestDTO("GME", OrderSide.BUY, 100, BigDecimal.valueOf(300), "USD"),
+                new OrderRequestDTO("GME", OrderSide.BUY, 100, null, "USD"),
+                new OrderRequestDTO("GME", OrderSide.BUY, 50, BigDecimal.valueOf(310), "USD"));
+
+        mockMvc.perform(post("/orders/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(orders)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(3)))
+                .andExpect(jsonPath("$[0].index", is(0)))
+                .andExpect(jsonPath("$[0].status", is("CREATED")))
+                .andExpect(jsonPath("$[0].order.price", is(300.0)))
+                .andExpect(jsonPath("$[1].status", is("REJECTED")))
+                .andExpect(jsonPath("$[1].error", is("price may not be null")))
+                .andExpect(jsonPath("$[2].status", is("CREATED")));
+
+        mockMvc.perform(get("/orders/summary")
+                        .param("ticker", "GME")
+                        .param("orderSide", OrderSide.BUY.toString())
+                        .param("date", LocalDate.now().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.averagePrice", is(305.0)))
+                .andExpect(jsonPath("$.numberOfOrders", is(2)));
+        assertEquals(2L, orderRepository.count());
+        DailyOrderSummary rollup = dailyOrderSummaryRepository.findById(new DailyOrderSummaryId("GME", OrderSide.BUY, LocalDate.now())).orElseThrow();
+        assertEquals(2L, rollup.getNumberOfOrders());
+        assertEquals(150L, rollup.getTotalVolume());
+        assertEquals(30_000L, rollup.getMinPrice());
+        assertEquals(31_000L, rollup.getMaxPrice());
+    }
+
+    @Test
+    public void shouldCreateOrdersInBatchFromNdjson() throws Exception {
+        String ndjson = objectMapper.writeValueAsString(new OrderRequestDTO("GME", OrderSide.SELL, 100, BigDecimal.valueOf(300), "USD")) + "\n"
+                + "{not json\n"
+                + objectMapper.writeValueAsString(new OrderRequestDTO("GME", OrderSide.SELL, 100, BigDecimal.valueOf(301), "USD")) + "\n";
+
+        mockMvc.perform(post("/orders/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(3)))
+                .andExpect(jsonPath("$[0].status", is("CREATED")))
+                .andExpect(jsonPath("$[1].index", is(1)))
+                .andExpect(jsonPath("$[1].status", is("REJECTED")))
+                .andExpect(jsonPath("$[2].status", is("CREATED")));
+
+        assertEquals(2L, orderRepository.count());
+    }
+
+    @Test
+    public void shouldScanOrdersByTimeAndPageThemInOrderOfTheirIds() throws Exception {
+        Instant from = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(createOrder(new OrderRequestDTO("IDS", OrderSide.BUY, 100, BigDecimal.valueOf(300 + i), "USD")).getId());
+        }
+        Instant to = Instant.now().plusMillis(1);
+
+        assertEquals(ids.stream().sorted().toList(), ids);
+        List<UUID> scanned = transactionTemplate.execute(status -> {
+            try (Stream<Order> orders = orderRepository.streamCreatedBetween(from, to)) {
+                return orders.map(Order::getId).toList();
+            }
+        });
+        assertEquals(ids, scanned);
+        List<UUID> paged = new ArrayList<>();
+        UUID after = new UUID(0, 0);
+        List<Order> page;
+        while (!(page = orderRepository.findPageAfter(after, PageRequest.ofSize(2))).isEmpty()) {
+            page.forEach(order -> paged.add(order.getId()));
+            after = page.get(page.size() - 1).getId();
+        }
+        assertEquals(ids, paged);
+    }
+
+    @Test
+    public void shouldSearchOrdersAPageAtATime() throws Exception {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(createOrder(new OrderRequestDTO("SRCH", OrderSide.BUY, 100, BigDecimal.valueOf(100 + i), "SEK")).getId());
+        }
+        ids.add(createOrder(new OrderRequestDTO("SRCH", OrderSide.SELL, 10, BigDecimal.valueOf(200), "SEK")).getId());
+        createOrder(new OrderRequestDTO("OTHER", OrderSide.BUY, 100, BigDecimal.valueOf(100), "SEK"));
+
+        List<UUID> found = new ArrayList<>();
+        String after = null;
+        int pages = 0;
+        do {
+            MvcResult result = mockMvc.perform(get("/orders")
+                            .param("ticker", "SRCH")
+                            .param("limit", "4")
+                            .param("after", after))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            OrderPageDTO page = objectMapper.readValue(result.getResponse().getContentAsString(), OrderPageDTO.class);
+            page.getOrders().forEach(order -> found.add(order.getId()));
+            after = page.getNext();
+            pages++;
+        } while (after != null);
+
+        assertEquals(ids, found);
+        assertEquals(2, pages);
+        mockMvc.perform(get("/orders")
+                        .param("ticker", "SRCH")
+                        .param("orderSide", "BUY")
+                        .param("currency", "SEK")
+                        .param("minPrice", "100.50")
+                        .param("maxPrice", "103")
+                        .param("from", LocalDateTime.now().minusHours(1).toString())
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orders.length()", is(2)))
+                .andExpect(jsonPath("$.orders[0].id", is(ids.get(1).toString())))
+                .andExpect(jsonPath("$.orders[0].price", is(101.0)))
+                .andExpect(jsonPath("$.orders[0].fillStatus", is("OPEN")))
+                .andExpect(jsonPath("$.orders[1].id", is(ids.get(2).toString())))
+                .andExpect(jsonPath("$.next").exists());
+        mockMvc.perform(get("/orders")
+                        .param("ticker", "SRCH")
+                        .param("to", LocalDateTime.now().minusHours(1).toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orders.length()", is(0)))
+                .andExpect(jsonPath("$.next").doesNotExist());
+    }
+
+    @Test
+    public void shouldReturnEmptyPageWithoutAddingSymbolsWhenSearchingUnknownTickerOrCurrency() throws Exception {
+        createOrder(new OrderRequestDTO("KNWN", OrderSide.BUY, 100, BigDecimal.valueOf(100), "SEK"));
+        long symbols = symbolRepository.count();
+
+        mockMvc.perform(get("/orders").param("ticker", "UNKN"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orders.length()", is(0)))
+                .andExpect(jsonPath("$.next").doesNotExist());
+        mockMvc.perform(get("/orders").param("ticker", "KNWN").param("currency", "XYZ"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orders.length()", is(0)));
+
+        assertEquals(symbols, symbolRepository.count());
+    }
+
+    @Test
+    public void shouldReturn400ForInvalidOrderSearch() throws Exception {
+        mockMvc.perform(get("/orders").param("ticker", "SRCH").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/orders").param("ticker", "SRCH").param("after", "not a cursor"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/orders").param("ticker", "SRCH").param("minPrice", "10"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/orders").param("ticker", "SRCH")
+                        .param("from", "2023-06-13T10:00:00").param("to", "2023-06-13T09:00:00"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void shouldReturnEmptySummaryWhenSummaryForNonExistingTickerIsRequested() throws Exception {
         String nonExistingTicker = "NONEXIST";
@@ -0,0 +1,173 @@
+package com.github.annsofip.orderbookservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.annsofip.orderbookservice.api.OrderRequestDTO;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.pipeline.OrderPipeline;
+import com.github.annsofip.orderbookservice.api.OrderResponseDTO;
+import com.github.annsofip.orderbookservice.pipeline.OrderPipelineFullException;
+import com.github.annsofip.orderbookservice.pipeline.OrderPipelineStoppedException;
+import com.github.annsofip.orderbookservice.matching.OrderMatcher;
+import com.github.annsofip.orderbookservice.repositories.DailyOrderSummaryRepository;
+import com.github.annsofip.orderbookservice.repositories.OrderEventRepository;
+import com.github.annsofip.orderbookservice.repositories.OrderRepository;
+import com.github.annsofip.orderbookservice.repositories.TradeRepository;
+import com.github.annsofip.orderbookservice.service.OrderSummaryAggregator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "order-book.pipeline.enabled=true",
+        "order-book.pipeline.shards=2",
+        "spring.datasource.url=jdbc:h2:mem:pipeline;MODE=PostgreSQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class PipelineIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderEventRepository orderEventRepository;
+
+    @Autowired
+    private DailyOrderSummaryRepository dailyOrderSummaryRepository;
+
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    @Autowired
+    private OrderSummaryAggregator orderSummaryAggregator;
+
+    @Autowired
+    private OrderMatcher orderMatcher;
+
+    @SpyBean
+    private OrderPipeline orderPipeline;
+
+    @BeforeEach
+    public void setUp() {
+        orderRepository.deleteAll();
+        orderEventRepository.deleteAll();
+        dailyOrderSummaryRepository.deleteAll();
+        tradeRepository.deleteAll();
+        orderSummaryAggregator.rebuild();
+        orderMatcher.rebuild();
+    }
+
+    @Test
+    public void shouldCreateOrdersThroughPipeline() throws Exception {
+        for (String ticker : new String[]{"AMC", "GME", "AMC"}) {
+            mockMvc.perform(post("/orders")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(new OrderRequestDTO(ticker, OrderSide.SELL, 100, BigDecimal.valueOf(4.5), "USD"))))
+                    .andExpect(status().isCreated())
+                    .andExpect(jsonPath("$.fillStatus", is("OPEN")));
+        }
+
+        mockMvc.perform(post("/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new OrderRequestDTO("AMC", OrderSide.BUY, 150, BigDecimal.valueOf(5), "USD"))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.filledVolume", is(150)));
+
+        assertEquals(4, orderRepository.count());
+        mockMvc.perform(get("/orders/summary")
+                        .param("ticker", "AMC")
+                        .param("orderSide", OrderSide.SELL.toString())
+                        .param("date", LocalDate.now().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.numberOfOrders", is(2)));
+    }
+
+    @Test
+    public void shouldReturn503WithRetryAfterWhenPipelineIsFull() throws Exception {
+        doThrow(new OrderPipelineFullException("Order pipeline shard 0 is full", Duration.ofSeconds(2)))
+                .when(orderPipeline).submit(any());
+
+        mockMvc.perform(post("/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new OrderRequestDTO("AMC", OrderSide.BUY, 100, BigDecimal.valueOf(4.5), "USD"))))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "2"));
+    }
+
+    @Test
+    public void shouldRoundRetryAfterUpToWholeSeconds() throws Exception {
+        doThrow(new OrderPipelineFullException("Order pipeline shard 0 is full", Duration.ofMillis(200)))
+                .when(orderPipeline).submit(any());
+
+        mockMvc.perform(post("/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new OrderRequestDTO("AMC", OrderSide.BUY, 100, BigDecimal.valueOf(4.5), "USD"))))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+    }
+
+    @Test
+    public void shouldReturn503WithoutRetryAfterWhenPipelineIsStopped() throws Exception {
+        doThrow(new OrderPipelineStoppedException("Order pipeline is stopped"))
+                .when(orderPipeline).submit(any());
+
+        mockMvc.perform(post("/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new OrderRequestDTO("AMC", OrderSide.BUY, 100, BigDecimal.valueOf(4.5), "USD"))))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().doesNotExist("Retry-After"));
+    }
+
+    @Test
+    public void shouldCreateBatchesAndCancelOrdersOnTheShardOfTheirTicker() throws Exception {
+        List<OrderRequestDTO> orders = List.of(
+                new OrderRequestDTO("SHARD", OrderSide.SELL, 100, BigDecimal.valueOf(4.5), "USD"),
+                new OrderRequestDTO("SHARD", OrderSide.SELL, 100, BigDecimal.valueOf(4.6), "USD"));
+
+        String response = mockMvc.perform(post("/orders/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(orders)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status", is("CREATED")))
+                .andExpect(jsonPath("$[1].status", is("CREATED")))
+                .andReturn().getResponse().getContentAsString();
+        verify(orderPipeline, times(2)).submit(any());
+
+        OrderResponseDTO created = objectMapper.treeToValue(objectMapper.readTree(response).get(0).get("order"), OrderResponseDTO.class);
+        mockMvc.perform(delete("/orders/" + created.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fillStatus", is("CANCELLED")));
+        verify(orderPipeline, times(1)).execute(eq("SHARD"), any());
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.annsofip.orderbookservice.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.annsofip.orderbookservice.model.FillStatus;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading and writing the order request and response as JSON, with an object mapper configured the way Spring Boot
+ * configures the one of the controllers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderJsonBenchmark {
+    private ObjectReader requestReader;
+    private ObjectWriter requestWriter;
+    private ObjectReader responseReader;
+    private ObjectWriter responseWriter;
+    private OrderRequestDTO request;
+    private OrderResponseDTO response;
+    private byte[] requestJson;
+    private byte[] responseJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        requestReader = objectMapper.readerFor(OrderRequestDTO.class);
+        requestWriter = objectMapper.writerFor(OrderRequestDTO.class);
+        responseReader = objectMapper.readerFor(OrderResponseDTO.class);
+        responseWriter = objectMapper.writerFor(OrderResponseDTO.class);
+        request = new OrderRequestDTO("SAVE", OrderSide.BUY, 100, new BigDecimal("12.99"), "SEK");
+        response = new OrderResponseDTO(UUID.randomUUID(), null, "SAVE", OrderSide.BUY, 100, new BigDecimal("12.99"),
+                "SEK", LocalDate.of(2023, 6, 13), 40, FillStatus.PARTIALLY_FILLED);
+        requestJson = requestWriter.writeValueAsBytes(request);
+        responseJson = responseWriter.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] writeRequest() throws IOException {
+        return requestWriter.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    public OrderRequestDTO readRequest() throws IOException {
+        return requestReader.readValue(requestJson);
+    }
+
+    @Benchmark
+    public byte[] writeResponse() throws IOException {
+        return responseWriter.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public OrderResponseDTO readResponse() throws IOException {
+        return responseReader.readValue(responseJson);
+    }
+
+    @Benchmark
+    public OrderRequestDTO roundTripRequest() throws IOException {
+        return requestReader.readValue(requestWriter.writeValueAsBytes(request));
+    }
+
+    @Benchmark
+    public OrderResponseDTO roundTripResponse() throws IOException {
+        return responseReader.readValue(responseWriter.writeValueAsBytes(response));
+    }
+}
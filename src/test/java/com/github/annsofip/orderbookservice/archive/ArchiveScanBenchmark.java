@@ -0,0 +1,92 @@
+package com.github.annsofip.orderbookservice.archive;
+
+import com.github.annsofip.orderbookservice.model.DailySummary;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.model.OrderWithFills;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading one ticker and order side of an archived day: {@code summary} reads the price and volume columns, 8 bytes
+ * per order, and {@code orders} decodes every column back into orders as an export does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArchiveScanBenchmark {
+    private static final LocalDate DATE = LocalDate.of(2023, 6, 13);
+
+    @Param("1000000")
+    public int orders;
+
+    private Path file;
+    private ArchiveSegment segment;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+        ArchiveSegmentWriter writer = new ArchiveSegmentWriter(DATE);
+        LocalDateTime date = DATE.atStartOfDay();
+        for (int i = 0; i < orders; i++) {
+            date = date.plusNanos(random.nextLong(1, 50_000) * 1000);
+            int volume = random.nextInt(1, 1000);
+            writer.add(Order.builder()
+                    .id(UUID.randomUUID())
+                    .ticker("SAVE")
+                    .orderSide(OrderSide.BUY)
+                    .volume(volume)
+                    .price(random.nextLong(10_000, 20_000))
+                    .currency("SEK")
+                    .date(date)
+                    .build(), volume);
+        }
+        file = Files.createTempFile("archive-benchmark", OrderArchive.FILE_SUFFIX);
+        Files.delete(file);
+        writer.write(file);
+        segment = ArchiveSegment.open(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public DailySummary summary() {
+        return segment.summary("SAVE", OrderSide.BUY).orElseThrow();
+    }
+
+    @Benchmark
+    public void orders(Blackhole blackhole) {
+        Iterator<OrderWithFills> iterator = segment.orders("SAVE", OrderSide.BUY);
+        while (iterator.hasNext()) {
+            blackhole.consume(iterator.next());
+        }
+    }
+}
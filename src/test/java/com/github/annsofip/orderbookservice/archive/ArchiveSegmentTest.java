@@ -0,0 +1,168 @@
+package com.github.annsofip.orderbookservice.archive;
+
+import com.github.annsofip.orderbookservice.model.DailySummary;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.model.OrderWithFills;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ArchiveSegmentTest {
+
+    private static final LocalDate DATE = LocalDate.of(2023, 6, 13);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void orders_shouldReadBackEveryOrderOfTheGroupInOrder() throws IOException {
+        List<Order> buys = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            buys.add(createOrder("SAVE", OrderSide.BUY, DATE.atTime(9, 0).plusNanos(i * 1_234_000L), 1000 + i, 10 + i));
+        }
+        // The sells start before the last buy, so the dates go back between the groups.
+        Order sell = createOrder("SAVE", OrderSide.SELL, DATE.atTime(8, 0), 999, 5);
+        ArchiveSegment segment = write(buys, List.of(sell));
+
+        assertEquals(DATE, segment.date());
+        assertEquals(301, segment.size());
+        List<OrderWithFills> read = toList(segment.orders("SAVE", OrderSide.BUY));
+        assertEquals(300, read.size());
+        for (int i = 0; i < 300; i++) {
+            assertOrder(buys.get(i), read.get(i));
+            assertEquals(buys.get(i).getVolume(), read.get(i).getFilledVolume());
+        }
+        List<OrderWithFills> sells = toList(segment.orders("SAVE", OrderSide.SELL));
+        assertEquals(1, sells.size());
+        assertOrder(sell, sells.get(0));
+        assertFalse(segment.orders("GME", OrderSide.BUY).hasNext());
+    }
+
+    @Test
+    void find_shouldFindEveryOrderById() throws IOException {
+        List<Order> buys = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            buys.add(createOrder("SAVE", OrderSide.BUY, DATE.atTime(10, 0).plusSeconds(i), 1299, 100));
+        }
+        List<Order> sells = List.of(createOrder("GME", OrderSide.SELL, DATE.atTime(23, 59, 59, 999_999_000), 2000, 3));
+        ArchiveSegment segment = write(buys, sells);
+
+        for (Order order : buys) {
+            assertOrder(order, segment.find(order.getId()).orElseThrow());
+        }
+        assertOrder(sells.get(0), segment.find(sells.get(0).getId()).orElseThrow());
+        assertTrue(segment.find(UUID.randomUUID()).isEmpty());
+    }
+
+    @Test
+    void write_shouldStorePricesAsLongsWhenTheyDoNotFitInAnInt() throws IOException {
+        Order low = createOrder("SAVE", OrderSide.BUY, DATE.atTime(10, 0), -5, 1);
+        Order high = createOrder("SAVE", OrderSide.BUY, DATE.atTime(10, 1), 10_000_000_000L, 1);
+        ArchiveSegment segment = write(List.of(low, high), List.of());
+
+        List<OrderWithFills> read = toList(segment.orders("SAVE", OrderSide.BUY));
+        assertOrder(low, read.get(0));
+        assertOrder(high, read.get(1));
+    }
+
+    @Test
+    void summary_shouldAggregateTheGroup() throws IOException {
+        List<Order> buys = List.of(
+                createOrder("SAVE", OrderSide.BUY, DATE.atTime(10, 0), 1299, 100),
+                createOrder("SAVE", OrderSide.BUY, DATE.atTime(11, 0), 1300, 50),
+                createOrder("SAVE", OrderSide.BUY, DATE.atTime(12, 0), Long.MAX_VALUE / 4, Integer.MAX_VALUE));
+        ArchiveSegment segment = write(buys, List.of(createOrder("SAVE", OrderSide.SELL, DATE.atTime(9, 0), 1, 1)));
+
+        DailySummary summary = segment.summary("SAVE", OrderSide.BUY).orElseThrow();
+        assertEquals(3L, summary.getNumberOfOrders());
+        assertEquals(1299 + 1300 + Long.MAX_VALUE / 4, summary.getTotalPrice());
+        assertEquals(1299L, summary.getMinPrice());
+        assertEquals(Long.MAX_VALUE / 4, summary.getMaxPrice());
+        assertEquals(150L + Integer.MAX_VALUE, summary.getTotalVolume());
+        assertEquals(BigDecimal.valueOf(1299 * 100 + 1300 * 50)
+                        .add(BigDecimal.valueOf(Long.MAX_VALUE / 4).multiply(BigDecimal.valueOf(Integer.MAX_VALUE))),
+                summary.getTotalNotional());
+        assertEquals("SEK", summary.getCurrency());
+        assertEquals(DATE, summary.getDate());
+        assertTrue(segment.summary("SAVE", OrderSide.SELL).isPresent());
+        assertTrue(segment.summary("GME", OrderSide.BUY).isEmpty());
+        assertEquals(2, segment.summaries().size());
+    }
+
+    @Test
+    void add_shouldRefuseOrdersOfAnotherDayOrOutOfGroup() {
+        ArchiveSegmentWriter writer = new ArchiveSegmentWriter(DATE);
+        writer.add(createOrder("SAVE", OrderSide.BUY, DATE.atTime(10, 0), 1, 1), 1);
+        writer.add(createOrder("SAVE", OrderSide.SELL, DATE.atTime(10, 0), 1, 1), 1);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> writer.add(createOrder("SAVE", OrderSide.BUY, DATE.atTime(11, 0), 1, 1), 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> writer.add(createOrder("SAVE", OrderSide.SELL, DATE.plusDays(1).atTime(1, 0), 1, 1), 1));
+    }
+
+    @Test
+    void open_shouldRefuseFilesThatAreNotSegments() throws IOException {
+        Path file = directory.resolve("orders-2023-06-13-0.archive");
+        Files.write(file, new byte[ArchiveSegment.HEADER_SIZE]);
+
+        assertThrows(IOException.class, () -> ArchiveSegment.open(file));
+    }
+
+    private ArchiveSegment write(List<Order> buys, List<Order> sells) throws IOException {
+        ArchiveSegmentWriter writer = new ArchiveSegmentWriter(DATE);
+        for (Order order : buys) {
+            writer.add(order, order.getVolume());
+        }
+        for (Order order : sells) {
+            writer.add(order, order.getVolume());
+        }
+        Path file = directory.resolve("orders-" + DATE + "-0.archive");
+        writer.write(file);
+        return ArchiveSegment.open(file);
+    }
+
+    private static void assertOrder(Order expected, OrderWithFills actual) {
+        assertEquals(expected.getId(), actual.getOrder().getId());
+        assertEquals(expected.getTicker(), actual.getOrder().getTicker());
+        assertEquals(expected.getOrderSide(), actual.getOrder().getOrderSide());
+        assertEquals(expected.getDate(), actual.getOrder().getDate());
+        assertEquals(expected.getPrice(), actual.getOrder().getPrice());
+        assertEquals(expected.getVolume(), actual.getOrder().getVolume());
+        assertEquals(expected.getCurrency(), actual.getOrder().getCurrency());
+    }
+
+    private static List<OrderWithFills> toList(Iterator<OrderWithFills> orders) {
+        List<OrderWithFills> list = new ArrayList<>();
+        orders.forEachRemaining(list::add);
+        return list;
+    }
+
+    static Order createOrder(String ticker, OrderSide orderSide, LocalDateTime date, long price, int volume) {
+        return Order.builder()
+                .id(UUID.randomUUID())
+                .ticker(ticker)
+                .orderSide(orderSide)
+                .date(date)
+                .price(price)
+                .volume(volume)
+                .currency("SEK")
+                .build();
+    }
+}
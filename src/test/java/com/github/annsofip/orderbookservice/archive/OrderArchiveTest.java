@@ -0,0 +1,144 @@
+package com.github.annsofip.orderbookservice.archive;
+
+import com.github.annsofip.orderbookservice.config.OrderBookProperties;
+import com.github.annsofip.orderbookservice.model.DailySummary;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.model.OrderWithFills;
+import com.github.annsofip.orderbookservice.repositories.OrderRepository;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static com.github.annsofip.orderbookservice.archive.ArchiveSegmentTest.createOrder;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class OrderArchiveTest {
+
+    private static final LocalDate DATE = LocalDate.of(2023, 6, 13);
+
+    @TempDir
+    Path directory;
+
+    private final List<UUID> deleted = new ArrayList<>();
+    private OrderRepository orderRepository;
+    private OrderArchive orderArchive;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        orderRepository = mock(OrderRepository.class);
+        doAnswer(invocation -> deleted.addAll(invocation.<Collection<UUID>>getArgument(0)))
+                .when(orderRepository).deleteAllByIdInBatch(any());
+        orderArchive = createArchive();
+    }
+
+    @Test
+    void add_shouldDeleteTheOrdersInBatchesAndFindThem() throws IOException {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            orders.add(createOrder("SAVE", OrderSide.BUY, DATE.atTime(10, i), 1299, 100));
+        }
+
+        orderArchive.add(writer(orders));
+
+        assertEquals(orders.stream().map(Order::getId).toList(), deleted);
+        for (Order order : orders) {
+            assertEquals(order.getId(), orderArchive.find(order.getId()).orElseThrow().getOrder().getId());
+        }
+        assertTrue(orderArchive.find(UUID.randomUUID()).isEmpty());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of("orders-2023-06-13-0.archive"),
+                    files.map(file -> file.getFileName().toString()).toList());
+        }
+    }
+
+    @Test
+    void open_shouldFinishDeletesOfPendingSegmentsAndRemoveTemporaryFiles() throws IOException {
+        Order order = createOrder("SAVE", OrderSide.BUY, DATE.atTime(10, 0), 1299, 100);
+        writer(List.of(order)).write(directory.resolve("orders-2023-06-13-0.archive"));
+        Files.createFile(directory.resolve("orders-2023-06-13-0.archive.pending"));
+        Files.createFile(directory.resolve("orders-2023-06-13-1.archive.pending"));
+        Files.createFile(directory.resolve("orders-2023-06-13-1.archive.tmp"));
+
+        orderArchive = createArchive();
+
+        assertEquals(List.of(order.getId()), deleted);
+        assertTrue(orderArchive.find(order.getId()).isPresent());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of("orders-2023-06-13-0.archive"),
+                    files.map(file -> file.getFileName().toString()).toList());
+        }
+    }
+
+    @Test
+    void withArchived_shouldMergeByDateAndSkipOrdersThatAreInBoth() throws IOException {
+        Order first = createOrder("SAVE", OrderSide.BUY, DATE.atTime(9, 0), 1299, 100);
+        Order second = createOrder("SAVE", OrderSide.BUY, DATE.atTime(10, 0), 1299, 100);
+        Order third = createOrder("SAVE", OrderSide.BUY, DATE.atTime(11, 0), 1299, 100);
+        Order fourth = createOrder("SAVE", OrderSide.BUY, DATE.atTime(12, 0), 1299, 100);
+        orderArchive.add(writer(List.of(first, third)));
+        orderArchive.add(writer(List.of(fourth)));
+        Iterator<OrderWithFills> table = Stream.of(second, third)
+                .map(order -> new OrderWithFills(order, 100L))
+                .iterator();
+
+        List<UUID> merged = new ArrayList<>();
+        orderArchive.withArchived(table, "SAVE", OrderSide.BUY, DATE)
+                .forEachRemaining(order -> merged.add(order.getOrder().getId()));
+
+        assertEquals(List.of(first.getId(), second.getId(), third.getId(), fourth.getId()), merged);
+        assertFalse(orderArchive.withArchived(List.<OrderWithFills>of().iterator(), "SAVE", OrderSide.BUY,
+                DATE.plusDays(1)).hasNext());
+    }
+
+    @Test
+    void dailySummaries_shouldCombineTheSegmentsOfADay() throws IOException {
+        orderArchive.add(writer(List.of(createOrder("SAVE", OrderSide.BUY, DATE.atTime(9, 0), 1000, 10))));
+        orderArchive.add(writer(List.of(createOrder("SAVE", OrderSide.BUY, DATE.atTime(10, 0), 2000, 20))));
+
+        List<DailySummary> summaries = orderArchive.dailySummaries();
+
+        assertEquals(1, summaries.size());
+        assertEquals(2L, summaries.get(0).getNumberOfOrders());
+        assertEquals(3000L, summaries.get(0).getTotalPrice());
+        assertEquals(1000L, summaries.get(0).getMinPrice());
+        assertEquals(2000L, summaries.get(0).getMaxPrice());
+        assertEquals(30L, summaries.get(0).getTotalVolume());
+    }
+
+    private OrderArchive createArchive() throws IOException {
+        OrderBookProperties properties = new OrderBookProperties();
+        properties.getArchive().setDirectory(directory);
+        properties.getArchive().setDeleteBatchSize(2);
+        OrderArchive archive = new OrderArchive(properties, orderRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        archive.open();
+        return archive;
+    }
+
+    private static ArchiveSegmentWriter writer(List<Order> orders) {
+        ArchiveSegmentWriter writer = new ArchiveSegmentWriter(DATE);
+        for (Order order : orders) {
+            writer.add(order, order.getVolume());
+        }
+        return writer;
+    }
+}
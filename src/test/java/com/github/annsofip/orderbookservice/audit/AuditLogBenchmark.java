@@ -0,0 +1,89 @@
+package com.github.annsofip.orderbookservice.audit;
+
+import com.github.annsofip.orderbookservice.api.OrderResponseDTO;
+import com.github.annsofip.orderbookservice.config.OrderBookProperties;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.helpers.MessageFormatter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What auditing a request costs the request thread, against {@code formatLogLines}, which only formats the two lines
+ * the controller used to log per request, without writing them anywhere.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuditLogBenchmark {
+    private static final LocalDate DATE = LocalDate.of(2023, 6, 13);
+
+    private final OrderResponseDTO order = OrderResponseDTO.builder()
+            .id(UUID.randomUUID())
+            .ticker("SAVE")
+            .orderSide(OrderSide.BUY)
+            .volume(100)
+            .price(new BigDecimal("12.99"))
+            .currency("SEK")
+            .date(DATE)
+            .filledVolume(0)
+            .build();
+    private Path directory;
+    private AuditLog auditLog;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("audit-benchmark");
+        OrderBookProperties properties = new OrderBookProperties();
+        properties.getAudit().setDirectory(directory);
+        auditLog = new AuditLog(properties);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        auditLog.stop();
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public void recordWrite() {
+        auditLog.recordOrder(AuditOperation.CREATE_ORDER, AuditOutcome.SUCCESS, order.getId(), order);
+    }
+
+    @Benchmark
+    public void recordSampledRead() {
+        auditLog.recordQuery(AuditOperation.GET_SUMMARY, AuditOutcome.SUCCESS, "SAVE", OrderSide.BUY, DATE, 10);
+    }
+
+    @Benchmark
+    public String formatLogLines() {
+        return MessageFormatter.format("operation=createOrder, action=start, order={}", order).getMessage()
+                + MessageFormatter.arrayFormat("operation=createOrder, action=success, id={}, ticker={}, orderSide={}, volume={}, price={}, currency={}, date={}",
+                new Object[]{order.getId(), order.getTicker(), order.getOrderSide(), order.getVolume(), order.getPrice(), order.getCurrency(), order.getDate()}).getMessage();
+    }
+}
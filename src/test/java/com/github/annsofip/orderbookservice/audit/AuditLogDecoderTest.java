@@ -0,0 +1,95 @@
+package com.github.annsofip.orderbookservice.audit;
+
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AuditLogDecoderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void decode_shouldSkipRecordThatIsStillBeingWritten() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        AuditRecordCodec.encodeFileHeader(buffer);
+        AuditRecordCodec.encode(event(AuditOperation.GET_ORDER, 1), buffer);
+        AuditRecordCodec.encode(event(AuditOperation.GET_ORDER, 2), buffer);
+        Path file = directory.resolve("audit-1.bin");
+        Files.write(file, Arrays.copyOf(buffer.array(), buffer.position() - 3));
+
+        List<AuditRecord> records = new ArrayList<>();
+
+        assertEquals(1, AuditLogDecoder.decode(file, records::add));
+        assertEquals(1L, records.get(0).count());
+    }
+
+    @Test
+    void decode_shouldRefuseFilesThatAreNotAuditLogs() throws IOException {
+        Path file = directory.resolve("audit-1.bin");
+        Files.writeString(file, "operation=getOrder, action=start");
+
+        assertThrows(IOException.class, () -> AuditLogDecoder.decode(file, record -> {
+        }));
+    }
+
+    @Test
+    void decode_shouldLeaveOutPriceThatDoesNotFitInLong() throws IOException {
+        AuditEvent event = event(AuditOperation.CREATE_ORDER, 0);
+        event.price(new BigDecimal("123456789012345678901234567890.5"));
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        AuditRecordCodec.encode(event, buffer);
+        buffer.flip();
+
+        AuditRecord record = AuditRecordCodec.decode(buffer);
+
+        assertNull(record.price());
+        assertEquals("SAVE", record.ticker());
+    }
+
+    @Test
+    void files_shouldReturnAuditLogsOldestFirst() throws IOException {
+        for (String name : List.of("audit-20.bin", "audit-3.bin", "audit-100.bin", "notes.txt", "audit-x.bin")) {
+            Files.createFile(directory.resolve(name));
+        }
+
+        assertEquals(List.of("audit-3.bin", "audit-20.bin", "audit-100.bin"),
+                AuditLogDecoder.files(directory).stream().map(file -> file.getFileName().toString()).toList());
+    }
+
+    @Test
+    void format_shouldWriteFieldsLikeTheApplicationLog() {
+        AuditRecord record = new AuditRecord(Instant.parse("2023-06-13T09:00:00Z"), AuditOperation.GET_ORDER,
+                AuditOutcome.NOT_FOUND, UUID.fromString("4e7a6fd2-6f7a-4c1e-9f0e-1b8d3c2f0a11"), null, null, null, null,
+                null, null, null, null);
+
+        assertEquals("2023-06-13T09:00:00Z operation=getOrder, action=notFound, id=4e7a6fd2-6f7a-4c1e-9f0e-1b8d3c2f0a11",
+                record.format());
+    }
+
+    private static AuditEvent event(AuditOperation operation, long count) {
+        AuditEvent event = new AuditEvent();
+        event.start(operation, AuditOutcome.SUCCESS, 1686646800000L);
+        event.ticker("SAVE");
+        event.orderSide(OrderSide.BUY);
+        event.date(LocalDate.of(2023, 6, 13));
+        event.count(count);
+        return event;
+    }
+}
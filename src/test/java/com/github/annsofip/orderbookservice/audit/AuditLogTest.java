@@ -0,0 +1,189 @@
+package com.github.annsofip.orderbookservice.audit;
+
+import com.github.annsofip.orderbookservice.api.OrderResponseDTO;
+import com.github.annsofip.orderbookservice.config.OrderBookProperties;
+import com.github.annsofip.orderbookservice.model.FillStatus;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AuditLogTest {
+
+    @TempDir
+    Path directory;
+
+    private AuditLog auditLog;
+
+    @AfterEach
+    void tearDown() {
+        if (auditLog != null) {
+            auditLog.stop();
+        }
+    }
+
+    @Test
+    void recordOrder_shouldWriteEveryFieldOfTheOrder() throws IOException {
+        auditLog = new AuditLog(properties(0, 8192));
+        OrderResponseDTO order = createOrder();
+
+        auditLog.recordOrder(AuditOperation.CREATE_ORDER, AuditOutcome.SUCCESS, order.getId(), order);
+        auditLog.stop();
+
+        List<AuditRecord> records = read();
+        assertEquals(1, records.size());
+        AuditRecord record = records.get(0);
+        assertEquals(AuditOperation.CREATE_ORDER, record.operation());
+        assertEquals(AuditOutcome.SUCCESS, record.outcome());
+        assertEquals(order.getId(), record.id());
+        assertEquals("SAVE", record.ticker());
+        assertEquals(OrderSide.BUY, record.orderSide());
+        assertEquals(100, record.volume());
+        assertEquals(40, record.filledVolume());
+        assertEquals(new BigDecimal("12.99"), record.price());
+        assertEquals("SEK", record.currency());
+        assertEquals(LocalDate.of(2023, 6, 13), record.date());
+        assertNull(record.count());
+    }
+
+    @Test
+    void recordQuery_shouldOnlyWriteSampledReads() throws IOException {
+        auditLog = new AuditLog(properties(0, 8192));
+
+        for (int i = 0; i < 100; i++) {
+            auditLog.recordQuery(AuditOperation.GET_SUMMARY, AuditOutcome.SUCCESS, "SAVE", OrderSide.BUY, LocalDate.of(2023, 6, 13), i);
+        }
+        auditLog.recordQuery(AuditOperation.CREATE_ORDERS, AuditOutcome.REJECTED, null, null, null, 3);
+        auditLog.stop();
+
+        List<AuditRecord> records = read();
+        assertEquals(1, records.size());
+        assertEquals(AuditOperation.CREATE_ORDERS, records.get(0).operation());
+        assertEquals(3L, records.get(0).count());
+        assertNull(records.get(0).ticker());
+    }
+
+    @Test
+    void recordQuery_shouldWriteAllReadsInOrderWhenSampleRateIsOne() throws IOException {
+        auditLog = new AuditLog(properties(1, 8192));
+
+        for (int i = 0; i < 1000; i++) {
+            auditLog.recordQuery(AuditOperation.GET_SUMMARY, AuditOutcome.SUCCESS, "SAVE", OrderSide.SELL, LocalDate.of(2023, 6, 13), i);
+        }
+        auditLog.stop();
+
+        List<AuditRecord> records = read();
+        assertEquals(1000 - auditLog.droppedCount(), records.size());
+        for (int i = 1; i < records.size(); i++) {
+            assertTrue(records.get(i - 1).count() < records.get(i).count());
+        }
+    }
+
+    @Test
+    void recordOrder_shouldNotDropWritesWhenBufferIsFull() throws IOException {
+        auditLog = new AuditLog(properties(1, 4));
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    auditLog.recordOrder(AuditOperation.CREATE_ORDER, AuditOutcome.SUCCESS, UUID.randomUUID(), null);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        auditLog.stop();
+
+        assertEquals(2000, read().size());
+        assertEquals(0, auditLog.droppedCount());
+    }
+
+    @Test
+    void stop_shouldRollFilesAtMaximumSize() throws IOException {
+        OrderBookProperties properties = properties(0, 8192);
+        properties.getAudit().setMaxFileSize(DataSize.ofKilobytes(1));
+        auditLog = new AuditLog(properties);
+
+        for (int i = 0; i < 100; i++) {
+            // Rolls when a batch of records is written, so give the writer time to write each one.
+            auditLog.recordOrder(AuditOperation.CREATE_ORDER, AuditOutcome.SUCCESS, UUID.randomUUID(), createOrder());
+            if (i % 10 == 0) {
+                sleep();
+            }
+        }
+        auditLog.stop();
+
+        assertTrue(AuditLogDecoder.files(directory).size() > 1);
+        assertEquals(100, read().size());
+    }
+
+    @Test
+    void recordOrder_shouldNotWriteWhenDisabled() throws IOException {
+        OrderBookProperties properties = properties(1, 8192);
+        properties.getAudit().setEnabled(false);
+        auditLog = new AuditLog(properties);
+
+        auditLog.recordOrder(AuditOperation.CREATE_ORDER, AuditOutcome.SUCCESS, UUID.randomUUID(), createOrder());
+        auditLog.stop();
+
+        assertEquals(List.of(), AuditLogDecoder.files(directory));
+    }
+
+    private OrderBookProperties properties(double readSampleRate, int bufferSize) {
+        OrderBookProperties properties = new OrderBookProperties();
+        properties.getAudit().setDirectory(directory);
+        properties.getAudit().setReadSampleRate(readSampleRate);
+        properties.getAudit().setBufferSize(bufferSize);
+        return properties;
+    }
+
+    private List<AuditRecord> read() throws IOException {
+        List<AuditRecord> records = new ArrayList<>();
+        for (Path file : AuditLogDecoder.files(directory)) {
+            AuditLogDecoder.decode(file, records::add);
+        }
+        return records;
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static OrderResponseDTO createOrder() {
+        return OrderResponseDTO.builder()
+                .id(UUID.randomUUID())
+                .ticker("SAVE")
+                .orderSide(OrderSide.BUY)
+                .volume(100)
+                .price(new BigDecimal("12.99"))
+                .currency("SEK")
+                .date(LocalDate.of(2023, 6, 13))
+                .filledVolume(40)
+                .fillStatus(FillStatus.PARTIALLY_FILLED)
+                .build();
+    }
+}
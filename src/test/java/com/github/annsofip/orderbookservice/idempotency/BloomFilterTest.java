@@ -0,0 +1,40 @@
+package com.github.annsofip.orderbookservice.idempotency;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BloomFilterTest {
+
+    @Test
+    void mightContain_shouldFindEveryAddedValueAndFewOthers() {
+        BloomFilter filter = new BloomFilter(100_000, 0.01);
+        for (int i = 0; i < 100_000; i++) {
+            filter.add("order-" + i);
+        }
+
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(filter.mightContain("order-" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 1500, "false positives: " + falsePositives);
+        assertEquals(0.5, filter.fillRatio(), 0.05);
+    }
+
+    @Test
+    void bloomFilter_shouldBeSizedForTheFalsePositiveRate() {
+        BloomFilter filter = new BloomFilter(1_000_000, 0.01);
+
+        assertEquals(9_585_088, filter.bitSize(), 64);
+        assertEquals(7, filter.hashCount());
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(1000, 1));
+    }
+}
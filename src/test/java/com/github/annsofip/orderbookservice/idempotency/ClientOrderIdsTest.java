@@ -0,0 +1,240 @@
+package com.github.annsofip.orderbookservice.idempotency;
+
+import com.github.annsofip.orderbookservice.api.OrderResponseDTO;
+import com.github.annsofip.orderbookservice.config.OrderBookProperties;
+import com.github.annsofip.orderbookservice.matching.OrderMatcher;
+import com.github.annsofip.orderbookservice.model.OrderChanges;
+import com.github.annsofip.orderbookservice.model.OrderMapper;
+import com.github.annsofip.orderbookservice.repositories.OrderEventRepository;
+import com.github.annsofip.orderbookservice.repositories.OrderRepository;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import com.github.annsofip.orderbookservice.service.OrderWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ClientOrderIdsTest {
+
+    private OrderRepository orderRepository;
+    private OrderEventRepository orderEventRepository;
+    private OrderMapper orderMapper;
+    private OrderMatcher orderMatcher;
+    private OrderWriter orderWriter;
+    private ClientOrderIds clientOrderIds;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = mock(OrderRepository.class);
+        orderEventRepository = mock(OrderEventRepository.class);
+        orderMapper = mock(OrderMapper.class);
+        orderMatcher = mock(OrderMatcher.class);
+        orderWriter = mock(OrderWriter.class);
+        when(orderRepository.streamClientOrderIds()).thenReturn(Stream.empty());
+        OrderBookProperties properties = new OrderBookProperties();
+        properties.getClientOrderIds().setExpectedIds(10_000);
+        clientOrderIds = new ClientOrderIds(orderRepository, orderEventRepository, orderMapper, orderMatcher, orderWriter,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), properties);
+    }
+
+    @Test
+    void createOnce_shouldAnswerRetriesWithTheFirstResponseWithoutTheDatabase() {
+        clientOrderIds.afterSingletonsInstantiated();
+        AtomicInteger created = new AtomicInteger();
+        OrderResponseDTO response = createResponse();
+
+        OrderResponseDTO first = clientOrderIds.createOnce("retry-1", () -> {
+            created.incrementAndGet();
+            return response;
+        });
+        OrderResponseDTO retry = clientOrderIds.createOnce("retry-1", () -> {
+            created.incrementAndGet();
+            return createResponse();
+        });
+
+        assertSame(response, first);
+        assertSame(response, retry);
+        assertEquals(1, created.get());
+        assertEquals(1, clientOrderIds.duplicateCount());
+        verify(orderRepository, never()).findByClientOrderId(anyString());
+    }
+
+    @Test
+    void createOnce_shouldRarelyLookUpNewIds() {
+        clientOrderIds.afterSingletonsInstantiated();
+
+        for (int i = 0; i < 10_000; i++) {
+            clientOrderIds.createOnce("order-" + i, ClientOrderIdsTest::createResponse);
+        }
+
+        // Every id is new, so only false positives of the filter are looked up.
+        assertTrue(clientOrderIds.lookupCount() < 200, "lookups: " + clientOrderIds.lookupCount());
+    }
+
+    @Test
+    void find_shouldLookUpIdsOfOrdersCreatedBeforeStartup() {
+        Order order = Order.builder().id(UUID.randomUUID()).volume(100).clientOrderId("old").build();
+        OrderResponseDTO response = createResponse();
+        when(orderRepository.streamClientOrderIds()).thenReturn(Stream.of("old"));
+        when(orderRepository.findByClientOrderId("old")).thenReturn(Optional.of(order));
+        when(orderEventRepository.findChanges(order.getId())).thenReturn(OrderChanges.NONE);
+        when(orderMatcher.filledVolume(order.getId())).thenReturn(40);
+        when(orderMapper.orderToOrderDto(order, OrderChanges.NONE, 40)).thenReturn(response);
+        clientOrderIds.afterSingletonsInstantiated();
+
+        assertSame(response, clientOrderIds.createOnce("old", () -> {
+            throw new AssertionError("created again");
+        }));
+        assertEquals(1, clientOrderIds.lookupCount());
+    }
+
+    @Test
+    void createOnce_shouldCreateConcurrentRetriesOnce() throws Exception {
+        clientOrderIds.afterSingletonsInstantiated();
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger created = new AtomicInteger();
+        OrderResponseDTO response = createResponse();
+
+        CompletableFuture<OrderResponseDTO> first = CompletableFuture.supplyAsync(() ->
+                clientOrderIds.createOnce("retry-1", () -> {
+                    created.incrementAndGet();
+                    creating.countDown();
+                    await(release);
+                    return response;
+                }));
+        assertTrue(creating.await(5, TimeUnit.SECONDS));
+        CompletableFuture<OrderResponseDTO> retry = CompletableFuture.supplyAsync(() ->
+                clientOrderIds.createOnce("retry-1", () -> {
+                    created.incrementAndGet();
+                    return createResponse();
+                }));
+        release.countDown();
+
+        assertSame(response, first.get(5, TimeUnit.SECONDS));
+        assertSame(response, retry.get(5, TimeUnit.SECONDS));
+        assertEquals(1, created.get());
+        assertEquals(1, clientOrderIds.duplicateCount());
+    }
+
+    @Test
+    void createOnce_shouldAnswerWithTheStoredOrderWhenTheUniqueIndexRefusesIt() {
+        Order order = Order.builder().id(UUID.randomUUID()).volume(100).clientOrderId("written").build();
+        OrderResponseDTO response = createResponse();
+        when(orderRepository.findByClientOrderId("written")).thenReturn(Optional.of(order));
+        when(orderEventRepository.findChanges(order.getId())).thenReturn(OrderChanges.NONE);
+        when(orderMapper.orderToOrderDto(order, OrderChanges.NONE, 0)).thenReturn(response);
+        clientOrderIds.afterSingletonsInstantiated();
+
+        assertSame(response, clientOrderIds.createOnce("written", () -> {
+            throw new DataIntegrityViolationException("idx_customer_order_client_order_id");
+        }));
+        assertEquals(1, clientOrderIds.duplicateCount());
+    }
+
+    @Test
+    void createOnce_shouldAnswerWithJournaledOrderThatIsNotInTheDatabaseYet() {
+        Order order = Order.builder().id(UUID.randomUUID()).volume(100).clientOrderId("journaled").build();
+        OrderResponseDTO response = createResponse();
+        clientOrderIds.afterSingletonsInstantiated();
+        assertThrows(IllegalStateException.class, () -> clientOrderIds.createOnce("journaled", () -> {
+            throw new IllegalStateException("matching failed");
+        }));
+        when(orderWriter.findUnpersistedByClientOrderId("journaled")).thenReturn(Optional.of(order));
+        when(orderMatcher.filledVolume(order.getId())).thenReturn(30);
+        when(orderMapper.orderToOrderDto(order, 30)).thenReturn(response);
+
+        assertSame(response, clientOrderIds.createOnce("journaled", () -> {
+            throw new AssertionError("created again");
+        }));
+        assertEquals(0, clientOrderIds.lookupCount());
+        assertEquals(1, clientOrderIds.duplicateCount());
+        verify(orderRepository, never()).findByClientOrderId(anyString());
+    }
+
+    @Test
+    void createOnce_shouldLookUpIdOfOrderThatFailedAfterItWasWritten() {
+        Order order = Order.builder().id(UUID.randomUUID()).volume(100).clientOrderId("failed").build();
+        OrderResponseDTO response = createResponse();
+        clientOrderIds.afterSingletonsInstantiated();
+        assertThrows(IllegalStateException.class, () -> clientOrderIds.createOnce("failed", () -> {
+            throw new IllegalStateException("matching failed");
+        }));
+        when(orderRepository.findByClientOrderId("failed")).thenReturn(Optional.of(order));
+        when(orderEventRepository.findChanges(order.getId())).thenReturn(OrderChanges.NONE);
+        when(orderMapper.orderToOrderDto(order, OrderChanges.NONE, 0)).thenReturn(response);
+
+        assertSame(response, clientOrderIds.createOnce("failed", () -> {
+            throw new AssertionError("created again");
+        }));
+    }
+
+    @Test
+    void claim_shouldHoldTheIdUntilTheOrderIsCreated() throws Exception {
+        clientOrderIds.afterSingletonsInstantiated();
+        OrderResponseDTO response = createResponse();
+
+        assertTrue(clientOrderIds.claim("batch-1", () -> {
+            throw new AssertionError("waited");
+        }).isEmpty());
+        CompletableFuture<OrderResponseDTO> retry = CompletableFuture.supplyAsync(() ->
+                clientOrderIds.createOnce("batch-1", () -> {
+                    throw new AssertionError("created again");
+                }));
+        clientOrderIds.created("batch-1", response);
+
+        assertSame(response, retry.get(5, TimeUnit.SECONDS));
+        assertEquals(1, clientOrderIds.duplicateCount());
+        assertSame(response, clientOrderIds.claim("batch-1", () -> {
+            throw new AssertionError("waited");
+        }).orElseThrow());
+        assertEquals(2, clientOrderIds.duplicateCount());
+    }
+
+    @Test
+    void claim_shouldReleaseOwnIdsBeforeWaitingAndClaimAgainIfTheOtherFailed() {
+        clientOrderIds.afterSingletonsInstantiated();
+        assertTrue(clientOrderIds.claim("batch-1", () -> {
+        }).isEmpty());
+        AtomicInteger released = new AtomicInteger();
+
+        Optional<OrderResponseDTO> claimed = clientOrderIds.claim("batch-1", () -> {
+            released.incrementAndGet();
+            clientOrderIds.failed("batch-1", new IllegalStateException("database is down"));
+        });
+
+        assertTrue(claimed.isEmpty());
+        assertEquals(1, released.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static OrderResponseDTO createResponse() {
+        return OrderResponseDTO.builder().id(UUID.randomUUID()).build();
+    }
+}
@@ -0,0 +1,173 @@
+package com.github.annsofip.orderbookservice.journal;
+
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.repositories.DailyOrderSummaryRepository;
+import com.github.annsofip.orderbookservice.repositories.OrderRepository;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class JournalDrainerTest {
+
+    @TempDir
+    Path directory;
+
+    private OrderJournal journal;
+    private OrderRepository orderRepository;
+    private DailyOrderSummaryRepository dailyOrderSummaryRepository;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws IOException {
+        journal = OrderJournal.open(directory, 4096, 1024);
+        orderRepository = mock(OrderRepository.class);
+        dailyOrderSummaryRepository = mock(DailyOrderSummaryRepository.class);
+        transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.getArgument(0, TransactionCallback.class).doInTransaction(new SimpleTransactionStatus()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        journal.close();
+    }
+
+    @Test
+    void replay_shouldOnlyInsertOrdersThatAreNotInTheDatabase() throws IOException {
+        Order persisted = createOrder(0);
+        Order notPersisted = createOrder(1);
+        journal.append(persisted).join();
+        journal.append(notPersisted).join();
+        when(orderRepository.findExistingIds(anyCollection())).thenReturn(Set.of(persisted.getId()));
+
+        List<Order> inserted = new ArrayList<>();
+        List<UUID> drained = new ArrayList<>();
+        createDrainer(drained).replay(inserted::add);
+
+        assertEquals(List.of(notPersisted), inserted);
+        assertEquals(List.of(persisted.getId(), notPersisted.getId()), drained);
+        verify(orderRepository, times(1)).saveAllAndFlush(List.of(notPersisted));
+        verify(dailyOrderSummaryRepository, times(1)).rollUpAll(List.of(notPersisted));
+        assertEquals(journal.durablePosition(), journal.readCheckpoint());
+    }
+
+    @Test
+    void replay_shouldStartAtCheckpoint() throws IOException {
+        journal.append(createOrder(0)).join();
+        createDrainer(new ArrayList<>()).replay(order -> {
+        });
+        Order next = createOrder(1);
+        journal.append(next).join();
+        when(orderRepository.findExistingIds(anyCollection())).thenReturn(Set.of());
+
+        List<Order> inserted = new ArrayList<>();
+        createDrainer(new ArrayList<>()).replay(inserted::add);
+
+        assertEquals(List.of(next), inserted);
+    }
+
+    @Test
+    void stop_shouldDrainEverythingInTheJournal() throws IOException {
+        when(orderRepository.findExistingIds(anyCollection())).thenReturn(Set.of());
+        List<UUID> drained = new ArrayList<>();
+        JournalDrainer drainer = createDrainer(drained);
+        drainer.start();
+
+        for (int i = 0; i < 50; i++) {
+            journal.append(createOrder(i)).join();
+        }
+        drainer.stop();
+
+        assertEquals(50, drained.size());
+        assertEquals(journal.durablePosition(), journal.readCheckpoint());
+    }
+
+    @Test
+    void replay_shouldQuarantineOrderThatKeepsFailing() throws IOException {
+        Order first = createOrder(0);
+        Order poison = createOrder(1);
+        Order last = createOrder(2);
+        journal.append(first).join();
+        journal.append(poison).join();
+        journal.append(last).join();
+        when(orderRepository.findExistingIds(anyCollection())).thenReturn(Set.of());
+        doThrow(new DataIntegrityViolationException("duplicate key"))
+                .when(orderRepository).saveAllAndFlush(argThat(orders -> ((List<Order>) orders).contains(poison)));
+
+        List<Order> inserted = new ArrayList<>();
+        List<UUID> drained = new ArrayList<>();
+        JournalDrainer drainer = createDrainer(drained);
+        drainer.replay(inserted::add);
+
+        assertEquals(List.of(first, last), inserted);
+        assertEquals(List.of(first.getId(), poison.getId(), last.getId()), drained);
+        assertEquals(1, drainer.quarantined());
+        assertTrue(Files.size(directory.resolve("quarantine")) > 0);
+        assertEquals(journal.durablePosition(), journal.readCheckpoint());
+    }
+
+    @Test
+    void replay_shouldNotQuarantineOrdersWhenTheDatabaseIsDown() throws IOException {
+        JournalPosition start = journal.readCheckpoint();
+        journal.append(createOrder(0)).join();
+        when(orderRepository.findExistingIds(anyCollection()))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+        JournalDrainer drainer = createDrainer(new ArrayList<>());
+
+        assertThrows(DataAccessResourceFailureException.class, () -> drainer.replay(order -> {
+        }));
+        assertEquals(0, drainer.quarantined());
+        assertFalse(Files.exists(directory.resolve("quarantine")));
+        assertEquals(start, journal.readCheckpoint());
+    }
+
+    private JournalDrainer createDrainer(List<UUID> drained) throws IOException {
+        return new JournalDrainer(journal, orderRepository, dailyOrderSummaryRepository, transactionTemplate,
+                mock(EntityManager.class), 10, 3, Duration.ofMillis(1), drained::add);
+    }
+
+    private Order createOrder(int i) {
+        return Order.builder()
+                .id(new UUID(0, i))
+                .ticker("SAVE")
+                .orderSide(OrderSide.BUY)
+                .volume(100)
+                .price(1299)
+                .currency("SEK")
+                .date(LocalDateTime.of(2023, 6, 13, 12, 0))
+                .build();
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.annsofip.orderbookservice.journal;
+
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class JournalRecordCodecTest {
+
+    @Test
+    void decode_shouldReadBackTheClientOrderId() {
+        Order order = createOrder("retry-1");
+        ByteBuffer buffer = ByteBuffer.allocate(JournalRecordCodec.recordSize(order));
+
+        JournalRecordCodec.encode(order, buffer);
+        buffer.flip();
+
+        assertEquals(order, JournalRecordCodec.decode(buffer));
+        assertEquals(0, buffer.remaining());
+    }
+
+    @Test
+    void decode_shouldReadRecordsWrittenBeforeClientOrderIds() {
+        Order order = createOrder(null);
+        ByteBuffer buffer = ByteBuffer.allocate(JournalRecordCodec.recordSize(order));
+        JournalRecordCodec.encode(order, buffer);
+        // Drop the client order id length, which is the last byte, as records used to end after the currency.
+        int payloadLength = buffer.getInt(0) - 1;
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(JournalRecordCodec.HEADER_SIZE, payloadLength));
+        buffer.putInt(0, payloadLength);
+        buffer.putInt(4, (int) crc.getValue());
+        buffer.position(0).limit(JournalRecordCodec.HEADER_SIZE + payloadLength);
+
+        Order decoded = JournalRecordCodec.decode(buffer);
+
+        assertEquals(order, decoded);
+        assertNull(decoded.getClientOrderId());
+        assertEquals(0, buffer.remaining());
+    }
+
+    private static Order createOrder(String clientOrderId) {
+        return Order.builder()
+                .id(UUID.randomUUID())
+                .ticker("SAVE")
+                .orderSide(OrderSide.SELL)
+                .volume(100)
+                .price(1299)
+                .currency("SEK")
+                .date(LocalDateTime.of(2023, 6, 13, 10, 0, 0, 123_456_000))
+                .clientOrderId(clientOrderId)
+                .build();
+    }
+}
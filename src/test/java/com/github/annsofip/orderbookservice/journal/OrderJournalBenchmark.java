@@ -0,0 +1,116 @@
+package com.github.annsofip.orderbookservice.journal;
+
+import com.github.annsofip.orderbookservice.OrderBookServiceApplication;
+import com.github.annsofip.orderbookservice.api.OrderRequestDTO;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.service.OrderService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Creating orders from 16 request threads, acknowledged once their transaction has committed or once they are forced
+ * to the journal. The journal forces the orders of all waiting requests at once, so it pays off when commits are
+ * slow, which needs a database that flushes its log on commit. The orders are all buy orders spread over 64 tickers,
+ * so that nothing is matched.
+ * <p>
+ * Runs against H2 in memory, or against PostgreSQL with {@code -p url=jdbc:postgresql://localhost:5432/postgres} as
+ * user postgres. The journal is written to a temporary directory, and the orders and summaries of the benchmark's
+ * tickers are deleted afterwards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class OrderJournalBenchmark {
+    private static final String[] TICKERS = new String[64];
+
+    static {
+        for (int i = 0; i < TICKERS.length; i++) {
+            TICKERS[i] = "JOURNAL" + i;
+        }
+    }
+
+    @Param({"false", "true"})
+    public boolean journal;
+
+    @Param("")
+    public String url;
+
+    private Path directory;
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal-benchmark");
+        List<String> args = new ArrayList<>(List.of("--spring.profiles.active=test",
+                "--spring.jpa.show-sql=false",
+                "--spring.h2.console.enabled=false",
+                "--logging.level.root=WARN",
+                "--order-book.journal.enabled=" + journal,
+                "--order-book.journal.directory=" + directory));
+        if (!url.isEmpty()) {
+            args.addAll(List.of("--spring.datasource.url=" + url,
+                    "--spring.datasource.driver-class-name=org.postgresql.Driver",
+                    "--spring.datasource.username=postgres",
+                    "--spring.datasource.password=postgres"));
+        }
+        context = new SpringApplicationBuilder(OrderBookServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(String[]::new));
+        orderService = context.getBean(OrderService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Gauge unpersisted = context.getBean(MeterRegistry.class).find("orderbook.journal.unpersisted").gauge();
+        while (unpersisted != null && unpersisted.value() > 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("DELETE FROM \"customer_order\" WHERE ticker_id IN "
+                + "(SELECT id FROM symbol WHERE name LIKE 'JOURNAL%')");
+        jdbcTemplate.update("DELETE FROM daily_order_summary WHERE ticker LIKE 'JOURNAL%'");
+        context.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public Object createOrder() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return orderService.createOrder(new OrderRequestDTO(TICKERS[random.nextInt(TICKERS.length)], OrderSide.BUY,
+                1 + random.nextInt(1000), BigDecimal.valueOf(900 + random.nextInt(200)), "SEK"));
+    }
+}
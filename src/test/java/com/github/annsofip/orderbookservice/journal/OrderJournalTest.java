@@ -0,0 +1,180 @@
+package com.github.annsofip.orderbookservice.journal;
+
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrderJournalTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    private OrderJournal journal;
+
+    @AfterEach
+    void tearDown() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    void read_shouldReturnAppendedOrdersOnceSynced() throws IOException {
+        journal = OrderJournal.open(directory, SEGMENT_SIZE, 1024);
+        Order order = createOrder(0);
+
+        journal.append(order).join();
+
+        List<Order> orders = new ArrayList<>();
+        JournalPosition next = journal.read(journal.readCheckpoint(), 10, orders);
+
+        assertEquals(List.of(order), orders);
+        assertEquals(journal.durablePosition(), next);
+    }
+
+    @Test
+    void read_shouldContinueInNextSegmentWhenSegmentIsFull() throws IOException {
+        journal = OrderJournal.open(directory, SEGMENT_SIZE, 1024);
+        List<Order> appended = IntStream.range(0, 200).mapToObj(this::createOrder).toList();
+
+        CompletableFuture.allOf(appended.stream().map(journal::append).toArray(CompletableFuture[]::new)).join();
+
+        List<Order> orders = new ArrayList<>();
+        JournalPosition next = journal.read(journal.readCheckpoint(), 1000, orders);
+
+        assertEquals(appended, orders);
+        assertTrue(next.segment() > 0);
+    }
+
+    @Test
+    void open_shouldContinueAfterLastRecordAndKeepCheckpoint() throws IOException {
+        journal = OrderJournal.open(directory, SEGMENT_SIZE, 1024);
+        journal.append(createOrder(0)).join();
+        journal.append(createOrder(1)).join();
+        List<Order> first = new ArrayList<>();
+        journal.writeCheckpoint(journal.read(journal.readCheckpoint(), 1, first));
+        journal.close();
+
+        journal = OrderJournal.open(directory, SEGMENT_SIZE, 1024);
+        Order third = createOrder(2);
+        journal.append(third).join();
+
+        List<Order> orders = new ArrayList<>();
+        journal.read(journal.readCheckpoint(), 10, orders);
+
+        assertEquals(List.of(createOrder(1), third), orders);
+    }
+
+    @Test
+    void open_shouldDiscardPartlyWrittenRecord() throws IOException {
+        journal = OrderJournal.open(directory, SEGMENT_SIZE, 1024);
+        journal.append(createOrder(0)).join();
+        JournalPosition end = journal.durablePosition();
+        journal.close();
+
+        try (FileChannel channel = FileChannel.open(segmentFile(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(12).putInt(60).putInt(12345).putInt(42).flip(), end.offset());
+        }
+
+        journal = OrderJournal.open(directory, SEGMENT_SIZE, 1024);
+        assertEquals(end, journal.durablePosition());
+
+        Order second = createOrder(1);
+        journal.append(second).join();
+
+        List<Order> orders = new ArrayList<>();
+        journal.read(journal.readCheckpoint(), 10, orders);
+
+        assertEquals(List.of(createOrder(0), second), orders);
+    }
+
+    @Test
+    void append_shouldFailOnlyTheOrderThatCannotBeWritten() throws IOException {
+        journal = OrderJournal.open(directory, SEGMENT_SIZE, 1024);
+        Order broken = createOrder(1);
+        broken.setVolume(null);
+
+        CompletableFuture<Void> first = journal.append(createOrder(0));
+        CompletableFuture<Void> failed = journal.append(broken);
+        Order third = createOrder(2);
+        CompletableFuture<Void> last = journal.append(third);
+
+        CompletionException exception = assertThrows(CompletionException.class, failed::join);
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+        first.join();
+        last.join();
+        journal.close();
+        journal = OrderJournal.open(directory, SEGMENT_SIZE, 1024);
+
+        List<Order> orders = new ArrayList<>();
+        journal.read(journal.readCheckpoint(), 10, orders);
+
+        assertEquals(List.of(createOrder(0), third), orders);
+    }
+
+    @Test
+    void append_shouldRefuseOrderThatDoesNotFitInSegment() throws IOException {
+        journal = OrderJournal.open(directory, SEGMENT_SIZE, 1024);
+        Order large = createOrder(0);
+        large.setTicker("X".repeat(SEGMENT_SIZE));
+
+        CompletionException exception = assertThrows(CompletionException.class, () -> journal.append(large).join());
+
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+        assertEquals(JournalPosition.START, journal.durablePosition());
+    }
+
+    @Test
+    void deleteSegmentsBefore_shouldRemoveDrainedSegments() throws IOException {
+        journal = OrderJournal.open(directory, SEGMENT_SIZE, 1024);
+        IntStream.range(0, 200).forEach(i -> journal.append(createOrder(i)).join());
+
+        journal.deleteSegmentsBefore(journal.durablePosition().segment());
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.filter(file -> file.toString().endsWith(".journal")).count());
+        }
+    }
+
+    private Path segmentFile() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".journal")).findFirst().orElseThrow();
+        }
+    }
+
+    private Order createOrder(int i) {
+        return Order.builder()
+                .id(new UUID(0, i))
+                .ticker("SAVE")
+                .orderSide(i % 2 == 0 ? OrderSide.BUY : OrderSide.SELL)
+                .volume(100 + i)
+                .price(1299 + i)
+                .currency("SEK")
+                .date(LocalDateTime.of(2023, 6, 13, 12, 0, 0, i))
+                .build();
+    }
+}
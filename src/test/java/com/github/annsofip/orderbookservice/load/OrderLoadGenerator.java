@@ -0,0 +1,322 @@
+package com.github.annsofip.orderbookservice.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.annsofip.orderbookservice.OrderBookServiceApplication;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a mix of order creation, order lookups and summaries over HTTP at a fixed rate, and writes the latency
+ * percentiles and throughput of each as JSON, so that runs can be compared across commits.
+ * <p>
+ * The load is open-loop: requests are due at fixed intervals whether or not earlier requests have completed, and the
+ * latency of a request is measured from when it was due rather than from when it was sent. A server that stalls is
+ * therefore charged for every request that would have been sent meanwhile, instead of for one slow request
+ * (coordinated omission). Requests wait for one of {@code connections} connections, and that wait is part of the
+ * latency too.
+ * <p>
+ * Without {@code --url} the application is started in this process on the test profile, against H2 in memory. Run
+ * with, for example:
+ * <pre>
+ * mvn -Pload verify -Dload.args="--rate=2000 --duration=60s --mix=1:2:2 --zipf=1.1 --label=$(git rev-parse --short HEAD)"
+ * </pre>
+ * Options, all as {@code --name=value}:
+ * <ul>
+ *     <li>{@code url}: base URL of a running service instead of starting one</li>
+ *     <li>{@code rate}: requests per second over all operations, default 1000</li>
+ *     <li>{@code warmup} and {@code duration}: ISO-8601 or seconds like {@code 30s}, default 10s and 30s</li>
+ *     <li>{@code mix}: ratio of create order, get order and get summary requests, default 1:2:2. Orders are
+ *     created until there is one to get</li>
+ *     <li>{@code tickers} and {@code zipf}: number of tickers and the Zipf exponent of how often each is picked,
+ *     default 100 and 1.0</li>
+ *     <li>{@code connections}: most requests in flight, default 64</li>
+ *     <li>{@code output}: file to write the report to, default target/load-result.json</li>
+ *     <li>{@code label}: free text to tell runs apart, such as the commit</li>
+ * </ul>
+ */
+public class OrderLoadGenerator {
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final int CREATED_IDS = 1 << 16;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final Options options;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ZipfDistribution tickerDistribution;
+    private final Semaphore connections;
+    private final Map<Operation, Recorder> latencies = new LinkedHashMap<>();
+    private final Map<Operation, AtomicLong> errors = new HashMap<>();
+    private final AtomicReferenceArray<UUID> createdIds = new AtomicReferenceArray<>(CREATED_IDS);
+    private final AtomicLong createdCount = new AtomicLong();
+    private long measureStart;
+
+    OrderLoadGenerator(Options options, ExecutorService executor) {
+        this.options = options;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(executor)
+                .build();
+        this.tickerDistribution = new ZipfDistribution(options.tickers(), options.zipfExponent());
+        this.connections = new Semaphore(options.connections());
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new Recorder(HIGHEST_LATENCY_MICROS, 3));
+            errors.put(operation, new AtomicLong());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        ConfigurableApplicationContext context = null;
+        String url = options.url();
+        if (url == null) {
+            context = new SpringApplicationBuilder(OrderBookServiceApplication.class)
+                    .run("--spring.profiles.active=test",
+                            "--server.port=0",
+                            "--spring.jpa.show-sql=false",
+                            "--spring.h2.console.enabled=false",
+                            "--logging.level.root=WARN");
+            url = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        try {
+            ObjectNode report = new OrderLoadGenerator(options, executor).run(url);
+            Path output = options.output();
+            if (output.getParent() != null) {
+                Files.createDirectories(output.getParent());
+            }
+            ObjectMapper writer = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+            writer.writeValue(output.toFile(), report);
+            System.out.println(writer.writeValueAsString(report));
+        } finally {
+            executor.shutdownNow();
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    ObjectNode run(String url) throws InterruptedException {
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / options.rate();
+        long warmupRequests = options.warmup().toNanos() / periodNanos;
+        long measuredRequests = options.duration().toNanos() / periodNanos;
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDate today = LocalDate.now();
+
+        long start = System.nanoTime();
+        measureStart = start + warmupRequests * periodNanos;
+        for (long i = 0; i < warmupRequests + measuredRequests; i++) {
+            long due = start + i * periodNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            send(url, pickOperation(random), random, today, due);
+        }
+        connections.acquire(options.connections());
+        long end = System.nanoTime();
+        return report(end - measureStart);
+    }
+
+    private Operation pickOperation(SplittableRandom random) {
+        int[] mix = options.mix();
+        int value = random.nextInt(mix[0] + mix[1] + mix[2]);
+        if (value < mix[0] || createdCount.get() == 0) {
+            return Operation.CREATE_ORDER;
+        }
+        return value < mix[0] + mix[1] ? Operation.GET_ORDER : Operation.GET_SUMMARY;
+    }
+
+    private void send(String url, Operation operation, SplittableRandom random, LocalDate today, long due)
+            throws InterruptedException {
+        String ticker = "T" + tickerDistribution.sample(random);
+        String orderSide = random.nextBoolean() ? "BUY" : "SELL";
+        HttpRequest request = switch (operation) {
+            case CREATE_ORDER -> HttpRequest.newBuilder(URI.create(url + "/orders"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"ticker\":\"" + ticker
+                            + "\",\"orderSide\":\"" + orderSide
+                            + "\",\"volume\":" + (1 + random.nextInt(1000))
+                            + ",\"price\":" + BigDecimal.valueOf(995 + random.nextInt(10), 2)
+                            + ",\"currency\":\"SEK\"}"))
+                    .timeout(REQUEST_TIMEOUT)
+                    .build();
+            case GET_ORDER -> HttpRequest.newBuilder(URI.create(url + "/orders/"
+                            + createdIds.get((int) random.nextLong(Math.min(createdCount.get(), CREATED_IDS)))))
+                    .timeout(REQUEST_TIMEOUT)
+                    .build();
+            case GET_SUMMARY -> HttpRequest.newBuilder(URI.create(url + "/orders/summary?ticker=" + ticker
+                            + "&orderSide=" + orderSide + "&date=" + today))
+                    .timeout(REQUEST_TIMEOUT)
+                    .build();
+        };
+        connections.acquire();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, e) -> {
+                    long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - due);
+                    connections.release();
+                    if (operation == Operation.CREATE_ORDER && e == null && response.statusCode() < 300) {
+                        remember(response.body());
+                    }
+                    if (due < measureStart) {
+                        return;
+                    }
+                    latencies.get(operation).recordValue(Math.min(latencyMicros, HIGHEST_LATENCY_MICROS));
+                    if (e != null || response.statusCode() >= 300) {
+                        errors.get(operation).incrementAndGet();
+                    }
+                });
+    }
+
+    // The id is stored before the count includes it, so the ids below the count can always be looked up.
+    private synchronized void remember(String createdOrder) {
+        try {
+            UUID id = UUID.fromString(objectMapper.readTree(createdOrder).get("id").asText());
+            createdIds.set((int) (createdCount.get() % CREATED_IDS), id);
+            createdCount.incrementAndGet();
+        } catch (IOException | RuntimeException e) {
+            // Not an order, so there is nothing to look up later.
+        }
+    }
+
+    private ObjectNode report(long measuredNanos) {
+        double seconds = measuredNanos / 1e9;
+        ObjectNode report = objectMapper.createObjectNode();
+        report.put("label", options.label());
+        report.put("startedAt", Instant.now().minusNanos(measuredNanos).toString());
+        report.put("rate", options.rate());
+        report.put("durationSeconds", seconds);
+        report.put("mix", options.mix()[0] + ":" + options.mix()[1] + ":" + options.mix()[2]);
+        report.put("tickers", options.tickers());
+        report.put("zipfExponent", options.zipfExponent());
+        report.put("connections", options.connections());
+
+        Histogram all = new Histogram(HIGHEST_LATENCY_MICROS, 3);
+        long allErrors = 0;
+        ObjectNode operations = report.putObject("operations");
+        for (Map.Entry<Operation, Recorder> entry : latencies.entrySet()) {
+            Histogram histogram = entry.getValue().getIntervalHistogram();
+            long operationErrors = errors.get(entry.getKey()).get();
+            all.add(histogram);
+            allErrors += operationErrors;
+            putLatencies(operations.putObject(entry.getKey().getName()), histogram, operationErrors, seconds);
+        }
+        putLatencies(report.putObject("all"), all, allErrors, seconds);
+        return report;
+    }
+
+    private static void putLatencies(ObjectNode node, Histogram histogram, long errors, double seconds) {
+        node.put("count", histogram.getTotalCount());
+        node.put("errors", errors);
+        node.put("throughput", histogram.getTotalCount() / seconds);
+        node.put("p50Millis", histogram.getValueAtPercentile(50) / 1000.0);
+        node.put("p99Millis", histogram.getValueAtPercentile(99) / 1000.0);
+        node.put("p999Millis", histogram.getValueAtPercentile(99.9) / 1000.0);
+        node.put("maxMillis", histogram.getMaxValue() / 1000.0);
+    }
+
+    enum Operation {
+        CREATE_ORDER("createOrder"),
+        GET_ORDER("getOrder"),
+        GET_SUMMARY("getSummary");
+
+        private final String name;
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        String getName() {
+            return name;
+        }
+    }
+
+    record Options(String url, int rate, Duration warmup, Duration duration, int[] mix, int tickers,
+                   double zipfExponent, int connections, Path output, String label) {
+        private static final Set<String> NAMES = Set.of("url", "rate", "warmup", "duration", "mix", "tickers", "zipf",
+                "connections", "output", "label");
+
+        static Options parse(String... args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                int separator = arg.indexOf('=');
+                if (!arg.startsWith("--") || separator < 0 || !NAMES.contains(arg.substring(2, separator))) {
+                    throw new IllegalArgumentException("Expected --name=value with a name in " + NAMES + " but got " + arg);
+                }
+                values.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+            Options options = new Options(
+                    values.get("url"),
+                    Integer.parseInt(values.getOrDefault("rate", "1000")),
+                    parseDuration(values.getOrDefault("warmup", "10s")),
+                    parseDuration(values.getOrDefault("duration", "30s")),
+                    parseMix(values.getOrDefault("mix", "1:2:2")),
+                    Integer.parseInt(values.getOrDefault("tickers", "100")),
+                    Double.parseDouble(values.getOrDefault("zipf", "1.0")),
+                    Integer.parseInt(values.getOrDefault("connections", "64")),
+                    Path.of(values.getOrDefault("output", "target/load-result.json")),
+                    values.getOrDefault("label", ""));
+            if (options.rate() < 1 || options.rate() > TimeUnit.SECONDS.toNanos(1)) {
+                throw new IllegalArgumentException("rate must be between 1 and 10^9 requests per second");
+            }
+            if (options.connections() < 1) {
+                throw new IllegalArgumentException("connections must be at least 1");
+            }
+            return options;
+        }
+
+        private static Duration parseDuration(String value) {
+            return value.endsWith("s") && !value.startsWith("P")
+                    ? Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)))
+                    : Duration.parse(value);
+        }
+
+        private static int[] parseMix(String value) {
+            String[] parts = value.split(":");
+            if (parts.length != Operation.values().length) {
+                throw new IllegalArgumentException("mix must be three ratios like 1:2:2 but was " + value);
+            }
+            int[] mix = new int[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                mix[i] = Integer.parseInt(parts[i]);
+                if (mix[i] < 0) {
+                    throw new IllegalArgumentException("mix may not be negative but was " + value);
+                }
+            }
+            if (mix[0] + mix[1] + mix[2] == 0) {
+                throw new IllegalArgumentException("mix must have a positive ratio but was " + value);
+            }
+            return mix;
+        }
+    }
+}
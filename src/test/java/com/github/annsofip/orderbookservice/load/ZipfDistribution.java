@@ -0,0 +1,37 @@
+package com.github.annsofip.orderbookservice.load;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Ranks from 0 until {@code n} where rank {@code k} is drawn with a probability proportional to
+ * {@code 1 / (k + 1)^exponent}. An exponent of 0 draws every rank equally often, and the larger the exponent the more
+ * the first ranks dominate.
+ */
+class ZipfDistribution {
+    private final double[] cumulativeProbabilities;
+
+    ZipfDistribution(int n, double exponent) {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be at least 1");
+        }
+        if (exponent < 0) {
+            throw new IllegalArgumentException("exponent may not be negative");
+        }
+        cumulativeProbabilities = new double[n];
+        double total = 0;
+        for (int k = 0; k < n; k++) {
+            total += 1 / Math.pow(k + 1, exponent);
+            cumulativeProbabilities[k] = total;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulativeProbabilities[k] /= total;
+        }
+    }
+
+    int sample(RandomGenerator random) {
+        int index = Arrays.binarySearch(cumulativeProbabilities, random.nextDouble());
+        int rank = index >= 0 ? index : -index - 1;
+        return Math.min(rank, cumulativeProbabilities.length - 1);
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.annsofip.orderbookservice.load;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ZipfDistributionTest {
+
+    private static final int SAMPLES = 200_000;
+
+    @Test
+    void sample_shouldDrawRanksInProportionToInversePower() {
+        int[] counts = sample(new ZipfDistribution(4, 1.0));
+
+        // 1 : 1/2 : 1/3 : 1/4 out of 25/12
+        assertEquals(0.48, counts[0] / (double) SAMPLES, 0.01);
+        assertEquals(0.24, counts[1] / (double) SAMPLES, 0.01);
+        assertEquals(0.16, counts[2] / (double) SAMPLES, 0.01);
+        assertEquals(0.12, counts[3] / (double) SAMPLES, 0.01);
+    }
+
+    @Test
+    void sample_shouldDrawRanksEquallyOftenWithExponentZero() {
+        int[] counts = sample(new ZipfDistribution(5, 0));
+
+        for (int count : counts) {
+            assertEquals(0.2, count / (double) SAMPLES, 0.01);
+        }
+    }
+
+    @Test
+    void constructor_shouldRefuseNegativeExponent() {
+        assertThrows(IllegalArgumentException.class, () -> new ZipfDistribution(10, -1));
+    }
+
+    private int[] sample(ZipfDistribution distribution) {
+        Random random = new Random(42);
+        int[] counts = new int[5];
+        for (int i = 0; i < SAMPLES; i++) {
+            counts[distribution.sample(random)]++;
+        }
+        return counts;
+    }
+}
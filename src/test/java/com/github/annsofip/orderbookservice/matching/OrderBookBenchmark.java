@@ -0,0 +1,75 @@
+package com.github.annsofip.orderbookservice.matching;
+
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matching throughput and latency of one book. Every operation rests a sell order at a random price close to the best
+ * ask and then buys the best ask, so the book keeps its size and every operation is one match.
+ * <p>
+ * Run with {@code -prof gc} to check that matching does not allocate, see the README.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderBookBenchmark {
+    private static final long BEST_ASK = 100_000;
+    private static final int IDS = 1 << 16;
+
+    @Param({"10", "1000"})
+    int levels;
+
+    private OrderBook book;
+    private UUID[] ids;
+    private long[] prices;
+    private int next;
+    private FillListener listener;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        book = new OrderBook("SEK");
+        ids = new UUID[IDS];
+        prices = new long[IDS];
+        Random random = new Random(42);
+        for (int i = 0; i < IDS; i++) {
+            ids[i] = new UUID(random.nextLong(), random.nextLong());
+            prices[i] = BEST_ASK + random.nextInt(Math.min(levels, 10));
+        }
+        listener = (makerId, price, volume) -> blackhole.consume(price);
+        for (int level = 0; level < levels; level++) {
+            for (int order = 0; order < 4; order++) {
+                book.submit(nextId(), OrderSide.SELL, BEST_ASK + level, 100, listener);
+                book.submit(nextId(), OrderSide.BUY, BEST_ASK - 1 - level, 100, listener);
+            }
+        }
+    }
+
+    @Benchmark
+    public int restAndMatch() {
+        book.submit(nextId(), OrderSide.SELL, prices[next], 100, listener);
+        return book.submit(nextId(), OrderSide.BUY, book.side(OrderSide.SELL).best().price, 100, listener);
+    }
+
+    private UUID nextId() {
+        next = (next + 1) & (IDS - 1);
+        return ids[next];
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.annsofip.orderbookservice.matching;
+
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of updating a book of 10k price levels per side under its write lock, of copying its depth, and of both at
+ * the same time. Every update rests a sell order at a random level and then buys the best ask, so the book keeps its
+ * size.
+ * <p>
+ * Run with {@code -prof gc} to see the allocation of a snapshot, see the README.
+ */
+@State(Scope.Group)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderBookDepthBenchmark {
+    private static final long BEST_ASK = 100_000;
+    private static final int LEVELS = 10_000;
+    private static final int IDS = 1 << 16;
+    private static final FillListener NO_FILLS = (makerId, price, volume) -> {
+    };
+
+    @Param({"10", "1000"})
+    int depth;
+
+    private OrderBook book;
+    private UUID[] ids;
+    private long[] prices;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        book = new OrderBook("SEK");
+        ids = new UUID[IDS];
+        prices = new long[IDS];
+        Random random = new Random(42);
+        for (int i = 0; i < IDS; i++) {
+            ids[i] = new UUID(random.nextLong(), random.nextLong());
+            prices[i] = BEST_ASK + random.nextInt(LEVELS);
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            book.submit(nextId(), OrderSide.SELL, BEST_ASK + level, 100, NO_FILLS);
+            book.submit(nextId(), OrderSide.BUY, BEST_ASK - 1 - level, 100, NO_FILLS);
+        }
+    }
+
+    @Benchmark
+    @Group("update")
+    public int update() {
+        return restAndMatch();
+    }
+
+    @Benchmark
+    @Group("snapshot")
+    public BookDepth snapshot() {
+        return book.depth(depth);
+    }
+
+    @Benchmark
+    @Group("snapshotWhileUpdating")
+    @GroupThreads(1)
+    public int writer() {
+        return restAndMatch();
+    }
+
+    @Benchmark
+    @Group("snapshotWhileUpdating")
+    @GroupThreads(1)
+    public BookDepth reader() {
+        return book.depth(depth);
+    }
+
+    private int restAndMatch() {
+        long stamp = book.lock().writeLock();
+        try {
+            book.submit(nextId(), OrderSide.SELL, prices[next], 100, NO_FILLS);
+            return book.submit(nextId(), OrderSide.BUY, book.side(OrderSide.SELL).best().price, 100, NO_FILLS);
+        } finally {
+            book.lock().unlockWrite(stamp);
+        }
+    }
+
+    private UUID nextId() {
+        next = (next + 1) & (IDS - 1);
+        return ids[next];
+    }
+}
@@ -0,0 +1,268 @@
+package com.github.annsofip.orderbookservice.matching;
+
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrderBookTest {
+
+    private final OrderBook book = new OrderBook("SEK");
+    private final List<Fill> fills = new ArrayList<>();
+
+    @Test
+    void submit_shouldRestOrderThatDoesNotCross() {
+        submit(OrderSide.BUY, 1000, 100);
+        int remaining = submit(OrderSide.SELL, 1001, 50);
+
+        assertEquals(50, remaining);
+        assertTrue(fills.isEmpty());
+        assertLevel(OrderSide.BUY, 0, 1000, 100, 1);
+        assertLevel(OrderSide.SELL, 0, 1001, 50, 1);
+    }
+
+    @Test
+    void submit_shouldTradeAtPriceOfRestingOrder() {
+        UUID maker = new UUID(0, 1);
+        book.submit(maker, OrderSide.SELL, 1000, 100, this::onFill);
+
+        int remaining = submit(OrderSide.BUY, 1010, 100);
+
+        assertEquals(0, remaining);
+        assertEquals(List.of(new Fill(maker, 1000, 100)), fills);
+        assertTrue(book.side(OrderSide.SELL).isEmpty());
+        assertTrue(book.side(OrderSide.BUY).isEmpty());
+    }
+
+    @Test
+    void submit_shouldFillBestPriceFirstAndRestTheRemainder() {
+        UUID worse = new UUID(0, 1);
+        UUID better = new UUID(0, 2);
+        book.submit(worse, OrderSide.BUY, 990, 30, this::onFill);
+        book.submit(better, OrderSide.BUY, 1000, 30, this::onFill);
+
+        int remaining = submit(OrderSide.SELL, 995, 50);
+
+        assertEquals(20, remaining);
+        assertEquals(List.of(new Fill(better, 1000, 30)), fills);
+        assertLevel(OrderSide.BUY, 0, 990, 30, 1);
+        assertLevel(OrderSide.SELL, 0, 995, 20, 1);
+    }
+
+    @Test
+    void submit_shouldFillOldestOrderFirstWithinPrice() {
+        UUID first = new UUID(0, 1);
+        UUID second = new UUID(0, 2);
+        book.submit(first, OrderSide.SELL, 1000, 30, this::onFill);
+        book.submit(second, OrderSide.SELL, 1000, 30, this::onFill);
+
+        submit(OrderSide.BUY, 1000, 40);
+
+        assertEquals(List.of(new Fill(first, 1000, 30), new Fill(second, 1000, 10)), fills);
+        assertLevel(OrderSide.SELL, 0, 1000, 20, 1);
+    }
+
+    @Test
+    void submit_shouldSweepSeveralLevels() {
+        for (int i = 0; i < 100; i++) {
+            book.submit(new UUID(0, i), OrderSide.SELL, 1000 + i, 10, this::onFill);
+        }
+
+        int remaining = submit(OrderSide.BUY, 1049, 10_000);
+
+        assertEquals(10_000 - 500, remaining);
+        assertEquals(50, fills.size());
+        assertEquals(1049, fills.get(49).price());
+        assertLevel(OrderSide.SELL, 0, 1050, 10, 1);
+        assertEquals(50, book.side(OrderSide.SELL).size());
+        assertLevel(OrderSide.BUY, 0, 1049, 9_500, 1);
+    }
+
+    @Test
+    void submit_shouldKeepLevelsSortedWhenOrdersArriveOutOfOrder() {
+        long[] prices = {1005, 1001, 1009, 1003, 1007, 1001};
+        for (long price : prices) {
+            submit(OrderSide.BUY, price, 10);
+        }
+
+        assertEquals(5, book.side(OrderSide.BUY).size());
+        assertLevel(OrderSide.BUY, 0, 1009, 10, 1);
+        assertLevel(OrderSide.BUY, 1, 1007, 10, 1);
+        assertLevel(OrderSide.BUY, 4, 1001, 20, 2);
+    }
+
+    @Test
+    void cancel_shouldTakeOrderOutOfItsLevel() {
+        UUID first = new UUID(0, 1);
+        UUID second = new UUID(0, 2);
+        book.submit(first, OrderSide.SELL, 1000, 30, this::onFill);
+        book.submit(second, OrderSide.SELL, 1000, 20, this::onFill);
+
+        assertEquals(30, book.cancel(first));
+        assertEquals(0, book.cancel(first));
+        assertEquals(0, book.remaining(first));
+        assertLevel(OrderSide.SELL, 0, 1000, 20, 1);
+
+        submit(OrderSide.BUY, 1000, 50);
+
+        assertEquals(List.of(new Fill(second, 1000, 20)), fills);
+    }
+
+    @Test
+    void cancel_shouldRemoveLevelThatBecomesEmpty() {
+        UUID order = new UUID(0, 1);
+        book.submit(new UUID(0, 2), OrderSide.BUY, 990, 10, this::onFill);
+        book.submit(order, OrderSide.BUY, 1000, 10, this::onFill);
+        book.submit(new UUID(0, 3), OrderSide.BUY, 1010, 10, this::onFill);
+
+        book.cancel(order);
+
+        assertEquals(2, book.side(OrderSide.BUY).size());
+        assertLevel(OrderSide.BUY, 0, 1010, 10, 1);
+        assertLevel(OrderSide.BUY, 1, 990, 10, 1);
+    }
+
+    @Test
+    void reduce_shouldKeepPlaceInQueue() {
+        UUID first = new UUID(0, 1);
+        UUID second = new UUID(0, 2);
+        book.submit(first, OrderSide.SELL, 1000, 30, this::onFill);
+        book.submit(second, OrderSide.SELL, 1000, 30, this::onFill);
+
+        assertTrue(book.reduce(first, 20));
+        assertFalse(book.reduce(first, 10));
+        assertEquals(10, book.remaining(first));
+        assertLevel(OrderSide.SELL, 0, 1000, 40, 2);
+
+        submit(OrderSide.BUY, 1000, 20);
+
+        assertEquals(List.of(new Fill(first, 1000, 10), new Fill(second, 1000, 10)), fills);
+    }
+
+    @Test
+    void preview_shouldReportFillsOfSubmitWithoutChangingBook() {
+        UUID first = new UUID(0, 1);
+        UUID second = new UUID(0, 2);
+        UUID third = new UUID(0, 3);
+        book.submit(first, OrderSide.SELL, 1000, 30, this::onFill);
+        book.submit(second, OrderSide.SELL, 1000, 30, this::onFill);
+        book.submit(third, OrderSide.SELL, 1010, 30, this::onFill);
+
+        assertEquals(70, book.preview(OrderSide.BUY, 1010, 70, this::onFill));
+        List<Fill> previewed = List.copyOf(fills);
+        assertLevel(OrderSide.SELL, 0, 1000, 60, 2);
+        assertLevel(OrderSide.SELL, 1, 1010, 30, 1);
+        fills.clear();
+        submit(OrderSide.BUY, 1010, 70);
+
+        assertEquals(List.of(new Fill(first, 1000, 30), new Fill(second, 1000, 30), new Fill(third, 1010, 10)), previewed);
+        assertEquals(previewed, fills);
+        assertEquals(0, book.preview(OrderSide.BUY, 1000, 10, this::onFill));
+    }
+
+    @Test
+    void reprice_shouldLosePlaceInQueue() {
+        UUID first = new UUID(0, 1);
+        UUID second = new UUID(0, 2);
+        book.submit(first, OrderSide.SELL, 1010, 30, this::onFill);
+        book.submit(second, OrderSide.SELL, 1000, 30, this::onFill);
+
+        assertEquals(30, book.reprice(first, 1000, this::onFill));
+        assertEquals(30, book.reprice(first, 1000, this::onFill));
+        assertEquals(1, book.side(OrderSide.SELL).size());
+        submit(OrderSide.BUY, 1000, 40);
+
+        assertEquals(List.of(new Fill(second, 1000, 30), new Fill(first, 1000, 10)), fills);
+        assertEquals(20, book.remaining(first));
+    }
+
+    @Test
+    void reprice_shouldTradeWhenNewPriceCrosses() {
+        UUID maker = new UUID(0, 1);
+        UUID order = new UUID(0, 2);
+        book.submit(maker, OrderSide.SELL, 1000, 10, this::onFill);
+        book.submit(order, OrderSide.BUY, 990, 30, this::onFill);
+
+        assertEquals(20, book.reprice(order, 1005, this::onFill));
+
+        assertEquals(List.of(new Fill(maker, 1000, 10)), fills);
+        assertTrue(book.side(OrderSide.SELL).isEmpty());
+        assertLevel(OrderSide.BUY, 0, 1005, 20, 1);
+        assertEquals(-1, book.reprice(maker, 1000, this::onFill));
+    }
+
+    @Test
+    void depth_shouldCopyBestLevelsOfBothSidesBestFirst() {
+        submit(OrderSide.BUY, 990, 10);
+        submit(OrderSide.BUY, 1000, 20);
+        submit(OrderSide.BUY, 1000, 5);
+        submit(OrderSide.BUY, 980, 10);
+        submit(OrderSide.SELL, 1010, 30);
+
+        BookDepth depth = book.depth(2);
+
+        assertEquals("SEK", depth.currency());
+        assertEquals(List.of(new BookDepth.Level(1000, 25, 2), new BookDepth.Level(990, 10, 1)), depth.bids());
+        assertEquals(List.of(new BookDepth.Level(1010, 30, 1)), depth.asks());
+    }
+
+    @Test
+    void depth_shouldNotChangeWhenBookChangesAfterwards() {
+        submit(OrderSide.SELL, 1010, 30);
+
+        BookDepth depth = book.depth(10);
+        submit(OrderSide.BUY, 1010, 30);
+
+        assertEquals(List.of(new BookDepth.Level(1010, 30, 1)), depth.asks());
+        assertTrue(book.depth(10).asks().isEmpty());
+    }
+
+    @Test
+    void depth_shouldOnlyReturnStatesBetweenSubmitsWhileWriterIsRunning() throws InterruptedException {
+        // The writer rests a bid and sells it again under one lock, so between those updates there are no bids and the
+        // asks are the single level 2000. Any other copy would be from the middle of an update.
+        submit(OrderSide.SELL, 2000, 10);
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 50_000; i++) {
+                long stamp = book.lock().writeLock();
+                try {
+                    submit(OrderSide.BUY, 1990, 10);
+                    submit(OrderSide.SELL, 1990, 10);
+                } finally {
+                    book.lock().unlockWrite(stamp);
+                }
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            BookDepth depth = book.depth(10);
+            assertTrue(depth.bids().isEmpty());
+            assertEquals(List.of(new BookDepth.Level(2000, 10, 1)), depth.asks());
+        }
+        writer.join();
+    }
+
+    private int submit(OrderSide orderSide, long price, int volume) {
+        return book.submit(UUID.randomUUID(), orderSide, price, volume, this::onFill);
+    }
+
+    private void onFill(UUID makerId, long price, int volume) {
+        fills.add(new Fill(makerId, price, volume));
+    }
+
+    private void assertLevel(OrderSide orderSide, int fromBest, long price, long volume, int orderCount) {
+        PriceLevel level = book.side(orderSide).level(fromBest);
+        assertEquals(price, level.price);
+        assertEquals(volume, level.volume);
+        assertEquals(orderCount, level.orderCount);
+    }
+
+    private record Fill(UUID makerId, long price, int volume) {
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.annsofip.orderbookservice.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class OrderIndexTest {
+
+    @Test
+    void put_shouldGrowBeyondInitialCapacityAndKeepOrders() {
+        OrderIndex index = new OrderIndex(2);
+        List<RestingOrder> orders = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            RestingOrder order = order(UUID.randomUUID());
+            orders.add(order);
+            index.put(order);
+        }
+
+        assertEquals(1000, index.size());
+        for (RestingOrder order : orders) {
+            assertSame(order, index.get(order.id));
+        }
+        assertNull(index.get(UUID.randomUUID()));
+    }
+
+    @Test
+    void remove_shouldKeepOtherOrdersFindableLikeAMap() {
+        OrderIndex index = new OrderIndex(16);
+        Map<UUID, RestingOrder> expected = new HashMap<>();
+        List<UUID> ids = new ArrayList<>();
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 100_000; i++) {
+            if (ids.isEmpty() || random.nextInt(3) > 0) {
+                // Ids of the same millisecond differ in few bits, as the ids of orders that arrive together do.
+                UUID id = new UUID(i / 100, random.nextInt(1000));
+                if (!expected.containsKey(id)) {
+                    RestingOrder order = order(id);
+                    index.put(order);
+                    expected.put(id, order);
+                    ids.add(id);
+                }
+            } else {
+                UUID id = ids.remove(random.nextInt(ids.size()));
+                assertSame(expected.remove(id), index.remove(id));
+                assertNull(index.remove(id));
+            }
+        }
+
+        assertEquals(expected.size(), index.size());
+        expected.forEach((id, order) -> assertSame(order, index.get(id)));
+    }
+
+    private static RestingOrder order(UUID id) {
+        RestingOrder order = new RestingOrder();
+        order.id = id;
+        return order;
+    }
+}
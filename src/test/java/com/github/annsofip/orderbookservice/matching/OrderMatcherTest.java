@@ -0,0 +1,101 @@
+package com.github.annsofip.orderbookservice.matching;
+
+import com.github.annsofip.orderbookservice.config.OrderBookProperties;
+import com.github.annsofip.orderbookservice.model.OrderMapperImpl;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.repositories.OrderRepository;
+import com.github.annsofip.orderbookservice.repositories.SymbolRepository;
+import com.github.annsofip.orderbookservice.repositories.TradeRepository;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import com.github.annsofip.orderbookservice.repositories.entities.Trade;
+import com.github.annsofip.orderbookservice.service.OrderCache;
+import com.github.annsofip.orderbookservice.symbols.SymbolDictionary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OrderMatcherTest {
+
+    private TradeRepository tradeRepository;
+    private OrderMatcher orderMatcher;
+
+    @BeforeEach
+    void setUp() {
+        tradeRepository = mock(TradeRepository.class);
+        orderMatcher = new OrderMatcher(mock(OrderRepository.class), tradeRepository,
+                new OrderCache(new OrderMapperImpl(), new OrderBookProperties(), new SimpleMeterRegistry()),
+                new SymbolDictionary(mock(SymbolRepository.class)));
+    }
+
+    @Test
+    void match_shouldNotSaveTradesWhenOrderDoesNotCross() {
+        orderMatcher.match(order(OrderSide.SELL, 100, 1000));
+
+        assertEquals(0, orderMatcher.match(order(OrderSide.BUY, 50, 990)));
+
+        verify(tradeRepository, never()).saveAll(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void match_shouldSaveTradesOfEveryFill() {
+        Order first = order(OrderSide.SELL, 30, 1000);
+        Order second = order(OrderSide.SELL, 30, 1010);
+        orderMatcher.match(first);
+        orderMatcher.match(second);
+        Order taker = order(OrderSide.BUY, 50, 1010);
+
+        assertEquals(50, orderMatcher.match(taker));
+
+        ArgumentCaptor<List<Trade>> trades = ArgumentCaptor.forClass(List.class);
+        verify(tradeRepository).saveAll(trades.capture());
+        assertEquals(List.of(first.getId(), second.getId()), trades.getValue().stream().map(Trade::getSellOrderId).toList());
+        assertEquals(List.of(30, 20), trades.getValue().stream().map(Trade::getVolume).toList());
+        assertEquals(List.of(1000L, 1010L), trades.getValue().stream().map(Trade::getPrice).toList());
+        assertTrue(trades.getValue().stream().allMatch(trade -> trade.getBuyOrderId().equals(taker.getId())));
+        assertEquals(1, trades.getValue().stream().map(Trade::getDate).distinct().count());
+    }
+
+    @Test
+    void match_shouldLeaveBookAsItWasWhenTradesCannotBeSaved() {
+        Order maker = order(OrderSide.SELL, 100, 1000);
+        orderMatcher.match(maker);
+        Order taker = order(OrderSide.BUY, 40, 1000);
+        when(tradeRepository.saveAll(any())).thenThrow(new DataAccessResourceFailureException("Connection refused"));
+
+        assertThrows(DataAccessResourceFailureException.class, () -> orderMatcher.match(taker));
+
+        BookDepth depth = orderMatcher.depth("SAVE", 10).orElseThrow();
+        assertEquals(List.of(new BookDepth.Level(1000, 100, 1)), depth.asks());
+        assertTrue(depth.bids().isEmpty());
+        assertEquals(100, orderMatcher.remaining(maker));
+        assertEquals(0, orderMatcher.remaining(taker));
+    }
+
+    private static Order order(OrderSide orderSide, int volume, long price) {
+        return Order.builder()
+                .id(UUID.randomUUID())
+                .ticker("SAVE")
+                .orderSide(orderSide)
+                .volume(volume)
+                .price(price)
+                .currency("SEK")
+                .date(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,32 @@
+package com.github.annsofip.orderbookservice.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrderCursorTest {
+
+    @Test
+    void decode_shouldReadBackTheEncodedCursor() {
+        OrderCursor cursor = new OrderCursor(LocalDateTime.of(2023, 6, 13, 10, 15, 30, 123_456_000), TimeOrderedUuids.next());
+        OrderCursor beforeEpoch = new OrderCursor(LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_999_000), UUID.randomUUID());
+
+        String encoded = cursor.encode();
+
+        assertEquals(cursor, OrderCursor.decode(encoded));
+        assertEquals(beforeEpoch, OrderCursor.decode(beforeEpoch.encode()));
+        assertEquals(32, encoded.length());
+        assertTrue(encoded.matches("[A-Za-z0-9_-]+"), encoded);
+    }
+
+    @Test
+    void decode_shouldRefuseStringsThatAreNotCursors() {
+        assertThrows(IllegalArgumentException.class, () -> OrderCursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> OrderCursor.decode("AAAA"));
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.annsofip.orderbookservice.model;
+
+import com.github.annsofip.orderbookservice.api.OrderRequestDTO;
+import com.github.annsofip.orderbookservice.api.OrderResponseDTO;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping an order request to an order and an order to its response, which every created and fetched order goes
+ * through. Both convert the price between a {@link BigDecimal} and minor units.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderMapperBenchmark {
+    private OrderMapper orderMapper;
+    private OrderRequestDTO request;
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        orderMapper = new OrderMapperImpl();
+        request = new OrderRequestDTO("SAVE", OrderSide.BUY, 100, new BigDecimal("12.99"), "SEK");
+        order = Order.builder()
+                .id(UUID.randomUUID())
+                .ticker("SAVE")
+                .orderSide(OrderSide.BUY)
+                .volume(100)
+                .price(1299)
+                .currency("SEK")
+                .date(LocalDateTime.of(2023, 6, 13, 12, 0))
+                .build();
+    }
+
+    @Benchmark
+    public Order createOrderDtoToOrder() {
+        return orderMapper.createOrderDtoToOrder(request);
+    }
+
+    @Benchmark
+    public OrderResponseDTO orderToOrderDto() {
+        return orderMapper.orderToOrderDto(order, 40);
+    }
+}
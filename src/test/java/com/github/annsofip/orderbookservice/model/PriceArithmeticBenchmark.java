@@ -0,0 +1,82 @@
+package com.github.annsofip.orderbookservice.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summarising the same prices as {@link BigDecimal} and as minor units: a running total, min and max over a batch of
+ * orders and the average of the result as it is returned by the API.
+ * <p>
+ * Run with {@code -prof gc} to compare the allocation rate, see the README.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PriceArithmeticBenchmark {
+    private static final int ORDERS = 1024;
+    private static final String CURRENCY = "SEK";
+
+    private BigDecimal[] decimalPrices;
+    private long[] minorUnitPrices;
+
+    @Setup
+    public void setUp() {
+        decimalPrices = new BigDecimal[ORDERS];
+        minorUnitPrices = new long[ORDERS];
+        Random random = new Random(42);
+        for (int i = 0; i < ORDERS; i++) {
+            long price = 1_000 + random.nextInt(99_000);
+            decimalPrices[i] = BigDecimal.valueOf(price, 2);
+            minorUnitPrices[i] = price;
+        }
+    }
+
+    /**
+     * How summaries were calculated before: the average through a double, scaled again to two decimals.
+     */
+    @Benchmark
+    public BigDecimal bigDecimal() {
+        BigDecimal total = BigDecimal.ZERO;
+        BigDecimal min = decimalPrices[0];
+        BigDecimal max = decimalPrices[0];
+        for (BigDecimal price : decimalPrices) {
+            total = total.add(price);
+            min = min.min(price);
+            max = max.max(price);
+        }
+        double average = total.divide(BigDecimal.valueOf(ORDERS), MathContext.DECIMAL128).doubleValue();
+        return BigDecimal.valueOf(average).setScale(2, RoundingMode.HALF_UP).add(min).add(max);
+    }
+
+    @Benchmark
+    public BigDecimal minorUnits() {
+        long total = 0;
+        long min = minorUnitPrices[0];
+        long max = minorUnitPrices[0];
+        for (long price : minorUnitPrices) {
+            total = Math.addExact(total, price);
+            min = Math.min(min, price);
+            max = Math.max(max, price);
+        }
+        return Prices.toPrice(Prices.average(total, ORDERS), CURRENCY)
+                .add(Prices.toPrice(min, CURRENCY))
+                .add(Prices.toPrice(max, CURRENCY));
+    }
+}
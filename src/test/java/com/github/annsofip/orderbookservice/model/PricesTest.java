@@ -0,0 +1,61 @@
+package com.github.annsofip.orderbookservice.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PricesTest {
+
+    @Test
+    void scale_shouldUseMinorUnitsOfCurrency() {
+        assertEquals(2, Prices.scale("SEK"));
+        assertEquals(0, Prices.scale("JPY"));
+        assertEquals(3, Prices.scale("BHD"));
+    }
+
+    @Test
+    void scale_shouldUseTwoDecimalsForUnknownCurrency() {
+        assertEquals(Prices.DEFAULT_SCALE, Prices.scale("XAU"));
+        assertEquals(Prices.DEFAULT_SCALE, Prices.scale("DOGE"));
+    }
+
+    @Test
+    void toMinorUnits_shouldRoundHalfUpToScaleOfCurrency() {
+        assertEquals(1299, Prices.toMinorUnits(new BigDecimal("12.99"), "SEK"));
+        assertEquals(1300, Prices.toMinorUnits(new BigDecimal("12.995"), "SEK"));
+        assertEquals(1501, Prices.toMinorUnits(new BigDecimal("1500.5"), "JPY"));
+        assertThrows(ArithmeticException.class, () -> Prices.toMinorUnits(new BigDecimal("1E30"), "SEK"));
+    }
+
+    @Test
+    void toMinorUnits_shouldRoundBoundsOfRangesInward() {
+        OrderSearch search = OrderSearch.builder()
+                .currency("SEK")
+                .minPrice(new BigDecimal("12.991"))
+                .maxPrice(new BigDecimal("13.009"))
+                .build();
+
+        assertEquals(1300L, search.minPriceInMinorUnits());
+        assertEquals(1300L, search.maxPriceInMinorUnits());
+        assertEquals(1299, Prices.toMinorUnits(new BigDecimal("12.99"), "SEK", RoundingMode.CEILING));
+    }
+
+    @Test
+    void toPrice_shouldUseScaleOfCurrency() {
+        assertEquals(new BigDecimal("12.99"), Prices.toPrice(1299, "SEK"));
+        assertEquals(new BigDecimal("1299"), Prices.toPrice(1299, "JPY"));
+    }
+
+    @Test
+    void average_shouldRoundHalfUp() {
+        assertEquals(1000, Prices.average(3001, 3));
+        assertEquals(1001, Prices.average(3002, 3));
+        assertEquals(3, Prices.average(5, 2));
+        assertEquals(-3, Prices.average(-5, 2));
+        assertEquals(Long.MAX_VALUE / 2, Prices.average(Long.MAX_VALUE - 1, 2));
+    }
+}
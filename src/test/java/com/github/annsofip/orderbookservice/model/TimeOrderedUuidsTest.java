@@ -0,0 +1,67 @@
+package com.github.annsofip.orderbookservice.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TimeOrderedUuidsTest {
+
+    private static final long MILLIS = Instant.parse("2023-06-13T10:15:30.123Z").toEpochMilli();
+
+    @Test
+    void generate_shouldMakeVersion7IdsOfTheMillisecond() {
+        UUID id = new TimeOrderedUuids(() -> MILLIS).generate();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        assertEquals(Instant.ofEpochMilli(MILLIS), TimeOrderedUuids.instant(id).orElseThrow());
+        assertTrue(id.toString().startsWith("0188b440-de4b-7"), id.toString());
+    }
+
+    @Test
+    void generate_shouldIncreaseWithinAMillisecondAndWhenTheClockGoesBack() {
+        AtomicLong clock = new AtomicLong(MILLIS);
+        TimeOrderedUuids uuids = new TimeOrderedUuids(clock::get);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(uuids.generate());
+        }
+        clock.set(MILLIS - 1000);
+        ids.add(uuids.generate());
+
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0, ids.get(i - 1) + " " + ids.get(i));
+            // As the database compares them, byte by byte.
+            assertTrue(ids.get(i - 1).toString().compareTo(ids.get(i).toString()) < 0);
+        }
+        // 4096 ids fit in a millisecond, after that the ids borrow from the next ones.
+        assertEquals(Instant.ofEpochMilli(MILLIS), TimeOrderedUuids.instant(ids.get(4095)).orElseThrow());
+        assertEquals(Instant.ofEpochMilli(MILLIS + 1), TimeOrderedUuids.instant(ids.get(4096)).orElseThrow());
+        assertEquals(Instant.ofEpochMilli(MILLIS + 2), TimeOrderedUuids.instant(ids.get(ids.size() - 1)).orElseThrow());
+    }
+
+    @Test
+    void lowest_shouldBeTheFirstIdOfTheMillisecond() {
+        Instant instant = Instant.ofEpochMilli(MILLIS);
+        UUID id = new TimeOrderedUuids(() -> MILLIS).generate();
+
+        assertTrue(TimeOrderedUuids.lowest(instant).compareTo(id) <= 0);
+        assertTrue(TimeOrderedUuids.lowest(instant.plusMillis(1)).compareTo(id) > 0);
+        assertEquals(instant, TimeOrderedUuids.instant(TimeOrderedUuids.lowest(instant)).orElseThrow());
+    }
+
+    @Test
+    void instant_shouldBeEmptyForRandomIds() {
+        assertTrue(TimeOrderedUuids.instant(UUID.randomUUID()).isEmpty());
+        assertFalse(TimeOrderedUuids.isTimeOrdered(UUID.randomUUID()));
+        assertTrue(TimeOrderedUuids.isTimeOrdered(TimeOrderedUuids.next()));
+    }
+}
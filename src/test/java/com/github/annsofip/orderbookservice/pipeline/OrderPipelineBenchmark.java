@@ -0,0 +1,115 @@
+package com.github.annsofip.orderbookservice.pipeline;
+
+import com.github.annsofip.orderbookservice.config.OrderBookProperties;
+import com.github.annsofip.orderbookservice.matching.OrderMatcher;
+import com.github.annsofip.orderbookservice.model.OrderMapperImpl;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.repositories.SymbolRepository;
+import com.github.annsofip.orderbookservice.repositories.TradeRepository;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import com.github.annsofip.orderbookservice.service.CandleAggregator;
+import com.github.annsofip.orderbookservice.service.OrderCache;
+import com.github.annsofip.orderbookservice.service.OrderSummaryAggregator;
+import com.github.annsofip.orderbookservice.service.OrderWriter;
+import com.github.annsofip.orderbookservice.symbols.SymbolDictionary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Order creation throughput through the pipeline by number of shards, with 16 request threads spread over 64
+ * tickers. The order writer stands in for the database with a fixed commit latency per batch, so the benchmark shows
+ * how shards and batching hide that latency, not how fast a particular database is.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class OrderPipelineBenchmark {
+    private static final String[] TICKERS = new String[64];
+
+    static {
+        for (int i = 0; i < TICKERS.length; i++) {
+            TICKERS[i] = "T" + i;
+        }
+    }
+
+    @Param({"1", "2", "4", "8"})
+    int shards;
+
+    @Param({"200"})
+    long commitMicros;
+
+    private OrderPipeline orderPipeline;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        OrderWriter orderWriter = new OrderWriter() {
+            @Override
+            public Order write(Order order) {
+                return writeAll(List.of(order)).get(0);
+            }
+
+            @Override
+            public List<Order> writeAll(List<Order> orders) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(commitMicros));
+                orders.forEach(Order::assignIdAndDate);
+                return orders;
+            }
+        };
+        OrderBookProperties properties = new OrderBookProperties();
+        properties.getPipeline().setShards(shards);
+        TradeRepository tradeRepository = mock(TradeRepository.class, withSettings().stubOnly());
+        SymbolDictionary symbolDictionary = new SymbolDictionary(mock(SymbolRepository.class, withSettings().stubOnly()));
+        CandleAggregator candleAggregator = new CandleAggregator(null, null,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), null, symbolDictionary, properties);
+        orderPipeline = new OrderPipeline(orderWriter, new OrderSummaryAggregator(null, null, symbolDictionary, null), candleAggregator,
+                new OrderMatcher(null, tradeRepository, new OrderCache(new OrderMapperImpl(), properties, new SimpleMeterRegistry()),
+                        symbolDictionary),
+                properties);
+        orderPipeline.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        orderPipeline.stop();
+    }
+
+    @Benchmark
+    public int createOrder() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Order order = Order.builder()
+                .ticker(TICKERS[random.nextInt(TICKERS.length)])
+                .orderSide(random.nextBoolean() ? OrderSide.BUY : OrderSide.SELL)
+                .volume(100)
+                .price(1000)
+                .currency("SEK")
+                .build();
+        return orderPipeline.submit(order).join();
+    }
+}
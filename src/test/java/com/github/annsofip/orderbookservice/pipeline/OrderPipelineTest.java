@@ -0,0 +1,290 @@
+package com.github.annsofip.orderbookservice.pipeline;
+
+import com.github.annsofip.orderbookservice.config.OrderBookProperties;
+import com.github.annsofip.orderbookservice.matching.OrderMatcher;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import com.github.annsofip.orderbookservice.service.CandleAggregator;
+import com.github.annsofip.orderbookservice.service.OrderSummaryAggregator;
+import com.github.annsofip.orderbookservice.service.OrderWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OrderPipelineTest {
+
+    private final OrderSummaryAggregator orderSummaryAggregator = mock(OrderSummaryAggregator.class);
+    private final OrderMatcher orderMatcher = mock(OrderMatcher.class);
+    private OrderPipeline orderPipeline;
+
+    @AfterEach
+    void tearDown() {
+        orderPipeline.stop();
+    }
+
+    @Test
+    void submit_shouldWriteQueuedOrdersOfShardInOneBatch() throws InterruptedException {
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        List<List<String>> batches = new CopyOnWriteArrayList<>();
+        OrderWriter orderWriter = new OrderWriter() {
+            @Override
+            public Order write(Order order) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List<Order> writeAll(List<Order> orders) {
+                batches.add(orders.stream().map(Order::getTicker).toList());
+                firstBatchStarted.countDown();
+                await(releaseFirstBatch);
+                return orders;
+            }
+        };
+        when(orderMatcher.match(any())).thenReturn(7);
+        orderPipeline = createPipeline(orderWriter, 1, 16);
+
+        CompletableFuture<Integer> first = orderPipeline.submit(createOrder("SAVE"));
+        firstBatchStarted.await();
+        List<CompletableFuture<Integer>> queued = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            queued.add(orderPipeline.submit(createOrder("AMC")));
+        }
+        releaseFirstBatch.countDown();
+
+        assertEquals(7, first.join());
+        queued.forEach(future -> assertEquals(7, future.join()));
+        assertEquals(List.of(List.of("SAVE"), List.of("AMC", "AMC", "AMC", "AMC", "AMC")), batches);
+        verify(orderSummaryAggregator, times(6)).add(any());
+    }
+
+    @Test
+    void submit_shouldRefuseOrderWhenShardIsFull() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        OrderWriter orderWriter = order -> {
+            writing.countDown();
+            await(release);
+            return order;
+        };
+        orderPipeline = createPipeline(orderWriter, 1, 2);
+
+        orderPipeline.submit(createOrder("SAVE"));
+        writing.await();
+        orderPipeline.submit(createOrder("SAVE"));
+        orderPipeline.submit(createOrder("SAVE"));
+
+        OrderPipelineFullException exception = assertThrows(OrderPipelineFullException.class,
+                () -> orderPipeline.submit(createOrder("SAVE")));
+        assertEquals(Duration.ofSeconds(1), exception.getRetryAfter());
+        release.countDown();
+    }
+
+    @Test
+    void submit_shouldFailOrdersOfBatchThatCouldNotBeWritten() {
+        OrderWriter orderWriter = order -> {
+            throw new IllegalStateException("database is down");
+        };
+        orderPipeline = createPipeline(orderWriter, 2, 16);
+
+        CompletableFuture<Integer> future = orderPipeline.submit(createOrder("SAVE"));
+
+        CompletionException exception = assertThrows(CompletionException.class, future::join);
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+        verify(orderMatcher, times(0)).match(any());
+    }
+
+    @Test
+    void submit_shouldNotFailWrittenOrdersWhenMatchingOneOfThemFails() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        OrderWriter orderWriter = new OrderWriter() {
+            @Override
+            public Order write(Order order) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List<Order> writeAll(List<Order> orders) {
+                writing.countDown();
+                await(release);
+                return orders;
+            }
+        };
+        Order failing = createOrder("AMC");
+        when(orderMatcher.match(any())).thenReturn(7);
+        when(orderMatcher.match(failing)).thenThrow(new IllegalStateException("book is broken"));
+        orderPipeline = createPipeline(orderWriter, 1, 16);
+
+        CompletableFuture<Integer> first = orderPipeline.submit(createOrder("SAVE"));
+        writing.await();
+        CompletableFuture<Integer> second = orderPipeline.submit(failing);
+        CompletableFuture<Integer> third = orderPipeline.submit(createOrder("SAVE"));
+        release.countDown();
+
+        assertEquals(7, first.join());
+        assertEquals(0, second.join());
+        assertEquals(7, third.join());
+        verify(orderSummaryAggregator, times(3)).add(any());
+    }
+
+    @Test
+    void submit_shouldWriteOrdersOneByOneWhenBatchCannotBeWritten() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        OrderWriter orderWriter = new OrderWriter() {
+            @Override
+            public Order write(Order order) {
+                if (order.getTicker().equals("BAD")) {
+                    throw new IllegalArgumentException("order cannot be written");
+                }
+                return order;
+            }
+
+            @Override
+            public List<Order> writeAll(List<Order> orders) {
+                writing.countDown();
+                await(release);
+                return OrderWriter.super.writeAll(orders);
+            }
+        };
+        when(orderMatcher.match(any())).thenReturn(7);
+        orderPipeline = createPipeline(orderWriter, 1, 16);
+
+        CompletableFuture<Integer> first = orderPipeline.submit(createOrder("SAVE"));
+        writing.await();
+        CompletableFuture<Integer> second = orderPipeline.submit(createOrder("SAVE"));
+        CompletableFuture<Integer> bad = orderPipeline.submit(createOrder("BAD"));
+        CompletableFuture<Integer> third = orderPipeline.submit(createOrder("SAVE"));
+        release.countDown();
+
+        assertEquals(7, first.join());
+        assertEquals(7, second.join());
+        assertEquals(7, third.join());
+        CompletionException exception = assertThrows(CompletionException.class, bad::join);
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+        verify(orderSummaryAggregator, times(3)).add(any());
+    }
+
+    @Test
+    void execute_shouldRunTaskAfterOrdersQueuedBeforeIt() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> steps = new CopyOnWriteArrayList<>();
+        OrderWriter orderWriter = new OrderWriter() {
+            @Override
+            public Order write(Order order) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List<Order> writeAll(List<Order> orders) {
+                writing.countDown();
+                await(release);
+                steps.add("write " + orders.size());
+                return orders;
+            }
+        };
+        orderPipeline = createPipeline(orderWriter, 1, 16);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        orderPipeline.bindTo(registry);
+
+        orderPipeline.submit(createOrder("SAVE"));
+        writing.await();
+        orderPipeline.submit(createOrder("SAVE"));
+        CompletableFuture<String> task = CompletableFuture.supplyAsync(() -> orderPipeline.execute("SAVE", () -> {
+            steps.add("task");
+            return "done";
+        }));
+        while (registry.get("orderbook.pipeline.queued").gauge().value() < 2) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        assertEquals("done", task.join());
+        assertEquals(List.of("write 1", "write 1", "task"), steps);
+    }
+
+    @Test
+    void execute_shouldThrowExceptionOfTask() {
+        orderPipeline = createPipeline(order -> order, 1, 16);
+
+        assertThrows(IllegalStateException.class, () -> orderPipeline.execute("SAVE", () -> {
+            throw new IllegalStateException("rejected");
+        }));
+    }
+
+    @Test
+    void submit_shouldRefuseOrdersOnceStopped() {
+        orderPipeline = createPipeline(order -> order, 1, 16);
+        orderPipeline.stop();
+
+        assertThrows(OrderPipelineStoppedException.class, () -> orderPipeline.submit(createOrder("SAVE")));
+        assertThrows(OrderPipelineStoppedException.class, () -> orderPipeline.execute("SAVE", () -> "done"));
+    }
+
+    @Test
+    void stop_shouldCreateQueuedOrdersBeforeStopping() {
+        List<Order> written = new CopyOnWriteArrayList<>();
+        OrderWriter orderWriter = order -> {
+            written.add(order);
+            return order;
+        };
+        orderPipeline = createPipeline(orderWriter, 4, 1024);
+
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(orderPipeline.submit(createOrder("T" + i)));
+        }
+        orderPipeline.stop();
+
+        assertEquals(100, written.size());
+        assertTrue(futures.stream().allMatch(CompletableFuture::isDone));
+    }
+
+    private OrderPipeline createPipeline(OrderWriter orderWriter, int shards, int queueCapacity) {
+        OrderBookProperties properties = new OrderBookProperties();
+        properties.getPipeline().setShards(shards);
+        properties.getPipeline().setQueueCapacity(queueCapacity);
+        OrderPipeline pipeline = new OrderPipeline(orderWriter, orderSummaryAggregator, mock(CandleAggregator.class), orderMatcher,
+                properties);
+        pipeline.start();
+        return pipeline;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Order createOrder(String ticker) {
+        return Order.builder()
+                .ticker(ticker)
+                .orderSide(OrderSide.BUY)
+                .volume(100)
+                .price(1299)
+                .currency("SEK")
+                .build();
+    }
+}
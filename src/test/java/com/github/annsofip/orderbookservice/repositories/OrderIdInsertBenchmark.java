@@ -0,0 +1,153 @@
+package com.github.annsofip.orderbookservice.repositories;
+
+import com.github.annsofip.orderbookservice.model.TimeOrderedUuids;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserting {@code rows} orders with random version 4 ids and with time-ordered version 7 ids into a table shaped like
+ * the orders table, in a PostgreSQL database given by {@code url}, {@code user} and {@code password}. The score is the
+ * time to insert all rows; the throughput of each million rows and the size of the primary key index are printed as
+ * the table grows. Random ids go to random pages of the index, so once it no longer fits in shared buffers most
+ * inserts read and dirty a page of their own, while time-ordered ids keep appending to the last page.
+ * <pre>
+ * mvn -Pbenchmarks verify -Djmh.include=OrderIdInsertBenchmark -Djmh.args="-p rows=10000000 -p url=jdbc:postgresql://localhost:5432/postgres?reWriteBatchedInserts=true"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(1)
+public class OrderIdInsertBenchmark {
+    private static final String TABLE = "order_id_benchmark";
+    private static final int BATCH_SIZE = 500;
+    private static final int COMMIT_SIZE = 10_000;
+    private static final int REPORT_SIZE = 1_000_000;
+
+    @Param({"v4", "v7"})
+    public String ids;
+
+    @Param("10000000")
+    public int rows;
+
+    @Param("jdbc:postgresql://localhost:5432/postgres?reWriteBatchedInserts=true")
+    public String url;
+
+    @Param("postgres")
+    public String user;
+
+    @Param("postgres")
+    public String password;
+
+    private Connection connection;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(url, user, password);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + TABLE);
+            statement.execute("CREATE TABLE " + TABLE + " ("
+                    + "id uuid PRIMARY KEY, "
+                    + "ticker_id integer NOT NULL, "
+                    + "order_side smallint NOT NULL, "
+                    + "volume integer NOT NULL, "
+                    + "price bigint NOT NULL, "
+                    + "currency_id integer NOT NULL, "
+                    + "date timestamp(6) NOT NULL)");
+        }
+        connection.setAutoCommit(false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("VACUUM ANALYZE " + TABLE);
+            try {
+                statement.execute("CREATE EXTENSION IF NOT EXISTS pgstattuple");
+                try (ResultSet sizes = statement.executeQuery("SELECT pg_relation_size('" + TABLE + "_pkey'), "
+                        + "pg_relation_size('" + TABLE + "'), "
+                        + "(SELECT avg_leaf_density FROM pgstatindex('" + TABLE + "_pkey'))")) {
+                    sizes.next();
+                    System.out.printf("ids=%s, rows=%d, index=%d MB, table=%d MB, leafDensity=%.1f%%%n", ids, rows,
+                            sizes.getLong(1) >> 20, sizes.getLong(2) >> 20, sizes.getDouble(3));
+                }
+            } catch (SQLException e) {
+                // The leaf density needs the pgstattuple extension, which needs a superuser to create.
+                System.out.printf("ids=%s, rows=%d, index=%d MB%n", ids, rows, indexSize(statement) >> 20);
+            }
+            statement.execute("DROP TABLE " + TABLE);
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public void insert() throws SQLException {
+        SplittableRandom random = new SplittableRandom(42);
+        boolean timeOrdered = "v7".equals(ids);
+        LocalDateTime date = LocalDateTime.now();
+        long reportStart = System.nanoTime();
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + TABLE
+                + " (id, ticker_id, order_side, volume, price, currency_id, date) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 1; i <= rows; i++) {
+                insert.setObject(1, timeOrdered ? TimeOrderedUuids.next() : UUID.randomUUID());
+                insert.setInt(2, random.nextInt(1, 200));
+                insert.setShort(3, (short) random.nextInt(2));
+                insert.setInt(4, random.nextInt(1, 1000));
+                insert.setLong(5, random.nextLong(10_000, 20_000));
+                insert.setInt(6, 1);
+                insert.setTimestamp(7, Timestamp.valueOf(date));
+                insert.addBatch();
+                if (i % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+                if (i % COMMIT_SIZE == 0) {
+                    connection.commit();
+                }
+                if (i % REPORT_SIZE == 0) {
+                    long now = System.nanoTime();
+                    try (Statement statement = connection.createStatement()) {
+                        System.out.printf("ids=%s, rows=%d, rowsPerSecond=%d, index=%d MB%n", ids, i,
+                                REPORT_SIZE * TimeUnit.SECONDS.toNanos(1) / (now - reportStart),
+                                indexSize(statement) >> 20);
+                    }
+                    reportStart = System.nanoTime();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+    }
+
+    private static long indexSize(Statement statement) throws SQLException {
+        try (ResultSet size = statement.executeQuery("SELECT pg_relation_size('" + TABLE + "_pkey')")) {
+            size.next();
+            return size.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.github.annsofip.orderbookservice.service;
+
+import com.github.annsofip.orderbookservice.config.OrderBookProperties;
+import com.github.annsofip.orderbookservice.model.CandleInterval;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.repositories.CandleRepository;
+import com.github.annsofip.orderbookservice.repositories.OrderRepository;
+import com.github.annsofip.orderbookservice.repositories.SymbolRepository;
+import com.github.annsofip.orderbookservice.repositories.entities.Candle;
+import com.github.annsofip.orderbookservice.repositories.entities.CandleId;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import com.github.annsofip.orderbookservice.symbols.SymbolDictionary;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CandleAggregatorTest {
+
+    private static final LocalDateTime TEN = LocalDateTime.of(2023, 6, 13, 10, 0);
+    private static final List<OrderSide> BOTH_SIDES = List.of(OrderSide.values());
+
+    private final Map<CandleId, Candle> stored = new ConcurrentHashMap<>();
+    private OrderRepository orderRepository;
+    private CandleRepository candleRepository;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        orderRepository = mock(OrderRepository.class);
+        candleRepository = mock(CandleRepository.class);
+        when(candleRepository.findLatestStart()).thenReturn(Optional.empty());
+        when(candleRepository.findAllById(any())).thenAnswer(invocation -> {
+            List<Candle> candles = new ArrayList<>();
+            for (CandleId id : (Iterable<CandleId>) invocation.getArgument(0)) {
+                Optional.ofNullable(stored.get(id)).ifPresent(candles::add);
+            }
+            return candles;
+        });
+        when(candleRepository.saveAll(anyCollection())).thenAnswer(invocation -> {
+            for (Candle candle : (Collection<Candle>) invocation.getArgument(0)) {
+                stored.put(candle.getId(), candle);
+            }
+            return List.copyOf(invocation.getArgument(0));
+        });
+        when(candleRepository.findByTickerAndOrderSidesAndIntervalAndStartBetween(any(), any(), any(), any(), any()))
+                .thenAnswer(invocation -> stored.values().stream()
+                        .filter(candle -> candle.getId().getTicker().equals(invocation.getArgument(0))
+                                && invocation.getArgument(1, Collection.class).contains(candle.getId().getOrderSide())
+                                && candle.getId().getInterval() == invocation.getArgument(2)
+                                && !candle.getId().getStart().isBefore(invocation.getArgument(3))
+                                && candle.getId().getStart().isBefore(invocation.getArgument(4)))
+                        .toList());
+    }
+
+    @Test
+    void add_shouldBuildOpenHighLowCloseAndVolumePerInterval() {
+        CandleAggregator aggregator = createAggregator();
+        aggregator.add(createOrder(TEN.plusSeconds(1), 1000, 10));
+        aggregator.add(createOrder(TEN.plusSeconds(20), 1200, 20));
+        aggregator.add(createOrder(TEN.plusSeconds(40), 900, 30));
+        aggregator.add(createOrder(TEN.plusSeconds(59), 1100, 40));
+        aggregator.add(createOrder(TEN.plusSeconds(61), 1300, 50));
+
+        List<Candle> candles = getCandles(aggregator, CandleInterval.ONE_MINUTE);
+
+        assertEquals(2, candles.size());
+        Candle first = candles.get(0);
+        assertEquals(TEN, first.getId().getStart());
+        assertEquals(1000L, first.getOpenPrice());
+        assertEquals(1200L, first.getHighPrice());
+        assertEquals(900L, first.getLowPrice());
+        assertEquals(1100L, first.getClosePrice());
+        assertEquals(100L, first.getVolume());
+        assertEquals(4L, first.getNumberOfOrders());
+        assertEquals(5, getCandles(aggregator, CandleInterval.ONE_SECOND).size());
+        assertEquals(1, getCandles(aggregator, CandleInterval.ONE_HOUR).size());
+    }
+
+    @Test
+    void add_shouldNotDependOnOrderInWhichOrdersArrive() {
+        List<Order> orders = createOrders(500);
+        List<Order> shuffled = new ArrayList<>(orders);
+        Collections.shuffle(shuffled, new Random(42));
+        CandleAggregator inOrder = createAggregator();
+        CandleAggregator outOfOrder = createAggregator();
+
+        orders.forEach(inOrder::add);
+        shuffled.forEach(outOfOrder::add);
+
+        for (CandleInterval interval : CandleInterval.values()) {
+            assertEquals(getCandles(inOrder, interval), getCandles(outOfOrder, interval));
+        }
+    }
+
+    @Test
+    void flush_shouldWriteClosedCandlesAndKeepCurrentOnesInMemory() {
+        CandleAggregator aggregator = createAggregator();
+        aggregator.add(createOrder(TEN.plusSeconds(30), 1000, 10));
+        aggregator.add(createOrder(TEN.plusSeconds(90), 1100, 10));
+
+        aggregator.flush(TEN.plusSeconds(90).plusNanos(500_000_000));
+
+        assertEquals(List.of(TEN), stored.keySet().stream()
+                .filter(id -> id.getInterval() == CandleInterval.ONE_MINUTE)
+                .map(CandleId::getStart)
+                .toList());
+        assertEquals(2, getCandles(aggregator, CandleInterval.ONE_MINUTE).size());
+    }
+
+    @Test
+    void flush_shouldMergeLateOrderIntoStoredCandle() {
+        CandleAggregator aggregator = createAggregator();
+        aggregator.add(createOrder(TEN.plusSeconds(30), 1000, 10));
+        aggregator.flush(TEN.plusMinutes(5));
+
+        aggregator.add(createOrder(TEN.plusSeconds(10), 900, 5));
+
+        Candle candle = getCandles(aggregator, CandleInterval.ONE_MINUTE).get(0);
+        assertEquals(900L, candle.getOpenPrice());
+        assertEquals(1000L, candle.getClosePrice());
+        assertEquals(2L, candle.getNumberOfOrders());
+
+        aggregator.flush(TEN.plusMinutes(5));
+
+        Candle storedCandle = stored.get(new CandleId("SAVE", OrderSide.BUY, CandleInterval.ONE_MINUTE, TEN));
+        assertEquals(900L, storedCandle.getOpenPrice());
+        assertEquals(15L, storedCandle.getVolume());
+    }
+
+    @Test
+    void rebuild_shouldCreateSameCandlesAsAddingOrders() {
+        List<Order> orders = createOrders(500);
+        CandleAggregator live = createAggregator();
+        orders.forEach(live::add);
+        Map<CandleInterval, List<Candle>> expected = new EnumMap<>(CandleInterval.class);
+        for (CandleInterval interval : CandleInterval.values()) {
+            expected.put(interval, getCandles(live, interval));
+        }
+        when(orderRepository.streamByDateFrom(any())).thenAnswer(invocation -> orders.stream());
+
+        CandleAggregator rebuilt = createAggregator();
+        rebuilt.rebuild();
+
+        for (CandleInterval interval : CandleInterval.values()) {
+            assertEquals(expected.get(interval), getCandles(rebuilt, interval));
+        }
+    }
+
+    private CandleAggregator createAggregator() {
+        OrderBookProperties properties = new OrderBookProperties();
+        properties.getCandles().setFlushBatchSize(50);
+        return new CandleAggregator(orderRepository, candleRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), mock(EntityManager.class),
+                new SymbolDictionary(mock(SymbolRepository.class)), properties);
+    }
+
+    private List<Candle> getCandles(CandleAggregator aggregator, CandleInterval interval) {
+        return aggregator.getCandles("SAVE", BOTH_SIDES, interval, TEN.minusDays(1), TEN.plusDays(1));
+    }
+
+    // Orders over ten minutes with some sharing a timestamp, oldest first.
+    private List<Order> createOrders(int count) {
+        Random random = new Random(7);
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            LocalDateTime date = TEN.plusNanos(random.nextInt(600_000) * 1_000_000L);
+            Order order = createOrder(date, 900 + random.nextInt(200), 1 + random.nextInt(100));
+            order.setOrderSide(random.nextBoolean() ? OrderSide.BUY : OrderSide.SELL);
+            orders.add(order);
+        }
+        orders.sort((a, b) -> a.getDate().equals(b.getDate()) ? a.getId().compareTo(b.getId())
+                : a.getDate().compareTo(b.getDate()));
+        return orders;
+    }
+
+    private Order createOrder(LocalDateTime date, long price, int volume) {
+        return Order.builder()
+                .id(UUID.randomUUID())
+                .ticker("SAVE")
+                .orderSide(OrderSide.BUY)
+                .volume(volume)
+                .price(price)
+                .currency("SEK")
+                .date(date)
+                .build();
+    }
+}
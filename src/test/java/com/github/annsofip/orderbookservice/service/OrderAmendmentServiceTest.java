@@ -0,0 +1,113 @@
+package com.github.annsofip.orderbookservice.service;
+
+import com.github.annsofip.orderbookservice.archive.OrderArchive;
+import com.github.annsofip.orderbookservice.config.OrderBookProperties;
+import com.github.annsofip.orderbookservice.matching.OrderMatcher;
+import com.github.annsofip.orderbookservice.model.OrderChanges;
+import com.github.annsofip.orderbookservice.model.OrderMapperImpl;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.repositories.DailyOrderSummaryRepository;
+import com.github.annsofip.orderbookservice.repositories.OrderEventRepository;
+import com.github.annsofip.orderbookservice.repositories.OrderRepository;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import com.github.annsofip.orderbookservice.repositories.entities.Trade;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OrderAmendmentServiceTest {
+
+    private final Order order = Order.builder()
+            .id(UUID.randomUUID())
+            .ticker("SAVE")
+            .orderSide(OrderSide.SELL)
+            .volume(100)
+            .price(1299)
+            .currency("SEK")
+            .date(LocalDateTime.of(2023, 6, 13, 12, 0))
+            .build();
+    private OrderRepository orderRepository;
+    private OrderEventRepository orderEventRepository;
+    private OrderMatcher orderMatcher;
+    private OrderSummaryAggregator orderSummaryAggregator;
+    private PlatformTransactionManager transactionManager;
+    private OrderAmendmentService orderAmendmentService;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = mock(OrderRepository.class);
+        orderEventRepository = mock(OrderEventRepository.class);
+        orderMatcher = mock(OrderMatcher.class);
+        orderSummaryAggregator = mock(OrderSummaryAggregator.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(orderSummaryAggregator.priceRange(any())).thenReturn(Optional.empty());
+        OrderWriter orderWriter = mock(OrderWriter.class);
+        when(orderWriter.findUnpersisted(any())).thenReturn(Optional.empty());
+        when(orderRepository.findById(order.getId())).thenReturn(Optional.of(order));
+        when(orderEventRepository.findChanges(order.getId())).thenReturn(OrderChanges.NONE);
+        OrderMapperImpl orderMapper = new OrderMapperImpl();
+        orderAmendmentService = new OrderAmendmentService(orderRepository, orderEventRepository,
+                mock(DailyOrderSummaryRepository.class), orderWriter, mock(OrderArchive.class), orderMatcher,
+                orderSummaryAggregator, new OrderCache(orderMapper, new OrderBookProperties(), new SimpleMeterRegistry()),
+                orderMapper, new OrderMetrics(new SimpleMeterRegistry(), new OrderBookProperties()),
+                new TransactionTemplate(transactionManager), Optional.empty());
+    }
+
+    @Test
+    void cancelOrder_shouldNotSaveEventWhenOrderWasFilledMeanwhile() {
+        when(orderMatcher.cancel(order)).thenReturn(0);
+
+        assertThrows(OrderAmendmentRejectedException.class, () -> orderAmendmentService.cancelOrder(order.getId()));
+
+        verify(orderEventRepository, never()).save(any());
+    }
+
+    @Test
+    void amendOrder_shouldNotSaveEventWhenBookRefusesIt() {
+        when(orderMatcher.amend(any(), anyInt(), anyLong(), anyList())).thenReturn(OptionalInt.empty());
+
+        assertThrows(OrderAmendmentRejectedException.class,
+                () -> orderAmendmentService.amendOrder(order.getId(), 50, new BigDecimal("13.00")));
+
+        verify(orderEventRepository, never()).save(any());
+        verify(orderSummaryAggregator, never()).amend(any(), any());
+    }
+
+    @Test
+    void amendOrder_shouldSaveTradesOfRepriceInTransactionOfEvent() {
+        Trade trade = Trade.builder().sellOrderId(order.getId()).buyOrderId(UUID.randomUUID()).volume(20).price(1250).build();
+        when(orderMatcher.amend(any(), anyInt(), anyLong(), anyList())).thenAnswer(invocation -> {
+            invocation.<List<Trade>>getArgument(3).add(trade);
+            return OptionalInt.of(20);
+        });
+
+        orderAmendmentService.amendOrder(order.getId(), null, new BigDecimal("12.50"));
+
+        InOrder inOrder = inOrder(transactionManager, orderEventRepository, orderMatcher);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(orderEventRepository).save(any());
+        inOrder.verify(orderMatcher).saveTrades(order, List.of(trade));
+        inOrder.verify(transactionManager).commit(any());
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.annsofip.orderbookservice.service;
+
+import com.github.annsofip.orderbookservice.OrderBookServiceApplication;
+import com.github.annsofip.orderbookservice.api.OrderRequestDTO;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creating {@code orders} orders one request at a time, each in its own transaction, and as one batch, persisted in
+ * chunks of one transaction and one JDBC batch each. The score is the time for all orders. The orders are all buy
+ * orders spread over 64 tickers, so that nothing is matched and only persisting them differs.
+ * <p>
+ * Runs against H2 in memory, or against PostgreSQL with
+ * {@code -p url=jdbc:postgresql://localhost:5432/postgres?reWriteBatchedInserts=true} as user postgres. The orders
+ * and summaries of the benchmark's tickers are deleted afterwards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class OrderBatchBenchmark {
+    private static final String[] TICKERS = new String[64];
+
+    static {
+        for (int i = 0; i < TICKERS.length; i++) {
+            TICKERS[i] = "BATCH" + i;
+        }
+    }
+
+    @Param({"single", "batch"})
+    public String requests;
+
+    @Param("10000")
+    public int orders;
+
+    @Param("")
+    public String url;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private OrderBatchService orderBatchService;
+    private List<OrderRequestDTO> orderRequests;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> args = new ArrayList<>(List.of("--spring.profiles.active=test",
+                "--spring.jpa.show-sql=false",
+                "--spring.h2.console.enabled=false",
+                "--logging.level.root=WARN"));
+        if (!url.isEmpty()) {
+            args.addAll(List.of("--spring.datasource.url=" + url,
+                    "--spring.datasource.driver-class-name=org.postgresql.Driver",
+                    "--spring.datasource.username=postgres",
+                    "--spring.datasource.password=postgres"));
+        }
+        context = new SpringApplicationBuilder(OrderBookServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(String[]::new));
+        orderService = context.getBean(OrderService.class);
+        orderBatchService = context.getBean(OrderBatchService.class);
+        Random random = new Random(42);
+        orderRequests = new ArrayList<>(orders);
+        for (int i = 0; i < orders; i++) {
+            orderRequests.add(new OrderRequestDTO(TICKERS[random.nextInt(TICKERS.length)], OrderSide.BUY,
+                    1 + random.nextInt(1000), BigDecimal.valueOf(900 + random.nextInt(200)), "SEK"));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("DELETE FROM \"customer_order\" WHERE ticker_id IN "
+                + "(SELECT id FROM symbol WHERE name LIKE 'BATCH%')");
+        jdbcTemplate.update("DELETE FROM daily_order_summary WHERE ticker LIKE 'BATCH%'");
+        context.close();
+    }
+
+    @Benchmark
+    public int createOrders() {
+        if ("batch".equals(requests)) {
+            return orderBatchService.createOrders(orderRequests).size();
+        }
+        int created = 0;
+        for (OrderRequestDTO orderRequest : orderRequests) {
+            orderService.createOrder(orderRequest);
+            created++;
+        }
+        return created;
+    }
+}
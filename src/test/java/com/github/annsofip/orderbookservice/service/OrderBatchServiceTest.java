@@ -0,0 +1,179 @@
+package com.github.annsofip.orderbookservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.annsofip.orderbookservice.api.BatchOrderResultDTO;
+import com.github.annsofip.orderbookservice.api.OrderRequestDTO;
+import com.github.annsofip.orderbookservice.api.OrderResponseDTO;
+import com.github.annsofip.orderbookservice.config.OrderBookProperties;
+import com.github.annsofip.orderbookservice.idempotency.ClientOrderIds;
+import com.github.annsofip.orderbookservice.matching.OrderMatcher;
+import com.github.annsofip.orderbookservice.model.OrderMapper;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.repositories.OrderEventRepository;
+import com.github.annsofip.orderbookservice.repositories.OrderRepository;
+import com.github.annsofip.orderbookservice.repositories.SymbolRepository;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import com.github.annsofip.orderbookservice.symbols.SymbolDictionary;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static com.github.annsofip.orderbookservice.api.BatchOrderResultDTO.Status.CREATED;
+import static com.github.annsofip.orderbookservice.api.BatchOrderResultDTO.Status.FAILED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OrderBatchServiceTest {
+
+    private OrderWriter orderWriter;
+    private OrderMapper orderMapper;
+    private OrderSummaryAggregator orderSummaryAggregator;
+    private OrderMatcher orderMatcher;
+    private ClientOrderIds clientOrderIds;
+    private OrderBatchService orderBatchService;
+
+    @BeforeEach
+    void setUp() {
+        orderWriter = mock(OrderWriter.class);
+        orderMapper = mock(OrderMapper.class);
+        orderSummaryAggregator = mock(OrderSummaryAggregator.class);
+        orderMatcher = mock(OrderMatcher.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(new SimpleTransactionStatus()));
+        when(orderMapper.createOrderDtoToOrder(any())).thenAnswer(invocation ->
+                createOrder(invocation.getArgument(0, OrderRequestDTO.class).getClientOrderId()));
+        when(orderMapper.orderToOrderDto(any(), anyInt())).thenAnswer(invocation ->
+                OrderResponseDTO.builder().id(invocation.getArgument(0, Order.class).getId()).build());
+        when(orderWriter.writeAll(anyList())).thenAnswer(invocation -> new ArrayList<>(invocation.<List<Order>>getArgument(0)));
+
+        OrderBookProperties properties = new OrderBookProperties();
+        properties.getBatch().setChunkSize(2);
+        properties.getClientOrderIds().setExpectedIds(1000);
+        clientOrderIds = new ClientOrderIds(mock(OrderRepository.class), mock(OrderEventRepository.class), orderMapper,
+                orderMatcher, orderWriter, transactionTemplate, properties);
+        orderBatchService = new OrderBatchService(orderWriter, orderMapper, orderSummaryAggregator,
+                mock(CandleAggregator.class), orderMatcher, Validation.buildDefaultValidatorFactory().getValidator(),
+                new ObjectMapper(), properties, new SymbolDictionary(mock(SymbolRepository.class)), clientOrderIds,
+                Optional.empty());
+    }
+
+    @Test
+    void createOrders_shouldWriteOneBatchPerChunk() {
+        List<BatchOrderResultDTO> results = orderBatchService.createOrders(createOrderRequests(5));
+
+        assertEquals(5, results.size());
+        results.forEach(result -> assertEquals(CREATED, result.getStatus()));
+        verify(orderWriter, times(3)).writeAll(anyList());
+        verify(orderSummaryAggregator, times(5)).add(any());
+        verify(orderMatcher, times(5)).match(any());
+    }
+
+    @Test
+    void createOrders_shouldFailOnlyTheChunkThatCouldNotBePersisted() {
+        when(orderWriter.writeAll(anyList()))
+                .thenAnswer(invocation -> new ArrayList<>(invocation.<List<Order>>getArgument(0)))
+                .thenThrow(new IllegalStateException("database is down"))
+                .thenAnswer(invocation -> new ArrayList<>(invocation.<List<Order>>getArgument(0)));
+
+        List<BatchOrderResultDTO> results = orderBatchService.createOrders(createOrderRequests(5));
+
+        assertEquals(List.of(CREATED, CREATED, FAILED, FAILED, CREATED), results.stream().map(BatchOrderResultDTO::getStatus).toList());
+        assertEquals(List.of(0, 1, 2, 3, 4), results.stream().map(BatchOrderResultDTO::getIndex).toList());
+        verify(orderSummaryAggregator, times(3)).add(any());
+    }
+
+    @Test
+    void createOrders_shouldWaitForOrderWithTheClientOrderIdThatAnotherRequestIsCreating() throws Exception {
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        OrderResponseDTO response = OrderResponseDTO.builder().id(UUID.randomUUID()).build();
+        CompletableFuture<OrderResponseDTO> single = CompletableFuture.supplyAsync(() ->
+                clientOrderIds.createOnce("shared", () -> {
+                    creating.countDown();
+                    await(release);
+                    return response;
+                }));
+        assertTrue(creating.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<List<BatchOrderResultDTO>> batch = CompletableFuture.supplyAsync(() ->
+                orderBatchService.createOrders(List.of(createOrderRequest("own"), createOrderRequest("shared"))));
+        release.countDown();
+
+        List<BatchOrderResultDTO> results = batch.get(5, TimeUnit.SECONDS);
+        assertSame(response, single.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of(CREATED, CREATED), results.stream().map(BatchOrderResultDTO::getStatus).toList());
+        assertEquals(response.getId(), results.get(1).getOrder().getId());
+        verify(orderMatcher, times(1)).match(any());
+    }
+
+    @Test
+    void createOrders_shouldAnswerRepeatedClientOrderIdsWithTheOrderCreatedFirst() {
+        List<OrderRequestDTO> requests = List.of(createOrderRequest("first"), createOrderRequest("first"),
+                createOrderRequest("second"));
+
+        List<BatchOrderResultDTO> results = orderBatchService.createOrders(requests);
+        List<BatchOrderResultDTO> retried = orderBatchService.createOrders(requests);
+
+        results.forEach(result -> assertEquals(CREATED, result.getStatus()));
+        assertEquals(results.get(0).getOrder().getId(), results.get(1).getOrder().getId());
+        assertNotEquals(results.get(0).getOrder().getId(), results.get(2).getOrder().getId());
+        assertEquals(results.stream().map(result -> result.getOrder().getId()).toList(),
+                retried.stream().map(result -> result.getOrder().getId()).toList());
+        verify(orderMatcher, times(2)).match(any());
+    }
+
+    private OrderRequestDTO createOrderRequest(String clientOrderId) {
+        return new OrderRequestDTO("SAVE", OrderSide.BUY, 100, BigDecimal.valueOf(12.99), "SEK", clientOrderId);
+    }
+
+    private List<OrderRequestDTO> createOrderRequests(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new OrderRequestDTO("SAVE", OrderSide.BUY, 100, BigDecimal.valueOf(12.99), "SEK"))
+                .toList();
+    }
+
+    private Order createOrder(String clientOrderId) {
+        return Order.builder()
+                .id(UUID.randomUUID())
+                .ticker("SAVE")
+                .orderSide(OrderSide.BUY)
+                .volume(100)
+                .price(1299)
+                .currency("SEK")
+                .date(LocalDateTime.now())
+                .clientOrderId(clientOrderId)
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.annsofip.orderbookservice.service;
+
+import com.github.annsofip.orderbookservice.api.OrderResponseDTO;
+import com.github.annsofip.orderbookservice.config.OrderBookProperties;
+import com.github.annsofip.orderbookservice.model.FillStatus;
+import com.github.annsofip.orderbookservice.model.OrderMapperImpl;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrderCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OrderCache orderCache = new OrderCache(new OrderMapperImpl(), new OrderBookProperties(), meterRegistry);
+
+    @Test
+    void get_shouldReturnPutOrderWithoutLoading() {
+        Order order = createOrder();
+        orderCache.put(order, 40);
+
+        Optional<OrderResponseDTO> cached = orderCache.get(order.getId(), id -> {
+            throw new AssertionError("Should not load");
+        });
+
+        assertTrue(cached.isPresent());
+        assertEquals(40, cached.get().getFilledVolume());
+        assertEquals(FillStatus.PARTIALLY_FILLED, cached.get().getFillStatus());
+    }
+
+    @Test
+    void get_shouldLoadAgainOnceInvalidated() {
+        Order order = createOrder();
+        orderCache.put(order, 0);
+        orderCache.invalidateAll(List.of(order.getId()));
+
+        AtomicInteger loads = new AtomicInteger();
+        orderCache.get(order.getId(), id -> {
+            loads.incrementAndGet();
+            return Optional.of(new OrderMapperImpl().orderToOrderDto(order, 100));
+        });
+        Optional<OrderResponseDTO> cached = orderCache.get(order.getId(), id -> Optional.empty());
+
+        assertEquals(1, loads.get());
+        assertEquals(FillStatus.FILLED, cached.orElseThrow().getFillStatus());
+    }
+
+    @Test
+    void get_shouldForgetNotFoundOnceOrderIsPut() {
+        Order order = createOrder();
+        assertFalse(orderCache.get(order.getId(), id -> Optional.empty()).isPresent());
+
+        orderCache.put(order, 0);
+
+        assertTrue(orderCache.get(order.getId(), id -> Optional.empty()).isPresent());
+    }
+
+    @Test
+    void get_shouldRecordHitsAndMisses() {
+        Order order = createOrder();
+        orderCache.get(order.getId(), id -> Optional.of(new OrderMapperImpl().orderToOrderDto(order, 0)));
+        orderCache.get(order.getId(), id -> Optional.empty());
+        orderCache.get(order.getId(), id -> Optional.empty());
+
+        assertEquals(2.0, meterRegistry.get("cache.gets").tag("cache", "orders").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "orders").tag("result", "miss").functionCounter().count());
+    }
+
+    private Order createOrder() {
+        return Order.builder()
+                .id(UUID.randomUUID())
+                .ticker("SAVE")
+                .orderSide(OrderSide.BUY)
+                .volume(100)
+                .price(1299)
+                .currency("SEK")
+                .date(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.annsofip.orderbookservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.annsofip.orderbookservice.api.OrderResponseDTO;
+import com.github.annsofip.orderbookservice.archive.OrderArchive;
+import com.github.annsofip.orderbookservice.model.FillStatus;
+import com.github.annsofip.orderbookservice.model.OrderMapperImpl;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.model.OrderWithFills;
+import com.github.annsofip.orderbookservice.repositories.OrderRepository;
+import com.github.annsofip.orderbookservice.repositories.SymbolRepository;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import com.github.annsofip.orderbookservice.symbols.SymbolDictionary;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OrderExportServiceTest {
+
+    private static final LocalDate DATE = LocalDate.of(2023, 6, 13);
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private OrderRepository orderRepository;
+    private EntityManager entityManager;
+    private OrderExportService orderExportService;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = mock(OrderRepository.class);
+        entityManager = mock(EntityManager.class);
+        SymbolDictionary symbolDictionary = new SymbolDictionary(mock(SymbolRepository.class));
+        symbolDictionary.intern("SAVE");
+        OrderArchive orderArchive = mock(OrderArchive.class);
+        when(orderArchive.withArchived(any(), any(), any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        orderExportService = new OrderExportService(orderRepository, new OrderMapperImpl(), objectMapper, entityManager,
+                symbolDictionary, orderArchive);
+    }
+
+    @Test
+    void exportOrders_shouldWriteOneOrderPerLineAndDetachIt() throws IOException {
+        Order first = createOrder(1299);
+        Order second = createOrder(1300);
+        AtomicBoolean closed = new AtomicBoolean();
+        when(orderRepository.streamByTickerAndOrderSideAndDate("SAVE", OrderSide.BUY, DATE))
+                .thenReturn(Stream.of(new OrderWithFills(first, 0L), new OrderWithFills(second, 100L))
+                        .onClose(() -> closed.set(true)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = orderExportService.exportOrders("SAVE", OrderSide.BUY, DATE, out);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(2, count);
+        assertEquals(2, lines.size());
+        assertTrue(out.toString(StandardCharsets.UTF_8).endsWith("\n"));
+        OrderResponseDTO exported = objectMapper.readValue(lines.get(1), OrderResponseDTO.class);
+        assertEquals(second.getId(), exported.getId());
+        assertEquals("13.00", exported.getPrice().toPlainString());
+        assertEquals(FillStatus.FILLED, exported.getFillStatus());
+        verify(entityManager).detach(first);
+        verify(entityManager).detach(second);
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void exportOrders_shouldWriteNothingForDayWithoutOrders() throws IOException {
+        when(orderRepository.streamByTickerAndOrderSideAndDate("SAVE", OrderSide.BUY, DATE)).thenReturn(Stream.empty());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(0, orderExportService.exportOrders("SAVE", OrderSide.BUY, DATE, out));
+        assertEquals(0, out.size());
+    }
+
+    private Order createOrder(long price) {
+        return Order.builder()
+                .id(UUID.randomUUID())
+                .ticker("SAVE")
+                .orderSide(OrderSide.BUY)
+                .volume(100)
+                .price(price)
+                .currency("SEK")
+                .date(DATE.atTime(12, 0))
+                .build();
+    }
+}
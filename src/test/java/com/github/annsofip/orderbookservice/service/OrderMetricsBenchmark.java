@@ -0,0 +1,80 @@
+package com.github.annsofip.orderbookservice.service;
+
+import com.github.annsofip.orderbookservice.config.OrderBookProperties;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What timing a call to the order service costs with the Prometheus registry, over 100 tickers of which the first
+ * {@code maxTickers} have their own timers. {@code baseline} makes the same call without timing it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderMetricsBenchmark {
+    private static final String[] TICKERS = new String[100];
+
+    static {
+        for (int i = 0; i < TICKERS.length; i++) {
+            TICKERS[i] = "T" + i;
+        }
+    }
+
+    @Param({"true", "false"})
+    boolean enabled;
+
+    @Param({"50"})
+    int maxTickers;
+
+    private OrderMetrics orderMetrics;
+
+    @Setup
+    public void setUp() {
+        OrderBookProperties properties = new OrderBookProperties();
+        properties.getMetrics().setEnabled(enabled);
+        properties.getMetrics().setMaxTickers(maxTickers);
+        orderMetrics = new OrderMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), properties);
+        for (String ticker : TICKERS) {
+            orderMetrics.recordAndAddTicker("createOrder", ticker, () -> ticker);
+        }
+    }
+
+    @Benchmark
+    public String baseline() {
+        String ticker = TICKERS[ThreadLocalRandom.current().nextInt(TICKERS.length)];
+        return call(ticker);
+    }
+
+    @Benchmark
+    public String record() {
+        String ticker = TICKERS[ThreadLocalRandom.current().nextInt(TICKERS.length)];
+        return orderMetrics.record("getSummary", ticker, () -> call(ticker));
+    }
+
+    @Benchmark
+    public String recordAndAddTicker() {
+        String ticker = TICKERS[ThreadLocalRandom.current().nextInt(TICKERS.length)];
+        return orderMetrics.recordAndAddTicker("createOrder", ticker, () -> call(ticker));
+    }
+
+    private static String call(String ticker) {
+        return ticker;
+    }
+}
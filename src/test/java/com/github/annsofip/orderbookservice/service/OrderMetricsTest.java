@@ -0,0 +1,89 @@
+package com.github.annsofip.orderbookservice.service;
+
+import com.github.annsofip.orderbookservice.config.OrderBookProperties;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrderMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void record_shouldTimeCallsPerOperationAndTicker() {
+        OrderMetrics orderMetrics = createOrderMetrics(true, 10);
+
+        assertEquals("order", orderMetrics.recordAndAddTicker("createOrder", "SAVE", () -> "order"));
+        orderMetrics.record("getSummary", "SAVE", () -> "summary");
+        orderMetrics.record("getSummary", "SAVE", () -> "summary");
+
+        assertEquals(1, timer("createOrder", "SAVE").count());
+        assertEquals(2, timer("getSummary", "SAVE").count());
+    }
+
+    @Test
+    void record_shouldTagTickersWithoutOrdersAsOther() {
+        OrderMetrics orderMetrics = createOrderMetrics(true, 10);
+
+        orderMetrics.record("getSummary", "MADEUP", () -> "summary");
+        orderMetrics.record("getOrder", null, () -> "order");
+
+        assertEquals(1, timer("getSummary", OrderMetrics.OTHER_TICKERS).count());
+        assertEquals(1, timer("getOrder", OrderMetrics.NO_TICKER).count());
+    }
+
+    @Test
+    void recordAndAddTicker_shouldTagTickersAboveMaximumAsOther() {
+        OrderMetrics orderMetrics = createOrderMetrics(true, 2);
+
+        for (String ticker : new String[]{"SAVE", "GME", "AMC", "NOKIA", "SAVE"}) {
+            orderMetrics.recordAndAddTicker("createOrder", ticker, () -> "order");
+        }
+
+        Set<String> tickers = meterRegistry.find("orderbook.service").timers().stream()
+                .map(timer -> timer.getId().getTag("ticker"))
+                .collect(Collectors.toSet());
+        assertEquals(Set.of("SAVE", "GME", OrderMetrics.OTHER_TICKERS), tickers);
+        assertEquals(2, timer("createOrder", "SAVE").count());
+        assertEquals(2, timer("createOrder", OrderMetrics.OTHER_TICKERS).count());
+    }
+
+    @Test
+    void record_shouldPublishPercentileHistogram() {
+        PrometheusMeterRegistry prometheus = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        OrderMetrics orderMetrics = new OrderMetrics(prometheus, new OrderBookProperties());
+
+        orderMetrics.recordAndAddTicker("createOrder", "SAVE", () -> "order");
+
+        assertTrue(prometheus.scrape().contains(
+                "orderbook_service_seconds_bucket{operation=\"createOrder\",ticker=\"SAVE\",le=\"+Inf\",} 1.0"));
+    }
+
+    @Test
+    void record_shouldOnlyRunCallWhenDisabled() {
+        OrderMetrics orderMetrics = createOrderMetrics(false, 10);
+
+        assertEquals("order", orderMetrics.recordAndAddTicker("createOrder", "SAVE", () -> "order"));
+
+        assertTrue(meterRegistry.getMeters().isEmpty());
+    }
+
+    private OrderMetrics createOrderMetrics(boolean enabled, int maxTickers) {
+        OrderBookProperties properties = new OrderBookProperties();
+        properties.getMetrics().setEnabled(enabled);
+        properties.getMetrics().setMaxTickers(maxTickers);
+        return new OrderMetrics(meterRegistry, properties);
+    }
+
+    private Timer timer(String operation, String ticker) {
+        return meterRegistry.get("orderbook.service").tag("operation", operation).tag("ticker", ticker).timer();
+    }
+}
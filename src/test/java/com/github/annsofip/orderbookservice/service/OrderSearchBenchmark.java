@@ -0,0 +1,131 @@
+package com.github.annsofip.orderbookservice.service;
+
+import com.github.annsofip.orderbookservice.OrderBookServiceApplication;
+import com.github.annsofip.orderbookservice.api.OrderPageDTO;
+import com.github.annsofip.orderbookservice.model.OrderCursor;
+import com.github.annsofip.orderbookservice.model.OrderSearch;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.model.TimeOrderedUuids;
+import com.github.annsofip.orderbookservice.symbols.SymbolDictionary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A page of a search of the orders of one ticker with {@code orders} orders, the first page or a page deep into them.
+ * With a cursor, the search seeks to the page in the ticker, date and id index, so {@code page=10000} should take about
+ * as long as {@code page=1}.
+ * <p>
+ * Runs against H2 in memory, or against PostgreSQL with {@code -p url=jdbc:postgresql://localhost:5432/postgres} as
+ * user postgres. The orders of the ticker are deleted afterwards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class OrderSearchBenchmark {
+    private static final String TICKER = "SEARCH";
+    private static final int LIMIT = 100;
+    private static final int INSERT_BATCH_SIZE = 10_000;
+
+    @Param("1000000")
+    public int orders;
+
+    @Param({"1", "10000"})
+    public int page;
+
+    @Param("")
+    public String url;
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private OrderService orderService;
+    private OrderSearch search;
+    private OrderCursor cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> args = new ArrayList<>(List.of("--spring.profiles.active=test",
+                "--spring.jpa.show-sql=false",
+                "--spring.h2.console.enabled=false",
+                "--logging.level.root=WARN"));
+        if (!url.isEmpty()) {
+            args.addAll(List.of("--spring.datasource.url=" + url,
+                    "--spring.datasource.driver-class-name=org.postgresql.Driver",
+                    "--spring.datasource.username=postgres",
+                    "--spring.datasource.password=postgres"));
+        }
+        context = new SpringApplicationBuilder(OrderBookServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(String[]::new));
+        orderService = context.getBean(OrderService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        cursor = preload(context.getBean(SymbolDictionary.class));
+        jdbcTemplate.execute("ANALYZE");
+        search = OrderSearch.builder().ticker(TICKER).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM \"customer_order\" WHERE ticker_id = ?",
+                context.getBean(SymbolDictionary.class).intern(TICKER));
+        context.close();
+    }
+
+    @Benchmark
+    public OrderPageDTO searchOrders() {
+        return orderService.searchOrders(search, cursor, LIMIT);
+    }
+
+    /**
+     * Inserts the orders a millisecond apart and returns the cursor of the page before {@link #page}.
+     */
+    private OrderCursor preload(SymbolDictionary symbolDictionary) {
+        int tickerId = symbolDictionary.intern(TICKER);
+        int currencyId = symbolDictionary.intern("SEK");
+        int cursorIndex = (page - 1) * LIMIT - 1;
+        OrderCursor pageCursor = null;
+        Random random = new Random(42);
+        LocalDateTime start = LocalDateTime.now().minusDays(30);
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 0; i < orders; i++) {
+            LocalDateTime date = start.plusNanos(i * 1_000_000L);
+            UUID id = TimeOrderedUuids.next();
+            if (i == cursorIndex) {
+                pageCursor = new OrderCursor(date, id);
+            }
+            batch.add(new Object[]{id, tickerId, random.nextBoolean() ? OrderSide.BUY.ordinal() : OrderSide.SELL.ordinal(),
+                    1 + random.nextInt(1000), 900L + random.nextInt(200), currencyId, Timestamp.valueOf(date)});
+            if (batch.size() == INSERT_BATCH_SIZE || i == orders - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO \"customer_order\" (id, ticker_id, order_side, volume, price, currency_id, date) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        return pageCursor;
+    }
+}
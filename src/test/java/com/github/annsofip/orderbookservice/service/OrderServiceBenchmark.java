@@ -0,0 +1,139 @@
+package com.github.annsofip.orderbookservice.service;
+
+import com.github.annsofip.orderbookservice.OrderBookServiceApplication;
+import com.github.annsofip.orderbookservice.api.OrderRequestDTO;
+import com.github.annsofip.orderbookservice.api.OrderResponseDTO;
+import com.github.annsofip.orderbookservice.api.OrderSummaryDTO;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.model.OrderSummary;
+import com.github.annsofip.orderbookservice.repositories.DailyOrderSummaryRepository;
+import com.github.annsofip.orderbookservice.repositories.OrderRepository;
+import com.github.annsofip.orderbookservice.symbols.SymbolDictionary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The order service in the application context of the tests, against H2 in memory. The database is preloaded with
+ * {@code preloadedOrders} orders over 200 tickers and the last 10 days, written straight to the orders table and
+ * rolled up like on startup. Pass {@code -p preloadedOrders=1000000} to try another size.
+ * <p>
+ * {@code getSummary} is served from the in-memory summaries and should not depend on the number of orders, unlike
+ * {@code getSummaryFromDatabase}, the query that the summaries replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class OrderServiceBenchmark {
+    private static final String[] TICKERS = new String[200];
+    private static final int DAYS = 10;
+    private static final int INSERT_BATCH_SIZE = 10_000;
+
+    static {
+        for (int i = 0; i < TICKERS.length; i++) {
+            TICKERS[i] = "T" + i;
+        }
+    }
+
+    @Param({"0", "100000"})
+    int preloadedOrders;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private OrderRepository orderRepository;
+    private LocalDate today;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(OrderBookServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.profiles.active=test",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.h2.console.enabled=false",
+                        "--logging.level.root=WARN");
+        orderService = context.getBean(OrderService.class);
+        orderRepository = context.getBean(OrderRepository.class);
+        today = LocalDate.now();
+        preload(context.getBean(JdbcTemplate.class), context.getBean(SymbolDictionary.class));
+        context.getBean(DailyOrderSummaryRepository.class).deleteAll();
+        context.getBean(OrderSummaryAggregator.class).rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public OrderSummaryDTO getSummary() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return orderService.getSummary(TICKERS[random.nextInt(TICKERS.length)],
+                random.nextBoolean() ? OrderSide.BUY : OrderSide.SELL, today);
+    }
+
+    @Benchmark
+    public Optional<OrderSummary> getSummaryFromDatabase() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return orderRepository.findSummaryByTickerAndOrderSideAndDate(TICKERS[random.nextInt(TICKERS.length)],
+                random.nextBoolean() ? OrderSide.BUY : OrderSide.SELL, today);
+    }
+
+    @Benchmark
+    public OrderResponseDTO createOrder() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return orderService.createOrder(new OrderRequestDTO(TICKERS[random.nextInt(TICKERS.length)],
+                random.nextBoolean() ? OrderSide.BUY : OrderSide.SELL, 1 + random.nextInt(1000),
+                BigDecimal.valueOf(995 + random.nextInt(10), 2), "SEK"));
+    }
+
+    private void preload(JdbcTemplate jdbcTemplate, SymbolDictionary symbolDictionary) {
+        int[] tickerIds = new int[TICKERS.length];
+        for (int i = 0; i < TICKERS.length; i++) {
+            tickerIds[i] = symbolDictionary.intern(TICKERS[i]);
+        }
+        int currencyId = symbolDictionary.intern("SEK");
+        Random random = new Random(42);
+        LocalDateTime startOfToday = today.atStartOfDay();
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 0; i < preloadedOrders; i++) {
+            LocalDateTime date = startOfToday.minusDays(i % DAYS).plusSeconds(random.nextInt(86_400));
+            batch.add(new Object[]{UUID.randomUUID(), tickerIds[random.nextInt(tickerIds.length)],
+                    random.nextBoolean() ? OrderSide.BUY.ordinal() : OrderSide.SELL.ordinal(), 1 + random.nextInt(1000),
+                    900L + random.nextInt(200), currencyId, Timestamp.valueOf(date)});
+            if (batch.size() == INSERT_BATCH_SIZE || i == preloadedOrders - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO \"customer_order\" (id, ticker_id, order_side, volume, price, currency_id, date) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+}
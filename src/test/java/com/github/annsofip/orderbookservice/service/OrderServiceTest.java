@@ -1,28 +1,49 @@
 package com.github.annsofip.orderbookservice.service;
 
+import com.github.annsofip.orderbookservice.archive.OrderArchive;
+import com.github.annsofip.orderbookservice.config.OrderBookProperties;
+import com.github.annsofip.orderbookservice.idempotency.ClientOrderIds;
+import com.github.annsofip.orderbookservice.matching.BookDepth;
+import com.github.annsofip.orderbookservice.matching.OrderMatcher;
+import com.github.annsofip.orderbookservice.model.OrderSearch;
 import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.pipeline.OrderPipeline;
 import com.github.annsofip.orderbookservice.model.OrderSummary;
+import com.github.annsofip.orderbookservice.model.OrderChanges;
 import com.github.annsofip.orderbookservice.model.OrderMapper;
+import com.github.annsofip.orderbookservice.api.OrderBookDTO;
+import com.github.annsofip.orderbookservice.api.OrderPageDTO;
 import com.github.annsofip.orderbookservice.api.OrderRequestDTO;
 import com.github.annsofip.orderbookservice.api.OrderResponseDTO;
 import com.github.annsofip.orderbookservice.api.OrderSummaryDTO;
+import com.github.annsofip.orderbookservice.api.SummaryKeyDTO;
+import com.github.annsofip.orderbookservice.repositories.OrderEventRepository;
 import com.github.annsofip.orderbookservice.repositories.OrderRepository;
+import com.github.annsofip.orderbookservice.repositories.SymbolRepository;
 import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import com.github.annsofip.orderbookservice.symbols.SymbolDictionary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -34,13 +55,38 @@ public class OrderServiceTest {
 
     private OrderService orderService;
     private OrderRepository orderRepository;
+    private OrderEventRepository orderEventRepository;
+    private OrderWriter orderWriter;
     private OrderMapper orderMapper;
+    private OrderSummaryAggregator orderSummaryAggregator;
+    private CandleAggregator candleAggregator;
+    private OrderMatcher orderMatcher;
+    private OrderCache orderCache;
+    private SymbolDictionary symbolDictionary;
 
     @BeforeEach
     void setUp() {
         orderRepository = mock(OrderRepository.class);
+        orderEventRepository = mock(OrderEventRepository.class);
+        when(orderEventRepository.findChanges(any())).thenReturn(OrderChanges.NONE);
+        orderWriter = mock(OrderWriter.class);
         orderMapper = mock(OrderMapper.class);
-        orderService = new OrderService(orderRepository, orderMapper);
+        orderSummaryAggregator = mock(OrderSummaryAggregator.class);
+        candleAggregator = mock(CandleAggregator.class);
+        orderMatcher = mock(OrderMatcher.class);
+        orderCache = new OrderCache(orderMapper, new OrderBookProperties(), new SimpleMeterRegistry());
+        symbolDictionary = new SymbolDictionary(mock(SymbolRepository.class));
+        orderService = new OrderService(orderRepository, orderEventRepository, orderWriter, orderMapper, orderSummaryAggregator, candleAggregator,
+                orderMatcher,
+                Optional.empty(), orderCache, new OrderMetrics(new SimpleMeterRegistry(), new OrderBookProperties()),
+                symbolDictionary, mock(OrderArchive.class), clientOrderIds());
+    }
+
+    private ClientOrderIds clientOrderIds() {
+        OrderBookProperties properties = new OrderBookProperties();
+        properties.getClientOrderIds().setExpectedIds(1000);
+        return new ClientOrderIds(orderRepository, orderEventRepository, orderMapper, orderMatcher, orderWriter,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), properties);
     }
 
     @Test
@@ -51,8 +97,9 @@ public class OrderServiceTest {
         OrderResponseDTO expectedResponseDTO = createSampleOrderResponseDTO();
 
         when(orderMapper.createOrderDtoToOrder(orderRequestDTO)).thenReturn(order);
-        when(orderRepository.save(order)).thenReturn(savedOrder);
-        when(orderMapper.orderToOrderDto(savedOrder)).thenReturn(expectedResponseDTO);
+        when(orderWriter.write(order)).thenReturn(savedOrder);
+        when(orderMatcher.match(savedOrder)).thenReturn(40);
+        when(orderMapper.orderToOrderDto(savedOrder, 40)).thenReturn(expectedResponseDTO);
 
         OrderResponseDTO responseDTO = orderService.createOrder(orderRequestDTO);
 
@@ -66,8 +113,33 @@ public class OrderServiceTest {
         assertEquals(expectedResponseDTO.getDate(), responseDTO.getDate());
 
         verify(orderMapper, times(1)).createOrderDtoToOrder(orderRequestDTO);
-        verify(orderRepository, times(1)).save(order);
-        verify(orderMapper, times(1)).orderToOrderDto(savedOrder);
+        verify(orderWriter, times(1)).write(order);
+        verify(orderSummaryAggregator, times(1)).add(savedOrder);
+        verify(candleAggregator, times(1)).add(savedOrder);
+        verify(orderMatcher, times(1)).match(savedOrder);
+        verify(orderMapper, times(1)).orderToOrderDto(savedOrder, 40);
+    }
+
+    @Test
+    void createOrder_shouldWaitForPipelineWhenEnabled() {
+        OrderPipeline orderPipeline = mock(OrderPipeline.class);
+        orderService = new OrderService(orderRepository, orderEventRepository, orderWriter, orderMapper, orderSummaryAggregator, candleAggregator,
+                orderMatcher,
+                Optional.of(orderPipeline), orderCache, new OrderMetrics(new SimpleMeterRegistry(), new OrderBookProperties()),
+                new SymbolDictionary(mock(SymbolRepository.class)), mock(OrderArchive.class), clientOrderIds());
+        OrderRequestDTO orderRequestDTO = createSampleOrderRequestDTO();
+        Order order = createSampleOrder();
+        OrderResponseDTO expectedResponseDTO = createSampleOrderResponseDTO();
+
+        when(orderMapper.createOrderDtoToOrder(orderRequestDTO)).thenReturn(order);
+        when(orderPipeline.submit(order)).thenReturn(CompletableFuture.completedFuture(40));
+        when(orderMapper.orderToOrderDto(order, 40)).thenReturn(expectedResponseDTO);
+
+        OrderResponseDTO responseDTO = orderService.createOrder(orderRequestDTO);
+
+        assertEquals(expectedResponseDTO.getId(), responseDTO.getId());
+        verify(orderWriter, never()).write(any());
+        verify(orderMatcher, never()).match(any());
     }
 
     @Test
@@ -77,7 +149,8 @@ public class OrderServiceTest {
         OrderResponseDTO expectedResponseDTO = createSampleOrderResponseDTO();
 
         when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
-        when(orderMapper.orderToOrderDto(order)).thenReturn(expectedResponseDTO);
+        when(orderMatcher.filledVolume(orderId)).thenReturn(0);
+        when(orderMapper.orderToOrderDto(order, OrderChanges.NONE, 0)).thenReturn(expectedResponseDTO);
 
         Optional<OrderResponseDTO> responseDTO = orderService.getOrder(orderId);
 
@@ -91,7 +164,23 @@ public class OrderServiceTest {
         assertEquals(expectedResponseDTO.getDate(), responseDTO.get().getDate());
 
         verify(orderRepository, times(1)).findById(orderId);
-        verify(orderMapper, times(1)).orderToOrderDto(order);
+        verify(orderMapper, times(1)).orderToOrderDto(order, OrderChanges.NONE, 0);
+    }
+
+    @Test
+    void getOrder_shouldReturnUnpersistedOrderWithoutQueryingRepository() {
+        UUID orderId = UUID.randomUUID();
+        Order order = createSampleOrder();
+        OrderResponseDTO expectedResponseDTO = createSampleOrderResponseDTO();
+
+        when(orderWriter.findUnpersisted(orderId)).thenReturn(Optional.of(order));
+        when(orderMapper.orderToOrderDto(order, 0)).thenReturn(expectedResponseDTO);
+
+        Optional<OrderResponseDTO> responseDTO = orderService.getOrder(orderId);
+
+        assertTrue(responseDTO.isPresent());
+        assertEquals(expectedResponseDTO.getId(), responseDTO.get().getId());
+        verify(orderRepository, never()).findById(orderId);
     }
 
     @Test
@@ -105,7 +194,35 @@ public class OrderServiceTest {
         assertFalse(responseDTO.isPresent());
 
         verify(orderRepository, times(1)).findById(orderId);
-        verify(orderMapper, never()).orderToOrderDto(any());
+        verify(orderMapper, never()).orderToOrderDto(any(), anyInt());
+    }
+
+    @Test
+    void getOrder_shouldOnlyQueryRepositoryOnceForSameOrder() {
+        UUID orderId = UUID.randomUUID();
+        Order order = createSampleOrder();
+
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+        when(orderMapper.orderToOrderDto(order, OrderChanges.NONE, 0)).thenReturn(createSampleOrderResponseDTO());
+
+        orderService.getOrder(orderId);
+        Optional<OrderResponseDTO> responseDTO = orderService.getOrder(orderId);
+
+        assertTrue(responseDTO.isPresent());
+        verify(orderRepository, times(1)).findById(orderId);
+    }
+
+    @Test
+    void getOrder_shouldRememberOrderThatDoesNotExist() {
+        UUID orderId = UUID.randomUUID();
+
+        when(orderRepository.findById(orderId)).thenReturn(Optional.empty());
+
+        orderService.getOrder(orderId);
+        Optional<OrderResponseDTO> responseDTO = orderService.getOrder(orderId);
+
+        assertFalse(responseDTO.isPresent());
+        verify(orderRepository, times(1)).findById(orderId);
     }
 
     @Test
@@ -114,13 +231,16 @@ public class OrderServiceTest {
         OrderSide orderSide = OrderSide.BUY;
         LocalDate date = LocalDate.now();
         OrderSummary expectedSummary = OrderSummary.builder()
-                .averagePrice(Double.valueOf(12.99))
-                .minPrice(BigDecimal.valueOf(10.99))
-                .maxPrice(BigDecimal.valueOf(15.99))
-                .numberOfOrders(5L)
+                .totalPrice(6496)
+                .minPrice(1099)
+                .maxPrice(1599)
+                .numberOfOrders(5)
+                .totalVolume(500)
+                .totalNotional(BigDecimal.valueOf(600_000))
+                .currency("SEK")
                 .build();
 
-        when(orderRepository.findSummaryByTickerAndOrderSideAndDate(ticker, orderSide, date))
+        when(orderSummaryAggregator.getSummary(ticker, orderSide, date))
                 .thenReturn(Optional.of(expectedSummary));
 
         OrderSummaryDTO summaryDTO = orderService.getSummary(ticker, orderSide, date);
@@ -128,13 +248,16 @@ public class OrderServiceTest {
         assertNotNull(summaryDTO);
         assertEquals(ticker, summaryDTO.getTicker());
         assertEquals(orderSide, summaryDTO.getOrderSide());
-        assertEquals(expectedSummary.getAveragePrice().doubleValue(), summaryDTO.getAveragePrice().doubleValue());
-        assertEquals(expectedSummary.getMinPrice(), summaryDTO.getMinPrice());
-        assertEquals(expectedSummary.getMaxPrice(), summaryDTO.getMaxPrice());
-        assertEquals(expectedSummary.getNumberOfOrders(), summaryDTO.getNumberOfOrders());
+        assertEquals(new BigDecimal("12.99"), summaryDTO.getAveragePrice());
+        assertEquals(new BigDecimal("10.99"), summaryDTO.getMinPrice());
+        assertEquals(new BigDecimal("15.99"), summaryDTO.getMaxPrice());
+        assertEquals(5L, summaryDTO.getNumberOfOrders());
+        assertEquals(new BigDecimal("12.00"), summaryDTO.getVwap());
+        assertEquals(500L, summaryDTO.getTotalVolume());
         assertEquals(date, summaryDTO.getDate());
 
-        verify(orderRepository, times(1)).findSummaryByTickerAndOrderSideAndDate(ticker, orderSide, date);
+        verify(orderSummaryAggregator, times(1)).getSummary(ticker, orderSide, date);
+        verify(orderRepository, never()).findSummaryByTickerAndOrderSideAndDate(ticker, orderSide, date);
     }
 
     @Test
@@ -143,7 +266,7 @@ public class OrderServiceTest {
         OrderSide orderSide = OrderSide.BUY;
         LocalDate date = LocalDate.now();
 
-        when(orderRepository.findSummaryByTickerAndOrderSideAndDate(ticker, orderSide, date))
+        when(orderSummaryAggregator.getSummary(ticker, orderSide, date))
                 .thenReturn(Optional.empty());
 
         OrderSummaryDTO summaryDTO = orderService.getSummary(ticker, orderSide, date);
@@ -157,7 +280,108 @@ public class OrderServiceTest {
         assertEquals(0L, summaryDTO.getNumberOfOrders());
         assertEquals(date, summaryDTO.getDate());
 
-        verify(orderRepository, times(1)).findSummaryByTickerAndOrderSideAndDate(ticker, orderSide, date);
+        verify(orderSummaryAggregator, times(1)).getSummary(ticker, orderSide, date);
+        verify(orderRepository, never()).findSummaryByTickerAndOrderSideAndDate(ticker, orderSide, date);
+    }
+
+    @Test
+    void getSummaries_shouldReturnOneSummaryPerDayAndZeroFillDaysWithoutOrders() {
+        String ticker = "SAVE";
+        OrderSide orderSide = OrderSide.BUY;
+        LocalDate from = LocalDate.of(2023, 6, 12);
+        OrderSummary summary = OrderSummary.builder()
+                .totalPrice(2000)
+                .minPrice(900)
+                .maxPrice(1100)
+                .numberOfOrders(2)
+                .currency("SEK")
+                .build();
+        when(orderSummaryAggregator.getSummary(ticker, orderSide, from.plusDays(1))).thenReturn(Optional.of(summary));
+        when(orderSummaryAggregator.getSummary(ticker, orderSide, from)).thenReturn(Optional.empty());
+        when(orderSummaryAggregator.getSummary(ticker, orderSide, from.plusDays(2))).thenReturn(Optional.empty());
+
+        List<OrderSummaryDTO> summaries = orderService.getSummaries(ticker, orderSide, from, from.plusDays(2));
+
+        assertEquals(List.of(from, from.plusDays(1), from.plusDays(2)), summaries.stream().map(OrderSummaryDTO::getDate).toList());
+        assertEquals(0L, summaries.get(0).getNumberOfOrders());
+        assertEquals(BigDecimal.ZERO, summaries.get(0).getAveragePrice());
+        assertEquals(2L, summaries.get(1).getNumberOfOrders());
+        assertEquals(new BigDecimal("10.00"), summaries.get(1).getAveragePrice());
+        assertEquals(0L, summaries.get(2).getNumberOfOrders());
+        verify(orderRepository, never()).findSummaryByTickerAndOrderSideAndDate(any(), any(), any());
+    }
+
+    @Test
+    void getSummaries_shouldReturnSummaryPerRequestedTickerAndOrderSideInOrder() {
+        LocalDate date = LocalDate.now();
+        OrderSummary summary = OrderSummary.builder()
+                .totalPrice(1299)
+                .minPrice(1299)
+                .maxPrice(1299)
+                .numberOfOrders(1)
+                .currency("SEK")
+                .build();
+        when(orderSummaryAggregator.getSummary("SAVE", OrderSide.SELL, date)).thenReturn(Optional.of(summary));
+        when(orderSummaryAggregator.getSummary("GME", OrderSide.BUY, date)).thenReturn(Optional.empty());
+
+        List<OrderSummaryDTO> summaries = orderService.getSummaries(
+                List.of(new SummaryKeyDTO("SAVE", OrderSide.SELL), new SummaryKeyDTO("GME", OrderSide.BUY)), date);
+
+        assertEquals(2, summaries.size());
+        assertEquals("SAVE", summaries.get(0).getTicker());
+        assertEquals(OrderSide.SELL, summaries.get(0).getOrderSide());
+        assertEquals(new BigDecimal("12.99"), summaries.get(0).getAveragePrice());
+        assertEquals("GME", summaries.get(1).getTicker());
+        assertEquals(0L, summaries.get(1).getNumberOfOrders());
+    }
+
+    @Test
+    void getBook_shouldConvertLevelsToPricesOfCurrency() {
+        BookDepth depth = new BookDepth("SEK",
+                List.of(new BookDepth.Level(1299, 300, 2), new BookDepth.Level(1250, 100, 1)),
+                List.of(new BookDepth.Level(1300, 50, 1)));
+        when(orderMatcher.depth("SAVE", 10)).thenReturn(Optional.of(depth));
+
+        OrderBookDTO book = orderService.getBook("SAVE", 10);
+
+        assertEquals("SAVE", book.getTicker());
+        assertEquals(2, book.getBids().size());
+        assertEquals(new BigDecimal("12.99"), book.getBids().get(0).getPrice());
+        assertEquals(300L, book.getBids().get(0).getVolume());
+        assertEquals(2, book.getBids().get(0).getNumberOfOrders());
+        assertEquals(new BigDecimal("13.00"), book.getAsks().get(0).getPrice());
+    }
+
+    @Test
+    void getBook_shouldReturnEmptySidesForTickerWithoutOrders() {
+        when(orderMatcher.depth("GME", 10)).thenReturn(Optional.empty());
+
+        OrderBookDTO book = orderService.getBook("GME", 10);
+
+        assertTrue(book.getBids().isEmpty());
+        assertTrue(book.getAsks().isEmpty());
+    }
+
+    @Test
+    void searchOrders_shouldReturnEmptyPageWithoutQueryingForUnknownTicker() {
+        OrderPageDTO page = orderService.searchOrders(OrderSearch.builder().ticker("GME").build(), null, 10);
+
+        assertTrue(page.getOrders().isEmpty());
+        assertNull(page.getNext());
+        assertTrue(symbolDictionary.find("GME").isEmpty());
+        verify(orderRepository, never()).search(any(), any(), anyInt());
+    }
+
+    @Test
+    void searchOrders_shouldReturnEmptyPageWithoutQueryingForUnknownCurrency() {
+        symbolDictionary.intern("SAVE");
+
+        OrderPageDTO page = orderService.searchOrders(OrderSearch.builder().ticker("SAVE").currency("XXX").build(),
+                null, 10);
+
+        assertTrue(page.getOrders().isEmpty());
+        assertTrue(symbolDictionary.find("XXX").isEmpty());
+        verify(orderRepository, never()).search(any(), any(), anyInt());
     }
 
     private OrderRequestDTO createSampleOrderRequestDTO() {
@@ -176,7 +400,7 @@ public class OrderServiceTest {
                 .ticker("SAVE")
                 .orderSide(OrderSide.BUY)
                 .volume(100)
-                .price(BigDecimal.valueOf(12.99))
+                .price(1299)
                 .currency("SEK")
                 .date(LocalDateTime.now())
                 .build();
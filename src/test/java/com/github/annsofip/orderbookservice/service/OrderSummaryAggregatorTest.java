@@ -0,0 +1,258 @@
+package com.github.annsofip.orderbookservice.service;
+
+import com.github.annsofip.orderbookservice.archive.OrderArchive;
+import com.github.annsofip.orderbookservice.model.DailySummary;
+import com.github.annsofip.orderbookservice.model.OrderAmendment;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.model.OrderSummary;
+import com.github.annsofip.orderbookservice.model.PriceRange;
+import com.github.annsofip.orderbookservice.repositories.DailyOrderSummaryRepository;
+import com.github.annsofip.orderbookservice.repositories.OrderRepository;
+import com.github.annsofip.orderbookservice.repositories.SymbolRepository;
+import com.github.annsofip.orderbookservice.repositories.entities.DailyOrderSummary;
+import com.github.annsofip.orderbookservice.repositories.entities.DailyOrderSummaryId;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import com.github.annsofip.orderbookservice.symbols.SymbolDictionary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OrderSummaryAggregatorTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2023, 6, 13, 12, 0);
+
+    private OrderRepository orderRepository;
+    private DailyOrderSummaryRepository dailyOrderSummaryRepository;
+    private OrderSummaryAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = mock(OrderRepository.class);
+        dailyOrderSummaryRepository = mock(DailyOrderSummaryRepository.class);
+        aggregator = new OrderSummaryAggregator(orderRepository, dailyOrderSummaryRepository,
+                new SymbolDictionary(mock(SymbolRepository.class)), mock(OrderArchive.class));
+    }
+
+    @Test
+    void getSummary_shouldAggregateAddedOrders() {
+        aggregator.add(createOrder("SAVE", OrderSide.BUY, 1000, NOW));
+        aggregator.add(createOrder("SAVE", OrderSide.BUY, 1001, NOW.plusHours(1)));
+        aggregator.add(createOrder("SAVE", OrderSide.BUY, 1001, NOW.plusHours(2)));
+
+        OrderSummary summary = aggregator.getSummary("SAVE", OrderSide.BUY, NOW.toLocalDate()).orElseThrow();
+
+        assertEquals(3002, summary.getTotalPrice());
+        assertEquals(1001, summary.getAveragePrice());
+        assertEquals(1000, summary.getMinPrice());
+        assertEquals(1001, summary.getMaxPrice());
+        assertEquals(3L, summary.getNumberOfOrders());
+        assertEquals("SEK", summary.getCurrency());
+    }
+
+    @Test
+    void getSummary_shouldWeighAveragePriceByVolume() {
+        aggregator.add(createOrder("SAVE", OrderSide.BUY, 1000, 300, NOW));
+        aggregator.add(createOrder("SAVE", OrderSide.BUY, 2000, 100, NOW));
+        aggregator.add(createOrder("SAVE", OrderSide.BUY, 1001, 1, NOW));
+
+        OrderSummary summary = aggregator.getSummary("SAVE", OrderSide.BUY, NOW.toLocalDate()).orElseThrow();
+
+        assertEquals(401L, summary.getTotalVolume());
+        assertEquals(0, BigDecimal.valueOf(501_001).compareTo(summary.getTotalNotional()));
+        assertEquals(1249L, summary.getVwap());
+        assertEquals(1334L, summary.getAveragePrice());
+    }
+
+    @Test
+    void getSummary_shouldKeepExactNotionalBeyondRangeOfLong() {
+        long price = Long.MAX_VALUE / 4;
+        BigDecimal expected = BigDecimal.ZERO;
+        for (int i = 0; i < 3; i++) {
+            aggregator.add(createOrder("SAVE", OrderSide.BUY, price, Integer.MAX_VALUE, NOW));
+            expected = expected.add(BigDecimal.valueOf(price).multiply(BigDecimal.valueOf(Integer.MAX_VALUE)));
+        }
+        aggregator.add(createOrder("SAVE", OrderSide.BUY, -price, 1, NOW));
+        expected = expected.subtract(BigDecimal.valueOf(price));
+
+        OrderSummary summary = aggregator.getSummary("SAVE", OrderSide.BUY, NOW.toLocalDate()).orElseThrow();
+
+        assertEquals(expected, summary.getTotalNotional());
+    }
+
+    @Test
+    void getSummary_shouldKeepTickerSideAndDayApart() {
+        aggregator.add(createOrder("SAVE", OrderSide.BUY, 1000, NOW));
+        aggregator.add(createOrder("SAVE", OrderSide.SELL, 1100, NOW));
+        aggregator.add(createOrder("SAVE", OrderSide.BUY, 1200, NOW.plusDays(1)));
+        aggregator.add(createOrder("GME", OrderSide.BUY, 1300, NOW));
+
+        OrderSummary summary = aggregator.getSummary("SAVE", OrderSide.BUY, NOW.toLocalDate()).orElseThrow();
+
+        assertEquals(1L, summary.getNumberOfOrders());
+        assertEquals(1000, summary.getMaxPrice());
+        assertFalse(aggregator.getSummary("SAVE", OrderSide.BUY, NOW.toLocalDate().minusDays(1)).isPresent());
+    }
+
+    @Test
+    void amend_shouldMoveOrderToNewVolumeAndPrice() {
+        Order amended = createOrder("SAVE", OrderSide.BUY, 1001, 100, NOW);
+        aggregator.add(createOrder("SAVE", OrderSide.BUY, 1000, 100, NOW));
+        aggregator.add(amended);
+        aggregator.add(createOrder("SAVE", OrderSide.BUY, 1003, 100, NOW));
+        OrderAmendment amendment = new OrderAmendment(amended, 100, 1001, 40, 1002);
+
+        Optional<PriceRange> range = aggregator.priceRange(amendment);
+        aggregator.amend(amendment, range);
+
+        OrderSummary summary = aggregator.getSummary("SAVE", OrderSide.BUY, NOW.toLocalDate()).orElseThrow();
+        assertFalse(range.isPresent());
+        assertEquals(3005, summary.getTotalPrice());
+        assertEquals(1000, summary.getMinPrice());
+        assertEquals(1003, summary.getMaxPrice());
+        assertEquals(3L, summary.getNumberOfOrders());
+        assertEquals(240L, summary.getTotalVolume());
+        assertEquals(0, BigDecimal.valueOf(100_000 + 40_080 + 100_300).compareTo(summary.getTotalNotional()));
+        verify(orderRepository, never()).findSummaryByTickerAndOrderSideAndDate("SAVE", OrderSide.BUY, NOW.toLocalDate());
+    }
+
+    @Test
+    void amend_shouldLookUpPriceRangeWhenOrderMovesAwayFromIt() {
+        Order amended = createOrder("SAVE", OrderSide.BUY, 1003, NOW);
+        aggregator.add(createOrder("SAVE", OrderSide.BUY, 1000, NOW));
+        aggregator.add(amended);
+        // The orders table already has the order at its new price.
+        when(orderRepository.findSummaryByTickerAndOrderSideAndDate("SAVE", OrderSide.BUY, NOW.toLocalDate()))
+                .thenReturn(Optional.of(new OrderSummary(2001L, 1001L, 1000L, 2L, 200L, BigDecimal.valueOf(200_100), "SEK")));
+        OrderAmendment amendment = new OrderAmendment(amended, 100, 1003, 100, 1001);
+
+        Optional<PriceRange> range = aggregator.priceRange(amendment);
+        aggregator.amend(amendment, range);
+
+        OrderSummary summary = aggregator.getSummary("SAVE", OrderSide.BUY, NOW.toLocalDate()).orElseThrow();
+        assertEquals(Optional.of(new PriceRange(1000, 1001)), range);
+        assertEquals(1000, summary.getMinPrice());
+        assertEquals(1001, summary.getMaxPrice());
+        assertEquals(2001, summary.getTotalPrice());
+    }
+
+    @Test
+    void amend_shouldKeepLowerPriceAddedAfterRangeWasLookedUp() {
+        Order amended = createOrder("SAVE", OrderSide.BUY, 1000, NOW);
+        aggregator.add(amended);
+        aggregator.add(createOrder("SAVE", OrderSide.BUY, 1005, NOW));
+        OrderAmendment amendment = new OrderAmendment(amended, 100, 1000, 100, 1002);
+        when(orderRepository.findSummaryByTickerAndOrderSideAndDate("SAVE", OrderSide.BUY, NOW.toLocalDate()))
+                .thenReturn(Optional.of(new OrderSummary(2007L, 1005L, 1002L, 2L, 200L, BigDecimal.valueOf(200_700), "SEK")));
+
+        Optional<PriceRange> range = aggregator.priceRange(amendment);
+        aggregator.add(createOrder("SAVE", OrderSide.BUY, 990, NOW));
+        aggregator.amend(amendment, range);
+
+        OrderSummary summary = aggregator.getSummary("SAVE", OrderSide.BUY, NOW.toLocalDate()).orElseThrow();
+        assertEquals(990, summary.getMinPrice());
+        assertEquals(1005, summary.getMaxPrice());
+    }
+
+    @Test
+    void amend_shouldKeepExactNotionalBeyondRangeOfLong() {
+        long price = Long.MAX_VALUE / 4;
+        Order amended = createOrder("SAVE", OrderSide.BUY, price, Integer.MAX_VALUE, NOW);
+        aggregator.add(createOrder("SAVE", OrderSide.BUY, price, Integer.MAX_VALUE, NOW));
+        aggregator.add(amended);
+
+        aggregator.amend(new OrderAmendment(amended, Integer.MAX_VALUE, price, 3, price - 1), Optional.empty());
+
+        BigDecimal expected = BigDecimal.valueOf(price).multiply(BigDecimal.valueOf(Integer.MAX_VALUE))
+                .add(BigDecimal.valueOf(price - 1).multiply(BigDecimal.valueOf(3)));
+        assertEquals(expected, aggregator.getSummary("SAVE", OrderSide.BUY, NOW.toLocalDate()).orElseThrow().getTotalNotional());
+    }
+
+    @Test
+    void rebuild_shouldLoadDailySummariesFromRollup() {
+        LocalDate date = NOW.toLocalDate();
+        when(dailyOrderSummaryRepository.count()).thenReturn(1L);
+        when(dailyOrderSummaryRepository.findAll()).thenReturn(List.of(DailyOrderSummary.builder()
+                .id(new DailyOrderSummaryId("SAVE", OrderSide.BUY, date))
+                .numberOfOrders(2L)
+                .totalPrice(3000L)
+                .minPrice(1000L)
+                .maxPrice(2000L)
+                .totalVolume(300L)
+                .totalNotional(BigDecimal.valueOf(400_000))
+                .currency("SEK")
+                .build()));
+
+        aggregator.rebuild();
+        aggregator.add(createOrder("SAVE", OrderSide.BUY, 500, NOW));
+
+        Optional<OrderSummary> summary = aggregator.getSummary("SAVE", OrderSide.BUY, date);
+
+        assertTrue(summary.isPresent());
+        assertEquals(1167, summary.get().getAveragePrice());
+        assertEquals(500, summary.get().getMinPrice());
+        assertEquals(2000, summary.get().getMaxPrice());
+        assertEquals(3L, summary.get().getNumberOfOrders());
+        assertEquals(400L, summary.get().getTotalVolume());
+        assertEquals(1125L, summary.get().getVwap());
+        verify(orderRepository, never()).findDailySummaries();
+    }
+
+    @Test
+    void rebuild_shouldBackfillEmptyRollupFromOrders() {
+        LocalDate date = NOW.toLocalDate();
+        when(dailyOrderSummaryRepository.count()).thenReturn(0L);
+        when(orderRepository.findDailySummaries()).thenReturn(List.of(new DailySummary("SAVE", OrderSide.BUY, date,
+                3000L, 2000L, 1000L, 2L, 200L, BigDecimal.valueOf(300_000), "SEK")));
+
+        aggregator.rebuild();
+
+        verify(dailyOrderSummaryRepository, times(1)).saveAll(argThat(rows -> rows.iterator().next().getNumberOfOrders() == 2L));
+    }
+
+    @Test
+    void add_shouldNotLoseOrdersWhenCalledConcurrently() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 10_000; i++) {
+            executor.execute(() -> aggregator.add(createOrder("SAVE", OrderSide.BUY, 100, NOW)));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(10_000L, aggregator.getSummary("SAVE", OrderSide.BUY, NOW.toLocalDate()).orElseThrow().getNumberOfOrders());
+    }
+
+    private Order createOrder(String ticker, OrderSide orderSide, long price, LocalDateTime date) {
+        return createOrder(ticker, orderSide, price, 100, date);
+    }
+
+    private Order createOrder(String ticker, OrderSide orderSide, long price, int volume, LocalDateTime date) {
+        return Order.builder()
+                .id(UUID.randomUUID())
+                .ticker(ticker)
+                .orderSide(orderSide)
+                .volume(volume)
+                .price(price)
+                .currency("SEK")
+                .date(date)
+                .build();
+    }
+}
@@ -0,0 +1,225 @@
+package com.github.annsofip.orderbookservice.service;
+
+import com.github.annsofip.orderbookservice.archive.OrderArchive;
+import com.github.annsofip.orderbookservice.api.OrderSummaryDTO;
+import com.github.annsofip.orderbookservice.config.OrderBookProperties;
+import com.github.annsofip.orderbookservice.model.OrderSide;
+import com.github.annsofip.orderbookservice.model.OrderSummary;
+import com.github.annsofip.orderbookservice.repositories.DailyOrderSummaryRepository;
+import com.github.annsofip.orderbookservice.repositories.OrderRepository;
+import com.github.annsofip.orderbookservice.repositories.SymbolRepository;
+import com.github.annsofip.orderbookservice.repositories.entities.Order;
+import com.github.annsofip.orderbookservice.symbols.SymbolDictionary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class OrderSummaryPublisherTest {
+
+    private OrderSummaryAggregator aggregator;
+    private OrderService orderService;
+    private OrderBookProperties properties;
+    private OrderSummaryPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        aggregator = new OrderSummaryAggregator(mock(OrderRepository.class), mock(DailyOrderSummaryRepository.class),
+                new SymbolDictionary(mock(SymbolRepository.class)), mock(OrderArchive.class));
+        orderService = mock(OrderService.class);
+        when(orderService.getSummary(any(), any(), any())).thenAnswer(invocation -> OrderSummaryDTO.builder()
+                .ticker(invocation.getArgument(0))
+                .orderSide(invocation.getArgument(1))
+                .date(invocation.getArgument(2))
+                .numberOfOrders(aggregator.getSummary(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2))
+                        .map(OrderSummary::getNumberOfOrders)
+                        .orElse(0L))
+                .build());
+        properties = new OrderBookProperties();
+        properties.getSummaryStream().setThreads(1);
+        publisher = new OrderSummaryPublisher(orderService, aggregator, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        publisher.stop();
+    }
+
+    @Test
+    void subscribe_shouldSendTodaysSummariesOfBothSides() throws InterruptedException {
+        RecordingEmitter emitter = new RecordingEmitter(null);
+
+        assertTrue(publisher.subscribe("SAVE", emitter));
+
+        emitter.awaitSummaries(2);
+        assertEquals(List.of(OrderSide.BUY, OrderSide.SELL),
+                emitter.summaries.stream().map(OrderSummaryDTO::getOrderSide).sorted().toList());
+    }
+
+    @Test
+    void changed_shouldOnlySendLatestSummaryToSlowSubscriber() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter emitter = new RecordingEmitter(release);
+        publisher.subscribe("SAVE", emitter);
+
+        for (int i = 0; i < 50; i++) {
+            aggregator.add(createOrder("SAVE"));
+        }
+        aggregator.add(createOrder("GME"));
+        release.countDown();
+
+        for (int i = 0; i < 500 && emitter.summaries.stream().noneMatch(summary -> summary.getNumberOfOrders() == 50L); i++) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        List<OrderSummaryDTO> buys = emitter.summaries.stream()
+                .filter(summary -> summary.getOrderSide() == OrderSide.BUY)
+                .toList();
+        assertTrue(emitter.summaries.size() <= 4, "Sent " + emitter.summaries.size() + " summaries");
+        assertEquals(50L, buys.get(buys.size() - 1).getNumberOfOrders());
+        assertTrue(emitter.summaries.stream().allMatch(summary -> summary.getTicker().equals("SAVE")));
+    }
+
+    @Test
+    void subscribe_shouldRefuseSubscribersAboveMaximum() {
+        publisher.stop();
+        properties.getSummaryStream().setMaxSubscribers(1);
+        publisher = new OrderSummaryPublisher(mock(OrderService.class), aggregator, properties);
+
+        assertTrue(publisher.subscribe("SAVE", new RecordingEmitter(null)));
+        assertFalse(publisher.subscribe("GME", new RecordingEmitter(null)));
+        assertEquals(1, publisher.subscriberCount());
+    }
+
+    @Test
+    void send_shouldRemoveSubscriberWhenSendingFails() throws InterruptedException {
+        CountDownLatch failed = new CountDownLatch(1);
+        SseEmitter emitter = new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                failed.countDown();
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        publisher.subscribe("SAVE", emitter);
+
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 50 && publisher.subscriberCount() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, publisher.subscriberCount());
+    }
+
+    @Test
+    void heartbeat_shouldReachSubscribersWhileAnotherOneIsBlocked() throws InterruptedException {
+        publisher.stop();
+        properties.getSummaryStream().setThreads(2);
+        properties.getSummaryStream().setHeartbeatInterval(Duration.ofMillis(20));
+        publisher = new OrderSummaryPublisher(orderService, aggregator, properties);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch heartbeats = new CountDownLatch(3);
+
+        publisher.subscribe("SAVE", new RecordingEmitter(release));
+        publisher.subscribe("GME", new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                if (builder.build().stream().anyMatch(data -> data.getData().toString().contains("heartbeat"))) {
+                    heartbeats.countDown();
+                }
+            }
+        });
+
+        try {
+            assertTrue(heartbeats.await(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void send_shouldDropSubscriberWhoseSendTakesLongerThanTheTimeout() throws InterruptedException {
+        publisher.stop();
+        properties.getSummaryStream().setSendTimeout(Duration.ofMillis(50));
+        publisher = new OrderSummaryPublisher(orderService, aggregator, properties);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        SseEmitter stuck = new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                try {
+                    new CountDownLatch(1).await();
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw new IOException("Interrupted");
+                }
+            }
+        };
+
+        publisher.subscribe("SAVE", stuck);
+
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertEquals(0, publisher.subscriberCount());
+        // The only thread is free for the other subscribers again.
+        RecordingEmitter next = new RecordingEmitter(null);
+        publisher.subscribe("SAVE", next);
+        next.awaitSummaries(2);
+    }
+
+    private Order createOrder(String ticker) {
+        return Order.builder()
+                .id(UUID.randomUUID())
+                .ticker(ticker)
+                .orderSide(OrderSide.BUY)
+                .volume(100)
+                .price(1299)
+                .currency("SEK")
+                .date(LocalDateTime.now())
+                .build();
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final CountDownLatch release;
+        private final List<OrderSummaryDTO> summaries = new CopyOnWriteArrayList<>();
+
+        RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            try {
+                if (release != null) {
+                    release.await();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            builder.build().stream()
+                    .filter(data -> data.getData() instanceof OrderSummaryDTO)
+                    .forEach(data -> summaries.add((OrderSummaryDTO) data.getData()));
+        }
+
+        void awaitSummaries(int count) throws InterruptedException {
+            for (int i = 0; i < 500 && summaries.size() < count; i++) {
+                Thread.sleep(10);
+            }
+            assertTrue(summaries.size() >= count, "Sent " + summaries.size() + " summaries");
+        }
+    }
+}
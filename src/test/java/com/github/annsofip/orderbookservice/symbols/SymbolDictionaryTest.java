@@ -0,0 +1,104 @@
+package com.github.annsofip.orderbookservice.symbols;
+
+import com.github.annsofip.orderbookservice.repositories.SymbolRepository;
+import com.github.annsofip.orderbookservice.repositories.entities.Symbol;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SymbolDictionaryTest {
+
+    private SymbolRepository symbolRepository;
+    private SymbolDictionary symbolDictionary;
+
+    @BeforeEach
+    void setUp() {
+        symbolRepository = mock(SymbolRepository.class);
+        symbolDictionary = new SymbolDictionary(symbolRepository);
+    }
+
+    @Test
+    void intern_shouldSaveNewSymbolsOnceWithTheNextId() {
+        assertEquals(1, symbolDictionary.intern("SAVE"));
+        assertEquals(2, symbolDictionary.intern("SEK"));
+        assertEquals(1, symbolDictionary.intern(new String("SAVE")));
+
+        ArgumentCaptor<Symbol> saved = ArgumentCaptor.forClass(Symbol.class);
+        verify(symbolRepository, times(2)).save(saved.capture());
+        assertEquals(List.of(1, 2), saved.getAllValues().stream().map(Symbol::getId).toList());
+        assertEquals("SEK", symbolDictionary.name(2));
+    }
+
+    @Test
+    void load_shouldContinueAfterHighestStoredId() {
+        when(symbolRepository.findAll()).thenReturn(List.of(
+                Symbol.builder().id(1).name("SAVE").build(),
+                Symbol.builder().id(200).name("SEK").build()));
+
+        symbolDictionary.load();
+
+        assertEquals(OptionalInt.of(200), symbolDictionary.find("SEK"));
+        assertEquals("SEK", symbolDictionary.name(200));
+        assertEquals(201, symbolDictionary.intern("GME"));
+    }
+
+    @Test
+    void find_shouldNotAddUnknownSymbols() {
+        assertEquals(OptionalInt.empty(), symbolDictionary.find("GME"));
+
+        verify(symbolRepository, never()).save(any());
+        assertThrows(IllegalArgumentException.class, () -> symbolDictionary.name(1));
+    }
+
+    @Test
+    void intern_shouldNotAddSymbolThatCouldNotBeSaved() {
+        when(symbolRepository.save(any())).thenThrow(new IllegalStateException("Value too long"));
+
+        assertThrows(IllegalStateException.class, () -> symbolDictionary.intern("TOOLONGTICKER"));
+
+        assertEquals(OptionalInt.empty(), symbolDictionary.find("TOOLONGTICKER"));
+    }
+
+    @Test
+    void intern_shouldGiveEverySymbolOneIdUnderConcurrency() throws InterruptedException {
+        ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = IntStream.range(0, 4).mapToObj(t -> new Thread(() -> {
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (int i = 0; i < 500; i++) {
+                String name = "T" + i;
+                int id = symbolDictionary.intern(name);
+                Integer previous = ids.putIfAbsent(name, id);
+                assertEquals(previous == null ? id : previous, id);
+                assertEquals(name, symbolDictionary.name(id));
+            }
+        })).toList();
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(500, ids.values().stream().distinct().count());
+        verify(symbolRepository, times(500)).save(any());
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.annsofip.orderbookservice.symbols;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class SymbolMapTest {
+
+    @Test
+    void computeIfAbsent_shouldGrowBeyondInitialSizeAndKeepValues() {
+        SymbolMap<String> map = new SymbolMap<>();
+        AtomicInteger calls = new AtomicInteger();
+
+        map.computeIfAbsent(3, id -> "three");
+        map.computeIfAbsent(1000, id -> "thousand");
+        map.computeIfAbsent(3, id -> "again" + calls.incrementAndGet());
+
+        assertEquals("three", map.get(3));
+        assertEquals("thousand", map.get(1000));
+        assertNull(map.get(4));
+        assertNull(map.get(100_000));
+        assertEquals(0, calls.get());
+        assertEquals(List.of("three", "thousand"), map.values().toList());
+    }
+
+    @Test
+    void clear_shouldRemoveAllValues() {
+        SymbolMap<String> map = new SymbolMap<>();
+        map.computeIfAbsent(1, id -> "one");
+
+        map.clear();
+
+        assertNull(map.get(1));
+        assertEquals(List.of(), map.values().toList());
+    }
+}